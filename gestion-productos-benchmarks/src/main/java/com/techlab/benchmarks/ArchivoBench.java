@@ -0,0 +1,62 @@
+package com.techlab.benchmarks;
+
+import com.techlab.servicios.ProductoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga y guardado de productos.txt. Los archivos se generan en target/datos-bench
+ * (-Dtechlab.datos), nunca en la carpeta data del proyecto.
+ * 10 millones de filas necesitan un heap grande: ajustar -Xmx o elegir tamaños con -p filas=...
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx24g", "-Dtechlab.datos=target/datos-bench"})
+public class ArchivoBench {
+
+    @State(Scope.Benchmark)
+    public static class Archivo {
+        @Param({"10000", "1000000", "10000000"})
+        int filas;
+
+        @Setup(Level.Trial)
+        public void generar() {
+            DatosSinteticos.escribirArchivoProductos(filas);
+        }
+    }
+
+    /** Catálogo ya cargado, solo para el guardado (las cargas no lo necesitan en memoria). */
+    @State(Scope.Benchmark)
+    public static class Cargado {
+        ProductoService servicio;
+
+        @Setup(Level.Trial)
+        public void cargar(Archivo archivo) {
+            servicio = new ProductoService();
+            servicio.cargarDesdeArchivo();
+        }
+    }
+
+    @Benchmark
+    public ProductoService cargarDesdeArchivo(Archivo archivo) {
+        ProductoService servicio = new ProductoService();
+        servicio.cargarDesdeArchivo();
+        return servicio;
+    }
+
+    @Benchmark
+    public ProductoService cargarDesdeArchivoParalelo(Archivo archivo) {
+        ProductoService servicio = new ProductoService();
+        servicio.cargarDesdeArchivoParalelo();
+        return servicio;
+    }
+
+    // Reescribe el mismo contenido que se generó, así las cargas siguientes leen lo mismo.
+    @Benchmark
+    public boolean guardarEnArchivo(Cargado cargado) {
+        return cargado.servicio.guardarEnArchivo();
+    }
+}
@@ -0,0 +1,316 @@
+package com.techlab.benchmarks;
+
+import com.techlab.http.ServidorHttp;
+import com.techlab.metricas.Histograma;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.PersistenciaService;
+import com.techlab.servicios.ProductoService;
+import com.techlab.util.Hilos;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga de la API HTTP: muchas terminales conectadas a la vez, cada una con su
+ * conexión persistente, que mandan una solicitud cada cierto intervalo (70% consultas por ID,
+ * 10% búsquedas por nombre, 20% pedidos de 1 a 3 líneas).
+ *
+ * Las solicitudes tienen horario fijo: la latencia se mide desde el momento en que la
+ * solicitud tenía que salir, no desde que salió. Si el servidor se atrasa, la terminal no
+ * "espera su turno" escondiendo la demora (omisión coordinada): la demora cuenta.
+ *
+ * Sin --url levanta en el mismo proceso un servidor con un catálogo sintético (y, con
+ * --durable, con el journal en una carpeta temporal: cada pedido espera su fsync).
+ *
+ * Uso: java -cp target/benchmarks.jar com.techlab.benchmarks.CargaHttp [opciones]
+ * <pre>
+ * --clientes N        terminales conectadas a la vez (2000)
+ * --intervalo-ms N    tiempo entre solicitudes de una misma terminal (2000)
+ * --segundos N        duración de la medición (20), después de --calentamiento N (5)
+ * --productos N       tamaño del catálogo sintético (10000)
+ * --durable           servidor propio con journal
+ * --url URL           servidor ya levantado (con el catálogo de DatosSinteticos cargado)
+ * --limite-p99-ms N   termina con código 1 si el p99 total lo supera o hubo errores (250)
+ * </pre>
+ */
+public final class CargaHttp {
+
+    private enum Tipo { CONSULTA, BUSQUEDA, PEDIDO }
+
+    private final int clientes;
+    private final long intervaloNanos;
+    private final int productos;
+    private final String servidor;
+    private final int puerto;
+
+    private final Histograma[] latencias = new Histograma[Tipo.values().length];
+    private final Histograma total = new Histograma();
+    private final AtomicLongArray respuestasPorClase = new AtomicLongArray(6); // 1xx..5xx, y 0 = sin respuesta
+    private final AtomicInteger conectados = new AtomicInteger();
+    private volatile long inicioMedicion = Long.MAX_VALUE;
+    private volatile long finMedicion = Long.MAX_VALUE;
+
+    private CargaHttp(int clientes, long intervaloNanos, int productos, String servidor, int puerto) {
+        this.clientes = clientes;
+        this.intervaloNanos = intervaloNanos;
+        this.productos = productos;
+        this.servidor = servidor;
+        this.puerto = puerto;
+        for (int i = 0; i < latencias.length; i++) latencias[i] = new Histograma();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = opciones(args);
+        int clientes = Integer.parseInt(opciones.getOrDefault("clientes", "2000"));
+        long intervaloMs = Long.parseLong(opciones.getOrDefault("intervalo-ms", "2000"));
+        int segundos = Integer.parseInt(opciones.getOrDefault("segundos", "20"));
+        int calentamiento = Integer.parseInt(opciones.getOrDefault("calentamiento", "5"));
+        int productos = Integer.parseInt(opciones.getOrDefault("productos", "10000"));
+        long limiteP99Ms = Long.parseLong(opciones.getOrDefault("limite-p99-ms", "250"));
+
+        ServidorHttp propio = null;
+        PersistenciaService persistencia = null;
+        String host;
+        int puerto;
+        if (opciones.containsKey("url")) {
+            URI url = URI.create(opciones.get("url"));
+            host = url.getHost();
+            puerto = url.getPort() < 0 ? 80 : url.getPort();
+        } else {
+            Path carpeta = null;
+            if (opciones.containsKey("durable")) {
+                // Snapshots y exportaciones también en la carpeta temporal, no en data/ (antes de
+                // que se carguen los servicios, que leen la propiedad una sola vez).
+                carpeta = Files.createTempDirectory("carga-http");
+                System.setProperty("techlab.datos", carpeta.toString());
+            }
+            ProductoService productoService = new ProductoService();
+            PedidoService pedidoService = new PedidoService(productoService);
+            if (carpeta != null) {
+                persistencia = new PersistenciaService(productoService, pedidoService, carpeta.resolve("journal"));
+                persistencia.iniciar();
+                persistencia.setConfirmacionDiferida(true); // el catálogo inicial, con un solo fsync
+                DatosSinteticos.agregarProductos(productoService, productos);
+                persistencia.esperarDurable();
+                System.out.println("Journal en " + carpeta);
+            } else {
+                DatosSinteticos.agregarProductos(productoService, productos);
+            }
+            // Con persistencia, el servidor deja la confirmación diferida y espera el fsync sin bloqueos.
+            propio = new ServidorHttp(productoService, pedidoService, persistencia, 0);
+            propio.iniciar();
+            host = "localhost";
+            puerto = propio.getPuerto();
+        }
+
+        System.out.printf("Clientes: %d (%s), una solicitud cada %d ms → %.0f solicitudes/s ofrecidas%n",
+                clientes, Hilos.hayVirtuales() ? "hilos virtuales" : "hilos de plataforma", intervaloMs,
+                clientes * 1000.0 / intervaloMs);
+        CargaHttp carga = new CargaHttp(clientes, TimeUnit.MILLISECONDS.toNanos(intervaloMs), productos, host, puerto);
+        boolean bien = carga.correr(calentamiento, segundos, limiteP99Ms);
+
+        if (propio != null) propio.close();
+        if (persistencia != null) persistencia.close();
+        System.exit(bien ? 0 : 1);
+    }
+
+    private boolean correr(int calentamiento, int segundos, long limiteP99Ms) throws InterruptedException {
+        long arranque = System.nanoTime();
+        inicioMedicion = arranque + TimeUnit.SECONDS.toNanos(calentamiento);
+        finMedicion = inicioMedicion + TimeUnit.SECONDS.toNanos(segundos);
+        ExecutorService hilos = Hilos.unHiloPorTarea("cliente");
+        for (int c = 0; c < clientes; c++) {
+            int numero = c;
+            hilos.execute(() -> terminal(numero, arranque));
+        }
+        // Conexiones abiertas a la vez: la menor de las muestras de cada segundo de la medición
+        // (con horario fijo: con la CPU saturada, una muestra atrasada caería después del final).
+        int minimoConectados = Integer.MAX_VALUE;
+        for (long muestra = inicioMedicion; muestra < finMedicion; muestra += TimeUnit.SECONDS.toNanos(1)) {
+            for (long resto; (resto = muestra - System.nanoTime()) > 0; ) LockSupport.parkNanos(resto);
+            int ahora = conectados.get();
+            if (System.nanoTime() < finMedicion) minimoConectados = Math.min(minimoConectados, ahora);
+        }
+        hilos.shutdown();
+        hilos.awaitTermination(30, TimeUnit.SECONDS);
+        return informar(segundos, minimoConectados, limiteP99Ms);
+    }
+
+    // Una terminal: su propia conexión y una solicitud por intervalo, con fase al azar.
+    private void terminal(int numero, long arranque) {
+        SplittableRandom azar = new SplittableRandom(DatosSinteticos.SEMILLA + numero);
+        long proxima = arranque + azar.nextLong(intervaloNanos);
+        Conexion conexion = null;
+        try {
+            while (proxima < finMedicion) {
+                long espera = proxima - System.nanoTime();
+                if (espera > 0) LockSupport.parkNanos(espera);
+                Tipo tipo = elegir(azar);
+                int estado;
+                try {
+                    if (conexion == null) {
+                        conexion = new Conexion(servidor, puerto);
+                        conectados.incrementAndGet();
+                    }
+                    estado = conexion.enviar(solicitud(tipo, azar));
+                } catch (IOException e) {
+                    estado = 0;
+                    if (conexion != null) {
+                        conexion.cerrar();
+                        conectados.decrementAndGet();
+                        conexion = null;
+                    }
+                }
+                long fin = System.nanoTime();
+                if (proxima >= inicioMedicion && proxima < finMedicion) {
+                    long latencia = fin - proxima;
+                    latencias[tipo.ordinal()].registrar(latencia);
+                    total.registrar(latencia);
+                    respuestasPorClase.incrementAndGet(estado / 100);
+                }
+                proxima += intervaloNanos;
+            }
+            // Conectada hasta el final de la medición, aunque ya no le toque otra solicitud.
+            for (long resto; (resto = finMedicion - System.nanoTime()) > 0; ) LockSupport.parkNanos(resto);
+        } finally {
+            if (conexion != null) {
+                conexion.cerrar();
+                conectados.decrementAndGet();
+            }
+        }
+    }
+
+    private static Tipo elegir(SplittableRandom azar) {
+        int r = azar.nextInt(100);
+        return r < 70 ? Tipo.CONSULTA : r < 80 ? Tipo.BUSQUEDA : Tipo.PEDIDO;
+    }
+
+    private String solicitud(Tipo tipo, SplittableRandom azar) {
+        int id = 1 + azar.nextInt(productos);
+        return switch (tipo) {
+            case CONSULTA -> "GET /productos/" + id + " HTTP/1.1\r\nHost: " + servidor + "\r\n\r\n";
+            case BUSQUEDA -> {
+                String nombre = DatosSinteticos.nombre(id - 1);
+                String texto = URLEncoder.encode(nombre.substring(0, nombre.indexOf(' ') + 3), StandardCharsets.UTF_8);
+                yield "GET /productos?buscar=" + texto + "&maximo=5 HTTP/1.1\r\nHost: " + servidor + "\r\n\r\n";
+            }
+            case PEDIDO -> {
+                StringBuilder cuerpo = new StringBuilder("{\"lineas\":[");
+                int lineas = 1 + azar.nextInt(3);
+                for (int i = 0; i < lineas; i++) {
+                    if (i > 0) cuerpo.append(',');
+                    cuerpo.append("{\"idProducto\":").append(1 + azar.nextInt(productos)).append(",\"cantidad\":1}");
+                }
+                cuerpo.append("]}");
+                yield "POST /pedidos HTTP/1.1\r\nHost: " + servidor + "\r\nContent-Type: application/json\r\n"
+                        + "Content-Length: " + cuerpo.length() + "\r\n\r\n" + cuerpo;
+            }
+        };
+    }
+
+    private boolean informar(int segundos, int minimoConectados, long limiteP99Ms) {
+        long respuestas = total.resumen().cantidad();
+        long sinRespuesta = respuestasPorClase.get(0);
+        long errores = sinRespuesta + respuestasPorClase.get(4) + respuestasPorClase.get(5);
+        System.out.println("Clientes conectados a la vez durante la medición: al menos " + minimoConectados);
+        System.out.printf("Medición: %d s, %d solicitudes (%.0f/s), 2xx: %d, 4xx: %d, 5xx: %d, sin respuesta: %d%n",
+                segundos, respuestas, respuestas / (double) segundos, respuestasPorClase.get(2),
+                respuestasPorClase.get(4), respuestasPorClase.get(5), sinRespuesta);
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n",
+                "Operación", "Cantidad", "Prom. ms", "p50 ms", "p99 ms", "p99.9 ms", "Máx. ms");
+        for (Tipo tipo : Tipo.values()) fila(tipo.name().toLowerCase(), latencias[tipo.ordinal()]);
+        fila("total", total);
+
+        double p99Ms = total.resumen().p99() / 1e6;
+        boolean bien = errores == 0 && p99Ms <= limiteP99Ms;
+        System.out.println(bien ? "✅ p99 " + String.format("%.1f", p99Ms) + " ms, dentro del límite de " + limiteP99Ms + " ms"
+                : "⚠️ Fuera del límite: p99 " + String.format("%.1f", p99Ms) + " ms (límite " + limiteP99Ms
+                + " ms), errores " + errores);
+        return bien;
+    }
+
+    private static void fila(String nombre, Histograma h) {
+        Histograma.Resumen r = h.resumen();
+        System.out.printf("%-10s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", nombre, r.cantidad(),
+                r.promedio() / 1e6, r.p50() / 1e6, r.p99() / 1e6, r.p999() / 1e6, r.maximo() / 1e6);
+    }
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Opción inválida: " + args[i]);
+            String nombre = args[i].substring(2);
+            boolean conValor = i + 1 < args.length && !args[i + 1].startsWith("--");
+            opciones.put(nombre, conValor ? args[++i] : "");
+        }
+        return opciones;
+    }
+
+    /** Conexión HTTP/1.1 persistente mínima: manda la solicitud y lee la respuesta entera. */
+    private static final class Conexion {
+        private final Socket socket;
+        private final OutputStream salida;
+        private final InputStream entrada;
+
+        Conexion(String host, int puerto) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, puerto), 10_000);
+            socket.setSoTimeout(30_000);
+            salida = socket.getOutputStream();
+            entrada = new BufferedInputStream(socket.getInputStream());
+        }
+
+        /** @return El código de estado. */
+        int enviar(String solicitud) throws IOException {
+            salida.write(solicitud.getBytes(StandardCharsets.UTF_8));
+            salida.flush();
+            String estado = linea();
+            if (estado.length() < 12) throw new IOException("Respuesta inválida: " + estado);
+            int codigo = Integer.parseInt(estado.substring(9, 12));
+            long largo = 0;
+            for (String encabezado = linea(); !encabezado.isEmpty(); encabezado = linea()) {
+                if (encabezado.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    largo = Long.parseLong(encabezado.substring(15).trim());
+                }
+            }
+            entrada.skipNBytes(largo);
+            return codigo;
+        }
+
+        private String linea() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = entrada.read()) != '\n') {
+                if (c < 0) throw new IOException("Conexión cerrada por el servidor.");
+                if (c != '\r') sb.append((char) c);
+            }
+            return sb.toString();
+        }
+
+        void cerrar() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ya no se usa
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.techlab.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara dos archivos de resultados JSON de JMH (por ejemplo, la línea base y una corrida
+ * nueva) y muestra, por benchmark y parámetros, el puntaje de cada uno, la variación y los
+ * bytes asignados por operación cuando se corrió con el profiler de GC.
+ *
+ * Uso: java -cp target/benchmarks.jar com.techlab.benchmarks.CompararResultados base.json nuevo.json
+ */
+public class CompararResultados {
+
+    private static final String ASIGNACION = "gc.alloc.rate.norm";
+
+    /** Puntaje de un benchmark con sus parámetros. asignados es NaN si no se midió. */
+    private record Resultado(double puntaje, double error, String unidad, double asignados) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Uso: CompararResultados <base.json> <nuevo.json>");
+            return;
+        }
+        Map<String, Resultado> base = leer(Paths.get(args[0]));
+        Map<String, Resultado> nuevo = leer(Paths.get(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s %12s %12s%n", "Benchmark", "Base", "Nuevo", "Cambio", "B/op base", "B/op nuevo");
+        for (Map.Entry<String, Resultado> e : nuevo.entrySet()) {
+            Resultado n = e.getValue();
+            Resultado b = base.get(e.getKey());
+            if (b == null) {
+                System.out.printf("%-70s %14s %14s %9s %12s %12s%n", e.getKey(), "-", formato(n), "nuevo", "-", bytes(n));
+                continue;
+            }
+            double cambio = (n.puntaje() - b.puntaje()) / b.puntaje() * 100;
+            System.out.printf("%-70s %14s %14s %+8.1f%% %12s %12s%n", e.getKey(), formato(b), formato(n), cambio, bytes(b), bytes(n));
+        }
+        for (String clave : base.keySet()) {
+            if (!nuevo.containsKey(clave)) System.out.printf("%-70s (no está en la corrida nueva)%n", clave);
+        }
+    }
+
+    private static String formato(Resultado r) {
+        return String.format("%.2f %s", r.puntaje(), r.unidad());
+    }
+
+    private static String bytes(Resultado r) {
+        return Double.isNaN(r.asignados()) ? "-" : String.format("%.0f", r.asignados());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Resultado> leer(Path archivo) throws IOException {
+        Object json = new LectorJson(Files.readString(archivo)).valor();
+        Map<String, Resultado> resultados = new TreeMap<>();
+        for (Object o : (List<Object>) json) {
+            Map<String, Object> corrida = (Map<String, Object>) o;
+            StringBuilder clave = new StringBuilder((String) corrida.get("benchmark"));
+            Object params = corrida.get("params");
+            if (params != null) {
+                ((Map<String, Object>) params).forEach((k, v) -> clave.append(' ').append(k).append('=').append(v));
+            }
+            Map<String, Object> metrica = (Map<String, Object>) corrida.get("primaryMetric");
+            double asignados = Double.NaN;
+            Object secundarias = corrida.get("secondaryMetrics");
+            if (secundarias != null && ((Map<String, Object>) secundarias).get(ASIGNACION) instanceof Map<?, ?> m) {
+                asignados = ((Number) m.get("score")).doubleValue();
+            }
+            resultados.put(clave.toString(), new Resultado(
+                    ((Number) metrica.get("score")).doubleValue(),
+                    metrica.get("scoreError") instanceof Number n ? n.doubleValue() : Double.NaN,
+                    (String) metrica.get("scoreUnit"),
+                    asignados));
+        }
+        return resultados;
+    }
+
+    /** Lector mínimo de JSON: objetos, listas, textos, números, booleanos y null (lo que escribe JMH). */
+    private static final class LectorJson {
+        private final String texto;
+        private int pos;
+
+        LectorJson(String texto) {
+            this.texto = texto;
+        }
+
+        Object valor() {
+            saltarEspacios();
+            char c = texto.charAt(pos);
+            switch (c) {
+                case '{':
+                    return objeto();
+                case '[':
+                    return lista();
+                case '"':
+                    return cadena();
+                case 't':
+                    pos += 4;
+                    return Boolean.TRUE;
+                case 'f':
+                    pos += 5;
+                    return Boolean.FALSE;
+                case 'n':
+                    pos += 4;
+                    return null;
+                default:
+                    return numero();
+            }
+        }
+
+        private Map<String, Object> objeto() {
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            pos++;
+            saltarEspacios();
+            if (texto.charAt(pos) == '}') {
+                pos++;
+                return mapa;
+            }
+            while (true) {
+                saltarEspacios();
+                String clave = cadena();
+                saltarEspacios();
+                pos++; // ':'
+                mapa.put(clave, valor());
+                saltarEspacios();
+                if (texto.charAt(pos++) == '}') return mapa;
+            }
+        }
+
+        private List<Object> lista() {
+            List<Object> lista = new ArrayList<>();
+            pos++;
+            saltarEspacios();
+            if (texto.charAt(pos) == ']') {
+                pos++;
+                return lista;
+            }
+            while (true) {
+                lista.add(valor());
+                saltarEspacios();
+                if (texto.charAt(pos++) == ']') return lista;
+            }
+        }
+
+        private String cadena() {
+            StringBuilder sb = new StringBuilder();
+            pos++; // '"'
+            while (true) {
+                char c = texto.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c == '\\') {
+                    char e = texto.charAt(pos++);
+                    switch (e) {
+                        case 'n' -> sb.append('\n');
+                        case 't' -> sb.append('\t');
+                        case 'r' -> sb.append('\r');
+                        case 'b' -> sb.append('\b');
+                        case 'f' -> sb.append('\f');
+                        case 'u' -> {
+                            sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                            pos += 4;
+                        }
+                        default -> sb.append(e);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private Object numero() {
+            int inicio = pos;
+            while (pos < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(pos)) >= 0) pos++;
+            return Double.parseDouble(texto.substring(inicio, pos));
+        }
+
+        private void saltarEspacios() {
+            while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.techlab.benchmarks;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.productos.Producto;
+import com.techlab.servicios.ProductoService;
+import com.techlab.util.ArchivoUtil;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generadores de datos para los benchmarks. Todo sale de una semilla fija, así dos corridas
+ * miden exactamente los mismos datos.
+ */
+public final class DatosSinteticos {
+
+    public static final long SEMILLA = 20251018L;
+    /** Stock inicial: alcanza para que ningún benchmark de pedidos se quede sin stock. */
+    public static final int STOCK_INICIAL = 1_000_000_000;
+
+    private static final String[] PALABRAS = {
+            "cafe", "leche", "agua", "jugo", "pan", "queso", "yerba", "galletas", "arroz", "fideos",
+            "aceite", "azucar", "harina", "manteca", "dulce", "te", "gaseosa", "cerveza", "vino", "soda"
+    };
+    private static final LocalDate VENCIMIENTO_BASE = LocalDate.of(2030, 1, 1);
+
+    private DatosSinteticos() {
+    }
+
+    /** Nombre único del producto i: dos palabras del vocabulario y el número. */
+    public static String nombre(int i) {
+        return PALABRAS[i % PALABRAS.length] + " " + PALABRAS[(i / PALABRAS.length) % PALABRAS.length] + " " + i;
+    }
+
+    /** Un tercio de cada tipo (Producto, Bebida, Comida), con precios entre $1 y $500. */
+    public static ProductoService catalogo(int cantidad) {
+        ProductoService servicio = new ProductoService();
+        agregarProductos(servicio, cantidad);
+        return servicio;
+    }
+
+    /** Como {@link #catalogo(int)}, sobre un servicio ya creado (por ejemplo, con el journal conectado). */
+    public static void agregarProductos(ProductoService servicio, int cantidad) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA);
+        for (int i = 0; i < cantidad; i++) {
+            double precio = 1 + azar.nextInt(50_000) / 100.0;
+            switch (i % 3) {
+                case 0 -> servicio.agregarProducto(nombre(i), precio, STOCK_INICIAL);
+                case 1 -> servicio.agregarBebida(nombre(i), precio, STOCK_INICIAL, 0.5 + azar.nextInt(4) * 0.5);
+                default -> servicio.agregarComida(nombre(i), precio, STOCK_INICIAL, VENCIMIENTO_BASE.plusDays(i % 365));
+            }
+        }
+    }
+
+    /**
+     * Escribe productos.txt en la carpeta de datos con el formato de ProductoService, sin pasar
+     * por el servicio: así se generan 10 millones de filas sin tenerlas en memoria.
+     */
+    public static void escribirArchivoProductos(int filas) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA);
+        boolean escrito = ArchivoUtil.escribirRegistros(ArchivoUtil.DIRECTORIO_DATOS + "/productos.txt", escritor -> {
+            for (int i = 0; i < filas; i++) {
+                int id = i + 1;
+                long precio = 100 + azar.nextInt(50_000);
+                switch (i % 3) {
+                    case 0 -> escritor.texto("Producto").entero(id).texto(nombre(i)).decimalEscalado(precio, 2)
+                            .entero(STOCK_INICIAL);
+                    case 1 -> escritor.texto("Bebida").entero(id).texto(nombre(i)).decimalEscalado(precio, 2)
+                            .entero(STOCK_INICIAL).decimal(0.5 + azar.nextInt(4) * 0.5, 1);
+                    default -> escritor.texto("Comida").entero(id).texto(nombre(i)).decimalEscalado(precio, 2)
+                            .entero(STOCK_INICIAL).fecha(VENCIMIENTO_BASE.plusDays(i % 365));
+                }
+                escritor.finLinea();
+            }
+        });
+        if (!escrito) {
+            throw new IllegalStateException("No se pudo escribir el archivo de productos de prueba.");
+        }
+    }
+
+    /**
+     * Escribe un catálogo de proveedor (formato de ProductoService.importar) en la carpeta de
+     * datos: filas repartidas al azar entre productosDistintos productos, así la mayoría de las
+     * filas se fusionan con otra del mismo archivo.
+     * @return Ruta del archivo.
+     */
+    public static Path escribirCatalogoProveedor(int filas, int productosDistintos) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA + 3);
+        Path ruta = Paths.get(ArchivoUtil.DIRECTORIO_DATOS, "proveedor.txt");
+        boolean escrito = ArchivoUtil.escribirRegistros(ruta.toString(), escritor -> {
+            escritor.texto("tipo").texto("nombre").texto("precio").texto("stock").finLinea();
+            for (int f = 0; f < filas; f++) {
+                int i = azar.nextInt(productosDistintos);
+                long precio = 100 + (i * 7919L) % 50_000; // el mismo para cada producto
+                int stock = 1 + azar.nextInt(100);
+                switch (i % 3) {
+                    case 0 -> escritor.texto("Producto").texto(nombre(i)).decimalEscalado(precio, 2).entero(stock);
+                    case 1 -> escritor.texto("Bebida").texto(nombre(i)).decimalEscalado(precio, 2).entero(stock)
+                            .decimal(0.5 + (i % 4) * 0.5, 1);
+                    default -> escritor.texto("Comida").texto(nombre(i)).decimalEscalado(precio, 2).entero(stock)
+                            .fecha(VENCIMIENTO_BASE.plusDays(i % 365));
+                }
+                escritor.finLinea();
+            }
+        });
+        if (!escrito) {
+            throw new IllegalStateException("No se pudo escribir el catálogo de proveedor de prueba.");
+        }
+        return ruta;
+    }
+
+    /** IDs al azar entre 1 y cantidad, para recorrer en ciclo sin generar números en la medición. */
+    public static int[] ids(int cantidad, int muestras) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA);
+        int[] ids = new int[muestras];
+        for (int i = 0; i < muestras; i++) ids[i] = 1 + azar.nextInt(cantidad);
+        return ids;
+    }
+
+    /** Nombres de productos existentes, al azar y con mayúsculas y espacios como los escribiría un usuario. */
+    public static String[] nombres(int cantidad, int muestras) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA + 1);
+        String[] nombres = new String[muestras];
+        for (int i = 0; i < muestras; i++) nombres[i] = " " + nombre(azar.nextInt(cantidad)).toUpperCase() + " ";
+        return nombres;
+    }
+
+    /**
+     * Pedidos de 1 a maxLineas líneas sobre los productos indicados, de 1 a 3 unidades por línea.
+     */
+    public static List<List<LineaPedido>> pedidos(List<Producto> productos, int cantidad, int maxLineas) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA + 2);
+        List<List<LineaPedido>> pedidos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            int n = 1 + azar.nextInt(maxLineas);
+            List<LineaPedido> lineas = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                lineas.add(new LineaPedido(productos.get(azar.nextInt(productos.size())), 1 + azar.nextInt(3)));
+            }
+            pedidos.add(lineas);
+        }
+        return pedidos;
+    }
+}
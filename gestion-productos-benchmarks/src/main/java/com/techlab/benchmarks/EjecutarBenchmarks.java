@@ -0,0 +1,51 @@
+package com.techlab.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Punto de entrada de benchmarks.jar. Acepta las mismas opciones que JMH y agrega dos valores
+ * por defecto: el profiler de GC (bytes asignados por operación) y los resultados en JSON en
+ * resultados/, listos para comparar con CompararResultados.
+ *
+ * Ejemplos:
+ *   java -jar target/benchmarks.jar                          (todo)
+ *   java -jar target/benchmarks.jar PedidoServiceBench       (una clase)
+ *   java -jar target/benchmarks.jar ArchivoBench -p filas=10000,1000000
+ */
+public class EjecutarBenchmarks {
+
+    private static final Path RESULTADOS = Paths.get("resultados");
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        if (linea.shouldHelp() || linea.shouldList() || linea.shouldListProfilers() || linea.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(linea);
+        if (linea.getProfilers().isEmpty()) {
+            opciones.addProfiler(GCProfiler.class);
+        }
+        if (!linea.getResult().hasValue()) {
+            Files.createDirectories(RESULTADOS);
+            String nombre = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json";
+            opciones.resultFormat(ResultFormatType.JSON).result(RESULTADOS.resolve(nombre).toString());
+        }
+        new Runner(opciones.build()).run();
+    }
+}
@@ -0,0 +1,48 @@
+package com.techlab.benchmarks;
+
+import com.techlab.productos.ResultadoImportacion;
+import com.techlab.servicios.ProductoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Importación de un catálogo de proveedor (ProductoService.importar) en un catálogo vacío. Un
+ * tercio de las filas son productos distintos y el resto se fusiona con ellos. El archivo se
+ * genera en target/datos-bench (-Dtechlab.datos).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dtechlab.datos=target/datos-bench"})
+public class ImportacionBench {
+
+    @State(Scope.Benchmark)
+    public static class Archivo {
+        @Param({"100000", "1000000"})
+        int filas;
+        Path ruta;
+
+        @Setup(Level.Trial)
+        public void generar() {
+            ruta = DatosSinteticos.escribirCatalogoProveedor(filas, filas / 3);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Destino {
+        ProductoService servicio;
+
+        @Setup(Level.Invocation)
+        public void vaciar() {
+            servicio = new ProductoService();
+        }
+    }
+
+    @Benchmark
+    public ResultadoImportacion importar(Archivo archivo, Destino destino) {
+        return destino.servicio.importar(archivo.ruta);
+    }
+}
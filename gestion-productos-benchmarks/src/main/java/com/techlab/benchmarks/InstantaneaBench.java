@@ -0,0 +1,83 @@
+package com.techlab.benchmarks;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Producto;
+import com.techlab.servicios.Instantanea;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.ProductoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de un recorrido completo del catálogo con instantánea (MVCC), sin escrituras y con
+ * tres hilos creando pedidos a la vez. Con núcleos libres para los escritores, las dos
+ * distribuciones deberían coincidir: la lectura no toma bloqueos.
+ *
+ * Criterio de aceptación de las lecturas con instantánea: con al menos 4 núcleos, el p50 de
+ * bajoCarga:recorrerBajoCarga no supera en más de un 10% al de sinCarga. Con menos núcleos que
+ * hilos, los escritores le quitan CPU al lector y la comparación no dice nada sobre bloqueos.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Group)
+public class InstantaneaBench {
+
+    private static final int MUESTRAS = 1 << 14;
+
+    @Param({"100000"})
+    int cantidad;
+
+    ProductoService productos;
+    PedidoService pedidos;
+    List<List<LineaPedido>> solicitudes;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        productos = DatosSinteticos.catalogo(cantidad);
+        pedidos = new PedidoService(productos);
+        List<Producto> catalogo = productos.listarProductos();
+        solicitudes = DatosSinteticos.pedidos(catalogo, MUESTRAS, 2);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        int siguiente() {
+            return i = (i + 1) & (MUESTRAS - 1);
+        }
+    }
+
+    private long recorrer() {
+        try (Instantanea instantanea = productos.instantanea()) {
+            return instantanea.stream().mapToLong(Producto::getStock).sum();
+        }
+    }
+
+    @Benchmark
+    @Group("sinCarga")
+    public long recorrerSinCarga() {
+        return recorrer();
+    }
+
+    @Benchmark
+    @Group("bajoCarga")
+    @GroupThreads(1)
+    public long recorrerBajoCarga() {
+        return recorrer();
+    }
+
+    @Benchmark
+    @Group("bajoCarga")
+    @GroupThreads(3)
+    public Pedido escritor(Cursor c) throws StockInsuficienteException {
+        return pedidos.crearPedido(solicitudes.get(c.siguiente()));
+    }
+}
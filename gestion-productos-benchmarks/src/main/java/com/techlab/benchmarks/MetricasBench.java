@@ -0,0 +1,87 @@
+package com.techlab.benchmarks;
+
+import com.techlab.metricas.Histograma;
+import com.techlab.metricas.Metricas;
+import com.techlab.metricas.Operacion;
+import com.techlab.productos.Producto;
+import com.techlab.servicios.ProductoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de la instrumentación: registrar en un histograma, medir una operación vacía y
+ * buscarPorId con las métricas desactivadas y activadas. Metricas.ACTIVAS se fija al cargar la
+ * clase, así que cada variante corre en su propia JVM (@Fork por método).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MetricasBench {
+
+    private static final int MUESTRAS = 1 << 16;
+    private static final String ACTIVAR = "-Dtechlab.metricas=true";
+
+    @State(Scope.Benchmark)
+    public static class Catalogo {
+        ProductoService servicio;
+        int[] ids;
+        long[] latencias;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            servicio = DatosSinteticos.catalogo(10_000);
+            ids = DatosSinteticos.ids(10_000, MUESTRAS);
+            // Latencias repartidas en varias cubetas, como las de una operación real.
+            latencias = new long[MUESTRAS];
+            for (int i = 0; i < MUESTRAS; i++) latencias[i] = 50 + (ids[i] * 37L) % 20_000;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+        final Histograma histograma = new Histograma();
+
+        int siguiente() {
+            return i = (i + 1) & (MUESTRAS - 1);
+        }
+    }
+
+    @Benchmark
+    public Histograma registrarEnHistograma(Catalogo c, Cursor cursor) {
+        cursor.histograma.registrar(c.latencias[cursor.siguiente()]);
+        return cursor.histograma;
+    }
+
+    /** Las dos lecturas del reloj más el registro: lo que agrega la medición a cada operación. */
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = ACTIVAR)
+    public long medirOperacionVacia() {
+        long inicio = Metricas.inicio();
+        Operacion.BUSCAR_PRODUCTO_POR_ID.registrar(inicio);
+        return inicio;
+    }
+
+    @Benchmark
+    public Optional<Producto> buscarPorIdSinMetricas(Catalogo c, Cursor cursor) {
+        return c.servicio.buscarPorId(c.ids[cursor.siguiente()]);
+    }
+
+    @Benchmark
+    @Fork(value = 2, jvmArgsAppend = ACTIVAR)
+    public Optional<Producto> buscarPorIdConMetricas(Catalogo c, Cursor cursor) {
+        return c.servicio.buscarPorId(c.ids[cursor.siguiente()]);
+    }
+
+    /** Mismo costo con 4 hilos registrando en el mismo histograma (contención en las cubetas). */
+    @Benchmark
+    @Threads(4)
+    @Fork(value = 2, jvmArgsAppend = ACTIVAR)
+    public Optional<Producto> buscarPorIdConMetricas4Hilos(Catalogo c, Cursor cursor) {
+        return c.servicio.buscarPorId(c.ids[cursor.siguiente()]);
+    }
+}
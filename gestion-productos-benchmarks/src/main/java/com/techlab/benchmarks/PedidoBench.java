@@ -0,0 +1,37 @@
+package com.techlab.benchmarks;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Producto;
+import com.techlab.util.Dinero;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Total de un pedido según la cantidad de líneas (el total se mantiene al agregar cada línea). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PedidoBench {
+
+    @Param({"1", "10", "100"})
+    int lineas;
+
+    Pedido pedido;
+
+    @Setup
+    public void preparar() {
+        pedido = new Pedido(1);
+        for (int i = 0; i < lineas; i++) {
+            pedido.agregarLinea(new LineaPedido(new Producto(i + 1, DatosSinteticos.nombre(i), 1 + i, 10), 1 + i % 3));
+        }
+    }
+
+    @Benchmark
+    public Dinero calcularTotal() {
+        return pedido.calcularTotal();
+    }
+}
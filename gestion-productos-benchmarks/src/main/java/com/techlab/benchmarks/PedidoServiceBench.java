@@ -0,0 +1,65 @@
+package com.techlab.benchmarks;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Producto;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.ProductoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta de pedidos en memoria (sin journal): un solo hilo y varios hilos compitiendo por pocos
+ * productos, que es el caso en el que más pesan los bloqueos por franja.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class PedidoServiceBench {
+
+    private static final int MUESTRAS = 1 << 14;
+
+    @State(Scope.Benchmark)
+    public static class Servicios {
+        /** Productos sobre los que caen los pedidos: pocos = mucha contención. */
+        @Param({"16", "10000"})
+        int productosActivos;
+
+        PedidoService pedidos;
+        List<List<LineaPedido>> solicitudes;
+
+        // Los pedidos quedan en memoria: se empieza de cero en cada iteración.
+        @Setup(Level.Iteration)
+        public void preparar() {
+            ProductoService productos = DatosSinteticos.catalogo(productosActivos);
+            pedidos = new PedidoService(productos);
+            List<Producto> catalogo = productos.listarProductos();
+            solicitudes = DatosSinteticos.pedidos(catalogo, MUESTRAS, 3);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        int siguiente() {
+            return i = (i + 1) & (MUESTRAS - 1);
+        }
+    }
+
+    @Benchmark
+    public Pedido crearPedido(Servicios s, Cursor c) throws StockInsuficienteException {
+        return s.pedidos.crearPedido(s.solicitudes.get(c.siguiente()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Pedido crearPedidoConcurrente(Servicios s, Cursor c) throws StockInsuficienteException {
+        return s.pedidos.crearPedido(s.solicitudes.get(c.siguiente()));
+    }
+}
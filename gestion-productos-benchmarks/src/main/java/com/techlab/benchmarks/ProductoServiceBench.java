@@ -0,0 +1,77 @@
+package com.techlab.benchmarks;
+
+import com.techlab.productos.Producto;
+import com.techlab.servicios.ProductoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsquedas por ID y por nombre sobre catálogos de distinto tamaño, y alta de productos nuevos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4g")
+public class ProductoServiceBench {
+
+    private static final int MUESTRAS = 1 << 16;
+
+    @State(Scope.Benchmark)
+    public static class Catalogo {
+        @Param({"10000", "1000000"})
+        int cantidad;
+
+        ProductoService servicio;
+        int[] ids;
+        String[] nombres;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            servicio = DatosSinteticos.catalogo(cantidad);
+            ids = DatosSinteticos.ids(cantidad, MUESTRAS);
+            nombres = DatosSinteticos.nombres(cantidad, MUESTRAS);
+        }
+    }
+
+    /** Posición en las muestras; una por hilo para no compartir el contador. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        int siguiente() {
+            return i = (i + 1) & (MUESTRAS - 1);
+        }
+    }
+
+    @Benchmark
+    public Optional<Producto> buscarPorId(Catalogo c, Cursor cursor) {
+        return c.servicio.buscarPorId(c.ids[cursor.siguiente()]);
+    }
+
+    @Benchmark
+    public Optional<Producto> buscarPorNombre(Catalogo c, Cursor cursor) {
+        return c.servicio.buscarPorNombre(c.nombres[cursor.siguiente()]);
+    }
+
+    /** Catálogo que crece con cada alta; se rehace en cada iteración para que no crezca sin límite. */
+    @State(Scope.Benchmark)
+    public static class Altas {
+        ProductoService servicio;
+        int siguiente;
+
+        @Setup(Level.Iteration)
+        public void preparar() {
+            servicio = DatosSinteticos.catalogo(10_000);
+            siguiente = 10_000;
+        }
+    }
+
+    @Benchmark
+    public Producto agregarProducto(Altas a) {
+        int i = a.siguiente++;
+        return a.servicio.agregarProducto(DatosSinteticos.nombre(i), 1 + i % 500, 100);
+    }
+}
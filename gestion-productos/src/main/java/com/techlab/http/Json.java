@@ -0,0 +1,245 @@
+package com.techlab.http;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON mínimo para la API: lee los cuerpos de las solicitudes (objetos, listas, textos,
+ * números, booleanos y null) y escribe textos con los escapes necesarios. Los números se leen
+ * como {@link Long} si son enteros y como {@link Double} si no. Un JSON mal formado lanza
+ * IllegalArgumentException, que la API responde con 400.
+ */
+final class Json {
+
+    private final String texto;
+    private int pos;
+
+    private Json(String texto) {
+        this.texto = texto;
+    }
+
+    /** Lee un cuerpo que tiene que ser un objeto JSON. */
+    static Map<String, Object> leerObjeto(String texto) {
+        Json json = new Json(texto);
+        json.saltarEspacios();
+        if (!json.hay('{')) throw json.error("Se esperaba un objeto JSON");
+        Object valor = json.valor();
+        json.saltarEspacios();
+        if (json.pos < texto.length()) throw json.error("Sobra contenido después del objeto");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> objeto = (Map<String, Object>) valor;
+        return objeto;
+    }
+
+    // ==========================================================
+    // 🔹 LECTURA
+    // ==========================================================
+
+    private Object valor() {
+        saltarEspacios();
+        if (pos >= texto.length()) throw error("Falta un valor");
+        char c = texto.charAt(pos);
+        return switch (c) {
+            case '{' -> objeto();
+            case '[' -> lista();
+            case '"' -> cadena();
+            case 't' -> palabra("true", Boolean.TRUE);
+            case 'f' -> palabra("false", Boolean.FALSE);
+            case 'n' -> palabra("null", null);
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) yield numero();
+                throw error("Carácter inesperado '" + c + "'");
+            }
+        };
+    }
+
+    private Map<String, Object> objeto() {
+        pos++; // '{'
+        Map<String, Object> objeto = new LinkedHashMap<>();
+        saltarEspacios();
+        if (consumir('}')) return objeto;
+        do {
+            saltarEspacios();
+            if (!hay('"')) throw error("Se esperaba el nombre de un campo");
+            String campo = cadena();
+            saltarEspacios();
+            if (!consumir(':')) throw error("Se esperaba ':' después de \"" + campo + "\"");
+            objeto.put(campo, valor());
+            saltarEspacios();
+        } while (consumir(','));
+        if (!consumir('}')) throw error("Se esperaba ',' o '}'");
+        return objeto;
+    }
+
+    private List<Object> lista() {
+        pos++; // '['
+        List<Object> lista = new ArrayList<>();
+        saltarEspacios();
+        if (consumir(']')) return lista;
+        do {
+            lista.add(valor());
+            saltarEspacios();
+        } while (consumir(','));
+        if (!consumir(']')) throw error("Se esperaba ',' o ']'");
+        return lista;
+    }
+
+    private String cadena() {
+        pos++; // '"'
+        StringBuilder sb = new StringBuilder();
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= texto.length()) break;
+            char e = texto.charAt(pos++);
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > texto.length()) throw error("Escape \\u incompleto");
+                    try {
+                        sb.append((char) Integer.parseInt(texto.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("Escape \\u inválido");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Escape inválido '\\" + e + "'");
+            }
+        }
+        throw error("Texto sin cerrar");
+    }
+
+    private Object numero() {
+        int inicio = pos;
+        boolean decimal = false;
+        if (hay('-')) pos++;
+        while (pos < texto.length()) {
+            char c = texto.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') decimal = true;
+            else if (c < '0' || c > '9') break;
+            pos++;
+        }
+        String numero = texto.substring(inicio, pos);
+        try {
+            return decimal ? (Object) Double.parseDouble(numero) : (Object) Long.parseLong(numero);
+        } catch (NumberFormatException e) {
+            throw error("Número inválido: " + numero);
+        }
+    }
+
+    private Object palabra(String palabra, Object valor) {
+        if (!texto.startsWith(palabra, pos)) throw error("Valor inválido");
+        pos += palabra.length();
+        return valor;
+    }
+
+    private void saltarEspacios() {
+        while (pos < texto.length() && Character.isWhitespace(texto.charAt(pos))) pos++;
+    }
+
+    private boolean hay(char c) {
+        return pos < texto.length() && texto.charAt(pos) == c;
+    }
+
+    private boolean consumir(char c) {
+        if (!hay(c)) return false;
+        pos++;
+        return true;
+    }
+
+    private IllegalArgumentException error(String mensaje) {
+        return new IllegalArgumentException("JSON inválido: " + mensaje + " (posición " + pos + ").");
+    }
+
+    // ==========================================================
+    // 🔹 CAMPOS
+    // ==========================================================
+
+    /** El campo como texto no vacío. */
+    static String texto(Map<String, Object> objeto, String campo) {
+        Object v = requerido(objeto, campo);
+        if (!(v instanceof String s) || s.isBlank()) {
+            throw new IllegalArgumentException("El campo '" + campo + "' debe ser un texto no vacío.");
+        }
+        return s;
+    }
+
+    static double decimal(Map<String, Object> objeto, String campo) {
+        Object v = requerido(objeto, campo);
+        if (!(v instanceof Number n)) {
+            throw new IllegalArgumentException("El campo '" + campo + "' debe ser un número.");
+        }
+        return n.doubleValue();
+    }
+
+    static int entero(Map<String, Object> objeto, String campo) {
+        Object v = requerido(objeto, campo);
+        if (!(v instanceof Long n) || n < Integer.MIN_VALUE || n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("El campo '" + campo + "' debe ser un número entero.");
+        }
+        return n.intValue();
+    }
+
+    /** Fecha yyyy-MM-dd; un formato inválido lanza DateTimeException (400). */
+    static LocalDate fecha(Map<String, Object> objeto, String campo) {
+        return LocalDate.parse(texto(objeto, campo));
+    }
+
+    static List<Object> lista(Map<String, Object> objeto, String campo) {
+        Object v = requerido(objeto, campo);
+        if (!(v instanceof List<?> l)) {
+            throw new IllegalArgumentException("El campo '" + campo + "' debe ser una lista.");
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> lista = (List<Object>) l;
+        return lista;
+    }
+
+    private static Object requerido(Map<String, Object> objeto, String campo) {
+        Object v = objeto.get(campo);
+        if (v == null) throw new IllegalArgumentException("Falta el campo '" + campo + "'.");
+        return v;
+    }
+
+    // ==========================================================
+    // 🔹 ESCRITURA
+    // ==========================================================
+
+    /** Agrega el texto entre comillas, con los escapes de JSON. */
+    static StringBuilder texto(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"');
+    }
+
+    /** {"error": mensaje}, sin el prefijo "⚠️" de los mensajes de consola. */
+    static String cuerpoError(String mensaje) {
+        String limpio = mensaje == null ? "" : mensaje.replace("⚠️", "").strip();
+        return texto(new StringBuilder("{\"error\":"), limpio).append('}').toString();
+    }
+}
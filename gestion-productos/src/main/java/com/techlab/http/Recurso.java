@@ -0,0 +1,206 @@
+package com.techlab.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.techlab.excepciones.StockInsuficienteException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Base de los recursos de la API (/productos, /pedidos): arma la solicitud, llama a
+ * {@link #atender(Solicitud)} y convierte el resultado o la excepción en la respuesta JSON.
+ *
+ * Errores: StockInsuficienteException → 409, IllegalArgumentException y DateTimeException → 400
+ * (datos inválidos), IllegalStateException y cualquier otra → 500. El cuerpo de un error es
+ * {"error": "mensaje"}.
+ */
+abstract class Recurso implements HttpHandler {
+
+    static final int OK = 200;
+    static final int CREADO = 201;
+    static final int SIN_CONTENIDO = 204;
+    static final int SOLICITUD_INVALIDA = 400;
+    static final int NO_ENCONTRADO = 404;
+    static final int METODO_NO_PERMITIDO = 405;
+    static final int CONFLICTO = 409;
+    static final int DEMASIADO_GRANDE = 413;
+    static final int ERROR_INTERNO = 500;
+
+    private static final int MAX_CUERPO = 1 << 20; // 1 MB
+    private static final int TAMANIO_PAGINA = 20;
+
+    /**
+     * @param metodo     GET, POST, PUT o DELETE.
+     * @param id         Lo que sigue a la ruta del recurso ("/productos/12" → "12"), o null.
+     * @param parametros Parámetros de la consulta, ya decodificados.
+     * @param cuerpo     Cuerpo de la solicitud (vacío si no tiene).
+     */
+    record Solicitud(String metodo, String id, Map<String, String> parametros, String cuerpo) {
+
+        String parametro(String nombre) {
+            return parametros.get(nombre);
+        }
+
+        /** Parámetro entero entre 1 y maximo, o el valor por omisión si no vino. */
+        int parametroEntero(String nombre, int porOmision, int maximo) {
+            String valor = parametros.get(nombre);
+            if (valor == null) return porOmision;
+            try {
+                int n = Integer.parseInt(valor);
+                if (n >= 1 && n <= maximo) return n;
+            } catch (NumberFormatException e) {
+                // mismo mensaje que un valor fuera de rango
+            }
+            throw new IllegalArgumentException("El parámetro '" + nombre + "' debe ser un entero entre 1 y "
+                    + maximo + ".");
+        }
+
+        int tamanioPagina() {
+            return parametroEntero("tamanio", TAMANIO_PAGINA, 1000);
+        }
+
+        int idEntero() {
+            try {
+                return Integer.parseInt(id);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("ID inválido: " + id);
+            }
+        }
+    }
+
+    /**
+     * @param cuerpo      JSON de la respuesta, o null para responder sin cuerpo.
+     * @param encabezados Encabezados adicionales (Location, Allow).
+     */
+    record Respuesta(int estado, String cuerpo, Map<String, String> encabezados) {
+
+        static Respuesta ok(String cuerpo) {
+            return new Respuesta(OK, cuerpo, Map.of());
+        }
+
+        static Respuesta creado(String cuerpo, String ubicacion) {
+            return new Respuesta(CREADO, cuerpo, Map.of("Location", ubicacion));
+        }
+
+        static Respuesta sinContenido() {
+            return new Respuesta(SIN_CONTENIDO, null, Map.of());
+        }
+
+        static Respuesta error(int estado, String mensaje) {
+            return new Respuesta(estado, Json.cuerpoError(mensaje), Map.of());
+        }
+    }
+
+    private final String ruta;
+    private final Runnable esperarDurable;
+
+    /**
+     * @param esperarDurable Espera el fsync del journal antes de responder a un POST, PUT o DELETE,
+     *                       ya sin los bloqueos del catálogo (ver ServidorHttp).
+     */
+    Recurso(String ruta, Runnable esperarDurable) {
+        this.ruta = ruta;
+        this.esperarDurable = esperarDurable;
+    }
+
+    String getRuta() {
+        return ruta;
+    }
+
+    abstract Respuesta atender(Solicitud solicitud) throws StockInsuficienteException;
+
+    @Override
+    public void handle(HttpExchange intercambio) throws IOException {
+        Respuesta respuesta;
+        try {
+            respuesta = responder(intercambio);
+            if (!intercambio.getRequestMethod().equals("GET")) esperarDurable.run();
+        } catch (StockInsuficienteException e) {
+            respuesta = Respuesta.error(CONFLICTO, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            respuesta = Respuesta.error(SOLICITUD_INVALIDA, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Error atendiendo " + intercambio.getRequestMethod() + " "
+                    + intercambio.getRequestURI() + ": " + e);
+            respuesta = Respuesta.error(ERROR_INTERNO, e.getMessage());
+        }
+        enviar(intercambio, respuesta);
+    }
+
+    private Respuesta responder(HttpExchange intercambio) throws IOException, StockInsuficienteException {
+        String camino = intercambio.getRequestURI().getPath();
+        String id = null;
+        if (camino.length() > ruta.length() + 1) {
+            id = camino.substring(ruta.length() + 1);
+            if (id.indexOf('/') >= 0) return Respuesta.error(NO_ENCONTRADO, "No existe el recurso " + camino);
+        } else if (camino.length() > ruta.length() && camino.charAt(ruta.length()) != '/') {
+            return Respuesta.error(NO_ENCONTRADO, "No existe el recurso " + camino); // "/productosx"
+        }
+        byte[] cuerpo;
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            cuerpo = entrada.readNBytes(MAX_CUERPO + 1);
+        }
+        if (cuerpo.length > MAX_CUERPO) {
+            return Respuesta.error(DEMASIADO_GRANDE, "El cuerpo supera " + MAX_CUERPO + " bytes.");
+        }
+        Solicitud solicitud = new Solicitud(intercambio.getRequestMethod(), id,
+                parametros(intercambio.getRequestURI().getRawQuery()), new String(cuerpo, StandardCharsets.UTF_8));
+        return atender(solicitud);
+    }
+
+    private static Map<String, String> parametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) return parametros;
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+
+    private static void enviar(HttpExchange intercambio, Respuesta respuesta) throws IOException {
+        respuesta.encabezados().forEach(intercambio.getResponseHeaders()::set);
+        if (respuesta.cuerpo() == null) {
+            intercambio.sendResponseHeaders(respuesta.estado(), -1);
+            intercambio.close();
+            return;
+        }
+        byte[] bytes = respuesta.cuerpo().getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(respuesta.estado(), bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+
+    /** 405 con la lista de métodos permitidos en el encabezado Allow. */
+    static Respuesta metodoNoPermitido(Solicitud solicitud, String permitidos) {
+        return new Respuesta(METODO_NO_PERMITIDO, Json.cuerpoError("Método " + solicitud.metodo()
+                + " no permitido; se admite " + permitidos + "."), Map.of("Allow", permitidos));
+    }
+
+    /** Ejecuta la acción con el bloqueo tomado. */
+    static <T, E extends Exception> T con(Lock bloqueo, Accion<T, E> accion) throws E {
+        bloqueo.lock();
+        try {
+            return accion.ejecutar();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    @FunctionalInterface
+    interface Accion<T, E extends Exception> {
+        T ejecutar() throws E;
+    }
+}
@@ -0,0 +1,126 @@
+package com.techlab.http;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Producto;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.ProductoService;
+import com.techlab.util.Dinero;
+import com.techlab.util.Pagina;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * /pedidos
+ * <pre>
+ * GET  /pedidos?cursor=&amp;tamanio=20   página de pedidos en orden de ID
+ * GET  /pedidos?producto=7&amp;cursor=     pedidos que incluyen el producto
+ * GET  /pedidos?desde=100&amp;hasta=200&amp;cursor=   pedidos con ID en el rango (inclusive)
+ * GET  /pedidos/{id}
+ * POST /pedidos   {"lineas": [{"idProducto": 1, "cantidad": 2}, ...]}
+ * </pre>
+ * Un pedido sin stock suficiente responde 409 y no descuenta nada. Los pedidos comparten el
+ * bloqueo de lectura del catálogo: corren en paralelo entre sí (el stock tiene sus propios
+ * bloqueos) y solo esperan a las altas, modificaciones y bajas de productos. El bloqueo se
+ * suelta antes de esperar el fsync del journal: una baja no queda esperando al disco.
+ */
+final class RecursoPedidos extends Recurso {
+
+    private final ProductoService productoService;
+    private final PedidoService pedidoService;
+    private final ReadWriteLock bloqueoCatalogo;
+
+    RecursoPedidos(ProductoService productoService, PedidoService pedidoService, ReadWriteLock bloqueoCatalogo,
+                   Runnable esperarDurable) {
+        super("/pedidos", esperarDurable);
+        this.productoService = productoService;
+        this.pedidoService = pedidoService;
+        this.bloqueoCatalogo = bloqueoCatalogo;
+    }
+
+    @Override
+    Respuesta atender(Solicitud solicitud) throws StockInsuficienteException {
+        if (solicitud.id() == null) {
+            return switch (solicitud.metodo()) {
+                case "GET" -> listar(solicitud);
+                case "POST" -> crear(Json.leerObjeto(solicitud.cuerpo()));
+                default -> metodoNoPermitido(solicitud, "GET, POST");
+            };
+        }
+        if (!solicitud.metodo().equals("GET")) return metodoNoPermitido(solicitud, "GET");
+        int id = solicitud.idEntero();
+        return pedidoService.buscarPorId(id)
+                .map(p -> Respuesta.ok(json(new StringBuilder(), p).toString()))
+                .orElseGet(() -> Respuesta.error(NO_ENCONTRADO, "No se encontró un pedido con ID " + id + "."));
+    }
+
+    private Respuesta listar(Solicitud solicitud) {
+        String cursor = solicitud.parametro("cursor");
+        int tamanio = solicitud.tamanioPagina();
+        Pagina<Pedido> pagina;
+        if (solicitud.parametro("producto") != null) {
+            pagina = pedidoService.buscarPorProducto(solicitud.parametroEntero("producto", 0, Integer.MAX_VALUE),
+                    cursor, tamanio);
+        } else if (solicitud.parametro("desde") != null || solicitud.parametro("hasta") != null) {
+            int desde = solicitud.parametroEntero("desde", 1, Integer.MAX_VALUE);
+            int hasta = solicitud.parametroEntero("hasta", Integer.MAX_VALUE, Integer.MAX_VALUE);
+            pagina = pedidoService.buscarPorRango(desde, hasta, cursor, tamanio);
+        } else {
+            pagina = pedidoService.listarPedidos(cursor, tamanio);
+        }
+        StringBuilder sb = new StringBuilder("{\"pedidos\":[");
+        List<Pedido> pedidos = pagina.elementos();
+        for (int i = 0; i < pedidos.size(); i++) {
+            if (i > 0) sb.append(',');
+            json(sb, pedidos.get(i));
+        }
+        sb.append("],\"siguiente\":");
+        if (pagina.hayMas()) Json.texto(sb, pagina.siguiente());
+        else sb.append("null");
+        return Respuesta.ok(sb.append('}').toString());
+    }
+
+    private Respuesta crear(Map<String, Object> datos) throws StockInsuficienteException {
+        List<Object> items = Json.lista(datos, "lineas");
+        if (items.isEmpty()) throw new IllegalArgumentException("El pedido no tiene líneas.");
+        Pedido pedido = con(bloqueoCatalogo.readLock(), () -> {
+            List<LineaPedido> lineas = new ArrayList<>(items.size());
+            for (Object item : items) {
+                if (!(item instanceof Map<?, ?>)) {
+                    throw new IllegalArgumentException("Cada línea debe ser un objeto {\"idProducto\", \"cantidad\"}.");
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Object> linea = (Map<String, Object>) item;
+                int id = Json.entero(linea, "idProducto");
+                int cantidad = Json.entero(linea, "cantidad");
+                if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor que cero.");
+                Producto p = productoService.buscarPorId(id).orElseThrow(() ->
+                        new IllegalArgumentException("No se encontró un producto con ID " + id + "."));
+                lineas.add(new LineaPedido(p, cantidad));
+            }
+            return pedidoService.crearPedido(lineas);
+        });
+        return Respuesta.creado(json(new StringBuilder(), pedido).toString(), getRuta() + "/" + pedido.getId());
+    }
+
+    /** {"id", "total", "lineas": [{"idProducto", "nombre", "cantidad", "precioUnitario", "subtotal"}]} */
+    static StringBuilder json(StringBuilder sb, Pedido pedido) {
+        sb.append("{\"id\":").append(pedido.getId()).append(",\"total\":");
+        Dinero.anexar(sb, pedido.getTotalCentavos()).append(",\"lineas\":[");
+        List<LineaPedido> lineas = pedido.getLineas();
+        for (int i = 0; i < lineas.size(); i++) {
+            LineaPedido l = lineas.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"idProducto\":").append(l.getProducto().getId()).append(",\"nombre\":");
+            Json.texto(sb, l.getProducto().getNombre()).append(",\"cantidad\":").append(l.getCantidad())
+                    .append(",\"precioUnitario\":");
+            Dinero.anexar(sb, l.getPrecioUnitarioCentavos()).append(",\"subtotal\":");
+            Dinero.anexar(sb, l.getSubtotalCentavos()).append('}');
+        }
+        return sb.append("]}");
+    }
+}
@@ -0,0 +1,151 @@
+package com.techlab.http;
+
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+import com.techlab.productos.TipoProducto;
+import com.techlab.servicios.ProductoService;
+import com.techlab.util.Dinero;
+import com.techlab.util.Pagina;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * /productos
+ * <pre>
+ * GET    /productos?cursor=&amp;tamanio=20     página del catálogo en orden de alta
+ * GET    /productos?buscar=texto&amp;maximo=10 typeahead (con tolerancia a errores si no hay coincidencias)
+ * GET    /productos/{id}
+ * POST   /productos          {"tipo": "Producto|Bebida|Comida", "nombre", "precio", "stock",
+ *                             "litros" (Bebida) | "fechaVencimiento": "yyyy-MM-dd" (Comida)}
+ * PUT    /productos/{id}     {"nombre", "precio", "stock"}, todos opcionales
+ * DELETE /productos/{id}
+ * </pre>
+ * POST sigue la regla de agregarProducto: con el mismo nombre y precio suma el stock al
+ * existente; responde 201 con el producto resultante, nuevo o no. Las altas, modificaciones y
+ * bajas toman el bloqueo de escritura del catálogo. Un nombre vacío, con ';' o con caracteres de
+ * control responde 400 sin llegar a tomarlo.
+ */
+final class RecursoProductos extends Recurso {
+
+    private static final int MAX_SUGERENCIAS = 100;
+
+    private final ProductoService productoService;
+    private final ReadWriteLock bloqueoCatalogo;
+
+    RecursoProductos(ProductoService productoService, ReadWriteLock bloqueoCatalogo, Runnable esperarDurable) {
+        super("/productos", esperarDurable);
+        this.productoService = productoService;
+        this.bloqueoCatalogo = bloqueoCatalogo;
+    }
+
+    @Override
+    Respuesta atender(Solicitud solicitud) {
+        if (solicitud.id() == null) {
+            return switch (solicitud.metodo()) {
+                case "GET" -> con(bloqueoCatalogo.readLock(), () -> solicitud.parametro("buscar") != null
+                        ? buscar(solicitud) : listar(solicitud));
+                case "POST" -> agregar(Json.leerObjeto(solicitud.cuerpo()));
+                default -> metodoNoPermitido(solicitud, "GET, POST");
+            };
+        }
+        int id = solicitud.idEntero();
+        return switch (solicitud.metodo()) {
+            case "GET" -> con(bloqueoCatalogo.readLock(), () -> productoService.buscarPorId(id)
+                    .map(p -> Respuesta.ok(json(new StringBuilder(), p).toString()))
+                    .orElseGet(() -> noEncontrado(id)));
+            case "PUT" -> actualizar(id, Json.leerObjeto(solicitud.cuerpo()));
+            case "DELETE" -> con(bloqueoCatalogo.writeLock(), () -> productoService.eliminarProducto(id)
+                    ? Respuesta.sinContenido() : noEncontrado(id));
+            default -> metodoNoPermitido(solicitud, "GET, PUT, DELETE");
+        };
+    }
+
+    private Respuesta listar(Solicitud solicitud) {
+        Pagina<Producto> pagina = productoService.listarProductos(solicitud.parametro("cursor"),
+                solicitud.tamanioPagina());
+        StringBuilder sb = json(new StringBuilder("{\"productos\":"), pagina.elementos()).append(",\"siguiente\":");
+        if (pagina.hayMas()) Json.texto(sb, pagina.siguiente());
+        else sb.append("null");
+        return Respuesta.ok(sb.append('}').toString());
+    }
+
+    private Respuesta buscar(Solicitud solicitud) {
+        String texto = solicitud.parametro("buscar");
+        int maximo = solicitud.parametroEntero("maximo", 10, MAX_SUGERENCIAS);
+        List<Producto> encontrados = productoService.buscarPorPrefijo(texto, maximo);
+        if (encontrados.isEmpty()) encontrados = productoService.buscarAproximado(texto, maximo);
+        return Respuesta.ok(json(new StringBuilder("{\"productos\":"), encontrados).append('}').toString());
+    }
+
+    private Respuesta agregar(Map<String, Object> datos) {
+        String tipo = datos.containsKey("tipo") ? Json.texto(datos, "tipo") : TipoProducto.PRODUCTO.getNombre();
+        // Los campos se validan antes de tomar el bloqueo: un cuerpo inválido no frena a nadie.
+        String nombre = Producto.validarNombre(Json.texto(datos, "nombre"));
+        double precio = Json.decimal(datos, "precio");
+        int stock = Json.entero(datos, "stock");
+        if (precio < 0) throw new IllegalArgumentException("El precio no puede ser negativo.");
+        if (stock < 0) throw new IllegalArgumentException("El stock no puede ser negativo.");
+        Producto p;
+        if (tipo.equalsIgnoreCase(TipoProducto.BEBIDA.getNombre())) {
+            double litros = Json.decimal(datos, "litros");
+            p = con(bloqueoCatalogo.writeLock(), () -> productoService.agregarBebida(nombre, precio, stock, litros));
+        } else if (tipo.equalsIgnoreCase(TipoProducto.COMIDA.getNombre())) {
+            LocalDate vencimiento = Json.fecha(datos, "fechaVencimiento");
+            p = con(bloqueoCatalogo.writeLock(), () -> productoService.agregarComida(nombre, precio, stock, vencimiento));
+        } else if (tipo.equalsIgnoreCase(TipoProducto.PRODUCTO.getNombre())) {
+            p = con(bloqueoCatalogo.writeLock(), () -> productoService.agregarProducto(nombre, precio, stock));
+        } else {
+            throw new IllegalArgumentException("Tipo de producto desconocido: " + tipo + " (Producto, Bebida o Comida).");
+        }
+        return Respuesta.creado(json(new StringBuilder(), p).toString(), getRuta() + "/" + p.getId());
+    }
+
+    private Respuesta actualizar(int id, Map<String, Object> datos) {
+        String nombre = datos.get("nombre") != null ? Producto.validarNombre(Json.texto(datos, "nombre")) : null;
+        Double precio = datos.get("precio") != null ? Json.decimal(datos, "precio") : null;
+        Integer stock = datos.get("stock") != null ? Json.entero(datos, "stock") : null;
+        if (precio != null && precio < 0) throw new IllegalArgumentException("El precio no puede ser negativo.");
+        if (stock != null && stock < 0) throw new IllegalArgumentException("El stock no puede ser negativo.");
+        return con(bloqueoCatalogo.writeLock(), () -> {
+            if (!productoService.actualizarProducto(id, nombre, precio, stock)) return noEncontrado(id);
+            Optional<Producto> p = productoService.buscarPorId(id);
+            return Respuesta.ok(json(new StringBuilder(), p.orElseThrow()).toString());
+        });
+    }
+
+    private static Respuesta noEncontrado(int id) {
+        return Respuesta.error(NO_ENCONTRADO, "No se encontró un producto con ID " + id + ".");
+    }
+
+    // ==========================================================
+    // 🔹 JSON
+    // ==========================================================
+
+    static StringBuilder json(StringBuilder sb, List<Producto> productos) {
+        sb.append('[');
+        for (int i = 0; i < productos.size(); i++) {
+            if (i > 0) sb.append(',');
+            json(sb, productos.get(i));
+        }
+        return sb.append(']');
+    }
+
+    /** {"id", "tipo", "nombre", "precio", "stock"} más "litros" o "fechaVencimiento". */
+    static StringBuilder json(StringBuilder sb, Producto p) {
+        sb.append("{\"id\":").append(p.getId()).append(",\"tipo\":");
+        Json.texto(sb, TipoProducto.de(p).getNombre()).append(",\"nombre\":");
+        Json.texto(sb, p.getNombre()).append(",\"precio\":");
+        Dinero.anexar(sb, p.getPrecioCentavos()).append(",\"stock\":").append(p.getStock());
+        if (p instanceof Bebida b) {
+            sb.append(",\"litros\":").append(b.getLitros());
+        } else if (p instanceof Comida c) {
+            sb.append(",\"fechaVencimiento\":\"").append(c.getFechaVencimiento()).append('"');
+        }
+        return sb.append('}');
+    }
+}
@@ -0,0 +1,109 @@
+package com.techlab.http;
+
+import com.sun.net.httpserver.HttpServer;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.PersistenciaService;
+import com.techlab.servicios.ProductoService;
+import com.techlab.util.Hilos;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * API HTTP/JSON sobre el servidor del JDK (com.sun.net.httpserver), para las terminales de
+ * punto de venta. Recursos: /productos ({@link RecursoProductos}) y /pedidos
+ * ({@link RecursoPedidos}).
+ *
+ * Cada solicitud corre en su propio hilo virtual ({@link Hilos#unHiloPorTarea}): mientras
+ * espera el fsync del journal o un bloqueo de stock no ocupa un hilo del sistema, así miles de
+ * terminales conectadas no necesitan miles de hilos. Las respuestas de altas y pedidos salen
+ * recién cuando la operación está en disco.
+ *
+ * Las altas, modificaciones y bajas de productos no admiten concurrencia entre sí ni con las
+ * lecturas del catálogo (igual que desde el menú, que las hace de a una): toman un bloqueo de
+ * escritura, y el resto de las solicitudes comparte el de lectura.
+ *
+ * Con la persistencia, las operaciones se confirman en diferido y cada solicitud que modifica
+ * espera el fsync después de soltar el bloqueo del catálogo, justo antes de responder. Si no,
+ * un pedido retendría el bloqueo de lectura mientras espera el disco, y una baja (y detrás de
+ * ella todas las lecturas) esperaría a ese fsync.
+ */
+public final class ServidorHttp implements AutoCloseable {
+
+    /** Puerto por omisión (-Dtechlab.http.puerto). */
+    public static final int PUERTO_PREDETERMINADO = Integer.getInteger("techlab.http.puerto", 8080);
+
+    // Conexiones pendientes de aceptar: un arranque de todas las terminales a la vez no las rechaza.
+    private static final int COLA_CONEXIONES = 4096;
+    private static final int ESPERA_CIERRE_SEGUNDOS = 5;
+
+    static {
+        // El servidor del JDK cierra las conexiones inactivas por encima de este límite (200 por
+        // omisión): con más terminales, cada una reconectaría en cada solicitud.
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "20000");
+        }
+    }
+
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+
+    /**
+     * Sin persistencia, o con una que confirma cada operación dentro de los servicios.
+     * @param puerto 0 para que el sistema elija uno libre (ver {@link #getPuerto()}).
+     */
+    public ServidorHttp(ProductoService productoService, PedidoService pedidoService, int puerto) throws IOException {
+        this(productoService, pedidoService, null, puerto);
+    }
+
+    /**
+     * @param persistencia Ya iniciada; queda con confirmación diferida (ver la descripción de la
+     *                     clase). Null equivale al constructor sin persistencia.
+     * @param puerto       0 para que el sistema elija uno libre (ver {@link #getPuerto()}).
+     */
+    public ServidorHttp(ProductoService productoService, PedidoService pedidoService,
+                        PersistenciaService persistencia, int puerto) throws IOException {
+        if (productoService == null || pedidoService == null) {
+            throw new IllegalArgumentException("Los servicios no pueden ser nulos.");
+        }
+        Runnable esperarDurable = () -> { };
+        if (persistencia != null) {
+            persistencia.setConfirmacionDiferida(true);
+            esperarDurable = persistencia::esperarDurable;
+        }
+        ReadWriteLock bloqueoCatalogo = new ReentrantReadWriteLock();
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), COLA_CONEXIONES);
+        this.hilos = Hilos.unHiloPorTarea("http");
+        servidor.setExecutor(hilos);
+        agregar(new RecursoProductos(productoService, bloqueoCatalogo, esperarDurable));
+        agregar(new RecursoPedidos(productoService, pedidoService, bloqueoCatalogo, esperarDurable));
+    }
+
+    private void agregar(Recurso recurso) {
+        servidor.createContext(recurso.getRuta(), recurso);
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /** Deja de aceptar conexiones y espera hasta 5 segundos a que terminen las solicitudes en curso. */
+    @Override
+    public void close() {
+        servidor.stop(ESPERA_CIERRE_SEGUNDOS);
+        hilos.shutdown();
+        try {
+            hilos.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.techlab.main;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ResultadoImportacion;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.PersistenciaService;
+import com.techlab.servicios.ProductoService;
+import com.techlab.util.EscritorCampos;
+import com.techlab.util.LectorCampos;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modo sin menú: ejecuta comandos, uno por línea, directamente contra los servicios y escribe
+ * un resultado por comando, sin colores ni validaciones interactivas.
+ *
+ * Comandos (campos separados por ';', decimales con coma o punto, fechas yyyy-MM-dd):
+ * <pre>
+ * agregar;Producto;nombre;precio;stock
+ * agregar;Bebida;nombre;precio;stock;litros
+ * agregar;Comida;nombre;precio;stock;vencimiento
+ * actualizar;id;nombre;precio;stock          (campo vacío = sin cambios)
+ * eliminar;id
+ * buscar;id
+ * pedido;idProducto;cantidad[;idProducto;cantidad...]
+ * listar-productos
+ * listar-pedidos
+ * importar;ruta                              (catálogo de proveedor, ver ProductoService.importar)
+ * confirmar                                  (vuelca ya los resultados pendientes)
+ * </pre>
+ * Las líneas vacías y las que empiezan con '#' se ignoran.
+ *
+ * Cada comando termina con una línea "ok;línea[;datos]" o "error;línea;mensaje", donde línea es
+ * su número de línea en la entrada. agregar, actualizar y eliminar devuelven el ID del
+ * producto; pedido, el ID del pedido y su total; importar, insertados;fusionados;rechazados,
+ * precedido por una línea "rechazo;línea del archivo;motivo" por cada fila rechazada informada.
+ * buscar y los listados escriben antes sus filas con el formato de productos.txt y pedidos.txt.
+ *
+ * Las operaciones no esperan el fsync una por una: antes de volcar cada bloque de resultados
+ * se espera que todo lo anterior esté en disco, así un "ok" que sale ya es durable.
+ */
+final class EjecutorComandos {
+
+    private final ProductoService productoService;
+    private final PedidoService pedidoService;
+    private final EscritorCampos salida;
+    private long comandos;
+    private long errores;
+
+    EjecutorComandos(ProductoService productoService, PedidoService pedidoService,
+                     PersistenciaService persistencia, OutputStream destino) {
+        this.productoService = productoService;
+        this.pedidoService = pedidoService;
+        this.salida = new EscritorCampos(new CanalConfirmado(persistencia, Channels.newChannel(destino)));
+    }
+
+    /** Ejecuta todos los comandos de la entrada y vuelca los resultados pendientes. */
+    void ejecutar(LectorCampos entrada) {
+        while (entrada.siguienteLinea()) {
+            if (entrada.campoEmpiezaCon('#') || (entrada.campoEs("") && entrada.contarCampos() == 1)) continue;
+            comandos++;
+            long linea = entrada.numeroLinea();
+            try {
+                ejecutarComando(entrada, linea);
+            } catch (StockInsuficienteException | IllegalArgumentException | IllegalStateException
+                     | DateTimeException e) {
+                error(linea, e.getMessage());
+            }
+        }
+        salida.vaciar();
+    }
+
+    long getComandos() {
+        return comandos;
+    }
+
+    long getErrores() {
+        return errores;
+    }
+
+    // ==========================================================
+    // 🔹 COMANDOS
+    // ==========================================================
+
+    private void ejecutarComando(LectorCampos entrada, long linea) throws StockInsuficienteException {
+        int campos = entrada.contarCampos();
+        if (entrada.campoEs("pedido")) {
+            entrada.saltarCampo();
+            pedido(entrada, linea, campos);
+        } else if (entrada.campoEs("buscar")) {
+            entrada.saltarCampo();
+            exigirCampos(campos, 2);
+            buscar(entrada.leerEntero(), linea);
+        } else if (entrada.campoEs("agregar")) {
+            entrada.saltarCampo();
+            agregar(entrada, linea, campos);
+        } else if (entrada.campoEs("actualizar")) {
+            entrada.saltarCampo();
+            exigirCampos(campos, 5);
+            actualizar(entrada, linea);
+        } else if (entrada.campoEs("eliminar")) {
+            entrada.saltarCampo();
+            exigirCampos(campos, 2);
+            int id = entrada.leerEntero();
+            if (!productoService.eliminarProducto(id)) throw noEncontrado(id);
+            ok(linea).entero(id).finLinea();
+        } else if (entrada.campoEs("listar-productos")) {
+            exigirCampos(campos, 1);
+            productoService.exportar(salida);
+            ok(linea).finLinea();
+        } else if (entrada.campoEs("listar-pedidos")) {
+            exigirCampos(campos, 1);
+            pedidoService.exportar(salida);
+            ok(linea).finLinea();
+        } else if (entrada.campoEs("importar")) {
+            entrada.saltarCampo();
+            exigirCampos(campos, 2);
+            importar(entrada.leerTexto(), linea);
+        } else if (entrada.campoEs("confirmar")) {
+            exigirCampos(campos, 1);
+            ok(linea).finLinea();
+            salida.vaciar();
+        } else {
+            throw new IllegalArgumentException("Comando desconocido: " + entrada.leerTexto());
+        }
+    }
+
+    private void agregar(LectorCampos entrada, long linea, int campos) {
+        Producto p;
+        if (entrada.campoEs("Producto")) {
+            exigirCampos(campos, 5);
+            entrada.saltarCampo();
+            p = productoService.agregarProducto(entrada.leerTexto(), entrada.leerDecimal(), entrada.leerEntero());
+        } else if (entrada.campoEs("Bebida")) {
+            exigirCampos(campos, 6);
+            entrada.saltarCampo();
+            p = productoService.agregarBebida(entrada.leerTexto(), entrada.leerDecimal(), entrada.leerEntero(),
+                    entrada.leerDecimal());
+        } else if (entrada.campoEs("Comida")) {
+            exigirCampos(campos, 6);
+            entrada.saltarCampo();
+            p = productoService.agregarComida(entrada.leerTexto(), entrada.leerDecimal(), entrada.leerEntero(),
+                    entrada.leerFecha());
+        } else {
+            throw new IllegalArgumentException("Tipo de producto desconocido: " + entrada.leerTexto()
+                    + " (Producto, Bebida o Comida)");
+        }
+        ok(linea).entero(p.getId()).finLinea();
+    }
+
+    private void actualizar(LectorCampos entrada, long linea) {
+        int id = entrada.leerEntero();
+        String nombre = entrada.campoEs("") ? saltar(entrada) : entrada.leerTexto();
+        Double precio = entrada.campoEs("") ? saltar(entrada) : Double.valueOf(entrada.leerDecimal());
+        Integer stock = entrada.campoEs("") ? saltar(entrada) : Integer.valueOf(entrada.leerEntero());
+        if (!productoService.actualizarProducto(id, nombre, precio, stock)) throw noEncontrado(id);
+        ok(linea).entero(id).finLinea();
+    }
+
+    private void buscar(int id, long linea) {
+        Producto p = productoService.buscarPorId(id).orElseThrow(() -> noEncontrado(id));
+        ProductoService.escribirProducto(salida, p);
+        ok(linea).finLinea();
+    }
+
+    private void importar(String ruta, long linea) {
+        ResultadoImportacion r = productoService.importar(Paths.get(ruta));
+        for (ResultadoImportacion.Rechazo rechazo : r.rechazos()) {
+            salida.texto("rechazo").entero(rechazo.linea()).texto(rechazo.motivo()).finLinea();
+        }
+        ok(linea).entero(r.insertados()).entero(r.fusionados()).entero(r.rechazados()).finLinea();
+    }
+
+    private void pedido(LectorCampos entrada, long linea, int campos) throws StockInsuficienteException {
+        if (campos < 3 || campos % 2 == 0) {
+            throw new IllegalArgumentException("Se esperaban pares idProducto;cantidad después de 'pedido'.");
+        }
+        List<LineaPedido> lineas = new ArrayList<>(campos / 2);
+        while (entrada.hayCampo()) {
+            int id = entrada.leerEntero();
+            int cantidad = entrada.leerEntero();
+            if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser mayor que cero.");
+            Producto p = productoService.buscarPorId(id).orElseThrow(() -> noEncontrado(id));
+            lineas.add(new LineaPedido(p, cantidad));
+        }
+        Pedido pedido = pedidoService.crearPedido(lineas);
+        ok(linea).entero(pedido.getId()).decimalEscalado(pedido.getTotalCentavos(), 2).finLinea();
+    }
+
+    // ==========================================================
+    // 🔹 AUXILIARES
+    // ==========================================================
+
+    private EscritorCampos ok(long linea) {
+        return salida.texto("ok").entero(linea);
+    }
+
+    private void error(long linea, String mensaje) {
+        errores++;
+        // Sin el prefijo "⚠️" de los mensajes de consola y en una sola línea.
+        String limpio = mensaje == null ? "" : mensaje.replace("⚠️", "").replace('\n', ' ').strip();
+        salida.texto("error").entero(linea).texto(limpio).finLinea();
+    }
+
+    private static void exigirCampos(int campos, int esperados) {
+        if (campos != esperados) {
+            throw new IllegalArgumentException("Se esperaban " + esperados + " campos y hay " + campos + ".");
+        }
+    }
+
+    private static <T> T saltar(LectorCampos entrada) {
+        entrada.saltarCampo();
+        return null;
+    }
+
+    private static IllegalArgumentException noEncontrado(int id) {
+        return new IllegalArgumentException("No se encontró un producto con ID " + id + ".");
+    }
+
+    /**
+     * Canal de salida que, antes de escribir, espera que las operaciones anteriores estén en
+     * disco: un resultado nunca sale antes que su registro del journal.
+     */
+    private static final class CanalConfirmado implements WritableByteChannel {
+        private final PersistenciaService persistencia;
+        private final WritableByteChannel destino;
+
+        CanalConfirmado(PersistenciaService persistencia, WritableByteChannel destino) {
+            this.persistencia = persistencia;
+            this.destino = destino;
+        }
+
+        @Override
+        public int write(ByteBuffer origen) throws IOException {
+            persistencia.esperarDurable();
+            return destino.write(origen);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return destino.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            destino.close();
+        }
+    }
+}
@@ -2,12 +2,26 @@
 package com.techlab.main;
 
 import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.http.ServidorHttp;
+import com.techlab.metricas.Metricas;
 import com.techlab.pedidos.LineaPedido;
 import com.techlab.pedidos.Pedido;
 import com.techlab.productos.*;
+import com.techlab.pedidos.VentasProducto;
+import com.techlab.servicios.AnaliticaService;
 import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.PersistenciaService;
 import com.techlab.servicios.ProductoService;
-
+import com.techlab.util.Hilos;
+import com.techlab.util.LectorCampos;
+import com.techlab.util.Pagina;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -19,6 +33,8 @@ public class Main {
     private static final Scanner scanner = new Scanner(System.in);
     private static final ProductoService productoService = new ProductoService();
     private static final PedidoService pedidoService = new PedidoService(productoService);
+    private static final AnaliticaService analitica = new AnaliticaService(pedidoService);
+    private static final PersistenciaService persistencia = new PersistenciaService(productoService, pedidoService);
 
     // 🎨 Códigos de color ANSI
     public static final String RESET = "\u001B[0m";
@@ -28,11 +44,29 @@ public class Main {
     public static final String BLUE = "\u001B[34m";
     public static final String CYAN = "\u001B[36m";
 
+    private static final int MAX_SUGERENCIAS = 10;
+    private static final int TAMANIO_PAGINA = 20;
+    private static final int TOP_VENTAS = 5;
+    private static final int MAX_RECHAZOS_MOSTRADOS = 10;
+    private static final String USO =
+            "Uso: java com.techlab.main.Main [--comandos <archivo> | --comandos - | --http [puerto]]";
+
     public static void main(String[] args)  {
 
-        // 🔹 Cargar datos al iniciar
-        productoService.cargarDesdeArchivo();
-        pedidoService.cargarDesdeArchivo();
+        // 🔹 Con argumentos: API HTTP (--http [puerto]) o modo sin menú (--comandos <archivo>, o
+        //    --comandos - para la entrada estándar)
+        if (args.length > 0 && args[0].equals("--http")) {
+            int codigo = servirHttp(args);
+            if (codigo != 0) System.exit(codigo);
+            return; // el servidor sigue atendiendo hasta que se detenga el proceso
+        }
+        if (args.length > 0) {
+            System.exit(ejecutarComandos(args));
+        }
+
+        // 🔹 Cargar datos al iniciar (snapshot + journal de cambios posteriores)
+        persistencia.iniciar();
+        iniciarMetricas();
 
         boolean salir = false;
 
@@ -53,19 +87,30 @@ public class Main {
                 case "5" -> crearPedido();
                 case "6" -> listarPedidos();
                 case "7" -> salir = true;
+                // Las pantallas nuevas van después de Salir: los scripts que ya la usan siguen andando.
+                case "8" -> mostrarReporteVentas();
+                case "9" -> importarProductos();
                 default -> System.out.println(YELLOW + "⚠️  Opción no válida. Intente nuevamente." + RESET);
             }
 
             System.out.println(CYAN + "====================================" + RESET);
         }
 
-        // 🔹 Guardar datos antes de salir
-        productoService.guardarEnArchivo();
-        pedidoService.guardarEnArchivo();
+        // 🔹 Guardar datos antes de salir (cada cambio ya quedó en el journal; se guarda lo que falte)
+        persistencia.close();
+        if (Metricas.ACTIVAS) Metricas.detenerVolcado();
 
         System.out.println(GREEN + "✅ Programa finalizado correctamente." + RESET);
     }
 
+    // 🔹 Métricas (-Dtechlab.metricas=true): MBeans JMX y volcado periódico a data/metricas.txt
+    private static void iniciarMetricas() {
+        if (Metricas.ACTIVAS) {
+            Metricas.registrarEnJmx();
+            Metricas.iniciarVolcado();
+        }
+    }
+
     // 🔹 Mostrar menú principal
     private static void mostrarMenu() {
         System.out.println("\n=========== MENÚ PRINCIPAL ===========");
@@ -76,6 +121,8 @@ public class Main {
         System.out.println("5) Crear pedido");
         System.out.println("6) Listar pedidos");
         System.out.println("7) Salir");
+        System.out.println("8) Reporte de ventas");
+        System.out.println("9) Importar productos (archivo de proveedor)");
         System.out.println("=====================================");
     }
 
@@ -105,34 +152,42 @@ public class Main {
 
         Producto nuevo;
 
-        switch (tipoSeleccionado) {
-            case "2" -> {
-                double litros = leerDouble("Ingrese cantidad de litros (use punto): ");
-                nuevo = productoService.agregarBebida(nombre, precio, stock, litros);
-                System.out.println(GREEN + "✅ Bebida agregada o actualizada: " + nuevo + RESET);
-            }
-            case "3" -> {
-                LocalDate fecha = leerFecha("Ingrese fecha de vencimiento");
-                nuevo = productoService.agregarComida(nombre, precio, stock, fecha);
-                System.out.println(GREEN + "✅ Comida agregada o actualizada: " + nuevo + RESET);
-            }
-            default -> {
-                nuevo = productoService.agregarProducto(nombre, precio, stock);
-                System.out.println(GREEN + "✅ Producto agregado o actualizado: " + nuevo + RESET);
+        // Precio o stock fuera de rango, o el catálogo sin IDs libres: se avisa y se vuelve al menú.
+        try {
+            switch (tipoSeleccionado) {
+                case "2" -> {
+                    double litros = leerDouble("Ingrese cantidad de litros (use punto): ");
+                    nuevo = productoService.agregarBebida(nombre, precio, stock, litros);
+                    System.out.println(GREEN + "✅ Bebida agregada o actualizada: " + nuevo + RESET);
+                }
+                case "3" -> {
+                    LocalDate fecha = leerFecha("Ingrese fecha de vencimiento");
+                    nuevo = productoService.agregarComida(nombre, precio, stock, fecha);
+                    System.out.println(GREEN + "✅ Comida agregada o actualizada: " + nuevo + RESET);
+                }
+                default -> {
+                    nuevo = productoService.agregarProducto(nombre, precio, stock);
+                    System.out.println(GREEN + "✅ Producto agregado o actualizado: " + nuevo + RESET);
+                }
             }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.out.println(RED + "⚠️  " + e.getMessage() + RESET);
         }
     }
 
     private static void listarProductos() {
-        List<Producto> lista = productoService.listarProductos();
-
-        if (lista.isEmpty()) {
+        if (productoService.estaVacio()) {
             System.out.println(YELLOW + "⚠️  No hay productos cargados." + RESET);
-        } else {
-            System.out.println("\n" + CYAN + "=== LISTA DE PRODUCTOS ===" + RESET);
-            System.out.printf("%-5s %-20s %-10s %-10s %-15s%n", "ID", "Nombre", "Precio", "Stock", "Detalle");
-            System.out.println("-----------------------------------------------------------");
-            for (Producto p : lista) {
+            return;
+        }
+
+        System.out.println("\n" + CYAN + "=== LISTA DE PRODUCTOS ===" + RESET);
+        System.out.printf("%-5s %-20s %-10s %-10s %-15s%n", "ID", "Nombre", "Precio", "Stock", "Detalle");
+        System.out.println("-----------------------------------------------------------");
+        String cursor = null;
+        do {
+            Pagina<Producto> pagina = productoService.listarProductos(cursor, TAMANIO_PAGINA);
+            for (Producto p : pagina.elementos()) {
                 if (p instanceof Bebida b)
                     System.out.printf("%-5d %-20s $%-9.2f %-10d %.1f L%n",
                             b.getId(), b.getNombre(), b.getPrecio(), b.getStock(), b.getLitros());
@@ -143,7 +198,8 @@ public class Main {
                     System.out.printf("%-5d %-20s $%-9.2f %-10d -%n",
                             p.getId(), p.getNombre(), p.getPrecio(), p.getStock());
             }
-        }
+            cursor = pedirSiguientePagina(pagina);
+        } while (cursor != null);
     }
 
     private static void buscarActualizarProducto() {
@@ -156,6 +212,7 @@ public class Main {
             producto = productoService.buscarPorId(id);
         } catch (NumberFormatException e) {
             producto = productoService.buscarPorNombre(entrada);
+            if (producto.isEmpty()) producto = elegirSugerencia(entrada);
         }
 
         if (producto.isPresent()) {
@@ -196,6 +253,26 @@ public class Main {
         }
     }
 
+    // 🔹 Sin coincidencia exacta: ofrece nombres que empiezan igual o que tienen errores de tipeo
+    private static Optional<Producto> elegirSugerencia(String texto) {
+        List<Producto> sugerencias = productoService.buscarPorPrefijo(texto, MAX_SUGERENCIAS);
+        if (sugerencias.isEmpty()) sugerencias = productoService.buscarAproximado(texto, MAX_SUGERENCIAS);
+        if (sugerencias.isEmpty()) return Optional.empty();
+
+        System.out.println(YELLOW + "ℹ️  No hay coincidencia exacta. Productos parecidos:" + RESET);
+        for (Producto p : sugerencias) {
+            System.out.println("  " + p.getId() + ") " + p.getNombre());
+        }
+        System.out.print("Ingrese el ID del producto (ENTER para cancelar): ");
+        String id = scanner.nextLine().trim();
+        if (id.isEmpty()) return Optional.empty();
+        try {
+            return productoService.buscarPorId(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
     private static void eliminarProducto() {
         int id = leerEntero("Ingrese el ID del producto a eliminar: ");
         boolean eliminado = productoService.eliminarProducto(id);
@@ -205,6 +282,28 @@ public class Main {
             System.out.println(RED + "⚠️  No se encontró un producto con ese ID." + RESET);
     }
 
+    // 🔹 Importación masiva: tipo;nombre;precio;stock[;litros|fecha] por línea, sin ID
+    private static void importarProductos() {
+        System.out.println("\n" + CYAN + "=== IMPORTAR PRODUCTOS ===" + RESET);
+        String ruta = leerTexto("Ruta del archivo (tipo;nombre;precio;stock[;litros|fecha]): ");
+        if (!Files.isRegularFile(Paths.get(ruta))) {
+            System.out.println(RED + "⚠️  No existe el archivo: " + ruta + RESET);
+            return;
+        }
+        try {
+            ResultadoImportacion r = productoService.importar(Paths.get(ruta));
+            System.out.println(GREEN + "✅ Insertados: " + r.insertados() + " | Fusionados: " + r.fusionados()
+                    + " | Rechazados: " + r.rechazados() + RESET);
+            r.rechazos().stream().limit(MAX_RECHAZOS_MOSTRADOS).forEach(rechazo ->
+                    System.out.println(YELLOW + "   Línea " + rechazo.linea() + ": " + rechazo.motivo() + RESET));
+            if (r.rechazados() > MAX_RECHAZOS_MOSTRADOS) {
+                System.out.println(YELLOW + "   ... y " + (r.rechazados() - MAX_RECHAZOS_MOSTRADOS) + " más." + RESET);
+            }
+        } catch (IllegalStateException e) {
+            System.out.println(RED + "⚠️  " + e.getMessage() + RESET);
+        }
+    }
+
     // ======================================================
     // 🔹 GESTIÓN DE PEDIDOS
     // ======================================================
@@ -219,8 +318,10 @@ public class Main {
         System.out.println(GREEN + "--- CREAR NUEVO PEDIDO ---" + RESET);
         boolean seguir = true;
 
+        // El listado se recorre una sola vez: con el paginador, repetirlo en cada línea obliga a
+        // pasar todas las páginas de nuevo antes de cargar el próximo producto.
+        listarProductos();
         while (seguir) {
-            listarProductos();
             int id = leerEntero("Ingrese ID del producto que desea agregar: ");
 
             Optional<Producto> optProducto = productoService.buscarPorId(id);
@@ -241,7 +342,7 @@ public class Main {
             Pedido pedido = pedidoService.crearPedido(lineas);
             System.out.println(GREEN + "✅ Pedido creado exitosamente:" + RESET);
             System.out.println(pedido);
-        } catch (StockInsuficienteException e) {
+        } catch (StockInsuficienteException | IllegalArgumentException e) {
             System.out.println(RED + "❌ Error al crear pedido: " + e.getMessage() + RESET);
         }
     }
@@ -253,7 +354,120 @@ public class Main {
         }
 
         System.out.println("\n--- LISTA DE PEDIDOS ---");
-        pedidoService.listarPedidos().forEach(System.out::println);
+        String cursor = null;
+        do {
+            Pagina<Pedido> pagina = pedidoService.listarPedidos(cursor, TAMANIO_PAGINA);
+            pagina.elementos().forEach(System.out::println);
+            cursor = pedirSiguientePagina(pagina);
+        } while (cursor != null);
+    }
+
+    private static void mostrarReporteVentas() {
+        if (!pedidoService.hayPedidos()) {
+            System.out.println(YELLOW + "⚠️  No hay pedidos registrados." + RESET);
+            return;
+        }
+
+        System.out.println("\n" + CYAN + "=== REPORTE DE VENTAS ===" + RESET);
+        System.out.println("Pedidos: " + analitica.cantidadPedidos());
+        System.out.println("Ingresos totales: $" + analitica.ingresosTotales());
+        System.out.println("Ticket promedio: $" + analitica.ticketPromedio());
+        analitica.ingresosPorTipo().forEach((tipo, total) -> System.out.printf("  %-10s $%s%n", tipo, total));
+
+        System.out.println("\n--- MÁS VENDIDOS ---");
+        System.out.printf("%-5s %-20s %-10s %-12s%n", "ID", "Nombre", "Unidades", "Ingresos");
+        for (VentasProducto v : analitica.masVendidos(TOP_VENTAS)) {
+            System.out.printf("%-5d %-20s %-10d $%s%n", v.idProducto(), v.nombre(), v.unidades(), v.ingresos());
+        }
+    }
+
+    /** @return El cursor de la página siguiente, o null si no hay más o el usuario no quiere seguir. */
+    private static String pedirSiguientePagina(Pagina<?> pagina) {
+        if (!pagina.hayMas()) return null;
+        System.out.print(CYAN + "-- ENTER para ver más, 'q' para terminar: " + RESET);
+        return scanner.nextLine().trim().equalsIgnoreCase("q") ? null : pagina.siguiente();
+    }
+
+    // ======================================================
+    // 🔹 MODO SIN MENÚ
+    // ======================================================
+
+    /**
+     * Ejecuta un archivo de comandos (o la entrada estándar) sin menú; ver {@link EjecutorComandos}.
+     * Los resultados van a la salida estándar y los mensajes de los servicios, a la de errores.
+     * @return Código de salida: 0 si todos los comandos salieron bien, 1 si alguno falló,
+     *         2 si los argumentos no son válidos.
+     */
+    private static int ejecutarComandos(String[] args) {
+        if (args.length > 2 || !args[0].equals("--comandos")) {
+            System.err.println(USO);
+            return 2;
+        }
+        String origen = args.length == 2 ? args[1] : "-";
+        LectorCampos entrada;
+        try {
+            entrada = origen.equals("-") ? new LectorCampos(System.in) : LectorCampos.abrir(Paths.get(origen));
+        } catch (IOException e) {
+            System.err.println("⚠️  No se pudo abrir el archivo de comandos: " + e.getMessage());
+            return 2;
+        }
+
+        // La salida estándar queda solo para los resultados, sin el PrintStream (que vuelca por línea).
+        OutputStream resultados = new FileOutputStream(FileDescriptor.out);
+        System.setOut(System.err);
+
+        persistencia.iniciar();
+        persistencia.setConfirmacionDiferida(true);
+        iniciarMetricas();
+        EjecutorComandos ejecutor = new EjecutorComandos(productoService, pedidoService, persistencia, resultados);
+        try (entrada) {
+            ejecutor.ejecutar(entrada);
+        } finally {
+            persistencia.close();
+            if (Metricas.ACTIVAS) Metricas.detenerVolcado();
+        }
+        System.err.println("ℹ️  Comandos ejecutados: " + ejecutor.getComandos() + ", con error: " + ejecutor.getErrores());
+        return ejecutor.getErrores() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Levanta la API HTTP (ver {@link ServidorHttp}) con los datos cargados y vuelve: el servidor
+     * atiende en sus propios hilos. Al detener el proceso (Ctrl+C o SIGTERM) deja de aceptar
+     * solicitudes, espera las que están en curso y cierra la persistencia.
+     * @return 0 si el servidor quedó escuchando, 2 si los argumentos no son válidos o el puerto está ocupado.
+     */
+    private static int servirHttp(String[] args) {
+        int puerto = ServidorHttp.PUERTO_PREDETERMINADO;
+        try {
+            if (args.length > 2) throw new NumberFormatException();
+            if (args.length == 2) puerto = Integer.parseInt(args[1]);
+            if (puerto < 0 || puerto > 65535) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            System.err.println(USO);
+            return 2;
+        }
+
+        persistencia.iniciar();
+        iniciarMetricas();
+        ServidorHttp servidor;
+        try {
+            servidor = new ServidorHttp(productoService, pedidoService, persistencia, puerto);
+        } catch (IOException e) {
+            System.err.println("⚠️  No se pudo abrir el puerto " + puerto + ": " + e.getMessage());
+            persistencia.close();
+            return 2;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            persistencia.close();
+            if (Metricas.ACTIVAS) Metricas.detenerVolcado();
+            System.out.println("ℹ️  API HTTP detenida.");
+        }, "cierre-http"));
+        servidor.iniciar();
+        System.out.println("ℹ️  API HTTP en http://localhost:" + servidor.getPuerto()
+                + (Hilos.hayVirtuales() ? " (hilos virtuales)" : " (un hilo por solicitud)")
+                + ". Ctrl+C para detenerla.");
+        return 0;
     }
 
     // ======================================================
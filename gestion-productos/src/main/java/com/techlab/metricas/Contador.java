@@ -0,0 +1,34 @@
+package com.techlab.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Contadores de eventos, sin bloqueos (LongAdder: cada hilo suma en su propia celda). */
+public enum Contador {
+    /** Pedidos rechazados por falta de stock, uno por uno o dentro de un lote. */
+    STOCK_INSUFICIENTE("pedidos.stockInsuficiente"),
+    /** Reservas que vencieron sin confirmarse; su stock volvió al disponible. */
+    RESERVAS_VENCIDAS("reservas.vencidas");
+
+    private final String nombre;
+    private final LongAdder valor = new LongAdder();
+
+    Contador(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public void incrementar() {
+        if (Metricas.ACTIVAS) valor.increment();
+    }
+
+    public long valor() {
+        return valor.sum();
+    }
+
+    public void reiniciar() {
+        valor.reset();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+}
@@ -0,0 +1,21 @@
+package com.techlab.metricas;
+
+/** Adaptador JMX de un contador. */
+public final class ContadorJmx implements ContadorMBean {
+
+    private final Contador contador;
+
+    ContadorJmx(Contador contador) {
+        this.contador = contador;
+    }
+
+    @Override
+    public long getValor() {
+        return contador.valor();
+    }
+
+    @Override
+    public void reiniciar() {
+        contador.reiniciar();
+    }
+}
@@ -0,0 +1,9 @@
+package com.techlab.metricas;
+
+/** Vista JMX de un {@link Contador} ({@code com.techlab:type=Contador,name=<nombre>}). */
+public interface ContadorMBean {
+
+    long getValor();
+
+    void reiniciar();
+}
@@ -0,0 +1,103 @@
+package com.techlab.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias sin bloqueos, al estilo HdrHistogram: cubetas log-lineales con
+ * 32 subdivisiones por potencia de dos, así cualquier percentil sale con un error relativo
+ * menor al 3,2 % y la memoria es fija (unos 9 KB) sin importar cuántos valores se registren.
+ *
+ * Registrar es un incremento atómico sobre la cubeta del valor, más la suma y el máximo; no
+ * reserva memoria. Las lecturas recorren las cubetas sin frenar a quien registra, así que un
+ * resumen tomado mientras se registra puede no incluir los últimos valores.
+ */
+public final class Histograma {
+
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    /** Valores mayores (más de 36 minutos en nanosegundos) se cuentan en la última cubeta. */
+    private static final long MAXIMO_REGISTRABLE = (1L << 41) - 1;
+    private static final int CUBETAS = indice(MAXIMO_REGISTRABLE) + 1;
+
+    /**
+     * Resumen de un histograma en un momento dado. Los percentiles son el límite superior de
+     * la cubeta donde caen (nunca subestiman), sin pasar del máximo registrado.
+     */
+    public record Resumen(long cantidad, double promedio, long p50, long p99, long p999, long maximo) {
+    }
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    // ==========================================================
+    // 🔹 REGISTRO
+    // ==========================================================
+
+    /** @param valor Valor a registrar (por ejemplo, nanosegundos); los negativos cuentan como 0. */
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        cubetas.getAndIncrement(indice(Math.min(valor, MAXIMO_REGISTRABLE)));
+        suma.add(valor);
+        // El máximo casi nunca cambia: se lee primero para no escribir la línea de caché en vano.
+        if (valor > maximo.get()) maximo.accumulateAndGet(valor, Math::max);
+    }
+
+    /**
+     * Los valores menores a 64 tienen cubeta propia; de ahí en más, cada potencia de dos
+     * [2^e, 2^(e+1)) se divide en 32 cubetas iguales según los 5 bits que siguen al más alto.
+     */
+    static int indice(long valor) {
+        int corrimiento = Math.max(0, 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBCUBETA);
+        return (corrimiento << BITS_SUBCUBETA) + (int) (valor >>> corrimiento);
+    }
+
+    /** Mayor valor que cae en la cubeta (inversa de indice). */
+    static long limiteSuperior(int indice) {
+        if (indice < 2 * SUBCUBETAS) return indice;
+        int corrimiento = (indice >>> BITS_SUBCUBETA) - 1;
+        long base = indice - ((long) corrimiento << BITS_SUBCUBETA);
+        return ((base + 1) << corrimiento) - 1;
+    }
+
+    // ==========================================================
+    // 🔹 LECTURA
+    // ==========================================================
+
+    public Resumen resumen() {
+        long[] copia = new long[CUBETAS];
+        long cantidad = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            cantidad += copia[i];
+        }
+        long max = maximo.get();
+        if (cantidad == 0) return new Resumen(0, 0, 0, 0, 0, 0);
+        return new Resumen(cantidad, (double) suma.sum() / cantidad,
+                percentil(copia, cantidad, 0.50, max),
+                percentil(copia, cantidad, 0.99, max),
+                percentil(copia, cantidad, 0.999, max),
+                max);
+    }
+
+    private static long percentil(long[] copia, long cantidad, double fraccion, long maximo) {
+        long rango = Math.max(1, (long) Math.ceil(fraccion * cantidad));
+        long acumulado = 0;
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+            if (acumulado >= rango) return Math.min(limiteSuperior(i), maximo);
+        }
+        return maximo;
+    }
+
+    /** Vuelve a cero. Los valores que se registren mientras tanto pueden quedar o no. */
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        suma.reset();
+        maximo.set(0);
+    }
+}
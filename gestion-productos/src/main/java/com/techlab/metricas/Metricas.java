@@ -0,0 +1,135 @@
+package com.techlab.metricas;
+
+import com.techlab.util.ArchivoUtil;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Punto de entrada de la instrumentación: se activa con {@code -Dtechlab.metricas=true}.
+ *
+ * ACTIVAS es una constante: con las métricas desactivadas el JIT descarta las mediciones
+ * (ni siquiera se lee el reloj) y el costo es cero. Activas, cada operación medida suma dos
+ * lecturas de System.nanoTime() y un registro en su histograma, unas decenas de nanosegundos
+ * (ver MetricasBench).
+ *
+ * Los valores se ven por JMX (jconsole, VisualVM) y en un volcado de texto periódico.
+ */
+public final class Metricas {
+
+    public static final boolean ACTIVAS = Boolean.getBoolean("techlab.metricas");
+    /** Segundos entre volcados de texto; se cambia con -Dtechlab.metricas.intervalo. */
+    public static final long INTERVALO_VOLCADO = Long.getLong("techlab.metricas.intervalo", 60);
+    public static final String RUTA_VOLCADO = ArchivoUtil.DIRECTORIO_DATOS + "/metricas.txt";
+
+    private static final String DOMINIO_JMX = "com.techlab";
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static ScheduledExecutorService volcador;
+
+    private Metricas() {
+    }
+
+    /** Marca de tiempo para pasarle a {@link Operacion#registrar(long)} al terminar. */
+    public static long inicio() {
+        return ACTIVAS ? System.nanoTime() : 0;
+    }
+
+    // ==========================================================
+    // 🔹 JMX
+    // ==========================================================
+
+    /** Registra un MBean por operación y por contador en el servidor de la plataforma. */
+    public static void registrarEnJmx() {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Operacion op : Operacion.values()) {
+                registrar(servidor, new StandardMBean(new OperacionJmx(op), OperacionMBean.class),
+                        "Operacion", op.getNombre());
+            }
+            for (Contador c : Contador.values()) {
+                registrar(servidor, new StandardMBean(new ContadorJmx(c), ContadorMBean.class),
+                        "Contador", c.getNombre());
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron registrar las métricas en JMX: " + e.getMessage(), e);
+        }
+    }
+
+    private static void registrar(MBeanServer servidor, StandardMBean bean, String tipo, String nombre)
+            throws JMException {
+        ObjectName objeto = new ObjectName(DOMINIO_JMX + ":type=" + tipo + ",name=" + nombre);
+        if (!servidor.isRegistered(objeto)) servidor.registerMBean(bean, objeto);
+    }
+
+    // ==========================================================
+    // 🔹 VOLCADO DE TEXTO
+    // ==========================================================
+
+    /**
+     * Tabla con el resumen de cada operación (las que todavía no se usaron se omiten) y el
+     * valor de cada contador.
+     */
+    public static List<String> volcado() {
+        List<String> lineas = new ArrayList<>();
+        lineas.add("# Métricas " + LocalDateTime.now().format(FORMATO_FECHA));
+        lineas.add(String.format(Locale.ROOT, "%-28s %10s %10s %10s %10s %10s %10s",
+                "operacion", "cantidad", "promedio", "p50", "p99", "p999", "maximo"));
+        for (Operacion op : Operacion.values()) {
+            Histograma.Resumen r = op.getHistograma().resumen();
+            if (r.cantidad() == 0) continue;
+            lineas.add(String.format(Locale.ROOT, "%-28s %10d %10s %10s %10s %10s %10s",
+                    op.getNombre(), r.cantidad(), duracion(Math.round(r.promedio())),
+                    duracion(r.p50()), duracion(r.p99()), duracion(r.p999()), duracion(r.maximo())));
+        }
+        for (Contador c : Contador.values()) {
+            lineas.add(String.format(Locale.ROOT, "%-28s %10d", c.getNombre(), c.valor()));
+        }
+        return lineas;
+    }
+
+    // 850 ns, 12.3 µs, 4.56 ms, 1.20 s: tres cifras significativas alcanzan para latencias.
+    static String duracion(long nanos) {
+        if (nanos < 1_000) return nanos + " ns";
+        if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.1f µs", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+        return String.format(Locale.ROOT, "%.2f s", nanos / 1e9);
+    }
+
+    /**
+     * Escribe el volcado en RUTA_VOLCADO cada INTERVALO_VOLCADO segundos, desde un hilo daemon
+     * (no impide que el programa termine). Llamarlo de nuevo no arranca otro hilo.
+     */
+    public static synchronized void iniciarVolcado() {
+        if (volcador != null) return;
+        volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "volcado-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcador.scheduleAtFixedRate(Metricas::volcar, INTERVALO_VOLCADO, INTERVALO_VOLCADO, TimeUnit.SECONDS);
+    }
+
+    /** Detiene el volcado periódico y escribe uno final. */
+    public static synchronized void detenerVolcado() {
+        if (volcador == null) return;
+        volcador.shutdownNow();
+        volcador = null;
+        volcar();
+    }
+
+    private static void volcar() {
+        ArchivoUtil.escribirLineas(RUTA_VOLCADO, volcado());
+    }
+}
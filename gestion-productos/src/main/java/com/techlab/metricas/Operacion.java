@@ -0,0 +1,59 @@
+package com.techlab.metricas;
+
+/**
+ * Operaciones medidas, cada una con su histograma de latencias en nanosegundos.
+ * Uso, en el método medido:
+ * <pre>
+ * long inicio = Metricas.inicio();
+ * try {
+ *     ...
+ * } finally {
+ *     Operacion.CREAR_PEDIDO.registrar(inicio);
+ * }
+ * </pre>
+ * Las operaciones que terminan con excepción también se registran.
+ */
+public enum Operacion {
+    BUSCAR_PRODUCTO_POR_ID("productos.buscarPorId"),
+    BUSCAR_PRODUCTO_POR_NOMBRE("productos.buscarPorNombre"),
+    AGREGAR_PRODUCTO("productos.agregar"),
+    GUARDAR_PRODUCTOS("productos.guardar"),
+    GUARDAR_SNAPSHOT_PRODUCTOS("productos.guardarSnapshot"),
+    CARGAR_PRODUCTOS("productos.cargar"),
+    IMPORTAR_PRODUCTOS("productos.importar"),
+    CREAR_PEDIDO("pedidos.crear"),
+    CREAR_PEDIDOS_LOTE("pedidos.crearLote"),
+    GUARDAR_PEDIDOS("pedidos.guardar"),
+    GUARDAR_SNAPSHOT_PEDIDOS("pedidos.guardarSnapshot"),
+    CARGAR_PEDIDOS("pedidos.cargar"),
+    ARCHIVAR_PEDIDOS("pedidos.archivar"),
+    LEER_PEDIDOS_ARCHIVADOS("pedidos.leerArchivados"),
+    RESERVAR("reservas.reservar"),
+    CONFIRMAR_RESERVA("reservas.confirmar"),
+    ESCRIBIR_ARCHIVO("archivo.escribir"),
+    SINCRONIZAR_ARCHIVO("archivo.fsync");
+
+    private final String nombre;
+    private final Histograma histograma = new Histograma();
+
+    Operacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    /**
+     * Registra la duración desde {@code inicio} hasta ahora. Con las métricas desactivadas no
+     * hace nada, y el JIT elimina la llamada entera.
+     * @param inicio Valor devuelto por {@link Metricas#inicio()} al empezar la operación.
+     */
+    public void registrar(long inicio) {
+        if (Metricas.ACTIVAS) histograma.registrar(System.nanoTime() - inicio);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Histograma getHistograma() {
+        return histograma;
+    }
+}
@@ -0,0 +1,49 @@
+package com.techlab.metricas;
+
+/**
+ * Adaptador JMX de una operación. Cada atributo arma un resumen nuevo del histograma:
+ * son lecturas de consola, no de camino caliente.
+ */
+public final class OperacionJmx implements OperacionMBean {
+
+    private final Histograma histograma;
+
+    OperacionJmx(Operacion operacion) {
+        this.histograma = operacion.getHistograma();
+    }
+
+    @Override
+    public long getCantidad() {
+        return histograma.resumen().cantidad();
+    }
+
+    @Override
+    public double getPromedioNanos() {
+        return histograma.resumen().promedio();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return histograma.resumen().p50();
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return histograma.resumen().p99();
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return histograma.resumen().p999();
+    }
+
+    @Override
+    public long getMaximoNanos() {
+        return histograma.resumen().maximo();
+    }
+
+    @Override
+    public void reiniciar() {
+        histograma.reiniciar();
+    }
+}
@@ -0,0 +1,22 @@
+package com.techlab.metricas;
+
+/**
+ * Vista JMX de una {@link Operacion} ({@code com.techlab:type=Operacion,name=<nombre>}).
+ * Los tiempos están en nanosegundos.
+ */
+public interface OperacionMBean {
+
+    long getCantidad();
+
+    double getPromedioNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    long getMaximoNanos();
+
+    void reiniciar();
+}
@@ -1,17 +1,44 @@
 package com.techlab.pedidos;
 
 import com.techlab.productos.Producto;
+import com.techlab.util.Dinero;
 
 /**
  * Representa una línea dentro de un pedido (un producto y la cantidad solicitada).
+ * El precio unitario se fija al crear la línea: un cambio de precio posterior del
+ * producto no altera el subtotal de pedidos ya hechos.
  */
 public class LineaPedido {
     private Producto producto;
     private int cantidad;
+    private final long precioUnitarioCentavos;
+    private final long subtotalCentavos; // se calcula una sola vez
 
     public LineaPedido(Producto producto, int cantidad) {
+        // Un producto nulo se rechaza al crear el pedido (PedidoService), no aquí.
+        this(producto, cantidad, producto != null ? producto.getPrecioCentavos() : 0);
+    }
+
+    // 🔹 Constructor usado al cargar pedidos guardados, con el precio histórico
+    public LineaPedido(Producto producto, int cantidad, Dinero precioUnitario) {
+        this(producto, cantidad, precioUnitario.centavos());
+    }
+
+    // 🔹 Constructor usado al cargar pedidos con el subtotal guardado: en los pedidos v1 el
+    // subtotal es el dato original y no siempre es precio unitario × cantidad (1.00 por 3).
+    public LineaPedido(Producto producto, int cantidad, Dinero precioUnitario, Dinero subtotal) {
+        this(producto, cantidad, precioUnitario.centavos(), subtotal.centavos());
+    }
+
+    private LineaPedido(Producto producto, int cantidad, long precioUnitarioCentavos) {
+        this(producto, cantidad, precioUnitarioCentavos, Math.multiplyExact(precioUnitarioCentavos, (long) cantidad));
+    }
+
+    private LineaPedido(Producto producto, int cantidad, long precioUnitarioCentavos, long subtotalCentavos) {
         this.producto = producto;
         this.cantidad = cantidad;
+        this.precioUnitarioCentavos = precioUnitarioCentavos;
+        this.subtotalCentavos = subtotalCentavos;
     }
 
     public Producto getProducto() {
@@ -22,13 +49,26 @@ public class LineaPedido {
         return cantidad;
     }
 
-    public double getSubtotal() {
-        return producto.getPrecio() * cantidad;
+    public Dinero getPrecioUnitario() {
+        return Dinero.deCentavos(precioUnitarioCentavos);
+    }
+
+    public long getPrecioUnitarioCentavos() {
+        return precioUnitarioCentavos;
+    }
+
+    public Dinero getSubtotal() {
+        return Dinero.deCentavos(subtotalCentavos);
+    }
+
+    public long getSubtotalCentavos() {
+        return subtotalCentavos;
     }
 
     @Override
     public String toString() {
-        return String.format("%s | Cantidad: %d | Subtotal: $%.2f",
-                producto.getNombre(), cantidad, getSubtotal());
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(producto.getNombre()).append(" | Cantidad: ").append(cantidad).append(" | Subtotal: $");
+        return Dinero.anexar(sb, subtotalCentavos).toString();
     }
 }
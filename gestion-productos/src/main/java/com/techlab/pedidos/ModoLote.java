@@ -0,0 +1,11 @@
+package com.techlab.pedidos;
+
+/**
+ * Cómo se resuelve un lote de pedidos cuando alguno no puede aceptarse.
+ */
+public enum ModoLote {
+    /** Si un pedido falla, no se acepta ninguno y el stock queda intacto. */
+    TODO_O_NADA,
+    /** Se aceptan, en orden, todos los pedidos que alcancen con el stock que queda. */
+    MEJOR_ESFUERZO
+}
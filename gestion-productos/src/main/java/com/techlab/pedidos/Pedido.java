@@ -1,6 +1,9 @@
 package com.techlab.pedidos;
 
+import com.techlab.util.Dinero;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -9,6 +12,9 @@ import java.util.List;
 public class Pedido {
     private int id;
     private List<LineaPedido> lineas = new ArrayList<>();
+    // Solo lectura: toda línea entra por agregarLinea, que mantiene el total al día.
+    private final List<LineaPedido> lineasSoloLectura = Collections.unmodifiableList(lineas);
+    private long totalCentavos;
 
     public Pedido(int id) {
         this.id = id;
@@ -19,17 +25,21 @@ public class Pedido {
     }
 
     public List<LineaPedido> getLineas() {
-        return lineas;
+        return lineasSoloLectura;
     }
 
     public void agregarLinea(LineaPedido linea) {
+        totalCentavos = Math.addExact(totalCentavos, linea.getSubtotalCentavos());
         lineas.add(linea);
     }
 
-    public double calcularTotal() {
-        return lineas.stream()
-                .mapToDouble(LineaPedido::getSubtotal)
-                .sum();
+    /** Total del pedido; se mantiene al agregar cada línea, no se recalcula. */
+    public Dinero calcularTotal() {
+        return Dinero.deCentavos(totalCentavos);
+    }
+
+    public long getTotalCentavos() {
+        return totalCentavos;
     }
 
     @Override
@@ -39,7 +49,7 @@ public class Pedido {
         for (LineaPedido lp : lineas) {
             sb.append("  - ").append(lp).append("\n");
         }
-        sb.append(String.format("TOTAL: $%.2f\n", calcularTotal()));
+        Dinero.anexar(sb.append("TOTAL: $"), totalCentavos).append("\n");
         return sb.toString();
     }
 }
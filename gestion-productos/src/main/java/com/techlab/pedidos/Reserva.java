@@ -0,0 +1,39 @@
+package com.techlab.pedidos;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Stock retenido para un carrito o un checkout: las líneas de un pedido futuro y hasta cuándo
+ * se retienen. Mientras está activa, sus cantidades no están disponibles para otros pedidos ni
+ * reservas; se confirma en un Pedido o vence y vuelven al disponible (ver ReservaService).
+ * Los precios quedan fijados al reservar, igual que en cualquier LineaPedido.
+ */
+public final class Reserva {
+    private final long id;
+    private final List<LineaPedido> lineas;
+    private final Instant vencimiento;
+
+    public Reserva(long id, List<LineaPedido> lineas, Instant vencimiento) {
+        this.id = id;
+        this.lineas = List.copyOf(lineas);
+        this.vencimiento = vencimiento;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public List<LineaPedido> getLineas() {
+        return lineas;
+    }
+
+    public Instant getVencimiento() {
+        return vencimiento;
+    }
+
+    @Override
+    public String toString() {
+        return "Reserva #" + id + " (" + lineas.size() + " líneas, vence " + vencimiento + ")";
+    }
+}
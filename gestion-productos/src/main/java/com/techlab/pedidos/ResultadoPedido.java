@@ -0,0 +1,19 @@
+package com.techlab.pedidos;
+
+/**
+ * Resultado de un pedido dentro de un lote: el pedido creado o el motivo del rechazo.
+ */
+public record ResultadoPedido(Pedido pedido, String error) {
+
+    public static ResultadoPedido aceptado(Pedido pedido) {
+        return new ResultadoPedido(pedido, null);
+    }
+
+    public static ResultadoPedido rechazado(String error) {
+        return new ResultadoPedido(null, error);
+    }
+
+    public boolean esAceptado() {
+        return pedido != null;
+    }
+}
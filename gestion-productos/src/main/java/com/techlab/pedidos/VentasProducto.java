@@ -0,0 +1,11 @@
+package com.techlab.pedidos;
+
+import com.techlab.util.Dinero;
+
+/**
+ * Ventas acumuladas de un producto en todos los pedidos.
+ *
+ * @param nombre Nombre del producto en su pedido más reciente (sigue aunque se haya borrado).
+ */
+public record VentasProducto(int idProducto, String nombre, long unidades, Dinero ingresos) {
+}
@@ -0,0 +1,172 @@
+package com.techlab.persistencia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Generador de IDs por bloques (hi/lo): cada ID sale de un AtomicLong sin bloqueos, dentro de
+ * un bloque de {@code tamanioBloque} IDs reservado de antemano. Solo al pasar a un bloque nuevo
+ * se escribe la marca de agua (el primer ID todavía no reservado) en un archivo chico, con
+ * fsync y renombrado atómico.
+ *
+ * Al conectarlo, la numeración sigue desde la marca guardada, sin depender de recorrer los
+ * datos: una caída solo saltea los IDs que quedaban del bloque, nunca reutiliza uno ya
+ * entregado (tampoco los de registros borrados). Al desconectarlo se devuelve lo que quedaba
+ * del bloque, así un cierre normal no deja huecos.
+ *
+ * Quien reserva con bloqueos tomados llama antes a {@link #anticipar}: el bloque nuevo se
+ * reserva (con su fsync) sin bloqueos, y {@link #reservar} no escribe nada.
+ *
+ * Los IDs son long; {@code maximo} acota los de entidades que todavía usan int.
+ */
+public final class GeneradorIds {
+
+    private static final int MAGIA = 0x544C4944; // "TLID"
+    private static final int TAMANIO = 4 + 8 + 8;
+
+    private final int tamanioBloque;
+    private final long maximo;
+    // Primer ID fuera de rango (maximo + 1 sin desbordar: con Long.MAX_VALUE se llega a él, no se pasa).
+    private final long tope;
+    private final AtomicLong siguiente = new AtomicLong(1);
+    // Primer ID fuera del bloque reservado. Se escribe con this tomado y se lee sin bloqueos.
+    private volatile long limite = 1;
+    // Archivo de la marca de agua; null mientras no esté conectado (los bloques no se guardan).
+    private Path ruta;
+
+    public GeneradorIds(int tamanioBloque, long maximo) {
+        if (tamanioBloque <= 0) throw new IllegalArgumentException("El tamaño de bloque debe ser positivo.");
+        if (maximo <= 0) throw new IllegalArgumentException("El ID máximo debe ser positivo.");
+        this.tamanioBloque = tamanioBloque;
+        this.maximo = maximo;
+        this.tope = maximo == Long.MAX_VALUE ? maximo : maximo + 1;
+    }
+
+    /** Un ID nuevo, distinto de todos los entregados (también antes de un reinicio). */
+    public long siguiente() {
+        return reservar(1);
+    }
+
+    /**
+     * Reserva IDs consecutivos.
+     * @return El primero; con cantidad 0, el próximo a entregar (sin reservarlo).
+     * @throws IllegalStateException Si se superaría el máximo o no se pudo guardar la marca.
+     */
+    public long reservar(int cantidad) {
+        if (cantidad < 0) throw new IllegalArgumentException("La cantidad de IDs no puede ser negativa.");
+        long primero = siguiente.getAndAdd(cantidad);
+        long hasta = primero + cantidad; // exclusivo
+        if (hasta - 1 > maximo || hasta < primero) {
+            throw new IllegalStateException("Se agotaron los IDs (máximo " + maximo + ").");
+        }
+        if (hasta > limite) extender(hasta);
+        return primero;
+    }
+
+    /**
+     * Reserva el bloque siguiente si a los próximos {@code cantidad} IDs les queda menos de medio
+     * bloque de margen, así los {@link #reservar} que siguen no esperan la escritura de la marca.
+     * Una caída saltea a lo sumo ese medio bloque de más.
+     * @throws IllegalStateException Si no se pudo guardar la marca.
+     */
+    public void anticipar(int cantidad) {
+        if (cantidad < 0) throw new IllegalArgumentException("La cantidad de IDs no puede ser negativa.");
+        long hasta = siguiente.get() + cantidad + tamanioBloque / 2;
+        if (hasta < 0 || hasta > tope) hasta = tope;
+        if (hasta > limite) extender(hasta);
+    }
+
+    /** El próximo ID a entregar. */
+    public long proximo() {
+        return siguiente.get();
+    }
+
+    /** Marca como usados los IDs hasta ese (inclusive), por ejemplo al cargar o reproducir datos. */
+    public void avanzar(long usado) {
+        siguiente.accumulateAndGet(usado + 1, Math::max);
+    }
+
+    // Reserva bloques hasta cubrir los IDs anteriores a hasta. La marca queda en disco antes de
+    // que otro hilo vea el límite nuevo y entregue esos IDs.
+    private synchronized void extender(long hasta) {
+        if (hasta <= limite) return;
+        long nuevo = Math.min(Math.max(hasta, siguiente.get()) + tamanioBloque - 1, tope);
+        if (ruta != null) {
+            try {
+                escribir(ruta, nuevo);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al guardar los IDs reservados: " + e.getMessage(), e);
+            }
+        }
+        limite = nuevo;
+    }
+
+    // ==========================================================
+    // 🔹 ARCHIVO DE MARCA DE AGUA
+    // ==========================================================
+
+    /**
+     * Lee la marca de agua del archivo (si existe) y desde ahora guarda ahí cada bloque nuevo.
+     * Lo ya marcado con {@link #avanzar} se respeta: el archivo puede faltar (primer arranque)
+     * o venir de una copia vieja.
+     */
+    public synchronized void conectar(Path ruta) throws IOException {
+        try {
+            avanzar(leer(ruta) - 1);
+        } catch (NoSuchFileException e) {
+            // Primer arranque: alcanza con lo cargado.
+        }
+        this.ruta = ruta;
+        // Los IDs siguientes todavía no están reservados en el archivo.
+        limite = siguiente.get();
+    }
+
+    /** Guarda como marca el próximo ID (devuelve el resto del bloque) y deja de escribir el archivo. */
+    public synchronized void desconectar() throws IOException {
+        if (ruta == null) return;
+        Path r = ruta;
+        ruta = null;
+        long proximo = siguiente.get();
+        escribir(r, proximo);
+        limite = proximo;
+    }
+
+    private static long leer(Path ruta) throws IOException {
+        byte[] datos = Files.readAllBytes(ruta);
+        ByteBuffer b = ByteBuffer.wrap(datos);
+        if (datos.length != TAMANIO || b.getInt() != MAGIA) {
+            throw new IllegalStateException("Archivo de IDs inválido: " + ruta);
+        }
+        long marca = b.getLong();
+        CRC32C crc = new CRC32C();
+        crc.update(datos, 0, 12);
+        if (crc.getValue() != b.getLong() || marca < 1) {
+            throw new IllegalStateException("Checksum inválido en el archivo de IDs: " + ruta);
+        }
+        return marca;
+    }
+
+    // Temporal, fsync y renombrado atómico: la marca vieja o la nueva, nunca una a medias.
+    private static void escribir(Path ruta, long marca) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(TAMANIO).putInt(MAGIA).putLong(marca);
+        CRC32C crc = new CRC32C();
+        crc.update(b.array(), 0, 12);
+        b.putLong(crc.getValue()).flip();
+        if (ruta.getParent() != null) Files.createDirectories(ruta.getParent());
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (b.hasRemaining()) canal.write(b);
+            canal.force(true);
+        }
+        Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,340 @@
+package com.techlab.persistencia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de escritura anticipada (write-ahead log) de solo agregado.
+ * Cada mutación se anota como una línea "crc;registro". Un único hilo escritor
+ * agrupa todos los registros pendientes, los escribe y hace un solo fsync por grupo
+ * (group commit), así muchas operaciones concurrentes comparten el costo del disco.
+ *
+ * El journal se divide en segmentos numerados (journal-N.log). Compactar consiste en
+ * rotar a un segmento nuevo, escribir un snapshot completo y borrar los segmentos viejos
+ * (salvo el último, ver {@link #compactar}).
+ */
+public class Journal implements AutoCloseable {
+
+    private static final String PREFIJO = "journal-";
+    private static final String SUFIJO = ".log";
+
+    private final Path directorio;
+    private final Object monitor = new Object();
+
+    // Estado protegido por monitor
+    private List<String> pendientes = new ArrayList<>();
+    private long ultimoAnotado;
+    private long ultimoDurable;
+    private long segmento;
+    private boolean rotacionPedida;
+    private boolean cerrando;
+    private IOException error;
+
+    private FileChannel canal;
+    private volatile long bytesSegmento;
+    private Thread escritor;
+
+    public Journal(Path directorio) {
+        this.directorio = directorio;
+        this.segmento = segmentosExistentes().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    // ==========================================================
+    // 🔹 RECUPERACIÓN
+    // ==========================================================
+
+    /**
+     * Aplica, en orden, todos los registros válidos de los segmentos existentes.
+     * Una línea incompleta o con CRC inválido (escritura cortada por una caída) termina
+     * la lectura de ese segmento.
+     */
+    public void reproducir(Consumer<String> aplicador) {
+        for (long n : segmentosExistentes()) {
+            Path archivo = rutaSegmento(n);
+            byte[] datos;
+            try {
+                datos = Files.readAllBytes(archivo);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al leer el journal: " + archivo, e);
+            }
+            int inicio = 0;
+            for (int i = 0; i < datos.length; i++) {
+                if (datos[i] != '\n') continue;
+                String registro = validar(datos, inicio, i);
+                if (registro == null) break;
+                aplicador.accept(registro);
+                inicio = i + 1;
+            }
+            if (inicio < datos.length) {
+                System.out.println("⚠️  Journal: se descartó un registro incompleto en " + archivo.getFileName());
+            }
+        }
+    }
+
+    // Devuelve el registro si la línea [inicio, fin) tiene el formato "crc;registro" y el CRC coincide.
+    private static String validar(byte[] datos, int inicio, int fin) {
+        int separador = -1;
+        for (int i = inicio; i < fin; i++) {
+            if (datos[i] == ';') {
+                separador = i;
+                break;
+            }
+        }
+        if (separador <= inicio) return null;
+        CRC32 crc = new CRC32();
+        crc.update(datos, separador + 1, fin - separador - 1);
+        try {
+            long esperado = Long.parseLong(new String(datos, inicio, separador - inicio, StandardCharsets.US_ASCII), 16);
+            if (esperado != crc.getValue()) return null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new String(datos, separador + 1, fin - separador - 1, StandardCharsets.UTF_8);
+    }
+
+    // ==========================================================
+    // 🔹 ESCRITURA
+    // ==========================================================
+
+    /** Abre un segmento nuevo y arranca el hilo escritor. Se llama después de reproducir. */
+    public void iniciar() {
+        synchronized (monitor) {
+            if (escritor != null) return;
+            try {
+                Files.createDirectories(directorio);
+                abrirSegmento(segmento + 1);
+                segmento++;
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al abrir el journal en " + directorio, e);
+            }
+            escritor = new Thread(this::escribirEnBucle, "journal-escritor");
+            escritor.setDaemon(true);
+            escritor.start();
+        }
+    }
+
+    /**
+     * Agrega un registro a la cola del próximo grupo. No espera al disco: quien necesite
+     * confirmar la operación debe llamar luego a {@link #esperarDurable()}.
+     * Los llamadores anotan mientras mantienen sus propios bloqueos, así el orden del journal
+     * respeta el orden en que se aplican las mutaciones en memoria, y antes de aplicarlas: si
+     * esto lanza una excepción, la mutación no debe quedar aplicada.
+     * @throws IllegalArgumentException Si el registro tiene saltos de línea.
+     * @throws IllegalStateException Si el journal no está abierto o falló una escritura anterior.
+     */
+    public void anotar(String registro) {
+        anotarTodos(List.of(registro));
+    }
+
+    /** Igual que {@link #anotar(String)} para varios registros, que quedan juntos y en orden. */
+    public void anotarTodos(List<String> registros) {
+        for (String registro : registros) {
+            if (registro.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("Un registro del journal no puede contener saltos de línea.");
+            }
+        }
+        synchronized (monitor) {
+            if (escritor == null || cerrando) {
+                throw new IllegalStateException("El journal no está abierto.");
+            }
+            if (error != null) {
+                throw new IllegalStateException("⚠️ Error al escribir el journal: " + error.getMessage(), error);
+            }
+            pendientes.addAll(registros);
+            ultimoAnotado += registros.size();
+            monitor.notifyAll();
+        }
+    }
+
+    /** Bloquea hasta que todo lo anotado antes de la llamada esté en disco (fsync). */
+    public void esperarDurable() {
+        synchronized (monitor) {
+            long objetivo = ultimoAnotado;
+            while (ultimoDurable < objetivo && error == null) {
+                esperar();
+            }
+            if (error != null && ultimoDurable < objetivo) {
+                throw new IllegalStateException("⚠️ Error al escribir el journal: " + error.getMessage(), error);
+            }
+        }
+    }
+
+    /** Tamaño en bytes del segmento activo; se usa para decidir cuándo compactar. */
+    public long bytesSegmentoActual() {
+        return bytesSegmento;
+    }
+
+    private void escribirEnBucle() {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        CRC32 crc = new CRC32();
+        while (true) {
+            List<String> lote;
+            long hasta;
+            boolean rotar;
+            synchronized (monitor) {
+                while (pendientes.isEmpty() && !rotacionPedida && !cerrando) {
+                    esperar();
+                }
+                if (pendientes.isEmpty() && !rotacionPedida) return; // cerrando y sin trabajo
+                lote = pendientes;
+                pendientes = new ArrayList<>();
+                hasta = ultimoAnotado;
+                rotar = rotacionPedida;
+            }
+            try {
+                for (String registro : lote) {
+                    byte[] carga = registro.getBytes(StandardCharsets.UTF_8);
+                    crc.reset();
+                    crc.update(carga);
+                    byte[] cabecera = (Long.toHexString(crc.getValue()) + ';').getBytes(StandardCharsets.US_ASCII);
+                    int largo = cabecera.length + carga.length + 1;
+                    if (buffer.remaining() < largo) {
+                        vaciar(buffer);
+                        if (buffer.capacity() < largo) buffer = ByteBuffer.allocate(largo);
+                    }
+                    buffer.put(cabecera).put(carga).put((byte) '\n');
+                }
+                vaciar(buffer);
+                canal.force(false);
+                if (rotar) {
+                    canal.close();
+                    abrirSegmento(segmento + 1);
+                }
+                synchronized (monitor) {
+                    ultimoDurable = hasta;
+                    if (rotar) {
+                        segmento++;
+                        rotacionPedida = false;
+                    }
+                    monitor.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (monitor) {
+                    error = e;
+                    monitor.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void vaciar(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesSegmento += canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void abrirSegmento(long numero) throws IOException {
+        canal = FileChannel.open(rutaSegmento(numero),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        bytesSegmento = canal.size();
+    }
+
+    // ==========================================================
+    // 🔹 COMPACTACIÓN Y CIERRE
+    // ==========================================================
+
+    /**
+     * Rota a un segmento nuevo, escribe el snapshot y borra los segmentos anteriores, menos el
+     * que se acaba de cerrar: una operación puede anotarse justo antes de la rotación y hacerse
+     * visible después de que el snapshot fijó su instantánea. Ese segmento se borra en la
+     * compactación siguiente, cuando sus registros ya están en un snapshot; mientras tanto
+     * reproducirlo de nuevo no cambia nada (los registros llevan el estado absoluto).
+     * Si el snapshot falla, no se borra nada.
+     * @param escribirSnapshot Escribe el estado completo y devuelve true si quedó en disco.
+     */
+    public boolean compactar(BooleanSupplier escribirSnapshot) {
+        long activo;
+        synchronized (monitor) {
+            if (escritor == null || cerrando) return false;
+            rotacionPedida = true;
+            monitor.notifyAll();
+            while (rotacionPedida && error == null) {
+                esperar();
+            }
+            if (error != null) return false;
+            activo = segmento;
+        }
+        if (!escribirSnapshot.getAsBoolean()) return false;
+        for (long n : segmentosExistentes()) {
+            if (n < activo - 1) {
+                try {
+                    Files.deleteIfExists(rutaSegmento(n));
+                } catch (IOException e) {
+                    System.out.println("⚠️  No se pudo borrar el segmento de journal " + n + ": " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Escribe lo pendiente y detiene el hilo escritor. */
+    @Override
+    public void close() {
+        Thread hilo;
+        synchronized (monitor) {
+            if (escritor == null || cerrando) return;
+            cerrando = true;
+            monitor.notifyAll();
+            hilo = escritor;
+        }
+        try {
+            hilo.join();
+            canal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("⚠️  Error al cerrar el journal: " + e.getMessage());
+        }
+    }
+
+    // ==========================================================
+    // 🔹 AUXILIARES
+    // ==========================================================
+
+    private void esperar() {
+        try {
+            monitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando al journal.", e);
+        }
+    }
+
+    private Path rutaSegmento(long numero) {
+        return directorio.resolve(PREFIJO + numero + SUFIJO);
+    }
+
+    private List<Long> segmentosExistentes() {
+        List<Long> numeros = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) return numeros;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PREFIJO) && n.endsWith(SUFIJO))
+                    .forEach(n -> {
+                        try {
+                            numeros.add(Long.parseLong(n.substring(PREFIJO.length(), n.length() - SUFIJO.length())));
+                        } catch (NumberFormatException ignorado) {
+                            // archivo ajeno al journal
+                        }
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al listar el journal en " + directorio, e);
+        }
+        numeros.sort(null);
+        return numeros;
+    }
+}
@@ -0,0 +1,403 @@
+package com.techlab.persistencia;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Producto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Segmento del archivo histórico de pedidos: un archivo inmutable con pedidos viejos ordenados
+ * por ID, que se lee de a un bloque cuando hace falta. Al abrirlo solo se carga el índice de
+ * bloques (unos pocos bytes por cada {@link #PEDIDOS_POR_BLOQUE} pedidos).
+ *
+ * Cabecera (64 bytes): magia, versión, cantidad de pedidos, primer y último ID, cantidad de
+ * bloques, posición y CRC32C del índice, largo y CRC32C del resumen. Siguen los bloques, cada
+ * uno con las columnas de pedidos del snapshot ({@link SnapshotBinario}) comprimidas con
+ * Deflate; al final el índice (primer ID, posición, largos y CRC32C de cada bloque) y el
+ * resumen del segmento: ventas y pedidos de cada producto.
+ */
+public final class SegmentoPedidos {
+
+    /** Pedidos por bloque: una búsqueda lee y descomprime uno solo. */
+    public static final int PEDIDOS_POR_BLOQUE = 256;
+
+    private static final int MAGIA = 0x544C5041; // "TLPA"
+    // v2 agrega al resumen los pedidos de cada producto (el índice invertido del segmento); v3,
+    // la columna de subtotales a los bloques (ver SnapshotBinario v3).
+    private static final short VERSION = 3;
+    private static final int TAMANIO_CABECERA = 64;
+    private static final int TAMANIO_ENTRADA = 4 + 8 + 4 + 4 + 8;
+    private static final String PREFIJO = "pedidos-";
+    private static final String SUFIJO = ".seg";
+
+    /**
+     * Ventas del segmento por producto, calculadas al escribirlo: al arrancar, los totales de
+     * ventas se arman con los resúmenes en lugar de leer los pedidos archivados. Los IDs de los
+     * pedidos de cada producto no se cargan: se leen de a un producto con
+     * {@link #leerPedidosPorProducto}.
+     * @param inicioPedidos Los pedidos del producto i son los IDs inicioPedidos[i] ..
+     *                      inicioPedidos[i + 1] de la lista del resumen, en orden de ID. Null en
+     *                      segmentos v1, que no la tienen.
+     */
+    public record Resumen(int pedidos, int[] productos, long[] unidades, long[] ingresosCentavos,
+                          int[] inicioPedidos) {
+    }
+
+    private final Path ruta;
+    private final short version;
+    private final int cantidad;
+    private final int primerId;
+    private final int ultimoId;
+    // Índice de bloques, en orden de ID.
+    private final int[] primerIdBloque;
+    private final long[] posicionBloque;
+    private final int[] largoAlmacenado;
+    private final int[] largoBloque;
+    private final long[] crcBloque;
+    private final long posicionResumen;
+    private final int largoResumen;
+    private final long crcResumen;
+
+    private SegmentoPedidos(Path ruta, short version, int cantidad, int primerId, int ultimoId, ByteBuffer indice,
+                            int bloques, long posicionResumen, int largoResumen, long crcResumen) {
+        this.ruta = ruta;
+        this.version = version;
+        this.cantidad = cantidad;
+        this.primerId = primerId;
+        this.ultimoId = ultimoId;
+        this.primerIdBloque = new int[bloques];
+        this.posicionBloque = new long[bloques];
+        this.largoAlmacenado = new int[bloques];
+        this.largoBloque = new int[bloques];
+        this.crcBloque = new long[bloques];
+        for (int b = 0; b < bloques; b++) {
+            primerIdBloque[b] = indice.getInt();
+            posicionBloque[b] = indice.getLong();
+            largoAlmacenado[b] = indice.getInt();
+            largoBloque[b] = indice.getInt();
+            crcBloque[b] = indice.getLong();
+        }
+        this.posicionResumen = posicionResumen;
+        this.largoResumen = largoResumen;
+        this.crcResumen = crcResumen;
+    }
+
+    // ==========================================================
+    // 🔹 ESCRITURA
+    // ==========================================================
+
+    /**
+     * Escribe un segmento con esos pedidos, que deben venir en orden de ID. El archivo aparece
+     * completo o no aparece (temporal, fsync y renombrado atómico, como los snapshots).
+     */
+    public static SegmentoPedidos escribir(Path directorio, List<Pedido> pedidos) throws IOException {
+        if (pedidos.isEmpty()) {
+            throw new IllegalArgumentException("Un segmento de pedidos no puede estar vacío.");
+        }
+        int bloques = (pedidos.size() + PEDIDOS_POR_BLOQUE - 1) / PEDIDOS_POR_BLOQUE;
+        ByteBuffer indice = ByteBuffer.allocate(bloques * TAMANIO_ENTRADA);
+        Path ruta = directorio.resolve(String.format("%s%010d%s", PREFIJO, pedidos.get(0).getId(), SUFIJO));
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        Files.createDirectories(directorio);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        CRC32C crc = new CRC32C();
+        long posicion = TAMANIO_CABECERA;
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int desde = 0; desde < pedidos.size(); desde += PEDIDOS_POR_BLOQUE) {
+                List<Pedido> bloque = pedidos.subList(desde, Math.min(desde + PEDIDOS_POR_BLOQUE, pedidos.size()));
+                byte[] columnas = SnapshotBinario.columnasPedidos(bloque);
+                byte[] cuerpo = new byte[4 + columnas.length];
+                ByteBuffer.wrap(cuerpo).putInt(bloque.size()).put(columnas);
+                crc.reset();
+                crc.update(cuerpo);
+                byte[] almacenado = comprimir(deflater, cuerpo);
+                indice.putInt(bloque.get(0).getId()).putLong(posicion).putInt(almacenado.length)
+                        .putInt(cuerpo.length).putLong(crc.getValue());
+                posicion += escribirCompleto(canal, ByteBuffer.wrap(almacenado), posicion);
+            }
+            long posicionIndice = posicion;
+            posicion += escribirCompleto(canal, indice.flip(), posicion);
+            byte[] resumen = resumir(pedidos);
+            posicion += escribirCompleto(canal, ByteBuffer.wrap(resumen), posicion);
+
+            crc.reset();
+            crc.update(indice.flip());
+            long crcIndice = crc.getValue();
+            crc.reset();
+            crc.update(resumen);
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANIO_CABECERA)
+                    .putInt(MAGIA)
+                    .putShort(VERSION)
+                    .putShort((short) 0)
+                    .putInt(pedidos.size())
+                    .putInt(pedidos.get(0).getId())
+                    .putInt(pedidos.get(pedidos.size() - 1).getId())
+                    .putInt(bloques)
+                    .putLong(posicionIndice)
+                    .putLong(crcIndice)
+                    .putInt(resumen.length)
+                    .putLong(crc.getValue());
+            escribirCompleto(canal, cabecera.clear(), 0);
+            canal.force(true);
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return abrir(ruta);
+    }
+
+    // Unidades, ingresos e IDs de pedidos por producto, en el orden en que aparecen.
+    private static byte[] resumir(List<Pedido> pedidos) {
+        Map<Integer, Acumulado> porProducto = new LinkedHashMap<>();
+        int postings = 0;
+        for (Pedido pedido : pedidos) {
+            for (LineaPedido lp : pedido.getLineas()) {
+                Acumulado a = porProducto.computeIfAbsent(lp.getProducto().getId(), id -> new Acumulado());
+                a.unidades += lp.getCantidad();
+                a.ingresos += lp.getSubtotalCentavos();
+                // Un producto repetido en varias líneas del mismo pedido va una sola vez.
+                if (a.pedidos.isEmpty() || a.pedidos.get(a.pedidos.size() - 1) != pedido.getId()) {
+                    a.pedidos.add(pedido.getId());
+                    postings++;
+                }
+            }
+        }
+        int k = porProducto.size();
+        ByteBuffer resumen = ByteBuffer.allocate(8 + k * 20 + (k + 1) * 4 + postings * 4)
+                .putInt(pedidos.size()).putInt(k);
+        for (int id : porProducto.keySet()) resumen.putInt(id);
+        for (Acumulado a : porProducto.values()) resumen.putLong(a.unidades);
+        for (Acumulado a : porProducto.values()) resumen.putLong(a.ingresos);
+        int inicio = 0;
+        for (Acumulado a : porProducto.values()) {
+            resumen.putInt(inicio);
+            inicio += a.pedidos.size();
+        }
+        resumen.putInt(inicio);
+        for (Acumulado a : porProducto.values()) {
+            for (int id : a.pedidos) resumen.putInt(id);
+        }
+        return resumen.array();
+    }
+
+    private static final class Acumulado {
+        long unidades;
+        long ingresos;
+        final List<Integer> pedidos = new ArrayList<>();
+    }
+
+    // ==========================================================
+    // 🔹 LECTURA
+    // ==========================================================
+
+    /** Abre un segmento leyendo solo la cabecera y el índice de bloques. */
+    public static SegmentoPedidos abrir(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            ByteBuffer cabecera = leerCompleto(canal, TAMANIO_CABECERA, 0, ruta);
+            if (cabecera.getInt() != MAGIA) {
+                throw new IllegalStateException("Segmento de pedidos inválido: " + ruta);
+            }
+            short version = cabecera.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalStateException("Versión de segmento no soportada (" + version + "): " + ruta);
+            }
+            cabecera.getShort(); // flags
+            int cantidad = cabecera.getInt();
+            int primerId = cabecera.getInt();
+            int ultimoId = cabecera.getInt();
+            int bloques = cabecera.getInt();
+            long posicionIndice = cabecera.getLong();
+            long crcIndice = cabecera.getLong();
+            int largoResumen = cabecera.getInt();
+            long crcResumen = cabecera.getLong();
+
+            ByteBuffer indice = leerCompleto(canal, bloques * TAMANIO_ENTRADA, posicionIndice, ruta);
+            verificar(indice.array(), indice.limit(), crcIndice, ruta);
+            return new SegmentoPedidos(ruta, version, cantidad, primerId, ultimoId, indice, bloques,
+                    posicionIndice + (long) bloques * TAMANIO_ENTRADA, largoResumen, crcResumen);
+        }
+    }
+
+    /** Los segmentos del directorio, en orden de ID. */
+    public static List<Path> listar(Path directorio) {
+        List<Path> rutas = new ArrayList<>();
+        if (!Files.isDirectory(directorio)) return rutas;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.startsWith(PREFIJO) && n.endsWith(SUFIJO);
+            }).forEach(rutas::add);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al listar los pedidos archivados en " + directorio, e);
+        }
+        rutas.sort(null); // el primer ID va con ceros a la izquierda
+        return rutas;
+    }
+
+    public Resumen leerResumen() throws IOException {
+        ByteBuffer resumen;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            resumen = leerCompleto(canal, largoResumen, posicionResumen, ruta);
+        }
+        verificar(resumen.array(), largoResumen, crcResumen, ruta);
+        int pedidos = resumen.getInt();
+        int k = resumen.getInt();
+        int[] productos = new int[k];
+        long[] unidades = new long[k];
+        long[] ingresos = new long[k];
+        resumen.asIntBuffer().get(productos);
+        resumen.position(resumen.position() + k * 4);
+        resumen.asLongBuffer().get(unidades).get(ingresos);
+        if (version < 2) return new Resumen(pedidos, productos, unidades, ingresos, null);
+        resumen.position(resumen.position() + k * 16);
+        int[] inicio = new int[k + 1];
+        resumen.asIntBuffer().get(inicio);
+        return new Resumen(pedidos, productos, unidades, ingresos, inicio);
+    }
+
+    /**
+     * Los IDs desde .. hasta de la lista de pedidos por producto del resumen (los de un producto,
+     * según {@link Resumen#inicioPedidos()}), leídos del disco sin cargar el resto. El checksum
+     * del resumen entero se verifica en {@link #leerResumen()}.
+     * @param productos Cantidad de productos del resumen.
+     */
+    public int[] leerPedidosPorProducto(int productos, int desde, int hasta) throws IOException {
+        if (version < 2) {
+            throw new IllegalStateException("El segmento no tiene los pedidos de cada producto (v1): " + ruta);
+        }
+        long posicion = 8 + productos * 20L + (productos + 1) * 4L + desde * 4L;
+        if (desde < 0 || hasta < desde || posicion + (hasta - desde) * 4L > largoResumen) {
+            throw new IllegalStateException("Pedidos por producto fuera del resumen del segmento: " + ruta);
+        }
+        ByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            datos = leerCompleto(canal, (hasta - desde) * 4, posicionResumen + posicion, ruta);
+        }
+        int[] ids = new int[hasta - desde];
+        datos.asIntBuffer().get(ids);
+        return ids;
+    }
+
+    /** @return El bloque que contendría ese pedido, o -1 si está fuera del segmento. */
+    public int bloqueDe(int idPedido) {
+        if (idPedido < primerId || idPedido > ultimoId) return -1;
+        int b = Arrays.binarySearch(primerIdBloque, idPedido);
+        return b >= 0 ? b : -b - 2;
+    }
+
+    /** Lee y descomprime un bloque; cada línea se resuelve por ID de producto. */
+    public List<Pedido> leerBloque(int bloque, IntFunction<Producto> productoPorId) throws IOException {
+        ByteBuffer almacenado;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            almacenado = leerCompleto(canal, largoAlmacenado[bloque], posicionBloque[bloque], ruta);
+        }
+        byte[] cuerpo = descomprimir(almacenado.array(), largoBloque[bloque], ruta);
+        verificar(cuerpo, cuerpo.length, crcBloque[bloque], ruta);
+        return SnapshotBinario.pedidosDeColumnas(ByteBuffer.wrap(cuerpo), true, version >= 3, productoPorId);
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    public int primerId() {
+        return primerId;
+    }
+
+    public int ultimoId() {
+        return ultimoId;
+    }
+
+    public int cantidadBloques() {
+        return primerIdBloque.length;
+    }
+
+    public int primerIdDelBloque(int bloque) {
+        return primerIdBloque[bloque];
+    }
+
+    // ==========================================================
+    // 🔹 E/S Y COMPRESIÓN
+    // ==========================================================
+
+    private static int escribirCompleto(FileChannel canal, ByteBuffer datos, long posicion) throws IOException {
+        int largo = datos.remaining();
+        while (datos.hasRemaining()) {
+            posicion += canal.write(datos, posicion);
+        }
+        return largo;
+    }
+
+    private static ByteBuffer leerCompleto(FileChannel canal, int largo, long posicion, Path ruta) throws IOException {
+        ByteBuffer datos = ByteBuffer.allocate(largo);
+        while (datos.hasRemaining()) {
+            int n = canal.read(datos, posicion);
+            if (n < 0) throw new IllegalStateException("Segmento de pedidos truncado: " + ruta);
+            posicion += n;
+        }
+        return datos.flip();
+    }
+
+    private static void verificar(byte[] datos, int largo, long esperado, Path ruta) {
+        CRC32C crc = new CRC32C();
+        crc.update(datos, 0, largo);
+        if (crc.getValue() != esperado) {
+            throw new IllegalStateException("Checksum inválido en el segmento de pedidos: " + ruta);
+        }
+    }
+
+    private static byte[] comprimir(Deflater deflater, byte[] cuerpo) {
+        deflater.reset();
+        deflater.setInput(cuerpo);
+        deflater.finish();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(cuerpo.length / 2 + 64);
+        byte[] temporal = new byte[8192];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(temporal);
+            salida.write(temporal, 0, n);
+        }
+        return salida.toByteArray();
+    }
+
+    private static byte[] descomprimir(byte[] almacenado, int largoCuerpo, Path ruta) {
+        byte[] cuerpo = new byte[largoCuerpo];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(almacenado);
+            int escrito = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(cuerpo, escrito, cuerpo.length - escrito);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Bloque comprimido corrupto en el segmento: " + ruta);
+                }
+                escrito += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bloque comprimido corrupto en el segmento: " + ruta, e);
+        } finally {
+            inflater.end();
+        }
+        return cuerpo;
+    }
+}
@@ -0,0 +1,354 @@
+package com.techlab.persistencia;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+import com.techlab.util.Dinero;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Formato binario de snapshot para el catálogo y los pedidos.
+ * Los datos se guardan por columnas de ancho fijo (id, precio en centavos, stock, litros,
+ * vencimiento como epoch-day) más una tabla de strings para los nombres, de modo que la
+ * carga es una lectura por columna en bloque en lugar de parsear texto.
+ *
+ * Cabecera (32 bytes): magia, versión, flags, cantidad, largo del cuerpo, largo almacenado,
+ * CRC32C del cuerpo sin comprimir. Con el flag de compresión el cuerpo se guarda en bloques
+ * Deflate independientes de 1 MB.
+ */
+public final class SnapshotBinario {
+
+    private static final int MAGIA_PRODUCTOS = 0x544C5052; // "TLPR"
+    private static final int MAGIA_PEDIDOS = 0x544C5044;   // "TLPD"
+    private static final short VERSION_PRODUCTOS = 1;
+    // v2 agrega la columna de precio unitario histórico (centavos) de cada línea; v3, la del
+    // subtotal, que en los pedidos importados de v1 no siempre es precio × cantidad.
+    private static final short VERSION_PEDIDOS = 3;
+    private static final short FLAG_COMPRIMIDO = 1;
+    private static final int TAMANIO_CABECERA = 32;
+    private static final int TAMANIO_BLOQUE = 1 << 20;
+
+    private static final byte TIPO_PRODUCTO = 0;
+    private static final byte TIPO_BEBIDA = 1;
+    private static final byte TIPO_COMIDA = 2;
+    private static final int SIN_VENCIMIENTO = Integer.MIN_VALUE;
+
+    private SnapshotBinario() {
+    }
+
+    // ==========================================================
+    // 🔹 PRODUCTOS
+    // ==========================================================
+
+    public static void escribirProductos(Path ruta, List<Producto> productos, boolean comprimir) throws IOException {
+        int n = productos.size();
+        byte[][] nombres = new byte[n][];
+        int bytesNombres = 0;
+        for (int i = 0; i < n; i++) {
+            nombres[i] = productos.get(i).getNombre().getBytes(StandardCharsets.UTF_8);
+            bytesNombres += nombres[i].length;
+        }
+
+        ByteBuffer cuerpo = ByteBuffer.allocate(n * (4 + 8 + 4 + 8 + 4 + 1) + (n + 1) * 4 + bytesNombres);
+        for (Producto p : productos) cuerpo.putInt(p.getId());
+        for (Producto p : productos) cuerpo.putLong(p.getPrecioCentavos());
+        for (Producto p : productos) cuerpo.putInt(p.getStock());
+        for (Producto p : productos) cuerpo.putDouble(p instanceof Bebida b ? b.getLitros() : 0);
+        for (Producto p : productos) {
+            cuerpo.putInt(p instanceof Comida c ? (int) c.getFechaVencimiento().toEpochDay() : SIN_VENCIMIENTO);
+        }
+        for (Producto p : productos) {
+            cuerpo.put(p instanceof Bebida ? TIPO_BEBIDA : p instanceof Comida ? TIPO_COMIDA : TIPO_PRODUCTO);
+        }
+        // Tabla de strings: desplazamientos (n + 1) y luego los bytes UTF-8 concatenados.
+        int desplazamiento = 0;
+        for (byte[] nombre : nombres) {
+            cuerpo.putInt(desplazamiento);
+            desplazamiento += nombre.length;
+        }
+        cuerpo.putInt(desplazamiento);
+        for (byte[] nombre : nombres) cuerpo.put(nombre);
+
+        escribir(ruta, MAGIA_PRODUCTOS, VERSION_PRODUCTOS, n, cuerpo.array(), comprimir);
+    }
+
+    public static List<Producto> leerProductos(Path ruta) throws IOException {
+        ByteBuffer cuerpo = leer(ruta, MAGIA_PRODUCTOS, VERSION_PRODUCTOS).cuerpo();
+        int n = cuerpo.getInt();
+
+        int[] ids = new int[n];
+        long[] precios = new long[n];
+        int[] stocks = new int[n];
+        double[] litros = new double[n];
+        int[] vencimientos = new int[n];
+        byte[] tipos = new byte[n];
+        int[] desplazamientos = new int[n + 1];
+
+        cuerpo.asIntBuffer().get(ids);
+        cuerpo.position(cuerpo.position() + n * 4);
+        cuerpo.asLongBuffer().get(precios);
+        cuerpo.position(cuerpo.position() + n * 8);
+        cuerpo.asIntBuffer().get(stocks);
+        cuerpo.position(cuerpo.position() + n * 4);
+        cuerpo.asDoubleBuffer().get(litros);
+        cuerpo.position(cuerpo.position() + n * 8);
+        cuerpo.asIntBuffer().get(vencimientos);
+        cuerpo.position(cuerpo.position() + n * 4);
+        cuerpo.get(tipos);
+        cuerpo.asIntBuffer().get(desplazamientos);
+        cuerpo.position(cuerpo.position() + (n + 1) * 4);
+        byte[] arena = cuerpo.array();
+        int baseNombres = cuerpo.position();
+
+        List<Producto> productos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String nombre = new String(arena, baseNombres + desplazamientos[i],
+                    desplazamientos[i + 1] - desplazamientos[i], StandardCharsets.UTF_8);
+            double precio = precios[i] / 100.0;
+            productos.add(switch (tipos[i]) {
+                case TIPO_BEBIDA -> new Bebida(ids[i], nombre, precio, stocks[i], litros[i]);
+                case TIPO_COMIDA -> new Comida(ids[i], nombre, precio, stocks[i], LocalDate.ofEpochDay(vencimientos[i]));
+                default -> new Producto(ids[i], nombre, precio, stocks[i]);
+            });
+        }
+        return productos;
+    }
+
+    // ==========================================================
+    // 🔹 PEDIDOS
+    // ==========================================================
+
+    public static void escribirPedidos(Path ruta, List<Pedido> pedidos, boolean comprimir) throws IOException {
+        escribir(ruta, MAGIA_PEDIDOS, VERSION_PEDIDOS, pedidos.size(), columnasPedidos(pedidos), comprimir);
+    }
+
+    // Columnas de los pedidos, sin la cantidad de pedidos: total de líneas, IDs, líneas por
+    // pedido y, por línea, producto, cantidad, precio unitario y subtotal (formato v3). El
+    // subtotal va al final: un lector v2 lee el resto igual y lo ignora.
+    static byte[] columnasPedidos(List<Pedido> pedidos) {
+        int n = pedidos.size();
+        int m = 0;
+        for (Pedido p : pedidos) m += p.getLineas().size();
+
+        ByteBuffer cuerpo = ByteBuffer.allocate(4 + n * 8 + m * 24);
+        cuerpo.putInt(m);
+        for (Pedido p : pedidos) cuerpo.putInt(p.getId());
+        for (Pedido p : pedidos) cuerpo.putInt(p.getLineas().size());
+        for (Pedido p : pedidos) {
+            for (LineaPedido lp : p.getLineas()) cuerpo.putInt(lp.getProducto().getId());
+        }
+        for (Pedido p : pedidos) {
+            for (LineaPedido lp : p.getLineas()) cuerpo.putInt(lp.getCantidad());
+        }
+        for (Pedido p : pedidos) {
+            for (LineaPedido lp : p.getLineas()) cuerpo.putLong(lp.getPrecioUnitarioCentavos());
+        }
+        for (Pedido p : pedidos) {
+            for (LineaPedido lp : p.getLineas()) cuerpo.putLong(lp.getSubtotalCentavos());
+        }
+        return cuerpo.array();
+    }
+
+    /**
+     * @param productoPorId Resuelve cada línea por ID de producto (O(1) con el índice del catálogo).
+     * Los snapshots v1 no tienen precio histórico: sus líneas toman el precio actual del producto.
+     */
+    public static List<Pedido> leerPedidos(Path ruta, IntFunction<Producto> productoPorId) throws IOException {
+        Contenido contenido = leer(ruta, MAGIA_PEDIDOS, VERSION_PEDIDOS);
+        return pedidosDeColumnas(contenido.cuerpo(), contenido.version() >= 2, contenido.version() >= 3, productoPorId);
+    }
+
+    // Lee la cantidad de pedidos y las columnas de columnasPedidos(). Sin precios (v1) cada línea
+    // toma el precio actual; sin subtotales (v2) el subtotal es precio × cantidad.
+    static List<Pedido> pedidosDeColumnas(ByteBuffer cuerpo, boolean conPrecios, boolean conSubtotales,
+                                          IntFunction<Producto> productoPorId) {
+        int n = cuerpo.getInt();
+        int m = cuerpo.getInt();
+
+        int[] ids = new int[n];
+        int[] lineasPorPedido = new int[n];
+        int[] productos = new int[m];
+        int[] cantidades = new int[m];
+        cuerpo.asIntBuffer().get(ids).get(lineasPorPedido).get(productos).get(cantidades);
+        long[] precios = null;
+        long[] subtotales = null;
+        if (conPrecios) {
+            precios = new long[m];
+            cuerpo.position(cuerpo.position() + (2 * n + 2 * m) * 4);
+            if (conSubtotales) {
+                subtotales = new long[m];
+                cuerpo.asLongBuffer().get(precios).get(subtotales);
+            } else {
+                cuerpo.asLongBuffer().get(precios);
+            }
+        }
+
+        List<Pedido> pedidos = new ArrayList<>(n);
+        int linea = 0;
+        for (int i = 0; i < n; i++) {
+            Pedido pedido = new Pedido(ids[i]);
+            for (int k = 0; k < lineasPorPedido[i]; k++, linea++) {
+                Producto producto = productoPorId.apply(productos[linea]);
+                if (producto == null) {
+                    throw new IllegalStateException("Producto no encontrado durante la carga: ID " + productos[linea]);
+                }
+                if (subtotales != null) {
+                    pedido.agregarLinea(new LineaPedido(producto, cantidades[linea],
+                            Dinero.deCentavos(precios[linea]), Dinero.deCentavos(subtotales[linea])));
+                } else {
+                    pedido.agregarLinea(precios != null
+                            ? new LineaPedido(producto, cantidades[linea], Dinero.deCentavos(precios[linea]))
+                            : new LineaPedido(producto, cantidades[linea]));
+                }
+            }
+            pedidos.add(pedido);
+        }
+        return pedidos;
+    }
+
+    // ==========================================================
+    // 🔹 CABECERA, CHECKSUM Y COMPRESIÓN
+    // ==========================================================
+
+    // El cuerpo arranca con la cantidad de registros (4 bytes) para que los lectores lo tengan a mano.
+    private static void escribir(Path ruta, int magia, short version, int cantidad, byte[] datos, boolean comprimir)
+            throws IOException {
+        byte[] cuerpo = new byte[datos.length + 4];
+        ByteBuffer.wrap(cuerpo).putInt(cantidad).put(datos);
+
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpo);
+        byte[] almacenado = comprimir ? comprimir(cuerpo) : cuerpo;
+
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANIO_CABECERA)
+                .putInt(magia)
+                .putShort(version)
+                .putShort(comprimir ? FLAG_COMPRIMIDO : 0)
+                .putInt(cantidad)
+                .putInt(cuerpo.length)
+                .putInt(almacenado.length)
+                .putLong(crc.getValue());
+        cabecera.clear();
+
+        if (ruta.getParent() != null) Files.createDirectories(ruta.getParent());
+        Path temporal = ruta.resolveSibling(ruta.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] partes = {cabecera, ByteBuffer.wrap(almacenado)};
+            while (partes[1].hasRemaining()) canal.write(partes);
+            canal.force(true);
+        }
+        Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Cuerpo ya validado (y descomprimido), junto con la versión del formato que lo escribió.
+    private record Contenido(short version, ByteBuffer cuerpo) {
+    }
+
+    // El cuerpo devuelto arranca con la cantidad de registros. Se aceptan versiones 1..versionActual.
+    private static Contenido leer(Path ruta, int magiaEsperada, short versionActual) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANIO_CABECERA);
+        ByteBuffer almacenado;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            while (cabecera.hasRemaining() && canal.read(cabecera) >= 0) ;
+            cabecera.flip();
+            if (cabecera.remaining() < TAMANIO_CABECERA || cabecera.getInt() != magiaEsperada) {
+                throw new IllegalStateException("Snapshot inválido: " + ruta);
+            }
+            short version = cabecera.getShort();
+            if (version < 1 || version > versionActual) {
+                throw new IllegalStateException("Versión de snapshot no soportada (" + version + "): " + ruta);
+            }
+            cabecera.getShort(); // flags, se vuelven a leer abajo
+            cabecera.getInt();   // cantidad, repetida al inicio del cuerpo
+            almacenado = ByteBuffer.allocate(cabecera.getInt(16));
+            while (almacenado.hasRemaining() && canal.read(almacenado) >= 0) ;
+            if (almacenado.hasRemaining()) throw new IllegalStateException("Snapshot truncado: " + ruta);
+        }
+        boolean comprimido = (cabecera.getShort(6) & FLAG_COMPRIMIDO) != 0;
+        int largoCuerpo = cabecera.getInt(12);
+        byte[] cuerpo = comprimido ? descomprimir(almacenado.array(), largoCuerpo) : almacenado.array();
+
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpo, 0, largoCuerpo);
+        if (crc.getValue() != cabecera.getLong(20)) {
+            throw new IllegalStateException("Checksum inválido en el snapshot: " + ruta);
+        }
+        return new Contenido(cabecera.getShort(4), ByteBuffer.wrap(cuerpo, 0, largoCuerpo));
+    }
+
+    // Formato comprimido: cantidad de bloques, largo de cada bloque y luego los bloques Deflate.
+    private static byte[] comprimir(byte[] cuerpo) {
+        int bloques = (cuerpo.length + TAMANIO_BLOQUE - 1) / TAMANIO_BLOQUE;
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(cuerpo.length / 2 + 64);
+        ByteBuffer indice = ByteBuffer.allocate(4 + bloques * 4).putInt(bloques);
+        List<byte[]> comprimidos = new ArrayList<>(bloques);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] temporal = new byte[TAMANIO_BLOQUE + 1024];
+        for (int b = 0; b < bloques; b++) {
+            int desde = b * TAMANIO_BLOQUE;
+            deflater.reset();
+            deflater.setInput(cuerpo, desde, Math.min(TAMANIO_BLOQUE, cuerpo.length - desde));
+            deflater.finish();
+            ByteArrayOutputStream bloque = new ByteArrayOutputStream();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(temporal);
+                bloque.write(temporal, 0, n);
+            }
+            comprimidos.add(bloque.toByteArray());
+            indice.putInt(bloque.size());
+        }
+        deflater.end();
+        salida.writeBytes(indice.array());
+        for (byte[] bloque : comprimidos) salida.writeBytes(bloque);
+        return salida.toByteArray();
+    }
+
+    private static byte[] descomprimir(byte[] almacenado, int largoCuerpo) {
+        ByteBuffer indice = ByteBuffer.wrap(almacenado);
+        int bloques = indice.getInt();
+        int desde = 4 + bloques * 4;
+        byte[] cuerpo = new byte[largoCuerpo];
+        int escrito = 0;
+        Inflater inflater = new Inflater();
+        try {
+            for (int b = 0; b < bloques; b++) {
+                int largo = indice.getInt();
+                inflater.reset();
+                inflater.setInput(almacenado, desde, largo);
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(cuerpo, escrito, cuerpo.length - escrito);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IllegalStateException("Bloque comprimido corrupto en el snapshot.");
+                    }
+                    escrito += n;
+                }
+                desde += largo;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bloque comprimido corrupto en el snapshot.", e);
+        } finally {
+            inflater.end();
+        }
+        return cuerpo;
+    }
+}
@@ -7,6 +7,10 @@ public class Bebida extends Producto {
 
     private double litros;
 
+    // 🔹 Constructor para vistas de ProductoStore
+    protected Bebida() {
+    }
+
     // 🔹 Constructor sin ID (nuevo producto)
     public Bebida(String nombre, double precio, int stock, double litros) {
         super(nombre, precio, stock);
@@ -40,7 +44,7 @@ public class Bebida extends Producto {
 
     @Override
     public String toString() {
-        return String.format("[Bebida] %s | Volumen: %.1f L", super.toString(), litros);
+        return String.format("[Bebida] %s | Volumen: %.1f L", super.toString(), getLitros());
     }
 
 }
@@ -0,0 +1,72 @@
+package com.techlab.productos;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Almacenamiento del catálogo con sus índices (ID, nombre y nombre + precio).
+ * ProductoService se encarga de los bloqueos, el journal y la persistencia;
+ * las implementaciones solo guardan y buscan. No necesitan ser seguras entre hilos: el
+ * servicio llama a las escrituras con su bloqueo de escritura y a las lecturas con el de
+ * lectura, así que varias lecturas pueden correr a la vez pero nunca junto a una escritura.
+ *
+ * Los nombres de búsqueda llegan ya normalizados con {@link #normalizar(String)}.
+ */
+public interface Catalogo {
+
+    /** Misma semántica que equalsIgnoreCase, usada por Producto.equals. */
+    static String normalizar(String nombre) {
+        return nombre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Da de alta el producto y lo indexa.
+     * @return La instancia que queda en el catálogo (el mismo objeto o una vista sobre sus datos).
+     */
+    Producto agregar(Producto producto, String nombreNormalizado);
+
+    default Producto agregar(Producto producto) {
+        return agregar(producto, normalizar(producto.getNombre()));
+    }
+
+    /** Quita el producto de los índices; no hace nada si no estaba. */
+    void quitar(Producto producto);
+
+    /**
+     * Aplica un cambio de nombre o precio manteniendo los índices al día. El producto se
+     * vuelve a indexar aunque el cambio falle a mitad de camino (por ejemplo, una validación).
+     */
+    void modificar(Producto producto, Consumer<Producto> cambio);
+
+    /** @return El producto con ese ID, o null. */
+    Producto porId(int id);
+
+    /** @return El primer producto dado de alta con ese nombre, o null. */
+    Producto primeroPorNombre(String nombreNormalizado);
+
+    /** @return El primer producto dado de alta con ese nombre y precio, o null. */
+    Producto primeroPorNombreYPrecio(String nombreNormalizado, long precioCentavos);
+
+    /** Productos en orden de alta. */
+    List<Producto> listar();
+
+    /** Un producto y su posición en el orden de alta. */
+    record Entrada(long posicion, Producto producto) {
+    }
+
+    /**
+     * Recorre los productos en orden de alta a partir de una posición (inclusive), sin copiar
+     * el catálogo: el costo es proporcional a lo que se recorre. Las posiciones no se reusan,
+     * así que un producto borrado no corre a los demás.
+     *
+     * El recorrido es débilmente consistente: no falla si el catálogo cambia mientras tanto,
+     * pero puede no reflejar los cambios posteriores a su creación.
+     */
+    Iterator<Entrada> recorrer(long desde);
+
+    int tamanio();
+
+    void limpiar();
+}
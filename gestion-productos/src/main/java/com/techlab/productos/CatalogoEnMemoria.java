@@ -0,0 +1,134 @@
+package com.techlab.productos;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Catálogo por defecto: un objeto Producto por fila, con índices en mapas del heap.
+ */
+public class CatalogoEnMemoria implements Catalogo {
+
+    // Índice principal por ID, con la posición de alta de cada producto.
+    private final Map<Integer, Entrada> productos = new HashMap<>();
+    // Orden de alta para los listados. Es concurrente para que un recorrido en curso no falle
+    // si otro hilo da de alta o de baja mientras tanto.
+    private final ConcurrentNavigableMap<Long, Producto> porPosicion = new ConcurrentSkipListMap<>();
+    private long siguientePosicion;
+    // Índices secundarios: nombre normalizado y (nombre normalizado, precio).
+    private final Map<String, List<Producto>> porNombre = new HashMap<>();
+    private final Map<ClaveNombrePrecio, List<Producto>> porNombreYPrecio = new HashMap<>();
+
+    /** Clave compuesta del índice (nombre, precio); el nombre ya viene normalizado. */
+    private record ClaveNombrePrecio(String nombre, long precioCentavos) {
+    }
+
+    @Override
+    public Producto agregar(Producto p, String nombre) {
+        Entrada entrada = new Entrada(siguientePosicion++, p);
+        Entrada anterior = productos.put(p.getId(), entrada);
+        if (anterior != null) porPosicion.remove(anterior.posicion());
+        porPosicion.put(entrada.posicion(), p);
+        indexar(p, nombre);
+        return p;
+    }
+
+    @Override
+    public void quitar(Producto p) {
+        Entrada entrada = productos.get(p.getId());
+        if (entrada == null || entrada.producto() != p) return;
+        productos.remove(p.getId());
+        porPosicion.remove(entrada.posicion());
+        desindexar(p);
+    }
+
+    // Solo los índices secundarios: el lugar en el listado no cambia al modificar un producto.
+    private void indexar(Producto p, String nombre) {
+        porNombre.computeIfAbsent(nombre, k -> new ArrayList<>(1)).add(p);
+        porNombreYPrecio.computeIfAbsent(new ClaveNombrePrecio(nombre, p.getPrecioCentavos()), k -> new ArrayList<>(1)).add(p);
+    }
+
+    private void desindexar(Producto p) {
+        String nombre = Catalogo.normalizar(p.getNombre());
+        quitar(porNombre, nombre, p);
+        quitar(porNombreYPrecio, new ClaveNombrePrecio(nombre, p.getPrecioCentavos()), p);
+    }
+
+    // Se compara por identidad: Producto.equals considera iguales a dos productos con mismo nombre y precio.
+    private static <K> void quitar(Map<K, List<Producto>> indice, K clave, Producto p) {
+        List<Producto> lista = indice.get(clave);
+        if (lista == null) return;
+        lista.removeIf(x -> x == p);
+        if (lista.isEmpty()) indice.remove(clave);
+    }
+
+    @Override
+    public void modificar(Producto p, Consumer<Producto> cambio) {
+        if (porId(p.getId()) != p) {
+            cambio.accept(p);
+            return;
+        }
+        desindexar(p);
+        try {
+            cambio.accept(p);
+        } finally {
+            indexar(p, Catalogo.normalizar(p.getNombre()));
+        }
+    }
+
+    @Override
+    public Producto porId(int id) {
+        Entrada entrada = productos.get(id);
+        return entrada == null ? null : entrada.producto();
+    }
+
+    @Override
+    public Producto primeroPorNombre(String nombre) {
+        return primero(porNombre.get(nombre));
+    }
+
+    @Override
+    public Producto primeroPorNombreYPrecio(String nombre, long precioCentavos) {
+        return primero(porNombreYPrecio.get(new ClaveNombrePrecio(nombre, precioCentavos)));
+    }
+
+    private static Producto primero(List<Producto> lista) {
+        return lista == null || lista.isEmpty() ? null : lista.get(0);
+    }
+
+    @Override
+    public List<Producto> listar() {
+        return new ArrayList<>(porPosicion.values());
+    }
+
+    @Override
+    public Iterator<Entrada> recorrer(long desde) {
+        Iterator<Map.Entry<Long, Producto>> it = porPosicion.tailMap(desde, true).entrySet().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Entrada next() {
+                Map.Entry<Long, Producto> e = it.next();
+                return new Entrada(e.getKey(), e.getValue());
+            }
+        };
+    }
+
+    @Override
+    public int tamanio() {
+        return productos.size();
+    }
+
+    @Override
+    public void limpiar() {
+        productos.clear();
+        porPosicion.clear();
+        porNombre.clear();
+        porNombreYPrecio.clear();
+    }
+}
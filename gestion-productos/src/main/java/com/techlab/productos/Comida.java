@@ -1,5 +1,7 @@
 package com.techlab.productos;
 
+import com.techlab.util.RelojDias;
+
 import java.time.LocalDate;
 
 /**
@@ -9,6 +11,10 @@ public class Comida extends Producto {
 
     private LocalDate fechaVencimiento;
 
+    // 🔹 Constructor para vistas de ProductoStore
+    protected Comida() {
+    }
+
     // 🔹 Constructor sin ID (nuevo producto)
     public Comida(String nombre, double precio, int stock, LocalDate fechaVencimiento) {
         super(nombre, precio, stock);
@@ -40,15 +46,19 @@ public class Comida extends Producto {
     // 🔹 Métodos de utilidad
     // ==========================================================
 
-    /** Devuelve true si la comida ya está vencida. */
+    /** Devuelve true si la comida ya está vencida (según el reloj de días predeterminado). */
     public boolean estaVencida() {
-        return LocalDate.now().isAfter(fechaVencimiento);
+        return estaVencida(RelojDias.predeterminado().hoy());
+    }
+
+    public boolean estaVencida(LocalDate hoy) {
+        return hoy.isAfter(getFechaVencimiento());
     }
 
     @Override
     public String toString() {
         String estado = estaVencida() ? "❌ Vencida" : "✅ Vigente";
         return String.format("[Comida] %s | Vence: %s (%s)",
-                super.toString(), fechaVencimiento, estado);
+                super.toString(), getFechaVencimiento(), estado);
     }
 }
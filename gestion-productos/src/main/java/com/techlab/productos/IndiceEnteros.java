@@ -0,0 +1,121 @@
+package com.techlab.productos;
+
+import java.util.Arrays;
+
+/**
+ * Mapa int → int de direccionamiento abierto (sondeo lineal) sin objetos por entrada.
+ * Las bajas desplazan hacia atrás las claves siguientes del mismo grupo, así no quedan
+ * lápidas que alarguen las búsquedas. Integer.MIN_VALUE queda reservado como "vacío".
+ *
+ * Claves y valores van intercalados en un solo arreglo, y cada operación lo lee una vez:
+ * al agrandarse se reemplaza entero, así una lectura nunca combina la tabla vieja con la
+ * máscara de la nueva. Igual no es concurrente: las escrituras se serializan afuera
+ * (ver el bloqueo del catálogo en ProductoService).
+ */
+final class IndiceEnteros {
+
+    private static final int VACIO = Integer.MIN_VALUE;
+
+    // Par (clave, valor) de la ranura i en las posiciones 2i y 2i + 1.
+    private int[] tabla;
+    private int cantidad;
+
+    IndiceEnteros() {
+        reservar(16);
+    }
+
+    /** @return El valor asociado, o -1 si la clave no está. */
+    int obtener(int clave) {
+        int[] t = tabla;
+        int mascara = (t.length >> 1) - 1;
+        for (int i = posicion(clave, mascara); ; i = (i + 1) & mascara) {
+            int k = t[2 * i];
+            if (k == clave) return t[2 * i + 1];
+            if (k == VACIO) return -1;
+        }
+    }
+
+    void poner(int clave, int valor) {
+        if (clave == VACIO) {
+            throw new IllegalArgumentException("Clave reservada: " + clave);
+        }
+        if ((cantidad + 1) * 4 > tabla.length) agrandar();
+        int[] t = tabla;
+        int mascara = (t.length >> 1) - 1;
+        int i = posicion(clave, mascara);
+        while (t[2 * i] != VACIO && t[2 * i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        if (t[2 * i] == VACIO) cantidad++;
+        // El valor antes que la clave: una ranura ocupada siempre tiene su valor.
+        t[2 * i + 1] = valor;
+        t[2 * i] = clave;
+    }
+
+    void quitar(int clave) {
+        int[] t = tabla;
+        int mascara = (t.length >> 1) - 1;
+        int libre = posicion(clave, mascara);
+        while (t[2 * libre] != clave) {
+            if (t[2 * libre] == VACIO) return;
+            libre = (libre + 1) & mascara;
+        }
+        // Corrimiento hacia atrás: cada clave del grupo que quedaría inalcanzable ocupa el hueco.
+        for (int j = (libre + 1) & mascara; t[2 * j] != VACIO; j = (j + 1) & mascara) {
+            int ideal = posicion(t[2 * j], mascara);
+            boolean alcanzable = libre <= j ? (ideal > libre && ideal <= j) : (ideal > libre || ideal <= j);
+            if (!alcanzable) {
+                t[2 * libre + 1] = t[2 * j + 1];
+                t[2 * libre] = t[2 * j];
+                libre = j;
+            }
+        }
+        t[2 * libre] = VACIO;
+        cantidad--;
+    }
+
+    int cantidad() {
+        return cantidad;
+    }
+
+    void limpiar() {
+        reservar(16);
+    }
+
+    long bytesUsados() {
+        return (long) tabla.length * Integer.BYTES;
+    }
+
+    // La tabla nueva se llena aparte y recién entonces reemplaza a la vieja.
+    private void agrandar() {
+        int[] vieja = tabla;
+        int[] nueva = nuevaTabla(vieja.length);
+        int mascara = (nueva.length >> 1) - 1;
+        for (int r = 0; r < vieja.length; r += 2) {
+            if (vieja[r] == VACIO) continue;
+            int i = posicion(vieja[r], mascara);
+            while (nueva[2 * i] != VACIO) {
+                i = (i + 1) & mascara;
+            }
+            nueva[2 * i] = vieja[r];
+            nueva[2 * i + 1] = vieja[r + 1];
+        }
+        tabla = nueva;
+    }
+
+    private void reservar(int capacidad) {
+        tabla = nuevaTabla(capacidad);
+        cantidad = 0;
+    }
+
+    private static int[] nuevaTabla(int ranuras) {
+        int[] t = new int[2 * ranuras];
+        Arrays.fill(t, VACIO);
+        return t;
+    }
+
+    private static int posicion(int clave, int mascara) {
+        int h = clave * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+}
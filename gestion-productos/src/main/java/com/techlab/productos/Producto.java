@@ -1,13 +1,20 @@
 package com.techlab.productos;
 
+import com.techlab.util.Dinero;
+
 /**
  * Representa un producto con id, nombre, precio y stock.
  */
 public class Producto {
     private int id;
     private String nombre;
-    private double precio;
-    private int stock;
+    private long precioCentavos; // punto fijo: ver Dinero
+    // volatile: el stock se modifica bajo los bloqueos del servicio pero se lee sin ellos.
+    private volatile int stock;
+
+    // 🔹 Constructor para vistas de ProductoStore: los datos viven en las columnas del almacén
+    protected Producto() {
+    }
 
     // 🔹 Constructor usado cuando el servicio genera el ID
     public Producto(String nombre, double precio, int stock) {
@@ -42,21 +49,50 @@ public class Producto {
     }
 
     public void setNombre(String nombre) {
+        this.nombre = validarNombre(nombre);
+    }
+
+    /**
+     * Valida un nombre de producto y lo devuelve sin espacios en los extremos. El nombre se
+     * guarda tal cual en productos.txt y en el journal, separados por ';' y por líneas: un ';'
+     * o un carácter de control lo partiría en campos o registros que no se pueden volver a leer.
+     * @throws IllegalArgumentException Si está vacío o tiene alguno de esos caracteres.
+     */
+    public static String validarNombre(String nombre) {
         if (nombre == null || nombre.isBlank()) {
             throw new IllegalArgumentException("⚠️  El nombre del producto no puede estar vacío.");
         }
-        this.nombre = nombre.trim();
+        for (int i = 0; i < nombre.length(); i++) {
+            char c = nombre.charAt(i);
+            if (c == ';' || Character.isISOControl(c)) {
+                throw new IllegalArgumentException(
+                        "⚠️  El nombre del producto no puede contener ';' ni caracteres de control.");
+            }
+        }
+        return nombre.trim();
     }
 
     public double getPrecio() {
-        return precio;
+        return getPrecioCentavos() / 100.0;
     }
 
+    /** El precio se redondea al centavo. */
     public void setPrecio(double precio) {
         if (precio < 0) {
             throw new IllegalArgumentException("⚠️  El precio no puede ser negativo.");
         }
-        this.precio = precio;
+        setPrecioCentavos(Dinero.centavosDe(precio));
+    }
+
+    public long getPrecioCentavos() {
+        return precioCentavos;
+    }
+
+    public void setPrecioCentavos(long precioCentavos) {
+        if (precioCentavos < 0) {
+            throw new IllegalArgumentException("⚠️  El precio no puede ser negativo.");
+        }
+        this.precioCentavos = precioCentavos;
     }
 
     public int getStock() {
@@ -79,19 +115,19 @@ public class Producto {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (!(obj instanceof Producto other)) return false;
-        return nombre.equalsIgnoreCase(other.nombre) && Double.compare(precio, other.precio) == 0;
+        return getNombre().equalsIgnoreCase(other.getNombre()) && getPrecioCentavos() == other.getPrecioCentavos();
     }
 
     @Override
     public int hashCode() {
-        return nombre.toLowerCase().hashCode() + Double.hashCode(precio);
+        return getNombre().toLowerCase().hashCode() + Long.hashCode(getPrecioCentavos());
     }
 
     /** Representación legible del producto */
     @Override
     public String toString() {
         return String.format("ID: %d | %-15s | Precio: $%7.2f | Stock: %3d",
-                id, nombre, precio, stock);
+                getId(), getNombre(), getPrecio(), getStock());
     }
 
 }
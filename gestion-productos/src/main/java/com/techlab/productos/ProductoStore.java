@@ -0,0 +1,474 @@
+package com.techlab.productos;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Catálogo "struct of arrays" para catálogos muy grandes. Cada atributo vive en su propia
+ * columna de tipo primitivo y los nombres en una arena de bytes UTF-8, así no queda ningún
+ * objeto vivo por producto. Los llamadores reciben vistas livianas (flyweights) que extienden
+ * Producto, Bebida o Comida y leen y escriben directamente las columnas.
+ *
+ * Las columnas se reservan en bloques de tamaño fijo que nunca se copian: una escritura de
+ * stock hecha bajo bloqueo no se pierde aunque otro hilo haga crecer el almacén.
+ * Una baja solo marca la fila y la saca de los índices; las vistas que ya tengan los pedidos
+ * siguen leyendo los datos del producto, igual que con objetos en el heap.
+ */
+public final class ProductoStore implements Catalogo {
+
+    private static final int BITS_BLOQUE = 14; // 16384 filas por bloque
+    private static final int FILAS_POR_BLOQUE = 1 << BITS_BLOQUE;
+    private static final int MASCARA_BLOQUE = FILAS_POR_BLOQUE - 1;
+    private static final int BITS_ARENA = 20;  // nombres en bloques de 1 MB
+    private static final int BLOQUE_ARENA = 1 << BITS_ARENA;
+    // Bytes por fila sumando todas las columnas; se usa para informar el consumo.
+    private static final int BYTES_POR_FILA = 4 + 1 + 8 + 4 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    private static final byte TIPO_PRODUCTO = 0;
+    private static final byte TIPO_BEBIDA = 1;
+    private static final byte TIPO_COMIDA = 2;
+    private static final byte BORRADO = (byte) 0x80;
+
+    // El stock se escribe bajo los bloqueos del servicio y se lee sin ellos (como Producto.stock, volatile).
+    private static final VarHandle STOCK = MethodHandles.arrayElementVarHandle(int[].class);
+    // Igual con la posición del nombre: posición y largo van en un solo long, así quien lee sin
+    // bloqueos (por ejemplo, el nombre de un producto de un pedido) nunca combina uno nuevo con
+    // otro viejo, y la escritura volátil publica antes los bytes y el bloque de arena nuevo.
+    private static final VarHandle NOMBRE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Columnas, por bloques
+    private int[][] ids = new int[0][];
+    private byte[][] tipos = new byte[0][];
+    private long[][] precios = new long[0][];     // centavos
+    private int[][] stocks = new int[0][];
+    private long[][] extras = new long[0][];      // litros (bits del double) o vencimiento (epoch day)
+    private long[][] nombres = new long[0][];     // posición del nombre en la arena (32 bits altos) y largo
+    private int[][] hashNombre = new int[0][];    // hash del nombre normalizado
+    private int[][] siguienteNombre = new int[0][]; // cadena del índice por nombre (fila + 1; 0 = fin)
+    private int[][] ordenNombre = new int[0][];   // orden de entrada al índice por nombre
+
+    private byte[][] arena = new byte[0][];
+    private int finArena;
+
+    private int filas; // usadas, incluidas las borradas
+    private int vivos;
+
+    private final IndiceEnteros filaPorId = new IndiceEnteros();
+    private int[] cabezasNombre = new int[16]; // fila + 1; 0 = vacío
+    private int secuenciaNombres;
+
+    // ==========================================================
+    // 🔹 CATÁLOGO
+    // ==========================================================
+
+    @Override
+    public Producto agregar(Producto p, String nombreNormalizado) {
+        if (filaPorId.obtener(p.getId()) >= 0) {
+            throw new IllegalArgumentException("ID de producto duplicado: " + p.getId());
+        }
+        if ((vivos + 1) * 4 > cabezasNombre.length * 3) redistribuirNombres();
+        int fila = filas;
+        if ((fila >>> BITS_BLOQUE) == ids.length) crecer();
+        int b = fila >>> BITS_BLOQUE;
+        int i = fila & MASCARA_BLOQUE;
+
+        ids[b][i] = p.getId();
+        precios[b][i] = p.getPrecioCentavos();
+        STOCK.setVolatile(stocks[b], i, p.getStock());
+        if (p instanceof Bebida bebida) {
+            tipos[b][i] = TIPO_BEBIDA;
+            extras[b][i] = Double.doubleToRawLongBits(bebida.getLitros());
+        } else if (p instanceof Comida comida) {
+            tipos[b][i] = TIPO_COMIDA;
+            extras[b][i] = comida.getFechaVencimiento().toEpochDay();
+        } else {
+            tipos[b][i] = TIPO_PRODUCTO;
+            extras[b][i] = 0;
+        }
+        escribirNombre(fila, p.getNombre());
+
+        filas++;
+        vivos++;
+        filaPorId.poner(p.getId(), fila);
+        enlazarNombre(fila, nombreNormalizado.hashCode());
+        return vista(fila);
+    }
+
+    @Override
+    public void quitar(Producto p) {
+        int fila = filaPorId.obtener(p.getId());
+        if (fila < 0) return;
+        desenlazarNombre(fila);
+        filaPorId.quitar(p.getId());
+        tipos[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE] |= BORRADO;
+        vivos--;
+    }
+
+    @Override
+    public void modificar(Producto p, Consumer<Producto> cambio) {
+        int fila = filaPorId.obtener(p.getId());
+        if (fila < 0) {
+            cambio.accept(p);
+            return;
+        }
+        desenlazarNombre(fila);
+        try {
+            // El cambio se aplica sobre una vista propia: escribe en las columnas aunque p sea otro objeto.
+            cambio.accept(p instanceof Vista v && v.almacen() == this ? p : vista(fila));
+        } finally {
+            enlazarNombre(fila, Catalogo.normalizar(nombre(fila)).hashCode());
+        }
+    }
+
+    @Override
+    public Producto porId(int id) {
+        int fila = filaPorId.obtener(id);
+        return fila < 0 ? null : vista(fila);
+    }
+
+    @Override
+    public Producto primeroPorNombre(String nombreNormalizado) {
+        int fila = buscarNombre(nombreNormalizado, false, 0L);
+        return fila < 0 ? null : vista(fila);
+    }
+
+    @Override
+    public Producto primeroPorNombreYPrecio(String nombreNormalizado, long precioCentavos) {
+        int fila = buscarNombre(nombreNormalizado, true, precioCentavos);
+        return fila < 0 ? null : vista(fila);
+    }
+
+    @Override
+    public List<Producto> listar() {
+        List<Producto> lista = new ArrayList<>(vivos);
+        for (int fila = 0; fila < filas; fila++) {
+            if (!borrada(fila)) lista.add(vista(fila));
+        }
+        return lista;
+    }
+
+    // Las filas nunca se mueven: la posición es el número de fila. Las altas posteriores a la
+    // creación del recorrido no se ven, y si el catálogo se vacía el recorrido termina.
+    @Override
+    public Iterator<Entrada> recorrer(long desde) {
+        int hasta = filas;
+        return new Iterator<>() {
+            private long fila = desde;
+
+            @Override
+            public boolean hasNext() {
+                while (fila < Math.min(hasta, filas) && borrada((int) fila)) fila++;
+                return fila < Math.min(hasta, filas);
+            }
+
+            @Override
+            public Entrada next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int actual = (int) fila++;
+                return new Entrada(actual, vista(actual));
+            }
+        };
+    }
+
+    @Override
+    public int tamanio() {
+        return vivos;
+    }
+
+    @Override
+    public void limpiar() {
+        ids = new int[0][];
+        tipos = new byte[0][];
+        precios = new long[0][];
+        stocks = new int[0][];
+        extras = new long[0][];
+        nombres = new long[0][];
+        hashNombre = new int[0][];
+        siguienteNombre = new int[0][];
+        ordenNombre = new int[0][];
+        arena = new byte[0][];
+        finArena = 0;
+        filas = 0;
+        vivos = 0;
+        filaPorId.limpiar();
+        cabezasNombre = new int[16];
+        secuenciaNombres = 0;
+    }
+
+    /** Memoria reservada por columnas, arena e índices (sin contar vistas temporales). */
+    public long bytesUsados() {
+        return (long) ids.length * FILAS_POR_BLOQUE * BYTES_POR_FILA
+                + (long) arena.length * BLOQUE_ARENA
+                + filaPorId.bytesUsados()
+                + (long) cabezasNombre.length * Integer.BYTES;
+    }
+
+    // ==========================================================
+    // 🔹 COLUMNAS
+    // ==========================================================
+
+    private void crecer() {
+        int n = ids.length + 1;
+        ids = Arrays.copyOf(ids, n);
+        tipos = Arrays.copyOf(tipos, n);
+        precios = Arrays.copyOf(precios, n);
+        stocks = Arrays.copyOf(stocks, n);
+        extras = Arrays.copyOf(extras, n);
+        nombres = Arrays.copyOf(nombres, n);
+        hashNombre = Arrays.copyOf(hashNombre, n);
+        siguienteNombre = Arrays.copyOf(siguienteNombre, n);
+        ordenNombre = Arrays.copyOf(ordenNombre, n);
+        int b = n - 1;
+        ids[b] = new int[FILAS_POR_BLOQUE];
+        tipos[b] = new byte[FILAS_POR_BLOQUE];
+        precios[b] = new long[FILAS_POR_BLOQUE];
+        stocks[b] = new int[FILAS_POR_BLOQUE];
+        extras[b] = new long[FILAS_POR_BLOQUE];
+        nombres[b] = new long[FILAS_POR_BLOQUE];
+        hashNombre[b] = new int[FILAS_POR_BLOQUE];
+        siguienteNombre[b] = new int[FILAS_POR_BLOQUE];
+        ordenNombre[b] = new int[FILAS_POR_BLOQUE];
+    }
+
+    private boolean borrada(int fila) {
+        return (tipos[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE] & BORRADO) != 0;
+    }
+
+    private int id(int fila) {
+        return ids[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE];
+    }
+
+    // Un ID nuevo también mueve la fila en el índice por ID; como en agregar, no puede repetirse.
+    private void fijarId(int fila, int id) {
+        int anterior = id(fila);
+        if (id == anterior) return;
+        if (!borrada(fila)) {
+            if (filaPorId.obtener(id) >= 0) {
+                throw new IllegalArgumentException("ID de producto duplicado: " + id);
+            }
+            filaPorId.quitar(anterior);
+            filaPorId.poner(id, fila);
+        }
+        ids[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE] = id;
+    }
+
+    private long precio(int fila) {
+        return precios[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE];
+    }
+
+    private void fijarPrecio(int fila, long precioCentavos) {
+        precios[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE] = precioCentavos;
+    }
+
+    private int stock(int fila) {
+        return (int) STOCK.getVolatile(stocks[fila >>> BITS_BLOQUE], fila & MASCARA_BLOQUE);
+    }
+
+    private void fijarStock(int fila, int stock) {
+        STOCK.setVolatile(stocks[fila >>> BITS_BLOQUE], fila & MASCARA_BLOQUE, stock);
+    }
+
+    private long extra(int fila) {
+        return extras[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE];
+    }
+
+    private void fijarExtra(int fila, long valor) {
+        extras[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE] = valor;
+    }
+
+    // ==========================================================
+    // 🔹 ARENA DE NOMBRES
+    // ==========================================================
+
+    private String nombre(int fila) {
+        long posicion = (long) NOMBRE.getVolatile(nombres[fila >>> BITS_BLOQUE], fila & MASCARA_BLOQUE);
+        int desde = (int) (posicion >>> 32);
+        return new String(arena[desde >>> BITS_ARENA], desde & (BLOQUE_ARENA - 1), (int) posicion,
+                StandardCharsets.UTF_8);
+    }
+
+    // Los registros del journal reescriben el nombre aunque no cambie: solo se toca la arena si cambió.
+    private void cambiarNombre(int fila, String nombre) {
+        if (!nombre.equals(nombre(fila))) escribirNombre(fila, nombre);
+    }
+
+    // Un nombre nuevo siempre se agrega al final; el espacio del anterior no se reutiliza.
+    private void escribirNombre(int fila, String nombre) {
+        byte[] bytes = nombre.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > BLOQUE_ARENA) {
+            throw new IllegalArgumentException("⚠️  El nombre del producto es demasiado largo.");
+        }
+        int enBloque = finArena & (BLOQUE_ARENA - 1);
+        if (enBloque + bytes.length > BLOQUE_ARENA) {
+            finArena += BLOQUE_ARENA - enBloque; // el nombre no cruza bloques
+        }
+        if (finArena < 0 || (long) finArena + bytes.length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("La arena de nombres del catálogo está llena.");
+        }
+        int bloque = finArena >>> BITS_ARENA;
+        if (bloque == arena.length) {
+            arena = Arrays.copyOf(arena, bloque + 1);
+            arena[bloque] = new byte[BLOQUE_ARENA];
+        }
+        System.arraycopy(bytes, 0, arena[bloque], finArena & (BLOQUE_ARENA - 1), bytes.length);
+        NOMBRE.setVolatile(nombres[fila >>> BITS_BLOQUE], fila & MASCARA_BLOQUE,
+                (long) finArena << 32 | bytes.length);
+        finArena += bytes.length;
+    }
+
+    // ==========================================================
+    // 🔹 ÍNDICE POR NOMBRE (cadenas por hash sobre columnas)
+    // ==========================================================
+
+    private void enlazarNombre(int fila, int hash) {
+        int b = fila >>> BITS_BLOQUE;
+        int i = fila & MASCARA_BLOQUE;
+        int cubeta = cubeta(hash);
+        hashNombre[b][i] = hash;
+        ordenNombre[b][i] = secuenciaNombres++;
+        siguienteNombre[b][i] = cabezasNombre[cubeta];
+        cabezasNombre[cubeta] = fila + 1;
+    }
+
+    private void desenlazarNombre(int fila) {
+        int cubeta = cubeta(hashNombre[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE]);
+        int siguiente = siguienteNombre[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE];
+        if (cabezasNombre[cubeta] == fila + 1) {
+            cabezasNombre[cubeta] = siguiente;
+            return;
+        }
+        for (int actual = cabezasNombre[cubeta] - 1; actual >= 0; ) {
+            int b = actual >>> BITS_BLOQUE;
+            int i = actual & MASCARA_BLOQUE;
+            if (siguienteNombre[b][i] == fila + 1) {
+                siguienteNombre[b][i] = siguiente;
+                return;
+            }
+            actual = siguienteNombre[b][i] - 1;
+        }
+    }
+
+    private void redistribuirNombres() {
+        cabezasNombre = new int[cabezasNombre.length * 2];
+        for (int fila = 0; fila < filas; fila++) {
+            if (borrada(fila)) continue;
+            int b = fila >>> BITS_BLOQUE;
+            int i = fila & MASCARA_BLOQUE;
+            int cubeta = cubeta(hashNombre[b][i]);
+            siguienteNombre[b][i] = cabezasNombre[cubeta];
+            cabezasNombre[cubeta] = fila + 1;
+        }
+    }
+
+    // Entre las coincidencias devuelve la que entró primero al índice (una modificación la manda
+    // al final), igual que las listas de CatalogoEnMemoria.
+    private int buscarNombre(String nombreNormalizado, boolean conPrecio, long precioCentavos) {
+        int hash = nombreNormalizado.hashCode();
+        int encontrada = -1;
+        int ordenEncontrada = 0;
+        for (int fila = cabezasNombre[cubeta(hash)] - 1; fila >= 0; ) {
+            int b = fila >>> BITS_BLOQUE;
+            int i = fila & MASCARA_BLOQUE;
+            if (hashNombre[b][i] == hash
+                    && (encontrada < 0 || ordenNombre[b][i] - ordenEncontrada < 0)
+                    && (!conPrecio || precios[b][i] == precioCentavos)
+                    && Catalogo.normalizar(nombre(fila)).equals(nombreNormalizado)) {
+                encontrada = fila;
+                ordenEncontrada = ordenNombre[b][i];
+            }
+            fila = siguienteNombre[b][i] - 1;
+        }
+        return encontrada;
+    }
+
+    private int cubeta(int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (cabezasNombre.length - 1);
+    }
+
+    // ==========================================================
+    // 🔹 VISTAS
+    // ==========================================================
+
+    private Producto vista(int fila) {
+        return switch (tipos[fila >>> BITS_BLOQUE][fila & MASCARA_BLOQUE] & ~BORRADO) {
+            case TIPO_BEBIDA -> new VistaBebida(fila);
+            case TIPO_COMIDA -> new VistaComida(fila);
+            default -> new VistaProducto(fila);
+        };
+    }
+
+    /** Marca común de las vistas, para reconocer las propias en {@link #modificar}. */
+    private interface Vista {
+        ProductoStore almacen();
+    }
+
+    // Los setters validan con la implementación de la superclase (que además recorta el nombre)
+    // y luego copian el valor aceptado a la columna. Todos cumplen el contrato de Producto:
+    // ninguno es de solo lectura, así fusionar o agregarOSumar pueden recibir vistas.
+    private final class VistaProducto extends Producto implements Vista {
+        private final int fila;
+
+        VistaProducto(int fila) {
+            this.fila = fila;
+        }
+
+        @Override public ProductoStore almacen() { return ProductoStore.this; }
+        @Override public int getId() { return id(fila); }
+        @Override public void setId(int id) { fijarId(fila, id); super.setId(id); }
+        @Override public String getNombre() { return nombre(fila); }
+        @Override public void setNombre(String nombre) { super.setNombre(nombre); cambiarNombre(fila, super.getNombre()); }
+        @Override public long getPrecioCentavos() { return precio(fila); }
+        @Override public void setPrecioCentavos(long precio) { super.setPrecioCentavos(precio); fijarPrecio(fila, precio); }
+        @Override public int getStock() { return stock(fila); }
+        @Override public void setStock(int stock) { super.setStock(stock); fijarStock(fila, stock); }
+    }
+
+    private final class VistaBebida extends Bebida implements Vista {
+        private final int fila;
+
+        VistaBebida(int fila) {
+            this.fila = fila;
+        }
+
+        @Override public ProductoStore almacen() { return ProductoStore.this; }
+        @Override public int getId() { return id(fila); }
+        @Override public void setId(int id) { fijarId(fila, id); super.setId(id); }
+        @Override public String getNombre() { return nombre(fila); }
+        @Override public void setNombre(String nombre) { super.setNombre(nombre); cambiarNombre(fila, super.getNombre()); }
+        @Override public long getPrecioCentavos() { return precio(fila); }
+        @Override public void setPrecioCentavos(long precio) { super.setPrecioCentavos(precio); fijarPrecio(fila, precio); }
+        @Override public int getStock() { return stock(fila); }
+        @Override public void setStock(int stock) { super.setStock(stock); fijarStock(fila, stock); }
+        @Override public double getLitros() { return Double.longBitsToDouble(extra(fila)); }
+        @Override public void setLitros(double litros) { super.setLitros(litros); fijarExtra(fila, Double.doubleToRawLongBits(litros)); }
+    }
+
+    private final class VistaComida extends Comida implements Vista {
+        private final int fila;
+
+        VistaComida(int fila) {
+            this.fila = fila;
+        }
+
+        @Override public ProductoStore almacen() { return ProductoStore.this; }
+        @Override public int getId() { return id(fila); }
+        @Override public void setId(int id) { fijarId(fila, id); super.setId(id); }
+        @Override public String getNombre() { return nombre(fila); }
+        @Override public void setNombre(String nombre) { super.setNombre(nombre); cambiarNombre(fila, super.getNombre()); }
+        @Override public long getPrecioCentavos() { return precio(fila); }
+        @Override public void setPrecioCentavos(long precio) { super.setPrecioCentavos(precio); fijarPrecio(fila, precio); }
+        @Override public int getStock() { return stock(fila); }
+        @Override public void setStock(int stock) { super.setStock(stock); fijarStock(fila, stock); }
+        @Override public LocalDate getFechaVencimiento() { return LocalDate.ofEpochDay(extra(fila)); }
+        @Override public void setFechaVencimiento(LocalDate fecha) { super.setFechaVencimiento(fecha); fijarExtra(fila, fecha.toEpochDay()); }
+    }
+}
@@ -0,0 +1,22 @@
+package com.techlab.productos;
+
+import java.util.List;
+
+/**
+ * Resumen de una importación de productos.
+ *
+ * @param insertados Productos nuevos (uno por nombre y precio que no estaba en el catálogo).
+ * @param fusionados Filas cuyo stock se sumó a un producto existente o a una fila anterior del archivo.
+ * @param rechazados Filas descartadas (formato inválido o stock acumulado fuera de rango).
+ * @param rechazos   Detalle de los primeros rechazos, por número de línea.
+ */
+public record ResultadoImportacion(long insertados, long fusionados, long rechazados, List<Rechazo> rechazos) {
+
+    public ResultadoImportacion {
+        rechazos = List.copyOf(rechazos);
+    }
+
+    /** Una fila rechazada: número de línea del archivo (1 = primera) y motivo. */
+    public record Rechazo(long linea, String motivo) {
+    }
+}
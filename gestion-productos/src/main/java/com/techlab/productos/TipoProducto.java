@@ -0,0 +1,31 @@
+package com.techlab.productos;
+
+/**
+ * Tipo concreto de un producto, con el nombre que usan los archivos y los reportes.
+ */
+public enum TipoProducto {
+    PRODUCTO("Producto"),
+    BEBIDA("Bebida"),
+    COMIDA("Comida");
+
+    private final String nombre;
+
+    TipoProducto(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public static TipoProducto de(Producto p) {
+        if (p instanceof Bebida) return BEBIDA;
+        if (p instanceof Comida) return COMIDA;
+        return PRODUCTO;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
@@ -0,0 +1,300 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.VentasProducto;
+import com.techlab.persistencia.SegmentoPedidos;
+import com.techlab.productos.Producto;
+import com.techlab.productos.TipoProducto;
+import com.techlab.util.Dinero;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Totales de ventas que se actualizan con cada pedido confirmado, para que los reportes no
+ * dependan de la cantidad de pedidos: ventas por producto, ranking por unidades, cantidad de
+ * pedidos e ingresos (totales y por tipo de producto).
+ *
+ * registrar() se llama con los bloqueos de stock de los productos del pedido tomados, así las
+ * filas de un mismo producto nunca se actualizan en paralelo. Las lecturas no bloquean y pueden
+ * ver un pedido a medio sumar.
+ *
+ * El ranking se pone al día al consultarlo: registrar() solo marca el producto como pendiente,
+ * y masVendidos() reubica una vez cada producto que vendió desde la consulta anterior. Así un
+ * pedido no paga dos recorridos de un árbol ordenado por línea.
+ */
+final class AgregadosVentas {
+
+    /** Ventas de un producto; se reemplaza entera en cada pedido para leerla sin bloqueos. */
+    private record Fila(String nombre, long unidades, long ingresosCentavos) {
+    }
+
+    /** Entrada del ranking: más unidades primero y, a igual cantidad, el ID menor. */
+    private record Puesto(long unidades, int idProducto) {
+    }
+
+    private static final Comparator<Puesto> POR_UNIDADES = Comparator.comparingLong(Puesto::unidades).reversed()
+            .thenComparingInt(Puesto::idProducto);
+
+    private final Map<Integer, Fila> porProducto = new ConcurrentHashMap<>();
+    // Ranking y unidades con que figura cada producto en él; solo se tocan con el monitor de ranking.
+    private final NavigableSet<Puesto> ranking = new TreeSet<>(POR_UNIDADES);
+    private final Map<Integer, Long> enRanking = new HashMap<>();
+    // Productos cuya fila cambió desde la última vez que se puso al día el ranking.
+    private final Set<Integer> pendientes = ConcurrentHashMap.newKeySet();
+    private final LongAdder pedidos = new LongAdder();
+    private final LongAdder ingresos = new LongAdder();
+    private final Map<TipoProducto, LongAdder> ingresosPorTipo = new EnumMap<>(TipoProducto.class);
+
+    AgregadosVentas() {
+        for (TipoProducto tipo : TipoProducto.values()) {
+            ingresosPorTipo.put(tipo, new LongAdder());
+        }
+    }
+
+    // ==========================================================
+    // 🔹 ACTUALIZACIÓN
+    // ==========================================================
+
+    void registrar(Pedido pedido) {
+        for (LineaPedido linea : pedido.getLineas()) {
+            int id = linea.getProducto().getId();
+            Fila anterior = porProducto.get(id);
+            Fila fila = anterior == null
+                    ? new Fila(linea.getProducto().getNombre(), linea.getCantidad(), linea.getSubtotalCentavos())
+                    : new Fila(linea.getProducto().getNombre(), anterior.unidades() + linea.getCantidad(),
+                    anterior.ingresosCentavos() + linea.getSubtotalCentavos());
+            porProducto.put(id, fila);
+            pendientes.add(id);
+            ingresosPorTipo.get(TipoProducto.de(linea.getProducto())).add(linea.getSubtotalCentavos());
+        }
+        ingresos.add(pedido.getTotalCentavos());
+        pedidos.increment();
+    }
+
+    /** Reemplaza los totales por los de esos pedidos, calculados en paralelo. */
+    void reemplazar(Collection<Pedido> todos) {
+        publicar(Suma.de(todos));
+    }
+
+    /**
+     * Carga inicial: los totales de los pedidos en memoria más los resúmenes de los segmentos
+     * archivados, sin leer los pedidos archivados.
+     */
+    void reemplazar(Collection<Pedido> recientes, List<SegmentoPedidos.Resumen> archivados,
+                    IntFunction<Producto> productoPorId) {
+        Suma suma = Suma.de(recientes);
+        for (SegmentoPedidos.Resumen resumen : archivados) {
+            suma.agregar(resumen, productoPorId);
+        }
+        publicar(suma);
+    }
+
+    private void publicar(Suma suma) {
+        limpiar();
+        suma.porProducto.forEach((id, f) -> porProducto.put(id, new Fila(f.nombre, f.unidades, f.ingresosCentavos)));
+        pendientes.addAll(suma.porProducto.keySet());
+        pedidos.add(suma.pedidos);
+        ingresos.add(suma.ingresosCentavos);
+        suma.ingresosPorTipo.forEach((tipo, total) -> ingresosPorTipo.get(tipo).add(total));
+    }
+
+    void limpiar() {
+        porProducto.clear();
+        synchronized (ranking) {
+            ranking.clear();
+            enRanking.clear();
+        }
+        pendientes.clear();
+        pedidos.reset();
+        ingresos.reset();
+        ingresosPorTipo.values().forEach(LongAdder::reset);
+    }
+
+    // ==========================================================
+    // 🔹 CONSULTAS
+    // ==========================================================
+
+    VentasProducto ventasDe(int idProducto) {
+        Fila fila = porProducto.get(idProducto);
+        return fila == null ? null : aVentas(idProducto, fila);
+    }
+
+    /** Los k productos con más unidades vendidas, de mayor a menor. */
+    List<VentasProducto> masVendidos(int k) {
+        List<VentasProducto> resultado = new ArrayList<>(Math.min(k, 64));
+        synchronized (ranking) {
+            ponerAlDia();
+            Iterator<Puesto> it = ranking.iterator();
+            while (resultado.size() < k && it.hasNext()) {
+                int id = it.next().idProducto();
+                Fila fila = porProducto.get(id);
+                if (fila != null) resultado.add(aVentas(id, fila));
+            }
+        }
+        return resultado;
+    }
+
+    // Con el monitor de ranking tomado. Cada pendiente se quita del conjunto antes de leer su
+    // fila: si un pedido la cambia después, vuelve a quedar pendiente para la próxima consulta.
+    private void ponerAlDia() {
+        Iterator<Integer> it = pendientes.iterator();
+        while (it.hasNext()) {
+            int id = it.next();
+            it.remove();
+            Fila fila = porProducto.get(id);
+            Long anterior = fila == null ? enRanking.remove(id) : enRanking.put(id, fila.unidades());
+            if (anterior != null) ranking.remove(new Puesto(anterior, id));
+            if (fila != null) ranking.add(new Puesto(fila.unidades(), id));
+        }
+    }
+
+    long cantidadPedidos() {
+        return pedidos.sum();
+    }
+
+    long ingresosCentavos() {
+        return ingresos.sum();
+    }
+
+    Map<TipoProducto, Dinero> ingresosPorTipo() {
+        Map<TipoProducto, Dinero> resultado = new EnumMap<>(TipoProducto.class);
+        ingresosPorTipo.forEach((tipo, total) -> resultado.put(tipo, Dinero.deCentavos(total.sum())));
+        return resultado;
+    }
+
+    private static VentasProducto aVentas(int id, Fila fila) {
+        return new VentasProducto(id, fila.nombre(), fila.unidades(), Dinero.deCentavos(fila.ingresosCentavos()));
+    }
+
+    // ==========================================================
+    // 🔹 RECÁLCULO COMPLETO
+    // ==========================================================
+
+    /**
+     * Compara los totales mantenidos con un recálculo desde cero sobre esos pedidos.
+     * Solo tiene sentido sin pedidos entrando mientras tanto.
+     * @return Las diferencias encontradas; vacía si coinciden.
+     */
+    List<String> diferenciasCon(Collection<Pedido> todos) {
+        Suma suma = Suma.de(todos);
+        List<String> diferencias = new ArrayList<>();
+        if (suma.pedidos != cantidadPedidos()) {
+            diferencias.add("Pedidos: " + cantidadPedidos() + " (recalculado: " + suma.pedidos + ")");
+        }
+        if (suma.ingresosCentavos != ingresosCentavos()) {
+            diferencias.add("Ingresos: " + Dinero.deCentavos(ingresosCentavos())
+                    + " (recalculado: " + Dinero.deCentavos(suma.ingresosCentavos) + ")");
+        }
+        for (TipoProducto tipo : TipoProducto.values()) {
+            long mantenido = ingresosPorTipo.get(tipo).sum();
+            long recalculado = suma.ingresosPorTipo.getOrDefault(tipo, 0L);
+            if (mantenido != recalculado) {
+                diferencias.add("Ingresos de " + tipo + ": " + Dinero.deCentavos(mantenido)
+                        + " (recalculado: " + Dinero.deCentavos(recalculado) + ")");
+            }
+        }
+        if (suma.porProducto.size() != porProducto.size()) {
+            diferencias.add("Productos vendidos: " + porProducto.size() + " (recalculado: " + suma.porProducto.size() + ")");
+        }
+        suma.porProducto.forEach((id, f) -> {
+            Fila fila = porProducto.get(id);
+            if (fila == null || fila.unidades() != f.unidades || fila.ingresosCentavos() != f.ingresosCentavos) {
+                diferencias.add("Producto " + id + ": " + (fila == null ? "sin ventas" : fila.unidades() + " u.")
+                        + " (recalculado: " + f.unidades + " u.)");
+            }
+        });
+        synchronized (ranking) {
+            ponerAlDia();
+            if (ranking.size() != porProducto.size()) {
+                diferencias.add("Ranking: " + ranking.size() + " entradas para " + porProducto.size() + " productos");
+            }
+        }
+        return diferencias;
+    }
+
+    /** Acumulador de una reducción en paralelo sobre los pedidos (cada hilo suma sus pedidos y se combinan). */
+    private static final class Suma {
+        // El nombre que queda es el del pedido más reciente, como en registrar().
+        private static final class Parcial {
+            String nombre;
+            int ultimoPedido = Integer.MIN_VALUE;
+            long unidades;
+            long ingresosCentavos;
+        }
+
+        final Map<Integer, Parcial> porProducto = new HashMap<>();
+        final Map<TipoProducto, Long> ingresosPorTipo = new EnumMap<>(TipoProducto.class);
+        long pedidos;
+        long ingresosCentavos;
+
+        static Suma de(Collection<Pedido> todos) {
+            return todos.parallelStream().collect(Suma::new, Suma::agregar, Suma::combinar);
+        }
+
+        void agregar(Pedido pedido) {
+            for (LineaPedido linea : pedido.getLineas()) {
+                Parcial p = porProducto.computeIfAbsent(linea.getProducto().getId(), id -> new Parcial());
+                p.unidades += linea.getCantidad();
+                p.ingresosCentavos += linea.getSubtotalCentavos();
+                if (pedido.getId() > p.ultimoPedido) {
+                    p.ultimoPedido = pedido.getId();
+                    p.nombre = linea.getProducto().getNombre();
+                }
+                ingresosPorTipo.merge(TipoProducto.de(linea.getProducto()), linea.getSubtotalCentavos(), Long::sum);
+            }
+            pedidos++;
+            ingresosCentavos += pedido.getTotalCentavos();
+        }
+
+        // Los pedidos archivados son más viejos que los de memoria: el nombre solo se toma si falta.
+        void agregar(SegmentoPedidos.Resumen resumen, IntFunction<Producto> productoPorId) {
+            for (int i = 0; i < resumen.productos().length; i++) {
+                int id = resumen.productos()[i];
+                Producto producto = productoPorId.apply(id);
+                if (producto == null) {
+                    throw new IllegalStateException("Producto no encontrado durante la carga: ID " + id);
+                }
+                Parcial p = porProducto.computeIfAbsent(id, k -> new Parcial());
+                p.unidades += resumen.unidades()[i];
+                p.ingresosCentavos += resumen.ingresosCentavos()[i];
+                if (p.nombre == null) p.nombre = producto.getNombre();
+                ingresosPorTipo.merge(TipoProducto.de(producto), resumen.ingresosCentavos()[i], Long::sum);
+                ingresosCentavos += resumen.ingresosCentavos()[i];
+            }
+            pedidos += resumen.pedidos();
+        }
+
+        void combinar(Suma otra) {
+            otra.porProducto.forEach((id, o) -> {
+                Parcial p = porProducto.get(id);
+                if (p == null) {
+                    porProducto.put(id, o);
+                    return;
+                }
+                p.unidades += o.unidades;
+                p.ingresosCentavos += o.ingresosCentavos;
+                if (o.ultimoPedido > p.ultimoPedido) {
+                    p.ultimoPedido = o.ultimoPedido;
+                    p.nombre = o.nombre;
+                }
+            });
+            otra.ingresosPorTipo.forEach((tipo, total) -> ingresosPorTipo.merge(tipo, total, Long::sum));
+            pedidos += otra.pedidos;
+            ingresosCentavos += otra.ingresosCentavos;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.VentasProducto;
+import com.techlab.productos.TipoProducto;
+import com.techlab.util.Dinero;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reportes de ventas sobre los pedidos de un PedidoService. Los totales se mantienen a medida
+ * que se confirman los pedidos (y se recalculan al cargarlos de disco), así que cada consulta
+ * cuesta lo mismo con cien pedidos que con millones.
+ */
+public class AnaliticaService {
+
+    private final PedidoService pedidoService;
+
+    public AnaliticaService(PedidoService pedidoService) {
+        if (pedidoService == null) {
+            throw new IllegalArgumentException("El servicio de pedidos no puede ser nulo.");
+        }
+        this.pedidoService = pedidoService;
+    }
+
+    // ==========================================================
+    // 🔹 CONSULTAS
+    // ==========================================================
+
+    /** Unidades e ingresos de un producto; vacío si nunca se vendió. O(1). */
+    public Optional<VentasProducto> ventasDe(int idProducto) {
+        return Optional.ofNullable(pedidoService.ventas().ventasDe(idProducto));
+    }
+
+    /** Los productos con más unidades vendidas, de mayor a menor. O(cantidad). */
+    public List<VentasProducto> masVendidos(int cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("⚠️  La cantidad debe ser mayor que cero.");
+        }
+        return pedidoService.ventas().masVendidos(cantidad);
+    }
+
+    public long cantidadPedidos() {
+        return pedidoService.ventas().cantidadPedidos();
+    }
+
+    public Dinero ingresosTotales() {
+        return Dinero.deCentavos(pedidoService.ventas().ingresosCentavos());
+    }
+
+    /** Importe promedio por pedido, redondeado al centavo; cero si no hay pedidos. */
+    public Dinero ticketPromedio() {
+        AgregadosVentas ventas = pedidoService.ventas();
+        long pedidos = ventas.cantidadPedidos();
+        if (pedidos == 0) return Dinero.CERO;
+        return Dinero.deCentavos((ventas.ingresosCentavos() + pedidos / 2) / pedidos);
+    }
+
+    /** Ingresos por tipo de producto (Bebida, Comida, Producto), incluidos los tipos sin ventas. */
+    public Map<TipoProducto, Dinero> ingresosPorTipo() {
+        return pedidoService.ventas().ingresosPorTipo();
+    }
+
+    // ==========================================================
+    // 🔹 VERIFICACIÓN Y RECONSTRUCCIÓN
+    // ==========================================================
+
+    /**
+     * Recalcula todo desde los pedidos (en paralelo) y lo compara con los totales mantenidos.
+     * Lee también los pedidos archivados. Conviene llamarlo sin pedidos entrando: uno
+     * confirmado a mitad del recálculo aparece como diferencia.
+     * @return Las diferencias encontradas; vacía si todo coincide.
+     */
+    public List<String> verificar() {
+        return pedidoService.ventas().diferenciasCon(pedidoService.listarPedidos());
+    }
+
+    /**
+     * Vuelve a calcular los totales desde todos los pedidos, incluidos los archivados. La carga
+     * ya los calcula (con los resúmenes de los segmentos archivados); sirve para corregir los
+     * totales si verificar() encontró diferencias.
+     */
+    public void reconstruir() {
+        pedidoService.ventas().reemplazar(pedidoService.listarPedidos());
+    }
+}
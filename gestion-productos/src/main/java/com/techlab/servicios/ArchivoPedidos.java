@@ -0,0 +1,361 @@
+package com.techlab.servicios;
+
+import com.techlab.metricas.Metricas;
+import com.techlab.metricas.Operacion;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.persistencia.SegmentoPedidos;
+import com.techlab.productos.Producto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Pedidos archivados: los más viejos, fuera del heap, en segmentos inmutables
+ * ({@link SegmentoPedidos}). Se leen de a un bloque cuando alguien los busca o los pagina, y los
+ * bloques leídos hace poco quedan en una caché LRU.
+ *
+ * Cada segmento trae además su índice producto → pedidos. En memoria queda solo la tabla de
+ * productos (unos 12 bytes por producto del segmento); los IDs de un producto se leen del disco
+ * al consultarlo y quedan en otra caché LRU, limitada por la cantidad de IDs.
+ *
+ * El archivado toma siempre los pedidos más viejos, así que los segmentos cubren rangos de IDs
+ * crecientes y sin solaparse. La lista de segmentos es inmutable y se reemplaza entera al
+ * agregar uno: las lecturas no toman bloqueos.
+ */
+final class ArchivoPedidos {
+
+    // Bloques decodificados que se conservan (unos 64 mil pedidos).
+    private static final int BLOQUES_EN_CACHE = 256;
+    // IDs de pedidos por producto que se conservan (4 MB).
+    private static final int IDS_EN_CACHE = 1 << 20;
+
+    /**
+     * Un segmento abierto con la tabla de su índice producto → pedidos: los productos, ordenados
+     * para buscarlos por binaria, y el tramo de cada uno en la lista del resumen. Los segmentos
+     * v1 no tienen esa lista en el archivo: se arma al abrirlos y queda en memoria.
+     */
+    static final class Segmento {
+        private final SegmentoPedidos datos;
+        private final int cantidadProductos;
+        private final int[] productos;
+        private final int[] inicio;
+        private final int[] fin;
+        private final int[] enMemoria;
+
+        private Segmento(SegmentoPedidos datos, int[] productos, int[] inicioPedidos, int[] enMemoria) {
+            this.datos = datos;
+            this.cantidadProductos = productos.length;
+            this.enMemoria = enMemoria;
+            // ID de producto en la parte alta y posición en el resumen en la baja: ordenar los
+            // long ordena por producto.
+            long[] claves = new long[productos.length];
+            for (int i = 0; i < productos.length; i++) claves[i] = (long) productos[i] << 32 | i;
+            Arrays.sort(claves);
+            this.productos = new int[productos.length];
+            this.inicio = new int[productos.length];
+            this.fin = new int[productos.length];
+            for (int j = 0; j < claves.length; j++) {
+                int i = (int) claves[j];
+                this.productos[j] = (int) (claves[j] >>> 32);
+                this.inicio[j] = inicioPedidos[i];
+                this.fin[j] = inicioPedidos[i + 1];
+            }
+        }
+
+        // Posición del producto en la tabla, o -1 si no está en el segmento.
+        private int posicion(int idProducto) {
+            int j = Arrays.binarySearch(productos, idProducto);
+            return j >= 0 ? j : -1;
+        }
+
+        int cantidadConProducto(int idProducto) {
+            int j = posicion(idProducto);
+            return j < 0 ? 0 : fin[j] - inicio[j];
+        }
+    }
+
+    private final Path directorio;
+    private final IntFunction<Producto> productoPorId;
+    private volatile List<Segmento> segmentos = List.of();
+    // Bloques por el ID de su primer pedido (único entre todos los segmentos), en orden de acceso.
+    private final Map<Integer, List<Pedido>> cache = new LinkedHashMap<>(BLOQUES_EN_CACHE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Pedido>> mayor) {
+            return size() > BLOQUES_EN_CACHE;
+        }
+    };
+    // IDs de pedidos de un producto en un segmento, por (primer ID del segmento, producto).
+    private final Map<Long, int[]> cachePedidos = new LinkedHashMap<>(256, 0.75f, true);
+    private long idsEnCache;
+
+    ArchivoPedidos(Path directorio, IntFunction<Producto> productoPorId) {
+        this.directorio = directorio;
+        this.productoPorId = productoPorId;
+    }
+
+    /**
+     * Abre los segmentos del directorio leyendo solo sus índices y resúmenes.
+     * @return El resumen de cada segmento, en orden de ID.
+     */
+    List<SegmentoPedidos.Resumen> abrir() {
+        List<Segmento> abiertos = new ArrayList<>();
+        List<SegmentoPedidos.Resumen> resumenes = new ArrayList<>();
+        for (Path ruta : SegmentoPedidos.listar(directorio)) {
+            try {
+                SegmentoPedidos segmento = SegmentoPedidos.abrir(ruta);
+                SegmentoPedidos.Resumen resumen = segmento.leerResumen();
+                abiertos.add(abrir(segmento, resumen));
+                resumenes.add(resumen);
+            } catch (IOException e) {
+                throw new IllegalStateException("Error al abrir los pedidos archivados: " + e.getMessage(), e);
+            }
+        }
+        synchronized (cache) {
+            cache.clear();
+        }
+        synchronized (cachePedidos) {
+            cachePedidos.clear();
+            idsEnCache = 0;
+        }
+        segmentos = List.copyOf(abiertos);
+        return resumenes;
+    }
+
+    private Segmento abrir(SegmentoPedidos segmento, SegmentoPedidos.Resumen resumen) throws IOException {
+        if (resumen.inicioPedidos() != null) return new Segmento(segmento, resumen.productos(), resumen.inicioPedidos(), null);
+        return conPedidosPorProducto(segmento, resumen);
+    }
+
+    // Segmentos v1: el resumen no trae los pedidos de cada producto y se arman leyendo los bloques.
+    private Segmento conPedidosPorProducto(SegmentoPedidos segmento, SegmentoPedidos.Resumen resumen)
+            throws IOException {
+        Map<Integer, List<Integer>> porProducto = new HashMap<>();
+        for (int b = 0; b < segmento.cantidadBloques(); b++) {
+            for (Pedido pedido : segmento.leerBloque(b, productoPorId)) {
+                for (LineaPedido linea : pedido.getLineas()) {
+                    List<Integer> ids = porProducto.computeIfAbsent(linea.getProducto().getId(), id -> new ArrayList<>());
+                    if (ids.isEmpty() || ids.get(ids.size() - 1) != pedido.getId()) ids.add(pedido.getId());
+                }
+            }
+        }
+        int[] productos = resumen.productos();
+        int[] inicio = new int[productos.length + 1];
+        for (int i = 0; i < productos.length; i++) {
+            inicio[i + 1] = inicio[i] + porProducto.getOrDefault(productos[i], List.of()).size();
+        }
+        int[] pedidos = new int[inicio[productos.length]];
+        for (int i = 0; i < productos.length; i++) {
+            int j = inicio[i];
+            for (int id : porProducto.getOrDefault(productos[i], List.of())) pedidos[j++] = id;
+        }
+        return new Segmento(segmento, productos, inicio, pedidos);
+    }
+
+    /**
+     * Escribe un segmento con esos pedidos (en orden de ID) y lee su resumen; no es visible
+     * hasta {@link #publicar}.
+     */
+    Segmento escribir(List<Pedido> pedidos) throws IOException {
+        SegmentoPedidos segmento = SegmentoPedidos.escribir(directorio, pedidos);
+        return abrir(segmento, segmento.leerResumen());
+    }
+
+    void publicar(Segmento segmento) {
+        List<Segmento> nuevos = new ArrayList<>(segmentos);
+        nuevos.add(segmento);
+        segmentos = List.copyOf(nuevos);
+    }
+
+    /** ID del pedido archivado más nuevo; 0 si no hay ninguno. */
+    int ultimoId() {
+        List<Segmento> s = segmentos;
+        return s.isEmpty() ? 0 : s.get(s.size() - 1).datos.ultimoId();
+    }
+
+    long cantidad() {
+        long total = 0;
+        for (Segmento s : segmentos) total += s.datos.cantidad();
+        return total;
+    }
+
+    int cantidadSegmentos() {
+        return segmentos.size();
+    }
+
+    Optional<Pedido> buscar(int id) {
+        List<Segmento> s = segmentos;
+        int i = segmentoDesde(s, id);
+        if (i == s.size()) return Optional.empty();
+        SegmentoPedidos segmento = s.get(i).datos;
+        int bloque = segmento.bloqueDe(id);
+        if (bloque < 0) return Optional.empty();
+        List<Pedido> pedidos = bloque(segmento, bloque, true);
+        int k = posicionDesde(pedidos, id);
+        return k < pedidos.size() && pedidos.get(k).getId() == id ? Optional.of(pedidos.get(k)) : Optional.empty();
+    }
+
+    /**
+     * Los pedidos archivados con esos IDs (en orden), en el mismo orden; los que no están se
+     * omiten. Los IDs de un mismo bloque se resuelven con una sola lectura del bloque.
+     */
+    List<Pedido> buscarTodos(int[] ids) {
+        List<Pedido> resultado = new ArrayList<>(ids.length);
+        List<Segmento> s = segmentos;
+        SegmentoPedidos segmento = null;
+        int bloqueActual = -1;
+        List<Pedido> pedidos = List.of();
+        for (int id : ids) {
+            if (segmento == null || id > segmento.ultimoId()) {
+                int i = segmentoDesde(s, id);
+                if (i == s.size()) break;
+                segmento = s.get(i).datos;
+                bloqueActual = -1;
+            }
+            int b = segmento.bloqueDe(id);
+            if (b < 0) continue;
+            if (b != bloqueActual) {
+                pedidos = bloque(segmento, b, true);
+                bloqueActual = b;
+            }
+            int k = posicionDesde(pedidos, id);
+            if (k < pedidos.size() && pedidos.get(k).getId() == id) resultado.add(pedidos.get(k));
+        }
+        return resultado;
+    }
+
+    /** Cantidad de pedidos archivados que incluyen el producto, sin leer nada del disco. */
+    int cantidadConProducto(int idProducto) {
+        int total = 0;
+        for (Segmento s : segmentos) total += s.cantidadConProducto(idProducto);
+        return total;
+    }
+
+    /** Hasta max IDs de pedidos archivados del producto con ID mayor o igual a desde, en orden. */
+    int[] pedidosConProducto(int idProducto, int desde, int max) {
+        int[] resultado = new int[0];
+        int n = 0;
+        List<Segmento> s = segmentos;
+        for (int i = segmentoDesde(s, desde); i < s.size() && n < max; i++) {
+            int[] ids = pedidosDe(s.get(i), idProducto);
+            int k = Arrays.binarySearch(ids, desde);
+            if (k < 0) k = -k - 1;
+            int cantidad = Math.min(max - n, ids.length - k);
+            if (cantidad <= 0) continue;
+            if (n + cantidad > resultado.length) resultado = Arrays.copyOf(resultado, Math.min(max, Math.max(n + cantidad, n * 2)));
+            System.arraycopy(ids, k, resultado, n, cantidad);
+            n += cantidad;
+        }
+        return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+    }
+
+    // IDs de los pedidos del producto en el segmento: de la caché o del disco.
+    private int[] pedidosDe(Segmento segmento, int idProducto) {
+        int j = segmento.posicion(idProducto);
+        if (j < 0) return new int[0];
+        if (segmento.enMemoria != null) {
+            return Arrays.copyOfRange(segmento.enMemoria, segmento.inicio[j], segmento.fin[j]);
+        }
+        Long clave = (long) segmento.datos.primerId() << 32 | idProducto;
+        synchronized (cachePedidos) {
+            int[] ids = cachePedidos.get(clave);
+            if (ids != null) return ids;
+        }
+        long inicio = Metricas.inicio();
+        int[] ids;
+        try {
+            ids = segmento.datos.leerPedidosPorProducto(segmento.cantidadProductos, segmento.inicio[j], segmento.fin[j]);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer pedidos archivados: " + e.getMessage(), e);
+        } finally {
+            Operacion.LEER_PEDIDOS_ARCHIVADOS.registrar(inicio);
+        }
+        synchronized (cachePedidos) {
+            if (cachePedidos.put(clave, ids) == null) idsEnCache += ids.length;
+            Iterator<int[]> masViejos = cachePedidos.values().iterator();
+            while (idsEnCache > IDS_EN_CACHE && masViejos.hasNext()) {
+                int[] quitado = masViejos.next();
+                if (quitado == ids) continue;
+                idsEnCache -= quitado.length;
+                masViejos.remove();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Hasta max pedidos archivados con ID entre desde y hasta (inclusive), en orden de ID.
+     * @param conCache false para recorridos completos, que no deben desplazar lo que está en caché.
+     */
+    List<Pedido> pagina(int desde, int hasta, int max, boolean conCache) {
+        List<Pedido> resultado = new ArrayList<>(Math.min(max, 64));
+        List<Segmento> s = segmentos;
+        for (int i = segmentoDesde(s, desde); i < s.size() && s.get(i).datos.primerId() <= hasta; i++) {
+            SegmentoPedidos segmento = s.get(i).datos;
+            for (int b = Math.max(0, segmento.bloqueDe(desde));
+                 b < segmento.cantidadBloques() && segmento.primerIdDelBloque(b) <= hasta; b++) {
+                List<Pedido> pedidos = bloque(segmento, b, conCache);
+                for (int k = posicionDesde(pedidos, desde); k < pedidos.size(); k++) {
+                    if (resultado.size() == max || pedidos.get(k).getId() > hasta) return resultado;
+                    resultado.add(pedidos.get(k));
+                }
+            }
+        }
+        return resultado;
+    }
+
+    // Primer segmento cuyo último ID es mayor o igual a id (s.size() si no hay).
+    private static int segmentoDesde(List<Segmento> s, int id) {
+        int bajo = 0, alto = s.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (s.get(medio).datos.ultimoId() < id) bajo = medio + 1;
+            else alto = medio;
+        }
+        return bajo;
+    }
+
+    // Primer pedido del bloque con ID mayor o igual a id.
+    private static int posicionDesde(List<Pedido> pedidos, int id) {
+        int bajo = 0, alto = pedidos.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (pedidos.get(medio).getId() < id) bajo = medio + 1;
+            else alto = medio;
+        }
+        return bajo;
+    }
+
+    // Dos hilos pueden leer el mismo bloque a la vez: el disco se lee fuera del monitor.
+    private List<Pedido> bloque(SegmentoPedidos segmento, int bloque, boolean conCache) {
+        Integer clave = segmento.primerIdDelBloque(bloque);
+        synchronized (cache) {
+            List<Pedido> pedidos = cache.get(clave);
+            if (pedidos != null) return pedidos;
+        }
+        long inicio = Metricas.inicio();
+        List<Pedido> pedidos;
+        try {
+            pedidos = List.copyOf(segmento.leerBloque(bloque, productoPorId));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer pedidos archivados: " + e.getMessage(), e);
+        } finally {
+            Operacion.LEER_PEDIDOS_ARCHIVADOS.registrar(inicio);
+        }
+        if (conCache) {
+            synchronized (cache) {
+                cache.put(clave, pedidos);
+            }
+        }
+        return pedidos;
+    }
+}
@@ -0,0 +1,78 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Producto;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueos por franjas (striped locks) para las operaciones sobre el stock.
+ * Cada producto cae en una franja según su ID. Las franjas de una operación se toman
+ * siempre en orden ascendente, por lo que dos pedidos nunca se bloquean mutuamente,
+ * y pedidos sobre productos distintos avanzan en paralelo.
+ */
+final class BloqueosStock {
+
+    private final ReentrantLock[] franjas;
+    private final int desplazamiento;
+
+    BloqueosStock(int cantidadMinima) {
+        int cantidad = 2;
+        while (cantidad < cantidadMinima) cantidad <<= 1; // potencia de 2 para repartir con desplazamiento
+        franjas = new ReentrantLock[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        desplazamiento = 32 - Integer.numberOfTrailingZeros(cantidad);
+    }
+
+    /** Cantidad de franjas proporcional a los núcleos disponibles. */
+    static BloqueosStock porDefecto() {
+        return new BloqueosStock(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+
+    // Hash multiplicativo: IDs consecutivos quedan en franjas distintas.
+    int franja(int idProducto) {
+        return (idProducto * 0x9E3779B9) >>> desplazamiento;
+    }
+
+    /** Franjas de los productos indicados, sin repetir y ordenadas de menor a mayor. */
+    int[] franjasDe(Collection<Producto> productos) {
+        int[] resultado = new int[productos.size()];
+        int n = 0;
+        for (Producto p : productos) {
+            resultado[n++] = franja(p.getId());
+        }
+        Arrays.sort(resultado);
+        int distintas = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintas == 0 || resultado[distintas - 1] != resultado[i]) {
+                resultado[distintas++] = resultado[i];
+            }
+        }
+        return Arrays.copyOf(resultado, distintas);
+    }
+
+    void bloquear(int[] ordenadas) {
+        for (int f : ordenadas) {
+            franjas[f].lock();
+        }
+    }
+
+    void desbloquear(int[] ordenadas) {
+        for (int i = ordenadas.length - 1; i >= 0; i--) {
+            franjas[ordenadas[i]].unlock();
+        }
+    }
+
+    /** Bloqueo de la franja de un único producto. */
+    ReentrantLock de(Producto p) {
+        return franjas[franja(p.getId())];
+    }
+
+    /** Bloqueo de la franja de una clave que no es un ID (por ejemplo, el hash de nombre y precio). */
+    ReentrantLock deClave(int clave) {
+        return franjas[franja(clave)];
+    }
+}
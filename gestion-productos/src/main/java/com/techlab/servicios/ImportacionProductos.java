@@ -0,0 +1,213 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ResultadoImportacion.Rechazo;
+import com.techlab.util.ArchivoUtil;
+import com.techlab.util.LectorCampos;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Lectura en paralelo de un catálogo de proveedor para {@link ProductoService#importar(Path)}.
+ *
+ * Formato: una fila por línea, {@code tipo;nombre;precio;stock[;litros|fechaVencimiento]}, igual
+ * que productos.txt pero sin ID (los asigna la importación). Una primera línea que empieza con
+ * "tipo" se toma como cabecera; las líneas vacías se ignoran.
+ *
+ * El archivo se divide en trozos alineados a fin de línea que se parsean en paralelo. Cada trozo
+ * agrupa sus filas por nombre y precio (la regla de agregarProducto) en particiones por hash, y
+ * las particiones se fusionan también en paralelo, recorriendo los trozos en orden de archivo:
+ * cada grupo conserva su primera fila (que define el tipo) y la suma del stock de todas.
+ * Ninguna etapa tiene una parte secuencial proporcional al archivo.
+ */
+final class ImportacionProductos {
+
+    /** Se guarda el detalle de hasta esta cantidad de rechazos; el resto solo se cuenta. */
+    static final int MAX_RECHAZOS_INFORMADOS = 1000;
+
+    private record Clave(String nombreNormalizado, long precioCentavos) {
+    }
+
+    /** Filas del archivo con el mismo nombre y precio, ya sumadas. */
+    static final class Grupo {
+        final Producto producto;   // de la primera fila, todavía sin ID
+        final String nombreNormalizado;
+        long linea;                // de la primera fila (relativa a su trozo hasta fusionar)
+        long stock;
+        long filas = 1;
+        Producto existente;        // producto del catálogo con el mismo nombre y precio, si hay
+
+        Grupo(Producto producto, String nombreNormalizado, long linea) {
+            this.producto = producto;
+            this.nombreNormalizado = nombreNormalizado;
+            this.linea = linea;
+            this.stock = producto.getStock();
+        }
+
+        void sumar(long stock, long filas) {
+            this.stock += stock;
+            this.filas += filas;
+        }
+    }
+
+    /**
+     * @param grupos     Un grupo por nombre y precio, en cualquier orden.
+     * @param rechazados Filas con formato o datos inválidos.
+     * @param rechazos   Detalle de las primeras, por número de línea.
+     */
+    record Lectura(List<Grupo> grupos, long rechazados, List<Rechazo> rechazos) {
+    }
+
+    private static final class Trozo {
+        final List<Map<Clave, Grupo>> particiones;
+        final List<Rechazo> rechazos = new ArrayList<>();
+        long rechazados;
+        long lineas;
+
+        Trozo(int particiones) {
+            this.particiones = new ArrayList<>(particiones);
+            for (int i = 0; i < particiones; i++) this.particiones.add(new HashMap<>());
+        }
+    }
+
+    private ImportacionProductos() {
+    }
+
+    static Lectura leer(Path ruta) throws IOException {
+        // Varios trozos y particiones por hilo, para que uno lento no deje a los demás esperando.
+        int porciones = ForkJoinPool.getCommonPoolParallelism() * 4;
+        List<Trozo> trozos;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long[] limites = ArchivoUtil.dividirEnTrozos(canal, porciones);
+            trozos = IntStream.range(0, limites.length - 1)
+                    .parallel()
+                    .mapToObj(i -> leerTrozo(canal, limites[i], limites[i + 1], i == 0, porciones))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Cada trozo numera sus líneas desde 1: se corrigen con lo que leyeron los anteriores.
+        long[] lineasPrevias = new long[trozos.size()];
+        for (int t = 1; t < trozos.size(); t++) {
+            lineasPrevias[t] = lineasPrevias[t - 1] + trozos.get(t - 1).lineas;
+        }
+
+        List<Grupo> grupos = IntStream.range(0, porciones)
+                .parallel()
+                .mapToObj(p -> fusionarParticion(trozos, lineasPrevias, p))
+                .flatMap(particion -> particion.values().stream())
+                .toList();
+
+        long rechazados = 0;
+        List<Rechazo> rechazos = new ArrayList<>();
+        for (int t = 0; t < trozos.size(); t++) {
+            Trozo trozo = trozos.get(t);
+            rechazados += trozo.rechazados;
+            for (Rechazo r : trozo.rechazos) {
+                if (rechazos.size() == MAX_RECHAZOS_INFORMADOS) break;
+                rechazos.add(new Rechazo(lineasPrevias[t] + r.linea(), r.motivo()));
+            }
+        }
+        return new Lectura(grupos, rechazados, rechazos);
+    }
+
+    private static Trozo leerTrozo(FileChannel canal, long inicio, long fin, boolean primero, int particiones) {
+        Trozo trozo = new Trozo(particiones);
+        LectorCampos lector = new LectorCampos(canal, inicio, fin, 0);
+        while (lector.siguienteLinea()) {
+            if (primero && lector.numeroLinea() == 1 && lector.campoEs("tipo")) continue;
+            if (lector.campoEs("") && lector.contarCampos() == 1) continue;
+            try {
+                Producto p = parsearFila(lector);
+                String nombre = Catalogo.normalizar(p.getNombre());
+                Clave clave = new Clave(nombre, p.getPrecioCentavos());
+                Map<Clave, Grupo> particion = trozo.particiones.get(particion(clave, particiones));
+                Grupo grupo = particion.get(clave);
+                if (grupo == null) {
+                    particion.put(clave, new Grupo(p, nombre, lector.numeroLinea()));
+                } else {
+                    grupo.sumar(p.getStock(), 1);
+                }
+            } catch (IllegalStateException | IllegalArgumentException | DateTimeException e) {
+                trozo.rechazados++;
+                if (trozo.rechazos.size() < MAX_RECHAZOS_INFORMADOS) {
+                    trozo.rechazos.add(new Rechazo(lector.numeroLinea(), motivo(e)));
+                }
+            }
+        }
+        trozo.lineas = lector.numeroLinea();
+        return trozo;
+    }
+
+    // Con los bits altos del hash mezclado: los bajos son los que usa cada HashMap para sus cubetas,
+    // y si eligieran también la partición, cada mapa usaría una sola fracción de las suyas.
+    private static int particion(Clave clave, int particiones) {
+        long mezclado = (clave.hashCode() * 0x9E3779B9L) & 0xFFFFFFFFL;
+        return (int) ((mezclado * particiones) >>> 32);
+    }
+
+    // Los trozos se recorren en orden de archivo: el primer grupo de cada clave tiene la primera fila.
+    private static Map<Clave, Grupo> fusionarParticion(List<Trozo> trozos, long[] lineasPrevias, int particion) {
+        Map<Clave, Grupo> fusion = new HashMap<>();
+        for (int t = 0; t < trozos.size(); t++) {
+            for (Map.Entry<Clave, Grupo> e : trozos.get(t).particiones.get(particion).entrySet()) {
+                Grupo grupo = e.getValue();
+                Grupo anterior = fusion.putIfAbsent(e.getKey(), grupo);
+                if (anterior == null) {
+                    grupo.linea += lineasPrevias[t];
+                } else {
+                    anterior.sumar(grupo.stock, grupo.filas);
+                }
+            }
+        }
+        return fusion;
+    }
+
+    // tipo;nombre;precio;stock[;litros|fechaVencimiento]; las validaciones son las de cada constructor.
+    private static Producto parsearFila(LectorCampos lector) {
+        if (lector.contarCampos() < 4) {
+            throw new IllegalStateException("Fila con formato inválido (menos de 4 campos).");
+        }
+        boolean esBebida = lector.campoEs("Bebida");
+        boolean esComida = lector.campoEs("Comida");
+        if (!esBebida && !esComida && !lector.campoEs("Producto")) {
+            throw new IllegalStateException("Tipo de producto desconocido: " + lector.leerTexto()
+                    + " (Producto, Bebida o Comida).");
+        }
+        lector.saltarCampo();
+        String nombre = lector.leerTexto();
+        double precio = lector.leerDecimal();
+        int stock = lector.leerEntero();
+
+        if (esBebida) {
+            if (!lector.hayCampo()) throw new IllegalStateException("Falta el campo 'litros' para la Bebida.");
+            return new Bebida(0, nombre, precio, stock, lector.leerDecimal());
+        }
+        if (esComida) {
+            if (!lector.hayCampo()) throw new IllegalStateException("Falta el campo 'fechaVencimiento' para la Comida.");
+            return new Comida(0, nombre, precio, stock, lector.leerFecha());
+        }
+        return new Producto(0, nombre, precio, stock);
+    }
+
+    private static String motivo(RuntimeException e) {
+        if (e.getMessage() == null) return e.getClass().getSimpleName();
+        String mensaje = e.getMessage().replace("⚠️", "").strip();
+        return e instanceof NumberFormatException ? "Número inválido (" + mensaje + ")." : mensaje;
+    }
+}
@@ -0,0 +1,501 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Producto;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda por nombre para el tipeo anticipado (typeahead).
+ *
+ * Los nombres se parten en palabras normalizadas (minúsculas y sin acentos). El vocabulario
+ * está ordenado, así "co" encuentra "coca" y "cola" con un subMap en O(log n), y cada palabra
+ * guarda los IDs de los productos que la contienen. El vocabulario es mucho más chico que el
+ * catálogo, por eso la búsqueda con errores de tipeo se hace sobre las palabras y recién
+ * después se pasa a los productos. Para eso el vocabulario ordenado se recorre como un trie:
+ * las palabras con un prefijo común comparten las filas de la distancia de edición ya
+ * calculadas, y un prefijo que ya se pasó del máximo de errores se saltea entero.
+ *
+ * Las modificaciones toman el bloqueo de escritura; las búsquedas comparten el de lectura.
+ */
+final class IndiceNombres {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Vocabulario ordenado: palabra → IDs de los productos que la contienen.
+    private final NavigableMap<String, ListaIds> vocabulario = new TreeMap<>();
+    // Cada palabra tiene además un número, para que la evaluación de candidatos compare enteros.
+    private ListaIds[] porNumero = new ListaIds[1024];
+    private final ArrayDeque<Integer> numerosLibres = new ArrayDeque<>();
+    private int siguienteNumero;
+    // Copia del vocabulario en un arreglo para la búsqueda con errores, que lo recorre entero
+    // saltando por prefijos; se descarta cuando aparece o desaparece una palabra.
+    private volatile String[] ordenadas;
+    // Fila de cada producto: [largo del nombre normalizado, número de cada palabra sin repetir].
+    // Los IDs son correlativos, así que van en un arreglo indexado por ID; los que caen lejos
+    // del rango (negativos o muy grandes, de archivos editados a mano) van a un mapa aparte.
+    private int[][] porId = new int[1024][];
+    private final Map<Integer, int[]> porIdDisperso = new HashMap<>();
+    private int cantidad;
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    /** Resultado con su puntaje: menor es mejor, campo por campo. */
+    private record Candidato(int id, int distancia, int noEmpieza, int noExactas, int largo) {
+
+        // Comparación escrita a mano: se llama por cada candidato y una cadena de comparingInt pesa.
+        static int comparar(Candidato a, Candidato b) {
+            if (a.distancia != b.distancia) return Integer.compare(a.distancia, b.distancia);
+            if (a.noEmpieza != b.noEmpieza) return Integer.compare(a.noEmpieza, b.noEmpieza);
+            if (a.noExactas != b.noExactas) return Integer.compare(a.noExactas, b.noExactas);
+            if (a.largo != b.largo) return Integer.compare(a.largo, b.largo);
+            return Integer.compare(a.id, b.id);
+        }
+    }
+
+    /** Palabras que calzan con un token de la consulta, ordenadas por número, con su distancia. */
+    private static final class Coincidencias {
+        final int[] numeros;
+        final int[] distancias;
+        final ListaIds[] listas;
+        final int exacta; // número de la palabra igual al token, o -1
+
+        Coincidencias(Map<String, Integer> porPalabra, String token, NavigableMap<String, ListaIds> vocabulario) {
+            listas = new ListaIds[porPalabra.size()];
+            int i = 0;
+            for (String palabra : porPalabra.keySet()) listas[i++] = vocabulario.get(palabra);
+            Arrays.sort(listas, Comparator.comparingInt(l -> l.numero));
+            numeros = new int[listas.length];
+            distancias = new int[listas.length];
+            for (i = 0; i < listas.length; i++) {
+                numeros[i] = listas[i].numero;
+                distancias[i] = porPalabra.get(listas[i].palabra);
+            }
+            ListaIds igual = vocabulario.get(token);
+            exacta = igual != null ? igual.numero : -1;
+        }
+
+        /** @return La distancia de esa palabra, o -1 si no calza. */
+        int distancia(int numero) {
+            int i = Arrays.binarySearch(numeros, numero);
+            return i >= 0 ? distancias[i] : -1;
+        }
+
+        long totalIds() {
+            long total = 0;
+            for (ListaIds l : listas) total += l.tamanio;
+            return total;
+        }
+    }
+
+    // ==========================================================
+    // 🔹 MANTENIMIENTO
+    // ==========================================================
+
+    /** Indexa el producto con ese nombre, reemplazando el nombre anterior si lo había. */
+    void actualizar(int id, String nombre) {
+        String[] nuevas = palabras(nombre);
+        bloqueo.writeLock().lock();
+        try {
+            indexar(id, nuevas);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Como {@link #actualizar} para muchos productos: las palabras (la normalización, que es lo
+     * más caro) se calculan en paralelo y el bloqueo de escritura se toma una sola vez.
+     */
+    void actualizarTodos(List<Producto> productos) {
+        String[][] nuevas = productos.parallelStream().map(p -> palabras(p.getNombre())).toArray(String[][]::new);
+        bloqueo.writeLock().lock();
+        try {
+            for (int i = 0; i < nuevas.length; i++) indexar(productos.get(i).getId(), nuevas[i]);
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    // Se llama con el bloqueo de escritura.
+    private void indexar(int id, String[] nuevas) {
+        int[] vieja = filaDe(id);
+        if (vieja != null) {
+            if (mismasPalabras(vieja, nuevas)) return;
+            desindexar(id, vieja);
+        }
+        int[] fila = new int[nuevas.length + 1];
+        fila[0] = Math.max(0, nuevas.length - 1); // separadores
+        for (int i = 0; i < nuevas.length; i++) {
+            ListaIds ids = vocabulario.get(nuevas[i]);
+            if (ids == null) {
+                ids = new ListaIds(nuevas[i], asignarNumero());
+                vocabulario.put(nuevas[i], ids);
+                porNumero[ids.numero] = ids;
+                ordenadas = null;
+            }
+            ids.agregar(id);
+            fila[0] += nuevas[i].length();
+            fila[i + 1] = ids.numero;
+        }
+        guardar(id, fila);
+    }
+
+    void quitar(int id) {
+        bloqueo.writeLock().lock();
+        try {
+            int[] vieja = filaDe(id);
+            if (vieja != null) {
+                desindexar(id, vieja);
+                guardar(id, null);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    void limpiar() {
+        bloqueo.writeLock().lock();
+        try {
+            vocabulario.clear();
+            porNumero = new ListaIds[1024];
+            numerosLibres.clear();
+            siguienteNumero = 0;
+            ordenadas = null;
+            porId = new int[1024][];
+            porIdDisperso.clear();
+            cantidad = 0;
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    private boolean mismasPalabras(int[] fila, String[] palabras) {
+        if (fila.length != palabras.length + 1) return false;
+        for (int i = 0; i < palabras.length; i++) {
+            if (!porNumero[fila[i + 1]].palabra.equals(palabras[i])) return false;
+        }
+        return true;
+    }
+
+    private int asignarNumero() {
+        if (!numerosLibres.isEmpty()) return numerosLibres.pop();
+        if (siguienteNumero == porNumero.length) porNumero = Arrays.copyOf(porNumero, porNumero.length * 2);
+        return siguienteNumero++;
+    }
+
+    private void desindexar(int id, int[] fila) {
+        for (int i = 1; i < fila.length; i++) {
+            ListaIds ids = porNumero[fila[i]];
+            ids.quitar(id);
+            if (ids.tamanio == 0) {
+                vocabulario.remove(ids.palabra);
+                porNumero[ids.numero] = null;
+                numerosLibres.push(ids.numero);
+                ordenadas = null;
+            }
+        }
+    }
+
+    private int[] filaDe(int id) {
+        if (id >= 0 && id < porId.length && porId[id] != null) return porId[id];
+        return porIdDisperso.isEmpty() ? null : porIdDisperso.get(id);
+    }
+
+    // fila = null quita el ID.
+    private void guardar(int id, int[] fila) {
+        int[] anterior;
+        if (id >= 0 && id < Math.max(porId.length, 2 * cantidad + 1024)) {
+            if (id >= porId.length) porId = Arrays.copyOf(porId, Math.max(id + 1, porId.length * 2));
+            anterior = porId[id];
+            porId[id] = fila;
+            if (anterior == null) anterior = porIdDisperso.remove(id);
+        } else {
+            anterior = fila == null ? porIdDisperso.remove(id) : porIdDisperso.put(id, fila);
+        }
+        if (anterior == null && fila != null) cantidad++;
+        if (anterior != null && fila == null) cantidad--;
+    }
+
+    // ==========================================================
+    // 🔹 BÚSQUEDAS
+    // ==========================================================
+
+    /**
+     * Productos en los que cada palabra del texto es el comienzo de alguna palabra del nombre
+     * ("coca co" → "Coca Cola 500"). Primero los que empiezan con el texto, luego los que tienen
+     * más palabras completas iguales y los nombres más cortos.
+     * @return Hasta k IDs, el mejor primero.
+     */
+    int[] buscarPorPrefijo(String texto, int k) {
+        String[] consulta = palabras(texto);
+        if (consulta.length == 0 || k <= 0) return new int[0];
+        bloqueo.readLock().lock();
+        try {
+            Coincidencias[] coincidencias = new Coincidencias[consulta.length];
+            for (int i = 0; i < consulta.length; i++) {
+                Map<String, Integer> porPalabra = new HashMap<>();
+                for (String palabra : conPrefijo(consulta[i]).keySet()) porPalabra.put(palabra, 0);
+                coincidencias[i] = new Coincidencias(porPalabra, consulta[i], vocabulario);
+            }
+            return mejores(coincidencias, k);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Como {@link #buscarPorPrefijo}, pero tolera errores de tipeo: hasta 1 letra en palabras de
+     * 3 a 5 letras y hasta 2 en las más largas (cambio, falta, sobra o dos letras invertidas).
+     * La última palabra se compara contra el comienzo de cada palabra del nombre, porque
+     * todavía se está escribiendo. Los resultados con menos errores van primero.
+     */
+    int[] buscarAproximado(String texto, int k) {
+        String[] consulta = palabras(texto);
+        if (consulta.length == 0 || k <= 0) return new int[0];
+        bloqueo.readLock().lock();
+        try {
+            Coincidencias[] coincidencias = new Coincidencias[consulta.length];
+            for (int i = 0; i < consulta.length; i++) {
+                Map<String, Integer> porPalabra = parecidas(consulta[i], i == consulta.length - 1);
+                coincidencias[i] = new Coincidencias(porPalabra, consulta[i], vocabulario);
+            }
+            return mejores(coincidencias, k);
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    private SortedMap<String, ListaIds> conPrefijo(String prefijo) {
+        return vocabulario.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Palabras del vocabulario a distancia tolerable del token → distancia. La distancia es de
+     * edición con transposiciones (Damerau restringida); con esPrefijo se mide contra el
+     * comienzo de la palabra que mejor calce.
+     *
+     * La fila p de la tabla corresponde a las primeras p letras de la palabra, así dos palabras
+     * consecutivas del vocabulario ordenado comparten las filas de su prefijo común. Si una fila
+     * entera supera el máximo, ninguna palabra con ese prefijo puede bajar del máximo y se salta
+     * al primer término que ya no lo tiene.
+     */
+    private Map<String, Integer> parecidas(String token, boolean esPrefijo) {
+        int maximo = token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2;
+        Map<String, Integer> resultado = new HashMap<>();
+        if (maximo == 0) {
+            if (esPrefijo) {
+                for (String palabra : conPrefijo(token).keySet()) resultado.put(palabra, 0);
+            } else if (vocabulario.containsKey(token)) {
+                resultado.put(token, 0);
+            }
+            return resultado;
+        }
+        int n = token.length();
+        int limite = maximo + 1;
+
+        // filas[p][j]: distancia entre las p primeras letras de la palabra y las j primeras del token.
+        // mejorPrefijo[p]: mejor filas[q][n] con q <= p (la palabra como prefijo).
+        // Solo se calcula la franja a distancia maximo de la diagonal; el resto queda en limite.
+        int[][] filas = new int[n + maximo + 2][n + 2];
+        for (int[] fila : filas) Arrays.fill(fila, limite);
+        int[] mejorPrefijo = new int[n + maximo + 2];
+        for (int j = 0; j <= Math.min(n, maximo); j++) filas[0][j] = j;
+        mejorPrefijo[0] = filas[0][n];
+
+        String[] palabras = vocabularioOrdenado();
+        String anterior = "";
+        int calculadas = 0; // filas válidas para el camino de "anterior"
+        int i = 0;
+        while (i < palabras.length) {
+            String palabra = palabras[i];
+            int p = Math.min(prefijoComun(anterior, palabra), calculadas);
+            boolean podada = false;
+            while (p < palabra.length()) {
+                p++;
+                if (p >= filas.length) {
+                    podada = true; // más de n + maximo letras: el resto de la palabra ya no cuenta
+                    break;
+                }
+                int minimoFila = calcularFila(filas, p, palabra, token, maximo);
+                mejorPrefijo[p] = Math.min(mejorPrefijo[p - 1], filas[p][n]);
+                if (minimoFila > maximo) {
+                    podada = true;
+                    break;
+                }
+            }
+            calculadas = podada ? p - 1 : p;
+            anterior = palabra;
+            if (podada) {
+                // Ninguna palabra que empiece con palabra[0..p) mejora la fila p.
+                // Los subárboles podados suelen ser chicos: se avanza de a una palabra.
+                int fin = i + 1;
+                while (fin < palabras.length && palabras[fin].regionMatches(0, palabra, 0, p)) fin++;
+                if (esPrefijo && mejorPrefijo[p - 1] <= maximo) {
+                    for (int k = i; k < fin; k++) resultado.put(palabras[k], mejorPrefijo[p - 1]);
+                }
+                i = fin;
+            } else {
+                int d = esPrefijo ? mejorPrefijo[p] : filas[p][n];
+                if (d <= maximo) resultado.put(palabra, d);
+                i++;
+            }
+        }
+        return resultado;
+    }
+
+    // Se llama con el bloqueo de lectura: el vocabulario no cambia mientras se arma la copia.
+    private String[] vocabularioOrdenado() {
+        String[] copia = ordenadas;
+        if (copia == null) {
+            copia = vocabulario.keySet().toArray(new String[0]);
+            ordenadas = copia;
+        }
+        return copia;
+    }
+
+    // Calcula la franja de la fila p a partir de las dos anteriores y devuelve su mínimo.
+    private static int calcularFila(int[][] filas, int p, String palabra, String token, int maximo) {
+        int[] fila = filas[p];
+        int[] previa = filas[p - 1];
+        char c = palabra.charAt(p - 1);
+        int desde = Math.max(1, p - maximo);
+        int hasta = Math.min(token.length(), p + maximo);
+        if (desde == 1) fila[0] = p; // dentro de la franja solo mientras p <= maximo
+        int minimo = desde == 1 ? p : maximo + 1;
+        for (int j = desde; j <= hasta; j++) {
+            char t = token.charAt(j - 1);
+            int v = Math.min(Math.min(previa[j] + 1, fila[j - 1] + 1), previa[j - 1] + (c == t ? 0 : 1));
+            if (p > 1 && j > 1 && c == token.charAt(j - 2) && palabra.charAt(p - 2) == t) {
+                v = Math.min(v, filas[p - 2][j - 2] + 1);
+            }
+            fila[j] = Math.min(v, maximo + 1);
+            minimo = Math.min(minimo, fila[j]);
+        }
+        return minimo;
+    }
+
+    private static int prefijoComun(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    /**
+     * Recorre los productos del token más selectivo (el de menos IDs en total) y se queda con
+     * los k mejores de los que además coinciden con todos los otros tokens.
+     */
+    private int[] mejores(Coincidencias[] coincidencias, int k) {
+        int guia = -1;
+        long menor = Long.MAX_VALUE;
+        for (int i = 0; i < coincidencias.length; i++) {
+            long total = coincidencias[i].totalIds();
+            if (total == 0) return new int[0];
+            if (total < menor) {
+                menor = total;
+                guia = i;
+            }
+        }
+
+        PriorityQueue<Candidato> peores = new PriorityQueue<>(k + 1, (a, b) -> Candidato.comparar(b, a));
+        Coincidencias delGuia = coincidencias[guia];
+        for (ListaIds ids : delGuia.listas) {
+            for (int j = 0; j < ids.tamanio; j++) {
+                int id = ids.ids[j];
+                int[] fila = filaDe(id);
+                // Un producto con varias palabras del token guía se evalúa una sola vez: desde la primera.
+                if (primeraCoincidencia(fila, delGuia) != ids.numero) continue;
+                Candidato c = evaluar(id, fila, coincidencias);
+                if (c == null) continue;
+                peores.add(c);
+                if (peores.size() > k) peores.poll();
+            }
+        }
+        int[] resultado = new int[peores.size()];
+        for (int i = resultado.length - 1; i >= 0; i--) {
+            resultado[i] = peores.poll().id();
+        }
+        return resultado;
+    }
+
+    private static int primeraCoincidencia(int[] fila, Coincidencias coincidencias) {
+        for (int i = 1; i < fila.length; i++) {
+            if (coincidencias.distancia(fila[i]) >= 0) return fila[i];
+        }
+        return -1;
+    }
+
+    // null si algún token no coincide con ninguna palabra del producto.
+    private static Candidato evaluar(int id, int[] fila, Coincidencias[] coincidencias) {
+        // Cada token se asigna a la mejor palabra todavía libre ("coca co" no calza con "Coca" sola).
+        boolean[] usadas = new boolean[fila.length];
+        int distancia = 0;
+        int exactas = 0;
+        for (Coincidencias c : coincidencias) {
+            int mejor = Integer.MAX_VALUE;
+            int elegida = -1;
+            for (int j = 1; j < fila.length; j++) {
+                if (usadas[j]) continue;
+                int d = c.distancia(fila[j]);
+                if (d >= 0 && d < mejor) {
+                    mejor = d;
+                    elegida = j;
+                }
+            }
+            if (elegida < 0) return null;
+            usadas[elegida] = true;
+            distancia += mejor;
+            if (fila[elegida] == c.exacta) exactas++;
+        }
+        int noEmpieza = fila.length > 1 && coincidencias[0].distancia(fila[1]) >= 0 ? 0 : 1;
+        return new Candidato(id, distancia, noEmpieza, coincidencias.length - exactas, fila[0]);
+    }
+
+    // ==========================================================
+    // 🔹 NORMALIZACIÓN Y DISTANCIA
+    // ==========================================================
+
+    /** Palabras del nombre en minúsculas, sin acentos y sin repetir, en orden de aparición. */
+    static String[] palabras(String nombre) {
+        if (nombre == null) return new String[0];
+        String plano = MARCAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD)).replaceAll("");
+        LinkedHashSet<String> resultado = new LinkedHashSet<>();
+        for (String p : SEPARADORES.split(plano.toLowerCase(Locale.ROOT))) {
+            if (!p.isEmpty()) resultado.add(p);
+        }
+        return resultado.toArray(new String[0]);
+    }
+
+    /** IDs ordenados de una palabra; los IDs crecientes (lo habitual) se agregan al final. */
+    private static final class ListaIds {
+        final String palabra;
+        final int numero;
+        int[] ids = new int[2];
+        int tamanio;
+
+        ListaIds(String palabra, int numero) {
+            this.palabra = palabra;
+            this.numero = numero;
+        }
+
+        void agregar(int id) {
+            int pos = tamanio == 0 || ids[tamanio - 1] < id ? tamanio : Arrays.binarySearch(ids, 0, tamanio, id);
+            if (pos >= 0 && pos < tamanio) return; // ya estaba
+            if (pos < 0) pos = -pos - 1;
+            if (tamanio == ids.length) ids = Arrays.copyOf(ids, tamanio * 2);
+            System.arraycopy(ids, pos, ids, pos + 1, tamanio - pos);
+            ids[pos] = id;
+            tamanio++;
+        }
+
+        void quitar(int id) {
+            int pos = Arrays.binarySearch(ids, 0, tamanio, id);
+            if (pos < 0) return;
+            System.arraycopy(ids, pos + 1, ids, pos, tamanio - pos - 1);
+            tamanio--;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice invertido producto → pedidos de los pedidos en memoria: por cada producto, los IDs de
+ * los pedidos que lo incluyen, ordenados, así que buscar los pedidos de un producto no recorre
+ * líneas: es una búsqueda binaria en su lista. Los archivados tienen su propio índice en cada
+ * segmento (ver {@link ArchivoPedidos}).
+ *
+ * Las listas son arreglos de int que crecen al doble; se agregan con el monitor de la lista y
+ * se leen sin bloqueos.
+ */
+final class IndicePedidosPorProducto {
+
+    /** IDs de pedidos de un producto, en orden. */
+    private static final class Lista {
+        // Se publica primero el arreglo y después el tamaño: quien lee el tamaño ve esos IDs.
+        private volatile int[] ids = new int[4];
+        private volatile int tamanio;
+
+        synchronized void agregar(int idPedido) {
+            int n = tamanio;
+            int[] actual = ids;
+            if (n == 0 || actual[n - 1] < idPedido) {
+                if (n == actual.length) actual = Arrays.copyOf(actual, n * 2);
+                actual[n] = idPedido;
+                ids = actual;
+                tamanio = n + 1;
+                return;
+            }
+            // Fuera de orden (dos pedidos del producto registrados en paralelo): se inserta en una
+            // copia, así quien lee nunca ve el corrimiento a medias.
+            int i = Arrays.binarySearch(actual, 0, n, idPedido);
+            if (i >= 0) return;
+            i = -i - 1;
+            int[] nuevo = new int[n == actual.length ? n * 2 : actual.length];
+            System.arraycopy(actual, 0, nuevo, 0, i);
+            nuevo[i] = idPedido;
+            System.arraycopy(actual, i, nuevo, i + 1, n - i);
+            ids = nuevo;
+            tamanio = n + 1;
+        }
+
+        // Quita los IDs menores o iguales a idPedido, que están al principio.
+        synchronized void quitarHasta(int idPedido) {
+            int n = tamanio;
+            int[] actual = ids;
+            int i = Arrays.binarySearch(actual, 0, n, idPedido);
+            i = i >= 0 ? i + 1 : -i - 1;
+            if (i == 0) return;
+            int[] nuevo = new int[Math.max(4, Integer.highestOneBit(Math.max(1, n - i)) * 2)];
+            System.arraycopy(actual, i, nuevo, 0, n - i);
+            ids = nuevo;
+            tamanio = n - i;
+        }
+    }
+
+    private final Map<Integer, Lista> porProducto = new ConcurrentHashMap<>();
+
+    /** Agrega el pedido a la lista de cada producto distinto de sus líneas. */
+    void registrar(Pedido pedido) {
+        for (LineaPedido linea : pedido.getLineas()) {
+            porProducto.computeIfAbsent(linea.getProducto().getId(), id -> new Lista()).agregar(pedido.getId());
+        }
+    }
+
+    /**
+     * Quita de todas las listas los pedidos con ID menor o igual a idPedido (los que pasaron al
+     * archivo). Los IDs que quedan se corren al principio y el tamaño baja: no debe correr junto
+     * con {@link #pedidos} ni {@link #cantidad}; PedidoService lo llama con el bloqueo de
+     * archivado exclusivo.
+     */
+    void quitarHasta(int idPedido) {
+        for (Lista lista : porProducto.values()) {
+            lista.quitarHasta(idPedido);
+        }
+    }
+
+    void limpiar() {
+        porProducto.clear();
+    }
+
+    int cantidad(int idProducto) {
+        Lista lista = porProducto.get(idProducto);
+        return lista == null ? 0 : lista.tamanio;
+    }
+
+    /** Hasta max IDs de pedidos del producto con ID mayor o igual a desde, en orden. */
+    int[] pedidos(int idProducto, int desde, int max) {
+        Lista lista = porProducto.get(idProducto);
+        if (lista == null) return new int[0];
+        int n = lista.tamanio;
+        int[] ids = lista.ids;
+        int i = Arrays.binarySearch(ids, 0, n, desde);
+        if (i < 0) i = -i - 1;
+        return Arrays.copyOfRange(ids, i, i + Math.min(max, n - i));
+    }
+}
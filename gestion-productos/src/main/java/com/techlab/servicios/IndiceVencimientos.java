@@ -0,0 +1,89 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntFunction;
+
+/**
+ * Índice de comidas ordenado por fecha de vencimiento. Cada entrada es un long con el día
+ * (epoch day) en los 32 bits altos y el ID en los bajos, así el orden natural es por fecha
+ * y después por ID, y un rango de fechas es un subSet en O(log n).
+ * Se guarda el ID y no el objeto: ProductoStore entrega vistas que no conservan identidad.
+ */
+final class IndiceVencimientos {
+
+    private final NavigableSet<Long> entradas = new ConcurrentSkipListSet<>();
+    // Día indexado de cada ID, para quitar la entrada aunque el producto ya haya cambiado.
+    private final Map<Integer, Long> porId = new ConcurrentHashMap<>();
+
+    /** Indexa (o reindexa) el producto si es una comida; si no, lo quita del índice. */
+    void actualizar(Producto p) {
+        if (!(p instanceof Comida c)) {
+            quitar(p.getId());
+            return;
+        }
+        long clave = clave(c.getFechaVencimiento().toEpochDay(), c.getId());
+        Long anterior = porId.put(c.getId(), clave);
+        if (anterior != null && anterior != clave) entradas.remove(anterior);
+        entradas.add(clave);
+    }
+
+    void quitar(int id) {
+        Long anterior = porId.remove(id);
+        if (anterior != null) entradas.remove(anterior);
+    }
+
+    void limpiar() {
+        entradas.clear();
+        porId.clear();
+    }
+
+    int tamanio() {
+        return porId.size();
+    }
+
+    /**
+     * Comidas que vencen entre las dos fechas (inclusive), de la más próxima a la más lejana.
+     * @param buscar Resuelve un ID a su producto actual (el catálogo).
+     */
+    List<Producto> entre(LocalDate desde, LocalDate hasta, IntFunction<Producto> buscar) {
+        if (desde.isAfter(hasta)) return new ArrayList<>();
+        long inicio = clave(desde.toEpochDay(), Integer.MIN_VALUE);
+        long fin = clave(hasta.toEpochDay(), Integer.MAX_VALUE);
+        return resolver(entradas.subSet(inicio, true, fin, true), buscar);
+    }
+
+    /** Comidas que vencen antes de la fecha (sin incluirla), de la más antigua a la más reciente. */
+    List<Producto> antesDe(LocalDate fecha, IntFunction<Producto> buscar) {
+        return resolver(entradas.headSet(clave(fecha.toEpochDay(), Integer.MIN_VALUE), false), buscar);
+    }
+
+    private static List<Producto> resolver(Set<Long> claves, IntFunction<Producto> buscar) {
+        List<Producto> resultado = new ArrayList<>();
+        for (long clave : claves) {
+            Producto p = buscar.apply(idDe(clave));
+            if (p != null) resultado.add(p);
+        }
+        return resultado;
+    }
+
+    // El ID se guarda con el bit de signo invertido: así MIN_VALUE..MAX_VALUE cubre todo el día.
+    // El día se acota al rango de int (±5 millones de años) para que el desplazamiento no desborde.
+    private static long clave(long epochDay, int id) {
+        long dia = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
+        return (dia << 32) | ((id ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    private static int idDe(long clave) {
+        return (int) clave ^ Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,67 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Producto;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Vista de solo lectura del catálogo en un momento dado. No bloquea a los pedidos ni se ve
+ * afectada por ellos: cada producto se lee tal como estaba al abrirla, aunque después cambie
+ * o se borre. Los productos que entrega son copias; modificarlos no cambia el catálogo.
+ *
+ * Mientras está abierta se conservan las versiones que necesita, así que conviene cerrarla
+ * (try-with-resources) apenas se termina de leer.
+ */
+public final class Instantanea implements AutoCloseable {
+
+    static final long SIN_FIJAR = Long.MIN_VALUE;
+
+    private final VersionesCatalogo versiones;
+    private final VersionesCatalogo.Tabla tabla;
+    private volatile long sello = SIN_FIJAR;
+
+    Instantanea(VersionesCatalogo versiones, VersionesCatalogo.Tabla tabla) {
+        this.versiones = versiones;
+        this.tabla = tabla;
+    }
+
+    void fijar(long sello) {
+        this.sello = sello;
+    }
+
+    // Mientras no se fijó, la instantánea retiene todas las versiones (ver VersionesCatalogo.piso).
+    long selloFijado() {
+        return sello;
+    }
+
+    /** Momento que ve la instantánea; dos instantáneas con el mismo sello ven lo mismo. */
+    public long sello() {
+        return sello;
+    }
+
+    public Optional<Producto> buscarPorId(int id) {
+        VersionesCatalogo.Cadena cadena = tabla.porId.get(id);
+        return Optional.ofNullable(cadena == null ? null : cadena.estadoEn(sello));
+    }
+
+    /** Productos en orden de alta. */
+    public List<Producto> listar() {
+        return stream().toList();
+    }
+
+    /** Productos en orden de alta, copiados de a uno a medida que se consumen. */
+    public Stream<Producto> stream() {
+        long s = sello;
+        return tabla.porPosicion.values().stream()
+                .map(cadena -> cadena.estadoEn(s))
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public void close() {
+        versiones.cerrar(this);
+    }
+}
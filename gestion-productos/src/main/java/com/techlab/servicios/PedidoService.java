@@ -1,19 +1,82 @@
 package com.techlab.servicios;
 
 import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.metricas.Contador;
+import com.techlab.metricas.Metricas;
+import com.techlab.metricas.Operacion;
+import com.techlab.persistencia.GeneradorIds;
+import com.techlab.persistencia.Journal;
+import com.techlab.persistencia.SegmentoPedidos;
+import com.techlab.persistencia.SnapshotBinario;
 import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
 import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.ResultadoPedido;
 import com.techlab.productos.Producto;
 import com.techlab.util.ArchivoUtil;
+import com.techlab.util.Dinero;
+import com.techlab.util.EscritorCampos;
+import com.techlab.util.LectorCampos;
+import com.techlab.util.Pagina;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Pedidos: creación (de a uno o por lote), consultas y persistencia.
+ *
+ * Los pedidos recientes están en memoria; los más viejos se archivan en segmentos comprimidos
+ * ({@link ArchivoPedidos}) y se leen del disco cuando alguien los busca o los pagina. Así el
+ * arranque y el heap dependen de la ventana de pedidos recientes ({@link #VENTANA_PEDIDOS}),
+ * no de toda la historia.
+ */
 public class PedidoService {
 
-    private static final String RUTA_PEDIDOS = "data/pedidos.txt";
-    private final List<Pedido> pedidos = new ArrayList<>();
-    private int nextId = 1;
+    /**
+     * Pedidos recientes que quedan en memoria (-Dtechlab.pedidos.ventana): se archivan los que
+     * están al menos esta cantidad de IDs por detrás del último asignado.
+     */
+    public static final int VENTANA_PEDIDOS = Math.max(1, Integer.getInteger("techlab.pedidos.ventana", 100_000));
+    /** Pedidos por segmento del archivo (-Dtechlab.pedidos.segmento); se archiva de a un segmento completo. */
+    public static final int PEDIDOS_POR_SEGMENTO = Math.max(1, Integer.getInteger("techlab.pedidos.segmento", 65_536));
+
+    private static final String RUTA_PEDIDOS = ArchivoUtil.DIRECTORIO_DATOS + "/pedidos.txt";
+    private static final String RUTA_SNAPSHOT = ArchivoUtil.DIRECTORIO_DATOS + "/pedidos.bin";
+    private static final String RUTA_ARCHIVO = ArchivoUtil.DIRECTORIO_DATOS + "/pedidos-archivo";
+    private static final String RUTA_IDS = ArchivoUtil.DIRECTORIO_DATOS + "/pedidos.ids";
+    private static final int BLOQUE_IDS = 65536;
+    private static final char CURSOR_PEDIDOS = 'o';
+    // Formato de pedidos.txt: la primera línea indica la versión; un archivo sin cabecera es v1.
+    private static final String CABECERA_V2 = "#v2";
+    private static final String REGISTRO_PEDIDO = "O2;";
+    private static final String REGISTRO_PEDIDO_V1 = "O;"; // sin precio unitario; solo se reproduce
+    private static final int PAGINA_RECORRIDO = 4096;
+    // Pedidos en memoria (los no archivados), por ID. Seguro para hilos: varios pedidos pueden
+    // crearse en paralelo. Ordenado, para paginar por ID sin recorrer los pedidos anteriores.
+    private final ConcurrentNavigableMap<Integer, Pedido> pedidosPorId = new ConcurrentSkipListMap<>();
+    private final ArchivoPedidos archivo;
+    // Las páginas leen el archivo y después los pedidos en memoria: el archivado (publicar un
+    // segmento y quitar sus pedidos de memoria) no debe ocurrir entre las dos lecturas.
+    private final ReadWriteLock archivado = new ReentrantReadWriteLock();
+    // Producto → IDs de sus pedidos en memoria; los de los archivados están en cada segmento.
+    private final IndicePedidosPorProducto pedidosPorProducto = new IndicePedidosPorProducto();
+    // Totales de ventas para los reportes (AnaliticaService); se actualizan al registrar cada pedido.
+    private final AgregadosVentas ventas = new AgregadosVentas();
+    // IDs de pedidos: por bloques, seguros entre hilos y nunca reutilizados (ver GeneradorIds).
+    private final GeneradorIds ids = new GeneradorIds(BLOQUE_IDS, Integer.MAX_VALUE);
+    // Crece con cada pedido registrado (ver generacion()).
+    private final AtomicLong generacion = new AtomicLong();
+    private volatile Journal journal;
+    private volatile boolean confirmacionDiferida;
 
     private final ProductoService productoService;
 
@@ -22,116 +85,830 @@ public class PedidoService {
             throw new IllegalArgumentException("El servicio de productos no puede ser nulo.");
         }
         this.productoService = productoService;
+        this.archivo = new ArchivoPedidos(Paths.get(RUTA_ARCHIVO), id -> productoService.buscarPorId(id).orElse(null));
     }
 
     /**
      * Crea un nuevo pedido a partir de una lista de líneas, valida el stock y lo descuenta.
+     * Es seguro llamarlo desde varios hilos: la reserva de stock de todas las líneas es atómica.
      * @param lineas Lista de líneas de pedido a incluir.
      * @return El Pedido creado.
      * @throws StockInsuficienteException Si el stock es menor a la cantidad solicitada.
+     * @throws IllegalArgumentException Si una línea no tiene producto o pide una cantidad menor a 1.
      */
     public Pedido crearPedido(List<LineaPedido> lineas) throws StockInsuficienteException {
-        // Lógica atómica: valida y descuenta stock.
-        validarYDescontarStock(lineas);
+        long inicio = Metricas.inicio();
+        try {
+            // El ID se toma con los bloqueos de stock: si hace falta un bloque nuevo de IDs, su
+            // fsync ocurre acá, sin bloqueos.
+            ids.anticipar(1);
+            // Lógica atómica: valida y descuenta stock; el pedido se registra con los bloqueos tomados.
+            Pedido pedido = validarYDescontarStock(lineas, () -> registrarPedido(lineas));
 
-        Pedido pedido = new Pedido(nextId++);
+            // El pedido se confirma recién cuando su registro está en disco.
+            esperarJournal();
+            return pedido;
+        } finally {
+            Operacion.CREAR_PEDIDO.registrar(inicio);
+        }
+    }
+
+    private Pedido registrarPedido(List<LineaPedido> lineas) {
+        Pedido pedido = new Pedido((int) ids.siguiente());
 
         for (LineaPedido linea : lineas) {
             pedido.agregarLinea(linea);
         }
 
-        pedidos.add(pedido);
+        // Al journal antes de registrarlo: si falla, el pedido no existe y el stock se restituye
+        // (ver ProductoService.descontarStock).
+        anotar(pedido);
+        registrar(pedido);
         return pedido;
     }
 
-    private void validarYDescontarStock(List<LineaPedido> lineas) throws StockInsuficienteException {
-        // 1. Fase de Validación:
+    // Con los bloqueos de stock de los productos del pedido tomados (o durante la recuperación).
+    private void registrar(Pedido pedido) {
+        pedidosPorId.put(pedido.getId(), pedido);
+        pedidosPorProducto.registrar(pedido);
+        ventas.registrar(pedido);
+        generacion.incrementAndGet();
+    }
+
+    private <T> T validarYDescontarStock(List<LineaPedido> lineas, Supplier<T> confirmacion)
+            throws StockInsuficienteException {
+        // 1. Se agrupan las cantidades por producto.
+        Map<Producto, Integer> cantidades = agruparPorProducto(lineas);
+
+        // 2. Validación y descuento atómicos bajo los bloqueos de los productos involucrados.
+        return productoService.descontarStock(cantidades, confirmacion);
+    }
+
+    /**
+     * Cantidad total por producto (por identidad: equals compara nombre y precio), así un
+     * producto repetido en varias líneas se valida por su total. Con un ProductoStore el mismo
+     * producto puede llegar como vistas distintas: se usa una por ID.
+     * @throws IllegalArgumentException Si una línea no tiene producto o pide una cantidad menor a 1.
+     */
+    static Map<Producto, Integer> agruparPorProducto(List<LineaPedido> lineas) {
+        Map<Integer, Producto> porId = new HashMap<>();
+        Map<Producto, Integer> cantidades = new IdentityHashMap<>();
         for (LineaPedido linea : lineas) {
             Producto p = linea.getProducto();
             if (p == null) {
                 throw new IllegalArgumentException("Línea de pedido contiene un producto nulo.");
             }
-            if (linea.getCantidad() > p.getStock()) {
-                throw new StockInsuficienteException(
-                        "Stock insuficiente para el producto: " + p.getNombre() +
-                                ". Disponible: " + p.getStock() + ", Solicitado: " + linea.getCantidad());
+            // Como en los lotes: cada línea por separado, así una negativa no se compensa con otra.
+            if (linea.getCantidad() <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto: " + p.getNombre());
             }
+            p = porId.computeIfAbsent(p.getId(), id -> linea.getProducto());
+            cantidades.merge(p, linea.getCantidad(), Integer::sum);
         }
+        return cantidades;
+    }
 
-        // 2. Fase de Descuento (Solo si la validación fue exitosa para *todos*):
-        for (LineaPedido linea : lineas) {
-            Producto p = linea.getProducto();
-            p.setStock(p.getStock() - linea.getCantidad());
+    /**
+     * Crea el pedido de una reserva que se confirma (ver ReservaService): las cantidades ya
+     * estaban retenidas y se descuentan del stock a la vez que se liberan.
+     * @param cantidades Las de {@link #agruparPorProducto(List)} para esas líneas.
+     * @throws StockInsuficienteException Si el stock quedó por debajo de lo reservado.
+     */
+    Pedido crearPedidoReservado(List<LineaPedido> lineas, Map<Producto, Integer> cantidades)
+            throws StockInsuficienteException {
+        ids.anticipar(1);
+        Pedido pedido = productoService.descontarReservado(cantidades, () -> registrarPedido(lineas));
+        esperarJournal();
+        return pedido;
+    }
+
+    // ==========================================================
+    // 🔹 PEDIDOS POR LOTE
+    // ==========================================================
+
+    /**
+     * Crea muchos pedidos de una vez. Las cantidades se agrupan por producto, los bloqueos de
+     * todos los productos del lote se toman una sola vez, el stock de cada producto se lee y se
+     * escribe una sola vez, los IDs se asignan en un bloque consecutivo y todo el lote se
+     * confirma con un único fsync del journal.
+     * @param solicitudes Líneas de cada pedido, en el orden en que deben atenderse.
+     * @param modo TODO_O_NADA: si un pedido falla no se crea ninguno.
+     *             MEJOR_ESFUERZO: se crean, en orden, los que alcancen con el stock restante.
+     * @return Un resultado por solicitud, en el mismo orden.
+     */
+    public List<ResultadoPedido> crearPedidos(List<List<LineaPedido>> solicitudes, ModoLote modo) {
+        long inicio = Metricas.inicio();
+        try {
+            return crearLote(solicitudes, modo);
+        } finally {
+            Operacion.CREAR_PEDIDOS_LOTE.registrar(inicio);
+        }
+    }
+
+    private List<ResultadoPedido> crearLote(List<List<LineaPedido>> solicitudes, ModoLote modo) {
+        Lote lote = new Lote(solicitudes);
+        boolean hayInvalidos = false;
+        for (int k = 0; k < solicitudes.size(); k++) {
+            String error = lote.agrupar(k);
+            if (error != null) {
+                lote.resultados[k] = ResultadoPedido.rechazado(error);
+                hayInvalidos = true;
+            }
+        }
+        if (hayInvalidos && modo == ModoLote.TODO_O_NADA) {
+            lote.rechazarRestantes("Lote rechazado: otro pedido del lote es inválido.");
+        } else if (!lote.productos.isEmpty()) {
+            ids.anticipar(solicitudes.size());
+            productoService.conBloqueosDeStock(lote.productos, () -> {
+                aplicarLote(lote, modo);
+                return null;
+            });
+            // Un solo group commit para todo el lote, ya sin bloqueos.
+            esperarJournal();
+        }
+        return Arrays.asList(lote.resultados);
+    }
+
+    // Se ejecuta con los bloqueos de todos los productos del lote tomados.
+    private void aplicarLote(Lote lote, ModoLote modo) {
+        int m = lote.productos.size();
+        int[] inicial = new int[m];
+        for (int i = 0; i < m; i++) {
+            inicial[i] = lote.productos.get(i).getStock();
+        }
+
+        // 1. Decisión: qué pedidos se aceptan, descontando sobre una copia local del disponible
+        //    (el stock menos lo retenido por reservas).
+        int[] disponible = new int[m];
+        for (int i = 0; i < m; i++) {
+            disponible[i] = productoService.disponible(lote.productos.get(i));
+        }
+        if (modo == ModoLote.TODO_O_NADA) {
+            long[] total = new long[m];
+            for (int k = 0; k < lote.cantidad(); k++) {
+                for (int j = 0; j < lote.indices[k].length; j++) {
+                    total[lote.indices[k][j]] += lote.cantidades[k][j];
+                }
+            }
+            for (int i = 0; i < m; i++) {
+                if (total[i] > disponible[i]) {
+                    Contador.STOCK_INSUFICIENTE.incrementar();
+                    lote.rechazarConProducto(i, mensajeStock(lote.productos.get(i), disponible[i], total[i]));
+                }
+            }
+            if (lote.hayRechazos()) {
+                lote.rechazarRestantes("Lote rechazado: otro pedido del lote no tiene stock suficiente.");
+                return;
+            }
+        }
+        int aceptados = 0;
+        for (int k = 0; k < lote.cantidad(); k++) {
+            if (lote.resultados[k] != null) continue;
+            String error = null;
+            for (int j = 0; j < lote.indices[k].length && error == null; j++) {
+                int i = lote.indices[k][j];
+                if (lote.cantidades[k][j] > disponible[i]) {
+                    error = mensajeStock(lote.productos.get(i), disponible[i], lote.cantidades[k][j]);
+                }
+            }
+            if (error != null) {
+                Contador.STOCK_INSUFICIENTE.incrementar();
+                lote.resultados[k] = ResultadoPedido.rechazado(error);
+                continue;
+            }
+            for (int j = 0; j < lote.indices[k].length; j++) {
+                disponible[lote.indices[k][j]] -= lote.cantidades[k][j];
+            }
+            aceptados++;
+        }
+        if (aceptados == 0) return;
+
+        // 2. Pedidos y registros del journal con el stock tras cada pedido; IDs en bloque.
+        int id = (int) ids.reservar(aceptados);
+        Journal j = journal;
+        List<String> registros = j != null ? new ArrayList<>(aceptados) : null;
+        Pedido[] creados = new Pedido[lote.cantidad()];
+        int[] corriente = inicial;
+        for (int k = 0; k < lote.cantidad(); k++) {
+            if (lote.resultados[k] != null) continue;
+            for (int x = 0; x < lote.indices[k].length; x++) {
+                corriente[lote.indices[k][x]] -= lote.cantidades[k][x];
+            }
+            Pedido pedido = new Pedido(id++);
+            List<LineaPedido> lineas = lote.solicitudes.get(k);
+            int[] stockResultante = registros != null ? new int[lineas.size()] : null;
+            for (int x = 0; x < lineas.size(); x++) {
+                LineaPedido linea = lineas.get(x);
+                pedido.agregarLinea(linea);
+                if (stockResultante != null) {
+                    stockResultante[x] = corriente[lote.indicePorId.get(linea.getProducto().getId())];
+                }
+            }
+            if (registros != null) registros.add(registro(pedido, stockResultante));
+            creados[k] = pedido;
+        }
+
+        // 3. Un solo paso por el journal, antes de tocar la memoria: si falla, el lote no se aplica.
+        if (registros != null) j.anotarTodos(registros);
+
+        // 4. Registro de los pedidos y una sola escritura de stock por producto.
+        for (int k = 0; k < creados.length; k++) {
+            if (creados[k] == null) continue;
+            registrar(creados[k]);
+            lote.resultados[k] = ResultadoPedido.aceptado(creados[k]);
+        }
+        for (int i = 0; i < m; i++) {
+            if (corriente[i] != lote.productos.get(i).getStock()) {
+                lote.productos.get(i).setStock(corriente[i]);
+            }
+        }
+    }
+
+    private static String mensajeStock(Producto p, int disponible, long solicitado) {
+        return "Stock insuficiente para el producto: " + p.getNombre() +
+                ". Disponible: " + disponible + ", Solicitado: " + solicitado;
+    }
+
+    /** Estado de trabajo de un lote: productos con índice local y cantidades agrupadas por pedido. */
+    private static final class Lote {
+        final List<List<LineaPedido>> solicitudes;
+        final List<Producto> productos = new ArrayList<>();          // índice local → producto
+        final Map<Integer, Integer> indicePorId = new HashMap<>();   // ID de producto → índice local
+        final int[][] indices;     // por pedido: índice local de cada producto, sin repetir
+        final int[][] cantidades;  // por pedido: cantidad total pedida de ese producto
+        final ResultadoPedido[] resultados;
+
+        Lote(List<List<LineaPedido>> solicitudes) {
+            this.solicitudes = solicitudes;
+            int n = solicitudes.size();
+            this.indices = new int[n][];
+            this.cantidades = new int[n][];
+            this.resultados = new ResultadoPedido[n];
+        }
+
+        int cantidad() {
+            return solicitudes.size();
+        }
+
+        // Agrupa las líneas del pedido k por producto. Devuelve el error si la solicitud es inválida.
+        String agrupar(int k) {
+            List<LineaPedido> lineas = solicitudes.get(k);
+            if (lineas == null || lineas.isEmpty()) {
+                return "El pedido no tiene líneas.";
+            }
+            Map<Integer, Integer> porIndice = new LinkedHashMap<>();
+            for (LineaPedido linea : lineas) {
+                Producto p = linea != null ? linea.getProducto() : null;
+                if (p == null) {
+                    return "Línea de pedido contiene un producto nulo.";
+                }
+                if (linea.getCantidad() <= 0) {
+                    return "Cantidad inválida para el producto: " + p.getNombre();
+                }
+                int indice = indicePorId.computeIfAbsent(p.getId(), id -> {
+                    productos.add(p);
+                    return productos.size() - 1;
+                });
+                porIndice.merge(indice, linea.getCantidad(), Integer::sum);
+            }
+            indices[k] = new int[porIndice.size()];
+            cantidades[k] = new int[porIndice.size()];
+            int j = 0;
+            for (Map.Entry<Integer, Integer> e : porIndice.entrySet()) {
+                indices[k][j] = e.getKey();
+                cantidades[k][j++] = e.getValue();
+            }
+            return null;
+        }
+
+        // Rechaza, con el motivo indicado, los pedidos válidos que piden ese producto.
+        void rechazarConProducto(int indice, String error) {
+            for (int k = 0; k < cantidad(); k++) {
+                if (resultados[k] != null) continue;
+                for (int i : indices[k]) {
+                    if (i == indice) {
+                        resultados[k] = ResultadoPedido.rechazado(error);
+                        break;
+                    }
+                }
+            }
+        }
+
+        boolean hayRechazos() {
+            for (ResultadoPedido r : resultados) {
+                if (r != null) return true;
+            }
+            return false;
+        }
+
+        void rechazarRestantes(String error) {
+            for (int k = 0; k < cantidad(); k++) {
+                if (resultados[k] == null) resultados[k] = ResultadoPedido.rechazado(error);
+            }
         }
     }
 
+    /** Todos los pedidos en orden de ID, incluidos los archivados, que se leen del disco. */
     public List<Pedido> listarPedidos() {
-        return new ArrayList<>(pedidos);
+        List<Pedido> todos = new ArrayList<>();
+        streamPedidos().forEach(todos::add);
+        return todos;
+    }
+
+    /**
+     * Una página de pedidos en orden de ID. El cursor es el ID desde el que sigue la página
+     * siguiente, así que los pedidos creados mientras tanto aparecen al final y no desplazan nada.
+     * @param cursor null para la primera página, o el cursor de la página anterior.
+     */
+    public Pagina<Pedido> listarPedidos(String cursor, int tamanio) {
+        Pagina.validarTamanio(tamanio);
+        long desde = Pagina.posicion(cursor, CURSOR_PEDIDOS);
+        if (desde > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("⚠️  Cursor de página inválido: " + cursor);
+        }
+        return paginaDe(pagina((int) desde, Integer.MAX_VALUE, tamanio + 1, true), tamanio);
+    }
+
+    /**
+     * Pedidos con ID entre desde y hasta (inclusive), en orden de ID, de a páginas: cada página
+     * es una búsqueda en el mapa ordenado (o en el índice de bloques del archivo), sin recorrer
+     * los pedidos anteriores.
+     * @param cursor null para la primera página, o el cursor de la página anterior.
+     */
+    public Pagina<Pedido> buscarPorRango(int desde, int hasta, String cursor, int tamanio) {
+        Pagina.validarTamanio(tamanio);
+        if (desde > hasta) {
+            throw new IllegalArgumentException("⚠️  El inicio del rango (" + desde + ") no puede ser mayor que el fin (" + hasta + ").");
+        }
+        long posicion = Math.max(desde, Pagina.posicion(cursor, CURSOR_PEDIDOS));
+        if (posicion > hasta) return new Pagina<>(List.of(), null);
+        return paginaDe(pagina((int) posicion, hasta, tamanio + 1, true), tamanio);
+    }
+
+    /**
+     * Pedidos que incluyen el producto, en orden de ID, de a páginas. Usa los índices invertidos
+     * producto → pedidos de los segmentos archivados y de los pedidos en memoria: no recorre
+     * líneas, y los archivados de un mismo bloque se leen juntos.
+     * @param cursor null para la primera página, o el cursor de la página anterior.
+     */
+    public Pagina<Pedido> buscarPorProducto(int idProducto, String cursor, int tamanio) {
+        Pagina.validarTamanio(tamanio);
+        long desde = Pagina.posicion(cursor, CURSOR_PEDIDOS);
+        if (desde > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("⚠️  Cursor de página inválido: " + cursor);
+        }
+        archivado.readLock().lock();
+        try {
+            int ultimoArchivado = archivo.ultimoId();
+            List<Pedido> elementos = desde <= ultimoArchivado
+                    ? archivo.buscarTodos(archivo.pedidosConProducto(idProducto, (int) desde, tamanio + 1))
+                    : new ArrayList<>();
+            int[] ids = pedidosPorProducto.pedidos(idProducto, (int) Math.max(desde, ultimoArchivado + 1L),
+                    tamanio + 1 - elementos.size());
+            for (int id : ids) {
+                Pedido pedido = pedidosPorId.get(id);
+                if (pedido != null) elementos.add(pedido);
+            }
+            return paginaDe(elementos, tamanio);
+        } finally {
+            archivado.readLock().unlock();
+        }
+    }
+
+    /** Cantidad de pedidos que incluyen el producto, sin leerlos. */
+    public int cantidadPedidosConProducto(int idProducto) {
+        archivado.readLock().lock();
+        try {
+            return archivo.cantidadConProducto(idProducto) + pedidosPorProducto.cantidad(idProducto);
+        } finally {
+            archivado.readLock().unlock();
+        }
+    }
+
+    // elementos trae hasta tamanio + 1 pedidos: el que sobra es el inicio de la página siguiente.
+    private static Pagina<Pedido> paginaDe(List<Pedido> elementos, int tamanio) {
+        String siguiente = elementos.size() > tamanio ? Pagina.cursor(CURSOR_PEDIDOS, elementos.remove(tamanio).getId()) : null;
+        return new Pagina<>(elementos, siguiente);
+    }
+
+    // Hasta max pedidos con ID entre desde y hasta: primero los archivados, después los de memoria.
+    private List<Pedido> pagina(int desde, int hasta, int max, boolean conCache) {
+        archivado.readLock().lock();
+        try {
+            int ultimoArchivado = archivo.ultimoId();
+            List<Pedido> elementos = desde <= ultimoArchivado
+                    ? archivo.pagina(desde, hasta, max, conCache)
+                    : new ArrayList<>(Math.min(max, 64));
+            int inicio = Math.max(desde, ultimoArchivado + 1);
+            if (inicio > hasta) return elementos;
+            Iterator<Pedido> it = pedidosPorId.subMap(inicio, true, hasta, true).values().iterator();
+            while (elementos.size() < max && it.hasNext()) {
+                elementos.add(it.next());
+            }
+            return elementos;
+        } finally {
+            archivado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Todos los pedidos en orden de ID, sin copiarlos, incluidos los archivados: se leen de a
+     * páginas a medida que se recorren, sin pasar por la caché. Los pedidos creados durante el
+     * recorrido pueden aparecer o no.
+     */
+    public Stream<Pedido> streamPedidos() {
+        Iterator<Pedido> paginas = new Iterator<>() {
+            private Iterator<Pedido> actual = Collections.emptyIterator();
+            private int desde = 0;
+            private boolean fin;
+
+            @Override
+            public boolean hasNext() {
+                if (!actual.hasNext() && !fin) {
+                    List<Pedido> pagina = pagina(desde, Integer.MAX_VALUE, PAGINA_RECORRIDO, false);
+                    fin = pagina.size() < PAGINA_RECORRIDO;
+                    if (!pagina.isEmpty()) desde = pagina.get(pagina.size() - 1).getId() + 1;
+                    actual = pagina.iterator();
+                }
+                return actual.hasNext();
+            }
+
+            @Override
+            public Pedido next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return actual.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(paginas,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /** Busca primero entre los pedidos en memoria y después en el archivo. */
+    public Optional<Pedido> buscarPorId(int id) {
+        Pedido pedido = pedidosPorId.get(id);
+        // El archivado publica el segmento antes de quitar sus pedidos de memoria: no hay hueco.
+        if (pedido != null || id > archivo.ultimoId()) return Optional.ofNullable(pedido);
+        return archivo.buscar(id);
+    }
+
+    /**
+     * Crece con cada pedido registrado, una vez visible en listarPedidos(). PersistenciaService
+     * lo compara con el del último guardado para no reescribir pedidos sin cambios.
+     */
+    long generacion() {
+        return generacion.get();
     }
 
     public boolean hayPedidos() {
-        return !pedidos.isEmpty();
+        return !pedidosPorId.isEmpty() || archivo.cantidadSegmentos() > 0;
     }
 
     // ==========================================================
-    // 🔹 PERSISTENCIA DE DATOS
+    // 🔹 ARCHIVO HISTÓRICO
+    // ==========================================================
+
+    /**
+     * Pasa al archivo los pedidos más viejos, de a {@link #PEDIDOS_POR_SEGMENTO}, mientras haya
+     * un segmento completo de pedidos fuera de la ventana de recientes. Cada segmento queda en
+     * disco antes de que sus pedidos salgan de memoria; el snapshot que se escribe después ya
+     * no los incluye. Lo llama PersistenciaService en el guardado periódico.
+     * @return Cantidad de pedidos archivados.
+     */
+    int archivar() {
+        long inicio = Metricas.inicio();
+        int archivados = 0;
+        try {
+            while (true) {
+                // Los IDs se asignan y registran juntos: a esta distancia del último ya no falta ninguno.
+                int limite = (int) (ids.proximo() - VENTANA_PEDIDOS);
+                List<Pedido> segmento = new ArrayList<>(Math.min(PEDIDOS_POR_SEGMENTO, 1 << 16));
+                for (Pedido p : pedidosPorId.headMap(limite, false).values()) {
+                    segmento.add(p);
+                    if (segmento.size() == PEDIDOS_POR_SEGMENTO) break;
+                }
+                if (segmento.size() < PEDIDOS_POR_SEGMENTO) return archivados;
+                try {
+                    ArchivoPedidos.Segmento escrito = archivo.escribir(segmento);
+                    archivado.writeLock().lock();
+                    try {
+                        archivo.publicar(escrito);
+                        for (Pedido p : segmento) pedidosPorId.remove(p.getId(), p);
+                        pedidosPorProducto.quitarHasta(archivo.ultimoId());
+                    } finally {
+                        archivado.writeLock().unlock();
+                    }
+                } catch (IOException e) {
+                    System.out.println("⚠️ Error al archivar pedidos: " + e.getMessage());
+                    return archivados;
+                }
+                generacion.incrementAndGet();
+                archivados += segmento.size();
+            }
+        } finally {
+            Operacion.ARCHIVAR_PEDIDOS.registrar(inicio);
+        }
+    }
+
+    /** Pedidos en memoria (los no archivados). */
+    public int cantidadEnMemoria() {
+        return pedidosPorId.size();
+    }
+
+    public long cantidadArchivados() {
+        return archivo.cantidad();
+    }
+
+    /** Suma exacta de todos los pedidos, mantenida a medida que se registran: O(1). */
+    public Dinero facturacionTotal() {
+        return Dinero.deCentavos(ventas.ingresosCentavos());
+    }
+
+    AgregadosVentas ventas() {
+        return ventas;
+    }
+
+    // ==========================================================
+    // 🔹 JOURNAL
     // ==========================================================
 
-    public void guardarEnArchivo() {
-        // Uso de Stream API para mapeo eficiente.
-        List<String> lineas = pedidos.stream()
-                .flatMap(pedido -> pedido.getLineas().stream()
-                        .map(lp -> String.format("%d;%s;%d;%.2f",
-                                pedido.getId(),
-                                lp.getProducto().getNombre(),
-                                lp.getCantidad(),
-                                lp.getSubtotal())))
-                .collect(Collectors.toList());
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
 
-        ArchivoUtil.escribirLineas(RUTA_PEDIDOS, lineas);
+    /** Desde acá cada bloque de IDs nuevo queda en el archivo de IDs antes de entregarse. */
+    void conectarIds() {
+        try {
+            ids.conectar(Paths.get(RUTA_IDS));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer los IDs de pedidos: " + e.getMessage(), e);
+        }
     }
 
+    void desconectarIds() {
+        try {
+            ids.desconectar();
+        } catch (IOException e) {
+            // La marca anterior ya cubre todo lo entregado: solo se pierde el resto del bloque.
+            System.out.println("⚠️ No se pudo guardar el archivo de IDs de pedidos: " + e.getMessage());
+        }
+    }
 
-    public void cargarDesdeArchivo() {
-        List<String> lineas = ArchivoUtil.leerLineas(RUTA_PEDIDOS);
-        Map<Integer, Pedido> mapa = new HashMap<>();
+    void setConfirmacionDiferida(boolean confirmacionDiferida) {
+        this.confirmacionDiferida = confirmacionDiferida;
+    }
 
-        for (String linea : lineas) {
-            String[] datos = linea.split(";");
+    // Formato: O2;idPedido;idProducto;cantidad;stockResultante;precioUnitario;... (cuatro campos por línea).
+    // Se anota con los bloqueos del stock tomados, así el stock absoluto respeta el orden real,
+    // y antes de registrar el pedido en memoria.
+    private void anotar(Pedido pedido) {
+        Journal j = journal;
+        if (j != null) j.anotar(registro(pedido, null));
+    }
 
-            // Lanza una RuntimeException para errores de consistencia en el archivo.
-            if (datos.length < 3) {
-                throw new IllegalStateException("Línea de pedido con formato inválido: " + linea);
+    // stockResultante: stock de cada línea después del pedido; null = el stock actual del producto.
+    private static String registro(Pedido pedido, int[] stockResultante) {
+        StringBuilder sb = new StringBuilder(REGISTRO_PEDIDO).append(pedido.getId());
+        List<LineaPedido> lineas = pedido.getLineas();
+        for (int i = 0; i < lineas.size(); i++) {
+            LineaPedido lp = lineas.get(i);
+            Producto p = lp.getProducto();
+            sb.append(';').append(p.getId())
+                    .append(';').append(lp.getCantidad())
+                    .append(';').append(stockResultante != null ? stockResultante[i] : p.getStock())
+                    .append(';');
+            Dinero.anexar(sb, lp.getPrecioUnitarioCentavos());
+        }
+        return sb.toString();
+    }
+
+    private void esperarJournal() {
+        Journal j = journal;
+        if (j != null && !confirmacionDiferida) j.esperarDurable();
+    }
+
+    /**
+     * Aplica un registro del journal durante la recuperación. Si el pedido ya vino en el
+     * snapshot no se duplica; el stock se fija al valor absoluto registrado.
+     */
+    boolean aplicarRegistro(String registro) {
+        // Los registros "O;" (sin precio) pueden quedar en segmentos escritos antes del formato v2.
+        int camposPorLinea;
+        if (registro.startsWith(REGISTRO_PEDIDO)) {
+            camposPorLinea = 4;
+        } else if (registro.startsWith(REGISTRO_PEDIDO_V1)) {
+            camposPorLinea = 3;
+        } else {
+            return false;
+        }
+        String[] datos = registro.split(";");
+        if (datos.length < 2 || (datos.length - 2) % camposPorLinea != 0) {
+            throw new IllegalStateException("Registro de pedido con formato inválido en el journal: " + registro);
+        }
+        int idPedido = Integer.parseInt(datos[1]);
+        Pedido pedido = buscarPorId(idPedido).isPresent() ? null : new Pedido(idPedido);
+        for (int i = 2; i < datos.length; i += camposPorLinea) {
+            int idProducto = Integer.parseInt(datos[i]);
+            Optional<Producto> producto = productoService.buscarPorId(idProducto);
+            if (producto.isEmpty()) {
+                if (pedido == null) continue; // producto borrado más adelante; el pedido ya estaba cargado
+                throw new IllegalStateException("Producto no encontrado durante la recuperación: " + idProducto);
+            }
+            productoService.restaurarStock(producto.get(), Integer.parseInt(datos[i + 2]));
+            if (pedido != null) {
+                int cantidad = Integer.parseInt(datos[i + 1]);
+                pedido.agregarLinea(camposPorLinea == 4
+                        ? new LineaPedido(producto.get(), cantidad, Dinero.de(Double.parseDouble(datos[i + 3])))
+                        : new LineaPedido(producto.get(), cantidad));
             }
+        }
+        if (pedido != null) {
+            registrar(pedido);
+            ids.avanzar(idPedido);
+        }
+        return true;
+    }
+
+    // ==========================================================
+    // 🔹 PERSISTENCIA DE DATOS
+    // ==========================================================
+
+    public boolean guardarEnArchivo() {
+        long inicio = Metricas.inicio();
+        try {
+            return ArchivoUtil.escribirRegistros(RUTA_PEDIDOS, escritor -> {
+                escritor.texto(CABECERA_V2).finLinea();
+                exportar(escritor, pedidosPorId.values());
+            });
+        } finally {
+            Operacion.GUARDAR_PEDIDOS.registrar(inicio);
+        }
+    }
 
-            try {
-                int idPedido = Integer.parseInt(datos[0]);
-                String nombreProducto = datos[1];
-                int cantidad = Integer.parseInt(datos[2]);
+    /**
+     * Escribe todos los pedidos, incluidos los archivados, con el formato v2 de pedidos.txt
+     * (sin la cabecera), una línea por línea de pedido:
+     * idPedido;idProducto;nombreProducto;cantidad;precioUnitario;subtotal.
+     * El nombre queda como referencia para quien lea el archivo; la carga resuelve por ID.
+     */
+    public void exportar(EscritorCampos escritor) {
+        exportar(escritor, streamPedidos()::iterator);
+    }
 
-                Optional<Producto> productoOpt = productoService.buscarPorNombre(nombreProducto);
+    // pedidos.txt lleva solo los pedidos en memoria: los archivados ya están en sus segmentos.
+    private static void exportar(EscritorCampos escritor, Iterable<Pedido> pedidos) {
+        for (Pedido pedido : pedidos) {
+            for (LineaPedido lp : pedido.getLineas()) {
+                escritor.entero(pedido.getId())
+                        .entero(lp.getProducto().getId())
+                        .texto(lp.getProducto().getNombre())
+                        .entero(lp.getCantidad())
+                        .decimalEscalado(lp.getPrecioUnitarioCentavos(), 2)
+                        .decimalEscalado(lp.getSubtotalCentavos(), 2)
+                        .finLinea();
+            }
+        }
+    }
 
-                // Lanza una RuntimeException si el producto no se encuentra.
-                if (productoOpt.isEmpty()) {
-                    throw new IllegalStateException("Producto no encontrado durante la carga: " + nombreProducto);
+    /**
+     * Carga los pedidos desde el archivo. Un archivo v1 (sin cabecera, productos por nombre)
+     * se lee igual y se reescribe en v2 al terminar.
+     */
+    public void cargarDesdeArchivo() {
+        // LinkedHashMap: conserva el orden del archivo.
+        Map<Integer, Pedido> mapa = new LinkedHashMap<>();
+        boolean v2 = false;
+
+        try (LectorCampos lector = ArchivoUtil.abrirLector(RUTA_PEDIDOS)) {
+            while (lector.siguienteLinea()) {
+                if (lector.numeroLinea() == 1 && lector.campoEs(CABECERA_V2)) {
+                    v2 = true;
+                    continue;
+                }
+                // Lanza una RuntimeException para errores de consistencia en el archivo.
+                if (lector.contarCampos() < (v2 ? 6 : 3)) {
+                    throw new IllegalStateException("Línea de pedido con formato inválido: " + lector.lineaActual());
                 }
 
-                Pedido pedido = mapa.computeIfAbsent(idPedido, Pedido::new);
-                pedido.agregarLinea(new LineaPedido(productoOpt.get(), cantidad));
+                try {
+                    int idPedido = lector.leerEntero();
+                    LineaPedido linea = v2 ? parsearLineaV2(lector) : parsearLineaV1(lector);
+                    mapa.computeIfAbsent(idPedido, Pedido::new).agregarLinea(linea);
 
-            } catch (NumberFormatException e) {
-                // Captura error de parseo y lanzamos una IllegalStateException.
-                throw new IllegalStateException("Error al parsear números en línea: " + linea, e);
+                } catch (NumberFormatException e) {
+                    // Captura error de parseo y lanzamos una IllegalStateException.
+                    throw new IllegalStateException("Error al parsear números en línea: " + lector.lineaActual(), e);
+                }
             }
         }
 
-        pedidos.clear();
-        pedidos.addAll(mapa.values());
+        reemplazarPedidos(mapa.values());
 
-        // Uso de Stream API para calcular nextId.
-        nextId = pedidos.stream()
+        if (!v2 && !mapa.isEmpty() && guardarEnArchivo()) {
+            System.out.println("ℹ️  " + RUTA_PEDIDOS + " se actualizó al formato v2.");
+        }
+    }
+
+    // v2: idProducto;nombre;cantidad;precioUnitario;subtotal. Resolución O(1) por ID. El subtotal
+    // se lee tal cual: en los pedidos que vienen de v1 no siempre es precio × cantidad.
+    private LineaPedido parsearLineaV2(LectorCampos lector) {
+        int idProducto = lector.leerEntero();
+        lector.saltarCampo(); // nombre, solo informativo
+        int cantidad = lector.leerEntero();
+        Dinero precioUnitario = Dinero.de(lector.leerDecimal());
+        Dinero subtotal = Dinero.de(lector.leerDecimal());
+        Producto producto = productoService.buscarPorId(idProducto)
+                .orElseThrow(() -> new IllegalStateException("Producto no encontrado durante la carga: ID " + idProducto));
+        return new LineaPedido(producto, cantidad, precioUnitario, subtotal);
+    }
+
+    // v1: nombre;cantidad[;subtotal]. El subtotal guardado se conserva; el precio unitario se
+    // deduce de él (redondeado si no divide exacto) y sirve para elegir entre productos
+    // homónimos con distinto precio.
+    private LineaPedido parsearLineaV1(LectorCampos lector) {
+        String nombreProducto = lector.leerTexto();
+        int cantidad = lector.leerEntero();
+        if (!lector.hayCampo() || cantidad == 0) {
+            Producto producto = productoService.buscarPorNombre(nombreProducto)
+                    .orElseThrow(() -> new IllegalStateException("Producto no encontrado durante la carga: " + nombreProducto));
+            return new LineaPedido(producto, cantidad);
+        }
+        Dinero subtotal = Dinero.de(lector.leerDecimal());
+        Dinero precioUnitario = Dinero.de(subtotal.aDouble() / cantidad);
+        Producto producto = productoService.buscarPorNombreYPrecio(nombreProducto, precioUnitario.aDouble())
+                .or(() -> productoService.buscarPorNombre(nombreProducto))
+                .orElseThrow(() -> new IllegalStateException("Producto no encontrado durante la carga: " + nombreProducto));
+        return new LineaPedido(producto, cantidad, precioUnitario, subtotal);
+    }
+
+    // Abre el archivo y deja en memoria los pedidos cargados que no estén archivados: si hubo una
+    // caída entre el archivado y el guardado, el snapshot todavía tiene pedidos ya archivados.
+    private void reemplazarPedidos(Collection<Pedido> cargados) {
+        List<SegmentoPedidos.Resumen> resumenes = archivo.abrir();
+        int ultimoArchivado = archivo.ultimoId();
+        List<Pedido> recientes = new ArrayList<>(cargados.size());
+        for (Pedido p : cargados) {
+            if (p.getId() > ultimoArchivado || archivo.buscar(p.getId()).isEmpty()) recientes.add(p);
+        }
+        pedidosPorId.clear();
+        for (Pedido p : recientes) {
+            pedidosPorId.put(p.getId(), p);
+        }
+        // Índice por producto: solo los recientes; los archivados se leen de cada segmento.
+        pedidosPorProducto.limpiar();
+        for (Pedido p : pedidosPorId.values()) {
+            pedidosPorProducto.registrar(p);
+        }
+        // Backfill de los reportes: un recálculo en paralelo de los recientes más los resúmenes
+        // de los segmentos, sin leer los pedidos archivados.
+        ventas.reemplazar(recientes, resumenes, id -> productoService.buscarPorId(id).orElse(null));
+        generacion.incrementAndGet();
+
+        // Sin archivo de IDs (primer arranque), la numeración sigue desde lo cargado.
+        ids.avanzar(Math.max(recientes.stream()
                 .mapToInt(Pedido::getId)
                 .max()
-                .orElse(0) + 1;
+                .orElse(0), ultimoArchivado));
+    }
+
+    // ==========================================================
+    // 🔹 SNAPSHOT BINARIO
+    // ==========================================================
+
+    /** Carga el snapshot binario si es el formato más reciente; si no, el archivo de texto. */
+    public void cargar() {
+        long inicio = Metricas.inicio();
+        try {
+            if (ArchivoUtil.esMasReciente(RUTA_SNAPSHOT, RUTA_PEDIDOS)) {
+                cargarSnapshot();
+            } else {
+                cargarDesdeArchivo();
+            }
+        } finally {
+            Operacion.CARGAR_PEDIDOS.registrar(inicio);
+        }
+    }
+
+    public boolean guardarSnapshot(boolean comprimir) {
+        long inicio = Metricas.inicio();
+        try {
+            // Solo los pedidos en memoria, como pedidos.txt.
+            SnapshotBinario.escribirPedidos(Paths.get(RUTA_SNAPSHOT), new ArrayList<>(pedidosPorId.values()), comprimir);
+            return true;
+        } catch (IOException e) {
+            System.out.println("⚠️ Error al escribir snapshot: " + e.getMessage());
+            return false;
+        } finally {
+            Operacion.GUARDAR_SNAPSHOT_PEDIDOS.registrar(inicio);
+        }
+    }
+
+    /** Carga los pedidos del snapshot; cada línea se resuelve por ID de producto. */
+    public void cargarSnapshot() {
+        try {
+            reemplazarPedidos(SnapshotBinario.leerPedidos(Paths.get(RUTA_SNAPSHOT),
+                    id -> productoService.buscarPorId(id).orElse(null)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al cargar el snapshot de pedidos: " + e.getMessage(), e);
+        }
     }
 }
\ No newline at end of file
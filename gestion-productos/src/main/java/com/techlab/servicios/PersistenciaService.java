@@ -0,0 +1,167 @@
+package com.techlab.servicios;
+
+import com.techlab.persistencia.Journal;
+import com.techlab.util.ArchivoUtil;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordina la persistencia de productos y pedidos: carga del snapshot, recuperación desde
+ * el journal, conexión del journal a los servicios y guardado periódico en segundo plano.
+ * Cada mutación cuesta un registro en el journal. El snapshot completo (binario) y los
+ * archivos de texto se reescriben en segundo plano cada {@link #INTERVALO_GUARDADO} segundos,
+ * y solo los del servicio que tuvo cambios.
+ */
+public class PersistenciaService implements AutoCloseable {
+
+    private static final Path DIRECTORIO_JOURNAL = Paths.get(ArchivoUtil.DIRECTORIO_DATOS, "journal");
+    private static final long TAMANIO_COMPACTACION = 64L * 1024 * 1024; // 64 MB
+    private static final long INTERVALO_REVISION_SEGUNDOS = 30;
+
+    /**
+     * Segundos entre guardados en segundo plano (-Dtechlab.guardado.intervalo). Es lo más viejo
+     * que pueden quedar los archivos de texto y el snapshot, y acota el journal a reproducir al
+     * arrancar. Con 0 solo se guarda al cerrar o cuando el journal pasa de 64 MB.
+     */
+    public static final long INTERVALO_GUARDADO = Long.getLong("techlab.guardado.intervalo", 30);
+
+    private final ProductoService productoService;
+    private final PedidoService pedidoService;
+    private final Journal journal;
+    private boolean comprimirSnapshots;
+    private ScheduledExecutorService compactador;
+    // Generaciones de cada servicio ya escritas en sus archivos (protegidas por this).
+    private long guardadoProductos;
+    private long guardadoPedidos;
+
+    public PersistenciaService(ProductoService productoService, PedidoService pedidoService) {
+        this(productoService, pedidoService, DIRECTORIO_JOURNAL);
+    }
+
+    public PersistenciaService(ProductoService productoService, PedidoService pedidoService, Path directorioJournal) {
+        if (productoService == null || pedidoService == null) {
+            throw new IllegalArgumentException("Los servicios no pueden ser nulos.");
+        }
+        this.productoService = productoService;
+        this.pedidoService = pedidoService;
+        this.journal = new Journal(directorioJournal);
+    }
+
+    /**
+     * Con confirmación diferida las operaciones vuelven sin esperar el fsync del journal; quien
+     * las ejecuta llama a {@link #esperarDurable()} antes de informar sus resultados. Así un
+     * lote de comandos paga un fsync por bloque de resultados en lugar de uno por operación.
+     */
+    public void setConfirmacionDiferida(boolean diferida) {
+        productoService.setConfirmacionDiferida(diferida);
+        pedidoService.setConfirmacionDiferida(diferida);
+    }
+
+    /** Bloquea hasta que todas las operaciones anteriores estén en disco. */
+    public void esperarDurable() {
+        journal.esperarDurable();
+    }
+
+    /** Activa la compresión por bloques de los snapshots binarios (menos disco, algo más de CPU). */
+    public void setComprimirSnapshots(boolean comprimirSnapshots) {
+        this.comprimirSnapshots = comprimirSnapshots;
+    }
+
+    /**
+     * Carga el último snapshot, reproduce el journal encima y deja el journal conectado
+     * a los servicios. Todo pedido confirmado antes de una caída vuelve a estar disponible.
+     */
+    public void iniciar() {
+        productoService.cargar();
+        pedidoService.cargar();
+        // Lo recién cargado ya está en los archivos; lo que reproduzca el journal, no.
+        synchronized (this) {
+            guardadoProductos = productoService.generacion();
+            guardadoPedidos = pedidoService.generacion();
+        }
+
+        journal.reproducir(this::aplicar);
+        // Los IDs siguen desde la marca guardada (o desde lo cargado, si todavía no hay archivo).
+        productoService.conectarIds();
+        pedidoService.conectarIds();
+        journal.iniciar();
+        productoService.setJournal(journal);
+        pedidoService.setJournal(journal);
+
+        compactador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "guardado-periodico");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = INTERVALO_GUARDADO > 0 ? INTERVALO_GUARDADO : INTERVALO_REVISION_SEGUNDOS;
+        compactador.scheduleWithFixedDelay(this::guardarSiCorresponde, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    private void aplicar(String registro) {
+        if (!productoService.aplicarRegistro(registro) && !pedidoService.aplicarRegistro(registro)) {
+            throw new IllegalStateException("Registro de journal desconocido: " + registro);
+        }
+    }
+
+    // En el hilo del guardado: una excepción cancelaría las ejecuciones siguientes.
+    private void guardarSiCorresponde() {
+        try {
+            if (INTERVALO_GUARDADO > 0 || journal.bytesSegmentoActual() >= TAMANIO_COMPACTACION) {
+                guardarCambios();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Error en el guardado periódico: " + e.getMessage());
+        }
+    }
+
+    /** true si hay productos o pedidos que cambiaron desde el último guardado. */
+    public synchronized boolean hayCambios() {
+        return productoService.generacion() != guardadoProductos || pedidoService.generacion() != guardadoPedidos;
+    }
+
+    /**
+     * Guarda lo que cambió desde el último guardado: de cada servicio con cambios exporta el
+     * archivo de texto y escribe el snapshot, los dos desde una instantánea, así los pedidos
+     * no esperan al disco. Después descarta los segmentos del journal que ya cubren. Sin
+     * cambios no escribe nada. Antes archiva los pedidos viejos (ver PedidoService#archivar).
+     * @return true si todo quedó en disco (también cuando no había nada que guardar).
+     */
+    public synchronized boolean guardarCambios() {
+        // Archivar cambia los pedidos en memoria: el snapshot de abajo ya no incluye los archivados.
+        pedidoService.archivar();
+        if (!hayCambios()) return true;
+        boolean comprimir = comprimirSnapshots;
+        // Las generaciones se leen después de rotar el journal: todo registro de un segmento
+        // viejo ya había cambiado la generación de su servicio.
+        return journal.compactar(() -> {
+            long productos = productoService.generacion();
+            long pedidos = pedidoService.generacion();
+            if (productos != guardadoProductos) {
+                // El texto se escribe antes que el snapshot, así el binario queda como el más reciente.
+                if (!productoService.guardarEnArchivo() || !productoService.guardarSnapshot(comprimir)) return false;
+                guardadoProductos = productos;
+            }
+            if (pedidos != guardadoPedidos) {
+                if (!pedidoService.guardarEnArchivo() || !pedidoService.guardarSnapshot(comprimir)) return false;
+                guardadoPedidos = pedidos;
+            }
+            return true;
+        });
+    }
+
+    /** Guarda los cambios por última vez y cierra el journal. */
+    @Override
+    public synchronized void close() {
+        if (compactador != null) compactador.shutdownNow();
+        guardarCambios();
+        productoService.setJournal(null);
+        pedidoService.setJournal(null);
+        journal.close();
+        productoService.desconectarIds();
+        pedidoService.desconectarIds();
+    }
+}
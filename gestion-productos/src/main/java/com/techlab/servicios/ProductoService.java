@@ -1,51 +1,252 @@
 package com.techlab.servicios;
 
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.metricas.Contador;
+import com.techlab.metricas.Metricas;
+import com.techlab.metricas.Operacion;
+import com.techlab.persistencia.GeneradorIds;
+import com.techlab.persistencia.Journal;
+import com.techlab.persistencia.SnapshotBinario;
 import com.techlab.productos.*;
 import com.techlab.util.ArchivoUtil;
+import com.techlab.util.Dinero;
+import com.techlab.util.EscritorCampos;
+import com.techlab.util.LectorCampos;
+import com.techlab.util.Pagina;
+import com.techlab.util.RelojDias;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ProductoService {
 
-    private final List<Producto> productos = new ArrayList<>();
-    private int nextId = 1;
+    // Productos e índices (ID, nombre, nombre + precio). Por defecto, objetos en el heap.
+    private final Catalogo catalogo;
+    // El catálogo no es concurrente: las búsquedas toman el bloqueo de lectura y las altas,
+    // bajas, modificaciones y el vaciado el de escritura, solo mientras dura la llamada. Es el
+    // más interno: se toma con las franjas de stock ya tomadas, nunca al revés.
+    private final ReadWriteLock bloqueoCatalogo = new ReentrantReadWriteLock();
+    // Comidas ordenadas por fecha de vencimiento; se mantiene junto con el catálogo.
+    private final IndiceVencimientos vencimientos = new IndiceVencimientos();
+    // Palabras de los nombres, para búsquedas por prefijo y con errores de tipeo.
+    private final IndiceNombres nombres = new IndiceNombres();
+    // Copias inmutables de cada producto por sello, para leer instantáneas sin bloquear (MVCC).
+    private final VersionesCatalogo versiones = new VersionesCatalogo();
+    private final RelojDias reloj;
+    // IDs de productos: por bloques, seguros entre hilos y nunca reutilizados (ver GeneradorIds).
+    private final GeneradorIds ids = new GeneradorIds(BLOQUE_IDS, Integer.MAX_VALUE);
+    // Bloqueos por franja para toda modificación de stock (pedidos, altas repetidas y actualizaciones).
+    private final BloqueosStock bloqueos = BloqueosStock.porDefecto();
+    // Altas por nombre normalizado y precio: la búsqueda del existente y el alta van con la misma
+    // franja tomada. Son otras franjas que las de stock y se toman antes que ellas.
+    private final BloqueosStock altas = BloqueosStock.porDefecto();
+    // Unidades retenidas por reservas activas, por ID (solo productos con alguna). Se modifican
+    // con la franja del producto tomada y se leen sin bloqueos. No se persisten: una reserva
+    // no sobrevive a un reinicio y el stock nunca se descontó.
+    private final Map<Integer, Integer> reservados = new ConcurrentHashMap<>();
+    // Journal de mutaciones; null mientras no esté conectado (por ejemplo, durante la recuperación).
+    private volatile Journal journal;
+    // Con confirmación diferida las operaciones no esperan el fsync (ver PersistenciaService).
+    private volatile boolean confirmacionDiferida;
 
-    private static final String RUTA_PRODUCTOS = "data/productos.txt";
+    private static final String RUTA_PRODUCTOS = ArchivoUtil.DIRECTORIO_DATOS + "/productos.txt";
+    private static final String RUTA_SNAPSHOT = ArchivoUtil.DIRECTORIO_DATOS + "/productos.bin";
+    private static final String RUTA_IDS = ArchivoUtil.DIRECTORIO_DATOS + "/productos.ids";
+    private static final int BLOQUE_IDS = 1024;
+    private static final long TAMANIO_MINIMO_PARALELO = 4L * 1024 * 1024; // 4 MB
+    private static final String REGISTRO_PRODUCTO = "P;";
+    private static final String REGISTRO_ELIMINACION = "D;";
+    private static final char CURSOR_PRODUCTOS = 'p';
+
+    public ProductoService() {
+        this(new CatalogoEnMemoria());
+    }
+
+    /**
+     * @param catalogo Almacenamiento a usar; por ejemplo un {@link ProductoStore} para catálogos
+     *                 muy grandes, que guarda los datos por columnas en lugar de un objeto por producto.
+     */
+    public ProductoService(Catalogo catalogo) {
+        this(catalogo, RelojDias.predeterminado());
+    }
+
+    /** @param reloj Fecha de "hoy" para las consultas de vencimiento. */
+    public ProductoService(Catalogo catalogo, RelojDias reloj) {
+        if (catalogo == null) {
+            throw new IllegalArgumentException("El catálogo no puede ser nulo.");
+        }
+        if (reloj == null) {
+            throw new IllegalArgumentException("El reloj no puede ser nulo.");
+        }
+        this.catalogo = catalogo;
+        this.reloj = reloj;
+    }
 
     // ==========================================================
     // 🔹 MÉTODOS PRINCIPALES DE AGREGADO
     // ==========================================================
 
     public Producto agregarProducto(String nombre, double precio, int stock) {
-        return agregarGenerico(new Producto(nextId, nombre, precio, stock), stock);
+        return agregarGenerico(new Producto(0, nombre, precio, stock), stock);
     }
 
     public Producto agregarBebida(String nombre, double precio, int stock, double litros) {
-        return agregarGenerico(new Bebida(nextId, nombre, precio, stock, litros), stock);
+        return agregarGenerico(new Bebida(0, nombre, precio, stock, litros), stock);
     }
 
     public Producto agregarComida(String nombre, double precio, int stock, LocalDate fechaVencimiento) {
-        return agregarGenerico(new Comida(nextId, nombre, precio, stock, fechaVencimiento), stock);
+        return agregarGenerico(new Comida(0, nombre, precio, stock, fechaVencimiento), stock);
     }
 
     private Producto agregarGenerico(Producto nuevo, int stock) {
-        Optional<Producto> existente = buscarPorNombreYPrecio(nuevo.getNombre(), nuevo.getPrecio());
-        if (existente.isPresent()) {
-            Producto p = existente.get();
-            p.setStock(p.getStock() + stock);
-            System.out.println("ℹ️  Producto existente, se actualizó el stock.");
-            return p;
-        } else {
-            //  Usar el nextId de forma segura
-            nuevo.setId(nextId++);
-            productos.add(nuevo);
-            return nuevo;
+        long inicio = Metricas.inicio();
+        try {
+            return agregarOSumar(nuevo, stock);
+        } finally {
+            Operacion.AGREGAR_PRODUCTO.registrar(inicio);
+        }
+    }
+
+    // Buscar y dar de alta es atómico por nombre y precio: dos altas iguales en paralelo crean un
+    // solo producto y la segunda suma su stock.
+    private Producto agregarOSumar(Producto nuevo, int stock) {
+        String normalizado = Catalogo.normalizar(nuevo.getNombre());
+        long centavos = nuevo.getPrecioCentavos();
+        ids.anticipar(1);
+        Producto existente;
+        Producto resultado;
+        ReentrantLock alta = altas.deClave(normalizado.hashCode() * 31 + Long.hashCode(centavos));
+        alta.lock();
+        try {
+            existente = leerCatalogo(() -> catalogo.primeroPorNombreYPrecio(normalizado, centavos));
+            if (existente != null) {
+                sumarStock(existente, stock);
+                resultado = existente;
+            } else {
+                nuevo.setId((int) ids.siguiente());
+                ReentrantLock lock = bloqueos.de(nuevo);
+                lock.lock();
+                try {
+                    // Al journal antes de ser visible: si el journal falla, el producto no queda en el
+                    // catálogo. El catálogo puede devolver otra instancia (una vista sobre sus columnas).
+                    anotar(nuevo);
+                    resultado = alta(nuevo, normalizado);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            alta.unlock();
+        }
+        esperarJournal();
+        if (existente != null) System.out.println("ℹ️  Producto existente, se actualizó el stock.");
+        return resultado;
+    }
+
+    // ==========================================================
+    // 🔹 IMPORTACIÓN MASIVA
+    // ==========================================================
+
+    /**
+     * Importa un catálogo de proveedor (formato en {@link ImportacionProductos}) con la misma regla
+     * que agregarProducto: un producto con el mismo nombre y precio suma su stock, y si no existe
+     * se da de alta con un ID nuevo. Las filas repetidas dentro del archivo se suman antes.
+     *
+     * La lectura, la agrupación y la búsqueda en el catálogo usan todos los núcleos; los productos
+     * nuevos reciben un bloque de IDs consecutivos en el orden de su primera fila, quedan en el
+     * journal antes de ser visibles y se publican juntos (una instantánea los ve todos o ninguno).
+     * Solo el alta en los índices del catálogo es secuencial. No debe correr en paralelo con
+     * otras altas: a diferencia de agregarProducto, no toma las franjas de nombre y precio.
+     * @return Cantidades de productos insertados, filas fusionadas y filas rechazadas.
+     */
+    public ResultadoImportacion importar(Path archivo) {
+        long inicio = Metricas.inicio();
+        try {
+            return fusionar(ImportacionProductos.leer(archivo));
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("No existe el archivo a importar: " + archivo, e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer el archivo a importar: " + e.getMessage(), e);
+        } finally {
+            Operacion.IMPORTAR_PRODUCTOS.registrar(inicio);
+        }
+    }
+
+    private ResultadoImportacion fusionar(ImportacionProductos.Lectura lectura) {
+        List<ImportacionProductos.Grupo> grupos = lectura.grupos();
+        List<ResultadoImportacion.Rechazo> rechazos = new ArrayList<>(lectura.rechazos());
+        long rechazados = lectura.rechazados();
+
+        // 1. Cada grupo se busca en el catálogo en paralelo (solo lecturas).
+        grupos.parallelStream().forEach(g -> g.existente = leerCatalogo(() ->
+                catalogo.primeroPorNombreYPrecio(g.nombreNormalizado, g.producto.getPrecioCentavos())));
+
+        // 2. Un stock acumulado que no entra en un int rechaza todas las filas del grupo.
+        List<ImportacionProductos.Grupo> nuevos = new ArrayList<>();
+        List<ImportacionProductos.Grupo> fusiones = new ArrayList<>();
+        long filasAceptadas = 0;
+        for (ImportacionProductos.Grupo g : grupos) {
+            long resultante = g.stock + (g.existente != null ? g.existente.getStock() : 0);
+            if (resultante > Integer.MAX_VALUE) {
+                rechazados += g.filas;
+                if (rechazos.size() < ImportacionProductos.MAX_RECHAZOS_INFORMADOS) {
+                    rechazos.add(new ResultadoImportacion.Rechazo(g.linea, "El stock acumulado de '"
+                            + g.producto.getNombre() + "' supera el máximo (" + Integer.MAX_VALUE + ")."));
+                }
+                continue;
+            }
+            filasAceptadas += g.filas;
+            (g.existente != null ? fusiones : nuevos).add(g);
+        }
+        rechazos.sort(Comparator.comparingLong(ResultadoImportacion.Rechazo::linea));
+
+        // 3. Altas: IDs en bloque, en el orden de la primera fila de cada producto.
+        nuevos.sort(Comparator.comparingLong(g -> g.linea));
+        int primerId = (int) ids.reservar(nuevos.size());
+        for (int i = 0; i < nuevos.size(); i++) {
+            ImportacionProductos.Grupo g = nuevos.get(i);
+            g.producto.setId(primerId + i);
+            g.producto.setStock((int) g.stock);
         }
+        // Al journal antes de ser visibles: ningún pedido puede anotarse antes que su producto.
+        Journal j = journal;
+        if (j != null) {
+            j.anotarTodos(nuevos.parallelStream().map(g -> REGISTRO_PRODUCTO + productoAString(g.producto)).toList());
+        }
+        List<Producto> agregados = new ArrayList<>(nuevos.size());
+        for (ImportacionProductos.Grupo g : nuevos) {
+            Producto guardado = escribirCatalogo(() -> catalogo.agregar(g.producto, g.nombreNormalizado));
+            vencimientos.actualizar(guardado);
+            agregados.add(guardado);
+        }
+        nombres.actualizarTodos(agregados);
+        versiones.publicar(agregados);
+
+        // 4. Fusiones: cada producto existente aparece en un solo grupo.
+        fusiones.parallelStream().forEach(g -> sumarStock(g.existente, (int) g.stock));
+
+        esperarJournal();
+        return new ResultadoImportacion(nuevos.size(), filasAceptadas - nuevos.size(), rechazados, rechazos);
     }
 
     // ==========================================================
@@ -53,37 +254,95 @@ public class ProductoService {
     // ==========================================================
 
     public List<Producto> listarProductos() {
-        return new ArrayList<>(productos);
+        return leerCatalogo(catalogo::listar);
+    }
+
+    /**
+     * Una página del catálogo en orden de alta. Solo recorre los productos de la página: el costo
+     * no depende del tamaño del catálogo. El cursor recuerda la posición y no un desplazamiento,
+     * así que las bajas entre una página y otra no hacen saltear ni repetir productos.
+     * @param cursor null para la primera página, o el cursor de la página anterior.
+     */
+    public Pagina<Producto> listarProductos(String cursor, int tamanio) {
+        Pagina.validarTamanio(tamanio);
+        Iterator<Catalogo.Entrada> it = recorrer(Pagina.posicion(cursor, CURSOR_PRODUCTOS));
+        List<Producto> elementos = new ArrayList<>(Math.min(tamanio, 64));
+        while (elementos.size() < tamanio && it.hasNext()) {
+            elementos.add(it.next().producto());
+        }
+        String siguiente = it.hasNext() ? Pagina.cursor(CURSOR_PRODUCTOS, it.next().posicion()) : null;
+        return new Pagina<>(elementos, siguiente);
+    }
+
+    /** Todo el catálogo en orden de alta, de a un producto y sin copiarlo (ver Catalogo.recorrer). */
+    public Stream<Producto> streamProductos() {
+        Spliterator<Catalogo.Entrada> entradas = Spliterators.spliteratorUnknownSize(recorrer(0),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(entradas, false).map(Catalogo.Entrada::producto);
+    }
+
+    /**
+     * Abre una vista del catálogo fija en este momento, para reportes y recorridos largos que
+     * necesitan un estado consistente (por ejemplo, sin un pedido aplicado a medias). Leerla
+     * no toma bloqueos ni demora a los pedidos. Hay que cerrarla al terminar.
+     */
+    public Instantanea instantanea() {
+        return versiones.abrir();
+    }
+
+    /**
+     * Crece con cada alta, modificación, baja o cambio de stock, una vez visible en las
+     * instantáneas. PersistenciaService lo compara con el del último guardado para no reescribir
+     * un catálogo sin cambios.
+     */
+    long generacion() {
+        return versiones.selloVisible();
     }
 
     public boolean estaVacio() {
-        return productos.isEmpty();
+        return leerCatalogo(catalogo::tamanio) == 0;
     }
 
     public Optional<Producto> buscarPorId(int id) {
-        //  Uso de Stream API
-        return productos.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst();
+        long inicio = Metricas.inicio();
+        try {
+            return Optional.ofNullable(porId(id));
+        } finally {
+            Operacion.BUSCAR_PRODUCTO_POR_ID.registrar(inicio);
+        }
     }
 
     public Optional<Producto> buscarPorNombre(String nombre) {
-        //  Uso de Stream API
-        return productos.stream()
-                .filter(p -> p.getNombre().equalsIgnoreCase(nombre))
-                .findFirst();
+        if (nombre == null) return Optional.empty();
+        long inicio = Metricas.inicio();
+        try {
+            String normalizado = Catalogo.normalizar(nombre);
+            return Optional.ofNullable(leerCatalogo(() -> catalogo.primeroPorNombre(normalizado)));
+        } finally {
+            Operacion.BUSCAR_PRODUCTO_POR_NOMBRE.registrar(inicio);
+        }
     }
 
     public Optional<Producto> buscarPorNombreYPrecio(String nombre, double precio) {
-        //  Uso de Stream API
-        return productos.stream()
-                .filter(p -> p.getNombre().equalsIgnoreCase(nombre) && p.getPrecio() == precio)
-                .findFirst();
+        if (nombre == null) return Optional.empty();
+        String normalizado = Catalogo.normalizar(nombre);
+        long centavos = Dinero.centavosDe(precio);
+        return Optional.ofNullable(leerCatalogo(() -> catalogo.primeroPorNombreYPrecio(normalizado, centavos)));
     }
 
     public boolean eliminarProducto(int id) {
-
-        return productos.removeIf(p -> p.getId() == id);
+        Producto eliminado = porId(id);
+        if (eliminado == null) return false;
+        ReentrantLock lock = bloqueos.de(eliminado);
+        lock.lock();
+        try {
+            anotarEliminacion(id);
+            baja(eliminado);
+        } finally {
+            lock.unlock();
+        }
+        esperarJournal();
+        return true;
     }
 
 
@@ -91,108 +350,712 @@ public class ProductoService {
         Optional<Producto> opt = buscarPorId(id);
         if (opt.isPresent()) {
             Producto p = opt.get();
+            ReentrantLock lock = bloqueos.de(p);
+            lock.lock();
+            try {
+                // El estado nuevo se valida y se anota antes de tocar el producto: un nombre
+                // inválido o un journal que falla no dejan nada aplicado.
+                String nombre = nuevoNombre != null && !nuevoNombre.isBlank()
+                        ? Producto.validarNombre(nuevoNombre) : p.getNombre();
+                long precioCentavos = nuevoPrecio != null && nuevoPrecio >= 0
+                        ? Dinero.centavosDe(nuevoPrecio) : p.getPrecioCentavos();
+                int stock = nuevoStock != null && nuevoStock >= 0 ? nuevoStock : p.getStock();
+                anotar(p, nombre, precioCentavos, stock);
+
+                // Nombre y precio forman parte de las claves de los índices secundarios:
+                // el catálogo los reindexa.
+                modificar(p, x -> {
+                    x.setNombre(nombre);
+                    x.setPrecioCentavos(precioCentavos);
+                });
+                reindexar(p);
+                p.setStock(stock);
+            } finally {
+                versiones.publicar(p);
+                lock.unlock();
+            }
+            esperarJournal();
+
+            return true;
+        }
+        return false;
+
+    }
+
+    // ==========================================================
+    // 🔹 VENCIMIENTOS
+    // ==========================================================
+
+    /** Comidas ya vencidas a la fecha de hoy, de la más antigua a la más reciente. */
+    public List<Producto> listarVencidos() {
+        return vencimientos.antesDe(reloj.hoy(), this::porId);
+    }
+
+    /**
+     * Comidas vigentes que vencen dentro de los próximos días, de la más próxima a la más lejana.
+     * @param dias 0 = las que vencen hoy.
+     */
+    public List<Producto> listarPorVencer(int dias) {
+        if (dias < 0) {
+            throw new IllegalArgumentException("⚠️  La cantidad de días no puede ser negativa.");
+        }
+        LocalDate hoy = reloj.hoy();
+        return vencimientos.entre(hoy, hoy.plusDays(dias), this::porId);
+    }
+
+    // ==========================================================
+    // 🔹 BÚSQUEDA POR NOMBRE (TYPEAHEAD)
+    // ==========================================================
+
+    /**
+     * Productos en los que cada palabra del texto es el comienzo de una palabra del nombre,
+     * sin distinguir mayúsculas ni acentos ("cafe co" → "Café con leche").
+     * @param maximo Cantidad máxima de resultados, los más relevantes primero.
+     */
+    public List<Producto> buscarPorPrefijo(String texto, int maximo) {
+        return resolver(nombres.buscarPorPrefijo(texto, maximo));
+    }
+
+    /** Igual que buscarPorPrefijo, pero tolera errores de tipeo ("cafe cno" → "Café con leche"). */
+    public List<Producto> buscarAproximado(String texto, int maximo) {
+        return resolver(nombres.buscarAproximado(texto, maximo));
+    }
+
+    private List<Producto> resolver(int[] ids) {
+        List<Producto> resultado = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Producto p = porId(id);
+            if (p != null) resultado.add(p);
+        }
+        return resultado;
+    }
+
+    // Toda alta, baja, modificación o vaciado del catálogo pasa por acá para mantener los índices
+    // de vencimientos y de nombres.
+    private Producto alta(Producto p) {
+        return alta(p, Catalogo.normalizar(p.getNombre()));
+    }
+
+    private Producto alta(Producto p, String nombreNormalizado) {
+        Producto guardado = escribirCatalogo(() -> catalogo.agregar(p, nombreNormalizado));
+        reindexar(guardado);
+        versiones.publicar(guardado);
+        return guardado;
+    }
+
+    private void reindexar(Producto p) {
+        vencimientos.actualizar(p);
+        nombres.actualizar(p.getId(), p.getNombre());
+    }
+
+    private void baja(Producto p) {
+        escribirCatalogo(() -> {
+            catalogo.quitar(p);
+            return null;
+        });
+        vencimientos.quitar(p.getId());
+        nombres.quitar(p.getId());
+        versiones.publicarBaja(p.getId());
+    }
 
-            if (nuevoNombre != null && !nuevoNombre.isBlank()) {
-                p.setNombre(nuevoNombre.trim());
+    private Producto porId(int id) {
+        Lock lectura = bloqueoCatalogo.readLock();
+        lectura.lock();
+        try {
+            return catalogo.porId(id);
+        } finally {
+            lectura.unlock();
+        }
+    }
+
+    private void modificar(Producto p, Consumer<Producto> cambio) {
+        escribirCatalogo(() -> {
+            catalogo.modificar(p, cambio);
+            return null;
+        });
+    }
+
+    // Recorrido en orden de alta que toma el bloqueo de lectura en cada paso y no durante todo
+    // el recorrido (los catálogos toleran altas y bajas entre un paso y otro).
+    private Iterator<Catalogo.Entrada> recorrer(long desde) {
+        Iterator<Catalogo.Entrada> it = leerCatalogo(() -> catalogo.recorrer(desde));
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return leerCatalogo(it::hasNext);
+            }
+
+            @Override
+            public Catalogo.Entrada next() {
+                return leerCatalogo(it::next);
             }
+        };
+    }
+
+    private <T> T leerCatalogo(Supplier<T> lectura) {
+        Lock bloqueo = bloqueoCatalogo.readLock();
+        bloqueo.lock();
+        try {
+            return lectura.get();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    private <T> T escribirCatalogo(Supplier<T> escritura) {
+        Lock bloqueo = bloqueoCatalogo.writeLock();
+        bloqueo.lock();
+        try {
+            return escritura.get();
+        } finally {
+            bloqueo.unlock();
+        }
+    }
+
+    private void vaciar() {
+        escribirCatalogo(() -> {
+            catalogo.limpiar();
+            return null;
+        });
+        vencimientos.limpiar();
+        nombres.limpiar();
+        versiones.limpiar();
+    }
+
+    // ==========================================================
+    // 🔹 STOCK CONCURRENTE
+    // ==========================================================
+
+    /**
+     * Valida y descuenta de forma atómica las cantidades indicadas para cada producto.
+     * Se bloquean solo las franjas de los productos involucrados, en orden ascendente.
+     * @param cantidades Cantidad total por producto (mapa por identidad, sin repetir productos).
+     * @param confirmacion Se ejecuta con los bloqueos todavía tomados, después del descuento
+     *                     (registra el pedido y lo anota en el journal en el mismo orden que el stock).
+     *                     Si lanza una excepción (por ejemplo, el journal falló) el descuento se deshace.
+     * @throws StockInsuficienteException Si algún producto no alcanza; en ese caso no se descuenta nada.
+     * @throws IllegalArgumentException Si alguna cantidad es menor a 1 (sin tomar bloqueos).
+     */
+    <T> T descontarStock(Map<Producto, Integer> cantidades, Supplier<T> confirmacion) throws StockInsuficienteException {
+        return descontarStock(cantidades, false, confirmacion);
+    }
+
+    // Antes de tomar bloqueos: una cantidad de 0 o negativa sumaría stock en lugar de descontarlo.
+    private static void validarCantidades(Map<Producto, Integer> cantidades) {
+        for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+            if (e.getValue() == null || e.getValue() <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto: " + e.getKey().getNombre());
+            }
+        }
+    }
+
+    /**
+     * Como {@link #descontarStock(Map, Supplier)}, para confirmar una reserva: las cantidades ya
+     * estaban retenidas, así que se validan contra el stock (no contra el disponible) y se
+     * liberan junto con el descuento. Si no alcanza (el stock se corrigió a mano por debajo de lo
+     * reservado) no descuenta ni libera nada: eso queda a cargo de quien confirma.
+     */
+    <T> T descontarReservado(Map<Producto, Integer> cantidades, Supplier<T> confirmacion) throws StockInsuficienteException {
+        return descontarStock(cantidades, true, confirmacion);
+    }
 
-            if (nuevoPrecio != null && nuevoPrecio >= 0) {
-                p.setPrecio(nuevoPrecio);
+    private <T> T descontarStock(Map<Producto, Integer> cantidades, boolean reservado, Supplier<T> confirmacion)
+            throws StockInsuficienteException {
+        validarCantidades(cantidades);
+        int[] franjas = bloqueos.franjasDe(cantidades.keySet());
+        bloqueos.bloquear(franjas);
+        try {
+            for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+                Producto p = e.getKey();
+                int disponible = reservado ? p.getStock() : disponible(p);
+                if (e.getValue() > disponible) {
+                    Contador.STOCK_INSUFICIENTE.incrementar();
+                    throw new StockInsuficienteException(
+                            "Stock insuficiente para el producto: " + p.getNombre() +
+                                    ". Disponible: " + disponible + ", Solicitado: " + e.getValue());
+                }
+            }
+            // Primero el stock y después lo reservado: una lectura sin bloqueos del disponible
+            // puede quedarse corta por un instante, nunca pasarse. La confirmación anota el
+            // stock resultante, así que el descuento va antes y se deshace si ella falla.
+            for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+                Producto p = e.getKey();
+                p.setStock(p.getStock() - e.getValue());
+            }
+            T resultado;
+            try {
+                resultado = confirmacion.get();
+            } catch (RuntimeException ex) {
+                for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+                    Producto p = e.getKey();
+                    p.setStock(p.getStock() + e.getValue());
+                }
+                throw ex;
             }
+            if (reservado) quitarReservado(cantidades);
+            versiones.publicar(cantidades.keySet());
+            return resultado;
+        } finally {
+            bloqueos.desbloquear(franjas);
+        }
+    }
+
+    /**
+     * Ejecuta la acción con las franjas de stock de esos productos tomadas, en orden ascendente.
+     * La usa el alta de pedidos por lote, que valida y descuenta muchos pedidos bajo un solo bloqueo.
+     * Los cambios de stock de la acción se publican juntos, como un solo momento del catálogo.
+     */
+    <T> T conBloqueosDeStock(Collection<Producto> productos, Supplier<T> accion) {
+        int[] franjas = bloqueos.franjasDe(productos);
+        bloqueos.bloquear(franjas);
+        try {
+            return accion.get();
+        } finally {
+            versiones.publicar(productos);
+            bloqueos.desbloquear(franjas);
+        }
+    }
+
+    // ==========================================================
+    // 🔹 RESERVAS
+    // ==========================================================
+
+    /** Unidades del producto retenidas por reservas activas (ver ReservaService). No toma bloqueos. */
+    public int reservado(int idProducto) {
+        return reservados.getOrDefault(idProducto, 0);
+    }
 
-            if (nuevoStock != null && nuevoStock >= 0) {
-                p.setStock(nuevoStock);
+    /**
+     * Stock que todavía se puede pedir o reservar: el stock menos lo reservado. No toma
+     * bloqueos; con pedidos en curso puede quedarse corto por un instante, nunca pasarse.
+     */
+    public int disponible(Producto p) {
+        return Math.max(0, p.getStock() - reservado(p.getId()));
+    }
+
+    /**
+     * Retiene las cantidades si todas entran en el disponible; si alguna no entra no retiene
+     * nada. El stock no cambia: solo deja de estar disponible para otros pedidos y reservas.
+     * @throws StockInsuficienteException Si algún producto no alcanza.
+     */
+    void reservar(Map<Producto, Integer> cantidades) throws StockInsuficienteException {
+        validarCantidades(cantidades);
+        int[] franjas = bloqueos.franjasDe(cantidades.keySet());
+        bloqueos.bloquear(franjas);
+        try {
+            for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+                Producto p = e.getKey();
+                if (e.getValue() > disponible(p)) {
+                    Contador.STOCK_INSUFICIENTE.incrementar();
+                    throw new StockInsuficienteException(
+                            "Stock insuficiente para reservar el producto: " + p.getNombre() +
+                                    ". Disponible: " + disponible(p) + ", Solicitado: " + e.getValue());
+                }
             }
+            for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+                reservados.merge(e.getKey().getId(), e.getValue(), Integer::sum);
+            }
+        } finally {
+            bloqueos.desbloquear(franjas);
+        }
+    }
+
+    /** Devuelve al disponible las cantidades de una reserva que venció o se canceló. */
+    void liberar(Map<Producto, Integer> cantidades) {
+        int[] franjas = bloqueos.franjasDe(cantidades.keySet());
+        bloqueos.bloquear(franjas);
+        try {
+            quitarReservado(cantidades);
+        } finally {
+            bloqueos.desbloquear(franjas);
+        }
+    }
+
+    // Con las franjas tomadas. Un producto sin nada reservado sale del mapa.
+    private void quitarReservado(Map<Producto, Integer> cantidades) {
+        for (Map.Entry<Producto, Integer> e : cantidades.entrySet()) {
+            reservados.computeIfPresent(e.getKey().getId(), (id, n) -> n > e.getValue() ? n - e.getValue() : null);
+        }
+    }
 
+    private void sumarStock(Producto p, int cantidad) {
+        ReentrantLock lock = bloqueos.de(p);
+        lock.lock();
+        try {
+            int stock = p.getStock() + cantidad;
+            anotar(p, p.getNombre(), p.getPrecioCentavos(), stock);
+            p.setStock(stock);
+            versiones.publicar(p);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==========================================================
+    // 🔹 JOURNAL
+    // ==========================================================
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /** Desde acá cada bloque de IDs nuevo queda en el archivo de IDs antes de entregarse. */
+    void conectarIds() {
+        try {
+            ids.conectar(Paths.get(RUTA_IDS));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al leer los IDs de productos: " + e.getMessage(), e);
+        }
+    }
+
+    void desconectarIds() {
+        try {
+            ids.desconectar();
+        } catch (IOException e) {
+            // La marca anterior ya cubre todo lo entregado: solo se pierde el resto del bloque.
+            System.out.println("⚠️ No se pudo guardar el archivo de IDs de productos: " + e.getMessage());
+        }
+    }
+
+    void setConfirmacionDiferida(boolean confirmacionDiferida) {
+        this.confirmacionDiferida = confirmacionDiferida;
+    }
+
+    // Se llama con el bloqueo del producto tomado y antes de aplicar el cambio en memoria: si el
+    // journal falla, no queda nada aplicado. El registro lleva el estado absoluto, así
+    // reproducirlo dos veces (journal + snapshot) deja el mismo resultado.
+    private void anotar(Producto p) {
+        anotar(p, p.getNombre(), p.getPrecioCentavos(), p.getStock());
+    }
+
+    // El producto con esos valores, que todavía no se aplicaron.
+    private void anotar(Producto p, String nombre, long precioCentavos, int stock) {
+        Journal j = journal;
+        if (j != null) j.anotar(REGISTRO_PRODUCTO + productoAString(p, nombre, precioCentavos, stock));
+    }
+
+    private void anotarEliminacion(int id) {
+        Journal j = journal;
+        if (j != null) j.anotar(REGISTRO_ELIMINACION + id);
+    }
+
+    /** Espera el fsync de lo anotado; se llama ya sin bloqueos para aprovechar el group commit. */
+    void esperarJournal() {
+        Journal j = journal;
+        if (j != null && !confirmacionDiferida) j.esperarDurable();
+    }
+
+    /** Stock de un producto según un registro de pedido del journal, durante la recuperación. */
+    void restaurarStock(Producto p, int stock) {
+        p.setStock(stock);
+        versiones.publicar(p);
+    }
+
+    /** Aplica un registro del journal durante la recuperación, sin volver a anotarlo. */
+    boolean aplicarRegistro(String registro) {
+        if (registro.startsWith(REGISTRO_PRODUCTO)) {
+            restaurar(parsearLineaAProducto(registro.substring(REGISTRO_PRODUCTO.length())));
+            return true;
+        }
+        if (registro.startsWith(REGISTRO_ELIMINACION)) {
+            Producto p = porId(Integer.parseInt(registro.substring(REGISTRO_ELIMINACION.length())));
+            if (p != null) baja(p);
             return true;
         }
         return false;
+    }
 
+    // Actualiza en el lugar (los pedidos ya cargados apuntan a la misma instancia) o da de alta.
+    private void restaurar(Producto leido) {
+        Producto actual = porId(leido.getId());
+        if (actual == null) {
+            alta(leido);
+        } else {
+            modificar(actual, x -> {
+                x.setNombre(leido.getNombre());
+                x.setPrecioCentavos(leido.getPrecioCentavos());
+                x.setStock(leido.getStock());
+                if (x instanceof Bebida b && leido instanceof Bebida l) b.setLitros(l.getLitros());
+                if (x instanceof Comida c && leido instanceof Comida l) c.setFechaVencimiento(l.getFechaVencimiento());
+            });
+            reindexar(actual);
+            versiones.publicar(actual);
+        }
+        ids.avanzar(leido.getId());
     }
 
     // ==========================================================
     // 🔹 PERSISTENCIA DE DATOS
     // ==========================================================
 
-    public void guardarEnArchivo() {
-        // Uso de Stream API para hacer el mapeo de datos más conciso.
-        List<String> lineas = productos.stream()
-                .map(this::productoAString) // Uso de método de referencia para encapsular la lógica
-                .collect(Collectors.toList());
+    /** Guarda el catálogo tal como estaba al empezar, aunque sigan entrando pedidos mientras tanto. */
+    public boolean guardarEnArchivo() {
+        long inicio = Metricas.inicio();
+        try {
+            return ArchivoUtil.escribirRegistros(RUTA_PRODUCTOS, this::exportar);
+        } finally {
+            Operacion.GUARDAR_PRODUCTOS.registrar(inicio);
+        }
+    }
 
-        ArchivoUtil.escribirLineas(RUTA_PRODUCTOS, lineas);
+    /**
+     * Escribe el catálogo con el formato de productos.txt, desde una instantánea.
+     * Cada fila se escribe campo a campo sobre un buffer reutilizable (sin String.format).
+     */
+    public void exportar(EscritorCampos escritor) {
+        try (Instantanea instantanea = instantanea()) {
+            instantanea.stream().forEach(p -> escribirProducto(escritor, p));
+        }
     }
 
-    // Método privado para generar la línea de texto (limpia guardarEnArchivo)
-    private String productoAString(Producto p) {
+    /** Una línea de productos.txt: tipo;id;nombre;precio;stock[;litros|fecha] (igual que productoAString). */
+    public static void escribirProducto(EscritorCampos escritor, Producto p) {
+        escritor.texto(p instanceof Bebida ? "Bebida" : p instanceof Comida ? "Comida" : "Producto")
+                .entero(p.getId())
+                .texto(p.getNombre())
+                .decimalEscalado(p.getPrecioCentavos(), 2)
+                .entero(p.getStock());
         if (p instanceof Bebida b) {
-            return String.format("Bebida;%d;%s;%.2f;%d;%.1f",
-                    b.getId(), b.getNombre(), b.getPrecio(), b.getStock(), b.getLitros());
+            escritor.decimal(b.getLitros(), 1);
         } else if (p instanceof Comida c) {
-            return String.format("Comida;%d;%s;%.2f;%d;%s",
-                    c.getId(), c.getNombre(), c.getPrecio(), c.getStock(), c.getFechaVencimiento());
-        } else {
-            return String.format("Producto;%d;%s;%.2f;%d",
-                    p.getId(), p.getNombre(), p.getPrecio(), p.getStock());
+            escritor.fecha(c.getFechaVencimiento());
+        }
+        escritor.finLinea();
+    }
+
+    // Línea de texto de un producto; se usa para los registros del journal.
+    private static String productoAString(Producto p) {
+        return productoAString(p, p.getNombre(), p.getPrecioCentavos(), p.getStock());
+    }
+
+    // El tipo, el ID y el dato extra salen del producto; nombre, precio y stock, de los parámetros.
+    // Mismo formato que escribirProducto, dígito a dígito y sin String.format: no depende del Locale.
+    private static String productoAString(Producto p, String nombre, long precioCentavos, int stock) {
+        StringBuilder sb = new StringBuilder(48 + nombre.length())
+                .append(p instanceof Bebida ? "Bebida" : p instanceof Comida ? "Comida" : "Producto")
+                .append(';').append(p.getId())
+                .append(';').append(nombre)
+                .append(';');
+        EscritorCampos.anexarDecimalEscalado(sb, precioCentavos, 2).append(';').append(stock);
+        if (p instanceof Bebida b) {
+            EscritorCampos.anexarDecimal(sb.append(';'), b.getLitros(), 1);
+        } else if (p instanceof Comida c) {
+            sb.append(';').append(c.getFechaVencimiento());
         }
+        return sb.toString();
     }
 
 
     /**
      * Carga los productos desde el archivo. Si encuentra un error de formato o datos faltantes,
      * lanza una IllegalStateException (RuntimeException) para detener la carga.
+     * El archivo se recorre en streaming: no se arma una lista de líneas ni se hace split por fila.
      */
     public void cargarDesdeArchivo() {
-        List<String> lineas = ArchivoUtil.leerLineas(RUTA_PRODUCTOS);
-        productos.clear();
+        vaciar();
         int maxId = 0;
 
-        for (String linea : lineas) {
-            try {
-                // Encapsulamos la lógica de parseo en un método auxiliar para limpieza.
-                Producto nuevoProducto = parsearLineaAProducto(linea);
-                productos.add(nuevoProducto);
-                maxId = Math.max(maxId, nuevoProducto.getId());
+        try (LectorCampos lector = ArchivoUtil.abrirLector(RUTA_PRODUCTOS)) {
+            while (lector.siguienteLinea()) {
+                try {
+                    // Encapsulamos la lógica de parseo en un método auxiliar para limpieza.
+                    Producto nuevoProducto = parsearProducto(lector);
+                    if (porId(nuevoProducto.getId()) != null) {
+                        throw new IllegalStateException("ID de producto duplicado: " + nuevoProducto.getId());
+                    }
+                    alta(nuevoProducto);
+                    maxId = Math.max(maxId, nuevoProducto.getId());
+
+                } catch (IllegalStateException | NumberFormatException | DateTimeParseException e) {
+                    // En lugar de solo imprimir, lanzamos una RuntimeException.
+                    // Esto detiene la carga si hay un error crítico.
+                    throw errorDeCarga(lector.numeroLinea(), lector.lineaActual(), e);
+                }
+            }
+        }
+
+        // Sin archivo de IDs (primer arranque), la numeración sigue desde lo cargado.
+        ids.avanzar(maxId);
+    }
+
+    /**
+     * Igual que cargarDesdeArchivo, pero divide el archivo en trozos alineados a fin de línea
+     * y los parsea en paralelo sobre el ForkJoinPool común. Los trozos se fusionan en el orden
+     * del archivo, así el catálogo y sus índices quedan idénticos a los de la carga secuencial.
+     * Los archivos chicos se cargan de forma secuencial: repartirlos cuesta más de lo que ahorra.
+     */
+    public void cargarDesdeArchivoParalelo() {
+        Path ruta = Paths.get(RUTA_PRODUCTOS);
+        List<Trozo> trozos;
+        try {
+            if (!Files.exists(ruta) || Files.size(ruta) < TAMANIO_MINIMO_PARALELO) {
+                cargarDesdeArchivo();
+                return;
+            }
+            try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+                // Varios trozos por hilo, para que un trozo lento no deje a los demás esperando.
+                long[] limites = ArchivoUtil.dividirEnTrozos(canal, ForkJoinPool.getCommonPoolParallelism() * 4);
+                trozos = IntStream.range(0, limites.length - 1)
+                        .parallel()
+                        .mapToObj(i -> parsearTrozo(canal, limites[i], limites[i + 1]))
+                        .toList();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Error al cargar producto desde archivo: " + e.getMessage(), e);
+        }
+
+        // Fusión secuencial en orden de archivo: los mapas de índices no son concurrentes.
+        vaciar();
+        long lineasPrevias = 0;
+        for (Trozo trozo : trozos) {
+            if (trozo.error != null) {
+                throw errorDeCarga(lineasPrevias + trozo.lineas, trozo.lineaError, trozo.error);
+            }
+            for (int i = 0; i < trozo.leidos.size(); i++) {
+                Producto p = trozo.leidos.get(i);
+                if (porId(p.getId()) != null) {
+                    // Cada línea válida produjo exactamente un producto: el número de línea se deduce.
+                    long numero = lineasPrevias + i + 1;
+                    throw errorDeCarga(numero, leerLinea(numero),
+                            new IllegalStateException("ID de producto duplicado: " + p.getId()));
+                }
+                alta(p, trozo.nombres.get(i));
+            }
+            lineasPrevias += trozo.lineas;
+        }
+
+        ids.avanzar(trozos.stream().mapToInt(t -> t.maxId).max().orElse(0));
+    }
 
+    // Resultado de parsear un trozo del archivo: productos en orden, o la primera línea inválida.
+    private static final class Trozo {
+        final List<Producto> leidos = new ArrayList<>();
+        final List<String> nombres = new ArrayList<>(); // nombres ya normalizados para los índices
+        int maxId;
+        long lineas;          // líneas leídas (si hubo error, hasta la línea inválida inclusive)
+        String lineaError;
+        RuntimeException error;
+    }
+
+    private Trozo parsearTrozo(FileChannel canal, long inicio, long fin) {
+        Trozo trozo = new Trozo();
+        LectorCampos lector = new LectorCampos(canal, inicio, fin, 0);
+        while (lector.siguienteLinea()) {
+            try {
+                Producto p = parsearProducto(lector);
+                trozo.leidos.add(p);
+                trozo.nombres.add(Catalogo.normalizar(p.getNombre()));
+                trozo.maxId = Math.max(trozo.maxId, p.getId());
             } catch (IllegalStateException | NumberFormatException | DateTimeParseException e) {
-                // En lugar de solo imprimir, lanzamos una RuntimeException.
-                // Esto detiene la carga si hay un error crítico.
-                throw new IllegalStateException("Error al cargar producto desde archivo: Datos inválidos en línea: " + linea, e);
+                trozo.error = e;
+                trozo.lineaError = lector.lineaActual();
+                break;
+            }
+        }
+        trozo.lineas = lector.numeroLinea();
+        return trozo;
+    }
+
+    // Solo para mensajes de error: vuelve a recorrer el archivo hasta la línea pedida.
+    private static String leerLinea(long numero) {
+        try (LectorCampos lector = ArchivoUtil.abrirLector(RUTA_PRODUCTOS)) {
+            while (lector.siguienteLinea()) {
+                if (lector.numeroLinea() == numero) return lector.lineaActual();
             }
         }
+        return "";
+    }
 
-        // Uso de maxId para asegurar que nextId no se duplique
-        nextId = maxId + 1;
+    private static IllegalStateException errorDeCarga(long numeroLinea, String linea, RuntimeException causa) {
+        return new IllegalStateException("Error al cargar producto desde archivo: Datos inválidos en línea "
+                + numeroLinea + ": " + linea, causa);
     }
 
-    // Método privado para la lógica compleja de parseo (limpia cargarDesdeArchivo)
+    // ==========================================================
+    // 🔹 SNAPSHOT BINARIO
+    // ==========================================================
+
+    /**
+     * Carga el formato más reciente: el snapshot binario si existe y no es más viejo que el
+     * archivo de texto; si no, el texto (por ejemplo, después de una importación manual).
+     */
+    public void cargar() {
+        long inicio = Metricas.inicio();
+        try {
+            if (ArchivoUtil.esMasReciente(RUTA_SNAPSHOT, RUTA_PRODUCTOS)) {
+                cargarSnapshot();
+            } else {
+                cargarDesdeArchivoParalelo();
+            }
+        } finally {
+            Operacion.CARGAR_PRODUCTOS.registrar(inicio);
+        }
+    }
+
+    /** Guarda el catálogo en el snapshot binario por columnas (arranque rápido). */
+    public boolean guardarSnapshot(boolean comprimir) {
+        long inicio = Metricas.inicio();
+        try (Instantanea instantanea = instantanea()) {
+            SnapshotBinario.escribirProductos(Paths.get(RUTA_SNAPSHOT), instantanea.listar(), comprimir);
+            return true;
+        } catch (IOException e) {
+            System.out.println("⚠️ Error al escribir snapshot: " + e.getMessage());
+            return false;
+        } finally {
+            Operacion.GUARDAR_SNAPSHOT_PRODUCTOS.registrar(inicio);
+        }
+    }
+
+    public void cargarSnapshot() {
+        List<Producto> leidos;
+        try {
+            leidos = SnapshotBinario.leerProductos(Paths.get(RUTA_SNAPSHOT));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error al cargar el snapshot de productos: " + e.getMessage(), e);
+        }
+        vaciar();
+        int maxId = 0;
+        for (Producto p : leidos) {
+            alta(p);
+            maxId = Math.max(maxId, p.getId());
+        }
+        ids.avanzar(maxId);
+    }
+
+    // Parseo de un registro del journal (misma estructura que una línea del archivo).
     private Producto parsearLineaAProducto(String linea) {
-        String[] datos = linea.split(";");
+        LectorCampos lector = new LectorCampos(linea);
+        lector.siguienteLinea();
+        return parsearProducto(lector);
+    }
 
+    // Método privado para la lógica de parseo (limpia cargarDesdeArchivo). Lee los campos
+    // directamente del buffer; los números aceptan coma o punto decimal.
+    private Producto parsearProducto(LectorCampos lector) {
         // Validación de datos mínimos
-        if (datos.length < 5) {
-            throw new IllegalStateException("Línea de producto con formato inválido (menos de 5 campos): " + linea);
+        if (lector.contarCampos() < 5) {
+            throw new IllegalStateException("Línea de producto con formato inválido (menos de 5 campos): " + lector.lineaActual());
         }
 
-        String tipo = datos[0];
+        boolean esBebida = lector.campoEs("Bebida");
+        boolean esComida = lector.campoEs("Comida");
+        lector.saltarCampo();
         // Los errores de parseo (e.g. NumberFormatException) serán capturados por el try-catch en el método llamador
-        int id = Integer.parseInt(datos[1]);
-        String nombre = datos[2];
-        double precio = Double.parseDouble(datos[3].replace(",", "."));
-        int stock = Integer.parseInt(datos[4]);
-
-        return switch (tipo) {
-            case "Bebida" -> {
-                if (datos.length < 6) throw new IllegalStateException("Falta el campo 'litros' para la Bebida: " + linea);
-                double litros = Double.parseDouble(datos[5].replace(",", "."));
-                yield new Bebida(id, nombre, precio, stock, litros);
-            }
-            case "Comida" -> {
-                if (datos.length < 6) throw new IllegalStateException("Falta el campo 'fechaVencimiento' para la Comida: " + linea);
-                LocalDate fecha = LocalDate.parse(datos[5]); // Puede lanzar DateTimeParseException
-                yield new Comida(id, nombre, precio, stock, fecha);
-            }
-            default -> new Producto(id, nombre, precio, stock);
-        };
+        int id = lector.leerEntero();
+        String nombre = lector.leerTexto();
+        double precio = lector.leerDecimal();
+        int stock = lector.leerEntero();
+
+        if (esBebida) {
+            if (!lector.hayCampo()) throw new IllegalStateException("Falta el campo 'litros' para la Bebida: " + lector.lineaActual());
+            double litros = lector.leerDecimal();
+            return new Bebida(id, nombre, precio, stock, litros);
+        }
+        if (esComida) {
+            if (!lector.hayCampo()) throw new IllegalStateException("Falta el campo 'fechaVencimiento' para la Comida: " + lector.lineaActual());
+            LocalDate fecha = lector.leerFecha(); // Puede lanzar DateTimeParseException
+            return new Comida(id, nombre, precio, stock, fecha);
+        }
+        return new Producto(id, nombre, precio, stock);
     }
-}
\ No newline at end of file
+}
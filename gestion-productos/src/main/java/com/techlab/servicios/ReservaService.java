@@ -0,0 +1,216 @@
+package com.techlab.servicios;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.metricas.Contador;
+import com.techlab.metricas.Metricas;
+import com.techlab.metricas.Operacion;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.Reserva;
+import com.techlab.productos.Producto;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reservas de stock con vencimiento, para carritos y checkouts: {@link #reservar} retiene las
+ * cantidades sin descontarlas, {@link #confirmar} las convierte en un Pedido y, si nadie la
+ * confirma ni la cancela, la reserva vence y las cantidades vuelven al disponible
+ * ({@link ProductoService#disponible}, que se lee sin bloqueos).
+ *
+ * Los vencimientos viven en una rueda de temporizadores ({@link RuedaTemporizadores}): reservar
+ * y cancelar cuestan O(1) aunque haya millones de reservas abiertas, y un hilo propio avanza la
+ * rueda cada {@link #RESOLUCION_MS} ms sin recorrerlas. Ese hilo arranca con {@link #iniciar()}
+ * y se detiene con {@link #close()}; antes de iniciar no se aceptan reservas, que nunca vencerían. Una reserva se atiende una sola vez: la
+ * saca del mapa de activas quien la confirma, la cancela o la vence, y los demás no la
+ * encuentran.
+ *
+ * Las reservas están solo en memoria: como el stock nunca se descontó, un reinicio las
+ * descarta sin dejar nada retenido.
+ */
+public class ReservaService implements AutoCloseable {
+
+    /** Cada cuánto se revisan los vencimientos; una reserva vence a lo sumo esto tarde. */
+    public static final long RESOLUCION_MS = 100;
+
+    // Una reserva activa con lo que hace falta para liberarla.
+    private static final class Activa {
+        final Reserva reserva;
+        final Map<Producto, Integer> cantidades;
+        final long venceNanos;
+        volatile RuedaTemporizadores.Temporizador<Activa> temporizador;
+
+        Activa(Reserva reserva, Map<Producto, Integer> cantidades, long venceNanos) {
+            this.reserva = reserva;
+            this.cantidades = cantidades;
+            this.venceNanos = venceNanos;
+        }
+    }
+
+    private final ProductoService productoService;
+    private final PedidoService pedidoService;
+    private final Map<Long, Activa> activas = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final RuedaTemporizadores<Activa> rueda;
+    private ScheduledExecutorService vencedor; // protegido por this
+
+    public ReservaService(ProductoService productoService, PedidoService pedidoService) {
+        if (productoService == null || pedidoService == null) {
+            throw new IllegalArgumentException("Los servicios no pueden ser nulos.");
+        }
+        this.productoService = productoService;
+        this.pedidoService = pedidoService;
+        this.rueda = new RuedaTemporizadores<>(TimeUnit.MILLISECONDS.toNanos(RESOLUCION_MS), System.nanoTime());
+    }
+
+    /** Arranca el hilo de vencimientos. */
+    public synchronized void iniciar() {
+        if (vencedor != null) throw new IllegalStateException("El servicio de reservas ya está iniciado.");
+        vencedor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vencimiento-reservas");
+            t.setDaemon(true);
+            return t;
+        });
+        vencedor.scheduleAtFixedRate(this::vencer, RESOLUCION_MS, RESOLUCION_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized boolean iniciado() {
+        return vencedor != null && !vencedor.isShutdown();
+    }
+
+    /**
+     * Retiene el stock de las líneas durante el tiempo indicado. Todas las líneas se retienen
+     * juntas o ninguna.
+     * @throws StockInsuficienteException Si algún producto no tiene suficiente disponible.
+     * @throws IllegalStateException      Si el servicio no está iniciado o ya se cerró.
+     */
+    public Reserva reservar(List<LineaPedido> lineas, Duration duracion) throws StockInsuficienteException {
+        long inicio = Metricas.inicio();
+        try {
+            if (!iniciado()) throw new IllegalStateException("El servicio de reservas no está iniciado.");
+            if (lineas == null || lineas.isEmpty()) {
+                throw new IllegalArgumentException("La reserva debe tener al menos una línea.");
+            }
+            if (duracion == null || duracion.isNegative() || duracion.isZero()) {
+                throw new IllegalArgumentException("La duración de la reserva debe ser positiva.");
+            }
+            for (LineaPedido linea : lineas) {
+                if (linea.getCantidad() <= 0) {
+                    throw new IllegalArgumentException("La cantidad a reservar debe ser positiva.");
+                }
+            }
+            Map<Producto, Integer> cantidades = PedidoService.agruparPorProducto(lineas);
+            productoService.reservar(cantidades);
+
+            long venceNanos = System.nanoTime() + duracion.toNanos();
+            Activa activa = new Activa(new Reserva(nextId.getAndIncrement(), lineas, Instant.now().plus(duracion)),
+                    cantidades, venceNanos);
+            // Primero visible y después programada: si vence enseguida, el vencimiento la encuentra.
+            activas.put(activa.reserva.getId(), activa);
+            activa.temporizador = rueda.programar(activa, venceNanos);
+            return activa.reserva;
+        } finally {
+            Operacion.RESERVAR.registrar(inicio);
+        }
+    }
+
+    /**
+     * Convierte la reserva en un pedido: descuenta el stock retenido y libera la reserva.
+     * @return El pedido, o vacío si la reserva no existe, ya venció, se canceló o ya se confirmó.
+     * @throws StockInsuficienteException Si el stock se corrigió por debajo de lo reservado;
+     *                                    la reserva se libera igual.
+     */
+    public Optional<Pedido> confirmar(long idReserva) throws StockInsuficienteException {
+        long inicio = Metricas.inicio();
+        try {
+            Activa activa = tomar(idReserva);
+            if (activa == null) return Optional.empty();
+            if (System.nanoTime() - activa.venceNanos >= 0) {
+                // Vencida, aunque la rueda todavía no haya llegado a su tick.
+                liberarVencida(activa);
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(pedidoService.crearPedidoReservado(activa.reserva.getLineas(), activa.cantidades));
+            } catch (StockInsuficienteException e) {
+                productoService.liberar(activa.cantidades);
+                throw e;
+            }
+        } finally {
+            Operacion.CONFIRMAR_RESERVA.registrar(inicio);
+        }
+    }
+
+    /** Libera la reserva antes de que venza. @return false si no estaba activa. */
+    public boolean cancelar(long idReserva) {
+        Activa activa = tomar(idReserva);
+        if (activa == null) return false;
+        productoService.liberar(activa.cantidades);
+        return true;
+    }
+
+    public Optional<Reserva> buscarPorId(long idReserva) {
+        Activa activa = activas.get(idReserva);
+        return activa == null ? Optional.empty() : Optional.of(activa.reserva);
+    }
+
+    public int cantidadActivas() {
+        return activas.size();
+    }
+
+    // Saca la reserva de las activas (solo un llamador la obtiene) y cancela su vencimiento.
+    private Activa tomar(long idReserva) {
+        Activa activa = activas.remove(idReserva);
+        if (activa != null) {
+            RuedaTemporizadores.Temporizador<Activa> t = activa.temporizador;
+            if (t != null) rueda.cancelar(t);
+        }
+        return activa;
+    }
+
+    // ==========================================================
+    // 🔹 VENCIMIENTOS
+    // ==========================================================
+
+    // En el hilo de vencimientos: una excepción cancelaría las ejecuciones siguientes.
+    private void vencer() {
+        try {
+            for (Activa activa : rueda.avanzar(System.nanoTime())) {
+                if (activas.remove(activa.reserva.getId(), activa)) liberarVencida(activa);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Error al vencer reservas: " + e.getMessage());
+        }
+    }
+
+    private void liberarVencida(Activa activa) {
+        productoService.liberar(activa.cantidades);
+        Contador.RESERVAS_VENCIDAS.incrementar();
+    }
+
+    /** Detiene los vencimientos y libera todas las reservas activas. */
+    @Override
+    public void close() {
+        ScheduledExecutorService v;
+        synchronized (this) {
+            v = vencedor;
+        }
+        if (v != null) {
+            v.shutdownNow();
+            try {
+                v.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Long id : activas.keySet()) cancelar(id);
+    }
+}
@@ -0,0 +1,158 @@
+package com.techlab.servicios;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda de temporizadores jerárquica (hierarchical timing wheel): programar y cancelar cuestan
+ * O(1) sin importar cuántos temporizadores haya pendientes, y al avanzar solo se visitan los
+ * que vencen, sin recorrer el resto.
+ *
+ * El tiempo avanza de a un tick. Hay 6 niveles de 64 ranuras: una
+ * ranura del nivel n abarca 64^n ticks. Un temporizador va al nivel más bajo que alcance a
+ * cubrir lo que le falta; cuando el nivel inferior da la vuelta, la ranura que llega del nivel
+ * superior se reparte (cascada) entre los niveles de abajo, y cada temporizador baja a lo sumo
+ * una vez por nivel. Los que quedan en la ranura actual del nivel 0 vencen en ese tick.
+ *
+ * No arranca hilos: quien la usa llama a {@link #avanzar(long)} periódicamente y ejecuta lo
+ * vencido. Es segura para varios hilos (un monitor; cada operación es corta).
+ */
+final class RuedaTemporizadores<T> {
+
+    private static final int BITS = 6;
+    private static final int RANURAS = 1 << BITS;
+    private static final int MASCARA = RANURAS - 1;
+    private static final int NIVELES = 6;
+    // Lo más lejos que se puede programar en un solo paso; más allá se vuelve a ubicar al bajar.
+    private static final long ALCANCE = (1L << (BITS * NIVELES)) - 1;
+
+    /** Un temporizador programado; sirve para cancelarlo. */
+    static final class Temporizador<T> {
+        private final T valor;
+        private final long vence; // tick
+        private Temporizador<T> anterior;
+        private Temporizador<T> siguiente;
+        private int ranura = -1; // posición en ranuras; -1 = vencido o cancelado
+
+        private Temporizador(T valor, long vence) {
+            this.valor = valor;
+            this.vence = vence;
+        }
+
+        T getValor() {
+            return valor;
+        }
+    }
+
+    private final long nanosPorTick;
+    private final long origen;
+    // Primer temporizador de cada ranura: nivel * RANURAS + ranura.
+    private final Temporizador<T>[] ranuras;
+    private long actual; // último tick procesado
+    private int pendientes;
+
+    /**
+     * @param nanosPorTick Resolución: un temporizador vence a lo sumo un tick después de su hora.
+     * @param ahoraNanos   Momento inicial (System.nanoTime()).
+     */
+    RuedaTemporizadores(long nanosPorTick, long ahoraNanos) {
+        if (nanosPorTick <= 0) throw new IllegalArgumentException("El tick debe ser positivo.");
+        this.nanosPorTick = nanosPorTick;
+        this.origen = ahoraNanos;
+        // No hay arreglos de un tipo genérico; solo se guardan Temporizador<T>, así que el cast es seguro.
+        @SuppressWarnings("unchecked")
+        Temporizador<T>[] vacias = (Temporizador<T>[]) new Temporizador<?>[NIVELES * RANURAS];
+        this.ranuras = vacias;
+    }
+
+    /** Programa el valor para que venza en el primer tick que no sea anterior a venceNanos. */
+    synchronized Temporizador<T> programar(T valor, long venceNanos) {
+        long diferencia = venceNanos - origen;
+        long tick = diferencia <= 0 ? 0 : (diferencia + nanosPorTick - 1) / nanosPorTick;
+        // Lo que ya venció sale en el próximo tick: el actual ya se procesó.
+        Temporizador<T> t = new Temporizador<>(valor, Math.max(tick, actual + 1));
+        ubicar(t);
+        pendientes++;
+        return t;
+    }
+
+    /** @return true si estaba pendiente (no había vencido ni se había cancelado). */
+    synchronized boolean cancelar(Temporizador<T> t) {
+        if (t.ranura < 0) return false;
+        quitar(t);
+        pendientes--;
+        return true;
+    }
+
+    /**
+     * Procesa los ticks transcurridos hasta ahoraNanos.
+     * @return Los valores vencidos, en orden de vencimiento (por tick).
+     */
+    synchronized List<T> avanzar(long ahoraNanos) {
+        long hasta = (ahoraNanos - origen) / nanosPorTick;
+        List<T> vencidos = new ArrayList<>();
+        // Vacía no hay nada que bajar ni vencer: se saltea el tiempo muerto de una vez.
+        if (pendientes == 0 && actual < hasta) actual = hasta;
+        while (actual < hasta) {
+            actual++;
+            // Cuando un nivel da la vuelta, baja la ranura que corresponde del nivel siguiente.
+            for (int nivel = 1; nivel < NIVELES; nivel++) {
+                if ((actual & ((1L << (BITS * nivel)) - 1)) != 0) break;
+                bajar(nivel * RANURAS + (int) ((actual >>> (BITS * nivel)) & MASCARA));
+            }
+            int r = (int) (actual & MASCARA);
+            Temporizador<T> t = ranuras[r];
+            ranuras[r] = null;
+            while (t != null) {
+                Temporizador<T> siguiente = t.siguiente;
+                t.anterior = t.siguiente = null; // un temporizador retenido no retiene a los demás
+                t.ranura = -1;
+                vencidos.add(t.valor);
+                pendientes--;
+                t = siguiente;
+            }
+        }
+        return vencidos;
+    }
+
+    synchronized int pendientes() {
+        return pendientes;
+    }
+
+    // ==========================================================
+    // 🔹 RANURAS
+    // ==========================================================
+
+    private void ubicar(Temporizador<T> t) {
+        long faltan = Math.min(t.vence - actual, ALCANCE);
+        // faltan = 0 solo en una cascada: vence en este mismo tick, en la ranura actual del nivel 0.
+        int nivel = faltan == 0 ? 0 : (63 - Long.numberOfLeadingZeros(faltan)) / BITS;
+        // Si no entra en el alcance, se ubica en la ranura del tick más lejano que sí entra.
+        long tick = t.vence - actual > ALCANCE ? actual + ALCANCE : t.vence;
+        int r = nivel * RANURAS + (int) ((tick >>> (BITS * nivel)) & MASCARA);
+        t.ranura = r;
+        t.anterior = null;
+        t.siguiente = ranuras[r];
+        if (t.siguiente != null) t.siguiente.anterior = t;
+        ranuras[r] = t;
+    }
+
+    private void quitar(Temporizador<T> t) {
+        if (t.anterior != null) t.anterior.siguiente = t.siguiente;
+        else ranuras[t.ranura] = t.siguiente;
+        if (t.siguiente != null) t.siguiente.anterior = t.anterior;
+        t.anterior = t.siguiente = null;
+        t.ranura = -1;
+    }
+
+    // Reubica los temporizadores de la ranura: con el tiempo transcurrido caen en niveles más bajos.
+    private void bajar(int r) {
+        Temporizador<T> t = ranuras[r];
+        ranuras[r] = null;
+        while (t != null) {
+            Temporizador<T> siguiente = t.siguiente;
+            ubicar(t);
+            t = siguiente;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versiones de los productos para lecturas con instantánea (MVCC).
+ *
+ * Cada modificación publica, con el bloqueo del producto todavía tomado, el estado resultante
+ * marcado con un sello creciente. Una instantánea fija el último sello visible y de cada
+ * producto lee la versión más nueva que no lo supere: nunca toca los objetos vivos ni toma
+ * bloqueos, así que un listado largo o un guardado ven un único momento del catálogo mientras
+ * los pedidos siguen descontando stock.
+ *
+ * Los sellos se hacen visibles en orden: un pedido sobre varios productos usa un solo sello y
+ * una instantánea ve todos sus descuentos o ninguno.
+ *
+ * La versión vigente de cada producto vive en su propia cadena (creada en el alta, contigua a
+ * las demás) y no en un objeto aparte: si no, después de muchos pedidos cada lectura saltaría a
+ * versiones y copias dispersas por el heap, y un recorrido costaba más del doble que con el
+ * catálogo recién cargado. Las versiones anteriores cuelgan de la cadena solo mientras alguna
+ * instantánea abierta las puede leer: se podan al publicar, y sin instantáneas abiertas cada
+ * producto conserva únicamente la vigente. Un cambio de stock comparte con la versión anterior
+ * la ficha (nombre, precio, litros o vencimiento); solo un cambio de datos la copia.
+ */
+final class VersionesCatalogo {
+
+    /** Estado anterior de un producto a partir de un sello; ficha null = dado de baja. */
+    private static final class Version {
+        final long sello;
+        final Producto ficha;
+        final int stock;
+        volatile Version anterior;
+
+        Version(long sello, Producto ficha, int stock, Version anterior) {
+            this.sello = sello;
+            this.ficha = ficha;
+            this.stock = stock;
+            this.anterior = anterior;
+        }
+    }
+
+    /**
+     * Historia de un producto. La posición es la de alta, para listar en ese orden.
+     *
+     * La versión vigente se escribe con el bloqueo del producto (un solo escritor) y se lee sin
+     * bloqueos como un seqlock: cambios es impar mientras se escribe, y una lectura que lo ve
+     * cambiar vuelve a leer.
+     */
+    static final class Cadena {
+        final int id;
+        final long posicion;
+        private volatile int cambios;
+        private long sello;
+        private Producto ficha; // null = dado de baja
+        private int stock;
+        // Versiones anteriores a la vigente, de la más nueva a la más vieja.
+        private volatile Version anterior;
+
+        Cadena(int id, long posicion, long sello, Producto ficha, int stock) {
+            this.id = id;
+            this.posicion = posicion;
+            this.sello = sello;
+            this.ficha = ficha;
+            this.stock = stock;
+        }
+
+        /** @return Copia del estado vigente en ese sello, o null si el producto no existía. */
+        Producto estadoEn(long sello) {
+            long selloVigente;
+            Producto fichaVigente;
+            int stockVigente;
+            int antes;
+            while (true) {
+                antes = cambios;
+                selloVigente = this.sello;
+                fichaVigente = this.ficha;
+                stockVigente = this.stock;
+                VarHandle.acquireFence();
+                if ((antes & 1) == 0 && antes == cambios) break;
+                Thread.onSpinWait();
+            }
+            if (selloVigente <= sello) {
+                return fichaVigente == null ? null : copiar(fichaVigente, stockVigente);
+            }
+            // La versión anterior se enganchó antes de marcar el cambio: ya está a la vista.
+            Version v = anterior;
+            while (v != null && v.sello > sello) v = v.anterior;
+            return v == null || v.ficha == null ? null : copiar(v.ficha, v.stock);
+        }
+
+        boolean dadaDeBaja() {
+            return ficha == null;
+        }
+
+        // Con el bloqueo del producto tomado.
+        private void instalar(long sello, Producto p, long[] leibles) {
+            Producto nuevaFicha = p == null ? null : mismaFicha(ficha, p) ? ficha : copiar(p);
+            int nuevoStock = p == null ? 0 : p.getStock();
+            anterior = podar(new Version(this.sello, ficha, stock, anterior), leibles);
+            int c = cambios;
+            cambios = c + 1;
+            VarHandle.storeStoreFence();
+            this.sello = sello;
+            this.ficha = nuevaFicha;
+            this.stock = nuevoStock;
+            cambios = c + 2;
+        }
+
+        // Ya visible su sello: si ninguna instantánea abierta es anterior, la historia sobra.
+        private void soltarAnteriores(long piso) {
+            if (anterior != null && sello <= piso) anterior = null;
+        }
+
+        /**
+         * Se conservan solo las versiones que alguna lectura puede elegir: las que rigen en un sello
+         * leíble, desde el suyo hasta el de la versión que la reemplazó. Con una instantánea larga
+         * abierta queda una versión por producto para ella, no todas las publicadas mientras tanto.
+         * Un lector parado en una versión soltada sigue sus enlaces viejos hasta la que busca.
+         */
+        private static Version podar(Version cabeza, long[] leibles) {
+            // La cabeza (la que era vigente) rige en el sello visible: siempre hace falta.
+            Version previa = cabeza;
+            long hasta = cabeza.sello;
+            for (Version v = cabeza.anterior; v != null; v = v.anterior) {
+                if (rigeEnAlguno(v.sello, hasta, leibles)) {
+                    if (previa.anterior != v) previa.anterior = v;
+                    previa = v;
+                }
+                if (v.sello <= leibles[0]) break; // las más viejas no las lee nadie
+                hasta = v.sello;
+            }
+            if (previa.anterior != null) previa.anterior = null;
+            return cabeza;
+        }
+
+        private static boolean rigeEnAlguno(long desde, long hasta, long[] leibles) {
+            for (long s : leibles) {
+                if (s >= desde) return s < hasta;
+            }
+            return false;
+        }
+    }
+
+    /** Cadenas del catálogo. limpiar() cambia de tabla: las instantáneas abiertas conservan la suya. */
+    static final class Tabla {
+        final Map<Integer, Cadena> porId = new ConcurrentHashMap<>();
+        final ConcurrentNavigableMap<Long, Cadena> porPosicion = new ConcurrentSkipListMap<>();
+        final AtomicLong siguientePosicion = new AtomicLong();
+    }
+
+    private record Baja(Tabla tabla, Cadena cadena, long sello) {
+    }
+
+    private volatile Tabla tabla = new Tabla();
+    private final AtomicLong asignado = new AtomicLong();
+    private volatile long visible;
+    private final Set<Instantanea> abiertas = ConcurrentHashMap.newKeySet();
+    // Cadenas dadas de baja que alguna instantánea todavía puede leer; se barren más adelante.
+    private final Queue<Baja> bajas = new ConcurrentLinkedQueue<>();
+
+    // ==========================================================
+    // 🔹 PUBLICACIÓN (con los bloqueos de los productos tomados)
+    // ==========================================================
+
+    void publicar(Producto p) {
+        long sello = asignado.incrementAndGet();
+        Cadena cadena = null;
+        try {
+            cadena = instalar(tabla, p.getId(), p, sello, sellosLeibles());
+        } finally {
+            hacerVisible(sello);
+        }
+        if (cadena != null) cadena.soltarAnteriores(piso());
+    }
+
+    /** Publica varios productos con un mismo sello: una instantánea ve todos los cambios o ninguno. */
+    void publicar(Collection<Producto> productos) {
+        long sello = asignado.incrementAndGet();
+        Cadena[] cadenas = new Cadena[productos.size()];
+        int n = 0;
+        try {
+            Tabla t = tabla;
+            long[] leibles = sellosLeibles();
+            for (Producto p : productos) {
+                Cadena cadena = instalar(t, p.getId(), p, sello, leibles);
+                if (cadena != null) cadenas[n++] = cadena;
+            }
+        } finally {
+            hacerVisible(sello);
+        }
+        long piso = piso();
+        for (int i = 0; i < n; i++) cadenas[i].soltarAnteriores(piso);
+    }
+
+    void publicarBaja(int id) {
+        long sello = asignado.incrementAndGet();
+        Tabla t = tabla;
+        Cadena cadena = t.porId.get(id);
+        try {
+            if (cadena != null) instalar(t, id, null, sello, sellosLeibles());
+        } finally {
+            hacerVisible(sello);
+        }
+        if (cadena != null) {
+            bajas.add(new Baja(t, cadena, sello));
+            barrer();
+        }
+    }
+
+    /** Vacía el catálogo; las instantáneas abiertas siguen leyendo el anterior. */
+    void limpiar() {
+        tabla = new Tabla();
+        bajas.clear();
+    }
+
+    // @return La cadena que recibió una versión anterior, o null si fue un alta.
+    private Cadena instalar(Tabla t, int id, Producto p, long sello, long[] leibles) {
+        Cadena cadena = t.porId.get(id);
+        if (cadena == null || cadena.dadaDeBaja()) {
+            if (p == null) return null;
+            // Alta (o nueva alta de un ID borrado): va al final del orden de alta.
+            Cadena nueva = new Cadena(id, t.siguientePosicion.getAndIncrement(), sello, copiar(p), p.getStock());
+            t.porPosicion.put(nueva.posicion, nueva);
+            t.porId.put(id, nueva);
+            return null;
+        }
+        cadena.instalar(sello, p, leibles);
+        return cadena;
+    }
+
+    // Los sellos se asignan con los bloqueos tomados y se hacen visibles en orden, así una
+    // instantánea nunca ve un sello sin ver también todos los anteriores. La espera es corta:
+    // quien tiene el sello anterior ya tiene sus bloqueos y solo le falta instalar las copias.
+    private void hacerVisible(long sello) {
+        int vueltas = 0;
+        while (visible != sello - 1) {
+            if (++vueltas < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+        visible = sello;
+    }
+
+    /**
+     * Sello más viejo que alguna lectura puede necesitar. Se lee visible antes de recorrer las
+     * instantáneas: una que se abra después va a fijar un sello igual o mayor.
+     */
+    private long piso() {
+        long piso = visible;
+        for (Instantanea i : abiertas) piso = Math.min(piso, i.selloFijado());
+        return piso;
+    }
+
+    /**
+     * Sellos que alguna lectura puede fijar, de menor a mayor: los de las instantáneas abiertas y
+     * el visible. Una instantánea sin fijar, o que se abra después, va a fijar el visible o uno
+     * mayor, y en los productos que se están publicando todos esos sellos leen la misma versión:
+     * la que era vigente (la publicación anterior de cada uno ya se hizo visible).
+     */
+    private long[] sellosLeibles() {
+        long v = visible;
+        long[] sellos = new long[abiertas.size() + 1];
+        int n = 0;
+        for (Instantanea i : abiertas) {
+            if (n == sellos.length - 1) sellos = Arrays.copyOf(sellos, sellos.length * 2);
+            long fijado = i.selloFijado();
+            sellos[n++] = fijado == Instantanea.SIN_FIJAR ? v : fijado;
+        }
+        sellos[n++] = v;
+        if (n < sellos.length) sellos = Arrays.copyOf(sellos, n);
+        Arrays.sort(sellos);
+        return sellos;
+    }
+
+    // Una baja ya no le sirve a nadie cuando todas las instantáneas abiertas son posteriores.
+    private void barrer() {
+        synchronized (bajas) {
+            long piso = piso();
+            for (int n = bajas.size(); n > 0; n--) {
+                Baja b = bajas.poll();
+                if (b == null) break; // limpiar() concurrente
+                if (b.sello() > piso) {
+                    bajas.add(b);
+                } else {
+                    b.tabla().porPosicion.remove(b.cadena().posicion, b.cadena());
+                    b.tabla().porId.remove(b.cadena().id, b.cadena());
+                }
+            }
+        }
+    }
+
+    // ==========================================================
+    // 🔹 INSTANTÁNEAS
+    // ==========================================================
+
+    /** Último sello visible: crece con cada publicación, así que sirve para saber si hubo cambios. */
+    long selloVisible() {
+        return visible;
+    }
+
+    Instantanea abrir() {
+        // La instantánea se registra antes de fijar el sello (ver piso()); la tabla se lee primero
+        // para que un limpiar() concurrente no la deje con una tabla más nueva que su sello.
+        Tabla t = tabla;
+        Instantanea instantanea = new Instantanea(this, t);
+        abiertas.add(instantanea);
+        instantanea.fijar(visible);
+        return instantanea;
+    }
+
+    void cerrar(Instantanea instantanea) {
+        if (abiertas.remove(instantanea) && !bajas.isEmpty()) barrer();
+    }
+
+    /** Versiones anteriores a la vigente que se conservan, sumando todos los productos. */
+    long versionesRetenidas() {
+        long total = 0;
+        for (Cadena cadena : tabla.porPosicion.values()) {
+            for (Version v = cadena.anterior; v != null; v = v.anterior) total++;
+        }
+        return total;
+    }
+
+    /** Copia desacoplada del producto (o de la vista de ProductoStore) para guardar como versión. */
+    static Producto copiar(Producto p) {
+        return copiar(p, p.getStock());
+    }
+
+    private static Producto copiar(Producto p, int stock) {
+        Producto copia;
+        if (p instanceof Bebida b) {
+            copia = new Bebida(b.getId(), b.getNombre(), 0, stock, b.getLitros());
+        } else if (p instanceof Comida c) {
+            copia = new Comida(c.getId(), c.getNombre(), 0, stock, c.getFechaVencimiento());
+        } else {
+            copia = new Producto(p.getId(), p.getNombre(), 0, stock);
+        }
+        copia.setPrecioCentavos(p.getPrecioCentavos());
+        return copia;
+    }
+
+    // true si p solo difiere de la ficha en el stock (el caso de casi todas las publicaciones).
+    private static boolean mismaFicha(Producto ficha, Producto p) {
+        if (ficha == null || ficha.getPrecioCentavos() != p.getPrecioCentavos() || !ficha.getNombre().equals(p.getNombre())) {
+            return false;
+        }
+        if (p instanceof Bebida b) return ficha instanceof Bebida f && f.getLitros() == b.getLitros();
+        if (p instanceof Comida c) {
+            return ficha instanceof Comida f && Objects.equals(f.getFechaVencimiento(), c.getFechaVencimiento());
+        }
+        return !(ficha instanceof Bebida) && !(ficha instanceof Comida);
+    }
+}
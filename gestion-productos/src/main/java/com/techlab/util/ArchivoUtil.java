@@ -1,27 +1,134 @@
 package com.techlab.util;
 
+import com.techlab.metricas.Metricas;
+import com.techlab.metricas.Operacion;
+
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Clase utilitaria para leer y escribir archivos de texto.
  */
 public class ArchivoUtil {
 
-    public static void escribirLineas(String ruta, List<String> lineas) {
-        try {
-            File file = new File(ruta);
-            file.getParentFile().mkdirs(); // crea carpeta /data si no existe
-            PrintWriter writer = new PrintWriter(new FileWriter(file));
+    /**
+     * Carpeta de los archivos de datos, relativa al directorio de trabajo. Se puede cambiar con
+     * -Dtechlab.datos=&lt;carpeta&gt; (por ejemplo, para que los benchmarks no pisen los datos reales).
+     */
+    public static final String DIRECTORIO_DATOS = System.getProperty("techlab.datos", "data");
+
+    /**
+     * Escribe las líneas en un archivo temporal y lo renombra sobre el destino,
+     * así una caída a mitad de la escritura nunca deja el archivo a medio escribir.
+     * @return true si el archivo quedó escrito en disco.
+     */
+    public static boolean escribirLineas(String ruta, List<String> lineas) {
+        return escribirRegistros(ruta, escritor -> {
             for (String linea : lineas) {
-                writer.println(linea);
+                escritor.texto(linea);
+                escritor.finLinea();
             }
-            writer.close();
-        } catch (IOException e) {
+        });
+    }
+
+    /**
+     * Igual que escribirLineas, pero el contenido se genera campo a campo sobre un
+     * EscritorCampos con buffer reutilizable, sin armar un String por línea.
+     * @return true si el archivo quedó escrito en disco.
+     */
+    public static boolean escribirRegistros(String ruta, Consumer<EscritorCampos> contenido) {
+        long inicio = Metricas.inicio();
+        try {
+            return escribirYRenombrar(ruta, contenido);
+        } finally {
+            Operacion.ESCRIBIR_ARCHIVO.registrar(inicio);
+        }
+    }
+
+    private static boolean escribirYRenombrar(String ruta, Consumer<EscritorCampos> contenido) {
+        Path destino = Paths.get(ruta);
+        Path temporal = Paths.get(ruta + ".tmp");
+        try {
+            if (destino.getParent() != null) Files.createDirectories(destino.getParent()); // crea carpeta /data si no existe
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                EscritorCampos escritor = new EscritorCampos(canal);
+                contenido.accept(escritor);
+                escritor.vaciar();
+                long inicioFsync = Metricas.inicio();
+                canal.force(true);
+                Operacion.SINCRONIZAR_ARCHIVO.registrar(inicioFsync);
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
             System.out.println("⚠️ Error al escribir archivo: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Abre un lector de registros sobre el archivo. Si el archivo no existe (o no se puede
+     * abrir) devuelve un lector vacío, igual que leerLineas devuelve una lista vacía.
+     */
+    public static LectorCampos abrirLector(String ruta) {
+        try {
+            if (Files.exists(Paths.get(ruta))) return LectorCampos.abrir(Paths.get(ruta));
+        } catch (IOException e) {
+            System.out.println("⚠️ Error al leer archivo: " + e.getMessage());
+        }
+        return new LectorCampos("");
+    }
+
+    /**
+     * Divide el contenido del canal en hasta {@code cantidad} trozos de tamaño parecido,
+     * cada uno terminado justo después de un salto de línea (salvo el último).
+     * @return Límites [l0=0, l1, ..., lk=tamaño]; el trozo i es [li, li+1).
+     */
+    public static long[] dividirEnTrozos(FileChannel canal, int cantidad) throws IOException {
+        long tamanio = canal.size();
+        long[] limites = new long[cantidad + 1];
+        int k = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int i = 1; i < cantidad; i++) {
+            long desde = Math.max(tamanio * i / cantidad, limites[k]);
+            long corte = tamanio;
+            buscar:
+            while (desde < tamanio) {
+                buffer.clear();
+                int leidos = canal.read(buffer, desde);
+                if (leidos <= 0) break;
+                for (int j = 0; j < leidos; j++) {
+                    if (buffer.get(j) == '\n') {
+                        corte = desde + j + 1;
+                        break buscar;
+                    }
+                }
+                desde += leidos;
+            }
+            if (corte >= tamanio) break;
+            if (corte > limites[k]) limites[++k] = corte;
+        }
+        limites[++k] = tamanio;
+        return Arrays.copyOf(limites, k + 1);
+    }
+
+    /** True si el archivo existe y no es más viejo que el otro (o el otro no existe). */
+    public static boolean esMasReciente(String ruta, String otra) {
+        try {
+            Path archivo = Paths.get(ruta);
+            Path otro = Paths.get(otra);
+            if (!Files.exists(archivo)) return false;
+            return !Files.exists(otro)
+                    || Files.getLastModifiedTime(archivo).compareTo(Files.getLastModifiedTime(otro)) >= 0;
+        } catch (IOException e) {
+            return false;
         }
     }
 
@@ -0,0 +1,88 @@
+package com.techlab.util;
+
+/**
+ * Importe de dinero en punto fijo: centavos en un long. Sumas y productos son exactos
+ * (sin el error de redondeo de double) y un desborde lanza ArithmeticException.
+ *
+ * Los recorridos sobre muchos importes (totales, facturación) trabajan directamente con
+ * los centavos y con {@link #anexar(StringBuilder, long)}, sin crear un objeto por importe.
+ */
+public final class Dinero implements Comparable<Dinero> {
+
+    public static final Dinero CERO = new Dinero(0);
+
+    // Por encima de este valor, importe * 100 ya no es un entero exacto en double.
+    private static final double MAXIMO_DOUBLE = 9e13;
+
+    private final long centavos;
+
+    private Dinero(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Dinero deCentavos(long centavos) {
+        return centavos == 0 ? CERO : new Dinero(centavos);
+    }
+
+    /** Convierte un importe decimal, redondeando al centavo más cercano. */
+    public static Dinero de(double importe) {
+        return deCentavos(centavosDe(importe));
+    }
+
+    /** Igual que {@link #de(double)}, pero sin crear el objeto. */
+    public static long centavosDe(double importe) {
+        if (Double.isNaN(importe) || Math.abs(importe) > MAXIMO_DOUBLE) {
+            throw new IllegalArgumentException("⚠️  Importe fuera de rango: " + importe);
+        }
+        return Math.round(importe * 100);
+    }
+
+    public long centavos() {
+        return centavos;
+    }
+
+    public double aDouble() {
+        return centavos / 100.0;
+    }
+
+    public Dinero sumar(Dinero otro) {
+        return deCentavos(Math.addExact(centavos, otro.centavos));
+    }
+
+    public Dinero multiplicar(int cantidad) {
+        return deCentavos(Math.multiplyExact(centavos, cantidad));
+    }
+
+    /**
+     * Escribe el importe como "1234.56" al final del StringBuilder, sin formatear
+     * ni crear Strings intermedios.
+     */
+    public static StringBuilder anexar(StringBuilder sb, long centavos) {
+        long enteros = centavos / 100;
+        int fraccion = (int) Math.abs(centavos % 100);
+        if (centavos < 0 && enteros == 0) sb.append('-'); // -0.50: el signo no sale de la parte entera
+        return sb.append(enteros).append('.')
+                .append((char) ('0' + fraccion / 10))
+                .append((char) ('0' + fraccion % 10));
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || (obj instanceof Dinero otro && centavos == otro.centavos);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return anexar(new StringBuilder(24), centavos).toString();
+    }
+}
@@ -0,0 +1,195 @@
+package com.techlab.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Escritor de registros "campo;campo;..." sobre un buffer de bytes reutilizable.
+ * Reemplaza a String.format: números, decimales y fechas se escriben dígito a dígito
+ * directamente en el buffer, que se vuelca al canal al llenarse.
+ * Los decimales usan coma, igual que los archivos existentes en data/.
+ */
+public final class EscritorCampos implements Closeable {
+
+    private static final int TAMANIO_BUFFER = 256 * 1024;
+    private static final long[] POTENCIAS_10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final WritableByteChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocate(TAMANIO_BUFFER);
+    private final byte[] cifras = new byte[20];
+    private boolean primerCampo = true;
+
+    public EscritorCampos(WritableByteChannel canal) {
+        this.canal = canal;
+    }
+
+    public EscritorCampos texto(String texto) {
+        separar();
+        int largo = texto.length();
+        for (int i = 0; i < largo; i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x80) {
+                // Camino poco frecuente: nombres con acentos u otros caracteres no ASCII.
+                bytes(texto.substring(i).getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+            asegurar(1);
+            buffer.put((byte) c);
+        }
+        return this;
+    }
+
+    public EscritorCampos entero(long valor) {
+        separar();
+        escribirEntero(valor);
+        return this;
+    }
+
+    /** Decimal redondeado a la cantidad de decimales indicada (máximo 6), con coma. */
+    public EscritorCampos decimal(double valor, int decimales) {
+        long escala = POTENCIAS_10[decimales];
+        long escalado = Math.round(Math.abs(valor) * escala);
+        return decimalEscalado(valor < 0 && escalado != 0 ? -escalado : escalado, decimales);
+    }
+
+    /** Decimal ya escalado: decimalEscalado(150000, 2) escribe "1500,00". */
+    public EscritorCampos decimalEscalado(long escalado, int decimales) {
+        separar();
+        long escala = POTENCIAS_10[decimales];
+        if (escalado < 0) {
+            asegurar(1);
+            buffer.put((byte) '-');
+            escalado = -escalado;
+        }
+        escribirEntero(escalado / escala);
+        if (decimales > 0) {
+            asegurar(decimales + 1);
+            buffer.put((byte) ',');
+            long fraccion = escalado % escala;
+            for (long d = escala / 10; d > 0; d /= 10) {
+                buffer.put((byte) ('0' + fraccion / d % 10));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Igual que {@link #decimal(double, int)}, pero agregado a un StringBuilder (por ejemplo, un
+     * registro del journal). No depende del Locale: siempre coma decimal.
+     */
+    public static StringBuilder anexarDecimal(StringBuilder sb, double valor, int decimales) {
+        long escalado = Math.round(Math.abs(valor) * POTENCIAS_10[decimales]);
+        return anexarDecimalEscalado(sb, valor < 0 && escalado != 0 ? -escalado : escalado, decimales);
+    }
+
+    /** Igual que {@link #decimalEscalado(long, int)}, pero agregado a un StringBuilder. */
+    public static StringBuilder anexarDecimalEscalado(StringBuilder sb, long escalado, int decimales) {
+        long escala = POTENCIAS_10[decimales];
+        if (escalado < 0) {
+            sb.append('-');
+            escalado = -escalado;
+        }
+        sb.append(escalado / escala);
+        if (decimales > 0) {
+            sb.append(',');
+            long fraccion = escalado % escala;
+            for (long d = escala / 10; d > 0; d /= 10) {
+                sb.append((char) ('0' + fraccion / d % 10));
+            }
+        }
+        return sb;
+    }
+
+    /** Fecha en formato ISO yyyy-MM-dd. */
+    public EscritorCampos fecha(LocalDate fecha) {
+        separar();
+        int anio = fecha.getYear();
+        if (anio < 0 || anio > 9999) {
+            bytes(fecha.toString().getBytes(StandardCharsets.US_ASCII));
+            return this;
+        }
+        asegurar(10);
+        buffer.put((byte) ('0' + anio / 1000 % 10)).put((byte) ('0' + anio / 100 % 10))
+                .put((byte) ('0' + anio / 10 % 10)).put((byte) ('0' + anio % 10))
+                .put((byte) '-')
+                .put((byte) ('0' + fecha.getMonthValue() / 10)).put((byte) ('0' + fecha.getMonthValue() % 10))
+                .put((byte) '-')
+                .put((byte) ('0' + fecha.getDayOfMonth() / 10)).put((byte) ('0' + fecha.getDayOfMonth() % 10));
+        return this;
+    }
+
+    public void finLinea() {
+        asegurar(1);
+        buffer.put((byte) '\n');
+        primerCampo = true;
+    }
+
+    /** Vuelca el buffer al canal. No cierra el canal: eso queda a cargo de quien lo abrió. */
+    public void vaciar() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() {
+        vaciar();
+    }
+
+    // ==========================================================
+    // 🔹 AUXILIARES
+    // ==========================================================
+
+    private void separar() {
+        if (!primerCampo) {
+            asegurar(1);
+            buffer.put((byte) ';');
+        }
+        primerCampo = false;
+    }
+
+    private void escribirEntero(long valor) {
+        if (valor == Long.MIN_VALUE) {
+            bytes(Long.toString(valor).getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        asegurar(20);
+        if (valor < 0) {
+            buffer.put((byte) '-');
+            valor = -valor;
+        }
+        int n = 0;
+        do {
+            cifras[n++] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor > 0);
+        while (n > 0) {
+            buffer.put(cifras[--n]);
+        }
+    }
+
+    private void bytes(byte[] datos) {
+        int desde = 0;
+        while (desde < datos.length) {
+            if (!buffer.hasRemaining()) vaciar();
+            int n = Math.min(buffer.remaining(), datos.length - desde);
+            buffer.put(datos, desde, n);
+            desde += n;
+        }
+    }
+
+    private void asegurar(int bytes) {
+        if (buffer.remaining() < bytes) vaciar();
+    }
+}
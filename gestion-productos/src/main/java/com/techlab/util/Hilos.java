@@ -0,0 +1,64 @@
+package com.techlab.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ejecutores para tareas que pasan la mayor parte del tiempo bloqueadas (una solicitud HTTP que
+ * espera el fsync del journal, un cliente de la prueba de carga que espera la respuesta).
+ *
+ * Con hilos virtuales (JDK 21 o posterior) cada tarea tiene su hilo sin costo: miles de tareas
+ * bloqueadas ocupan unos pocos hilos del sistema. En un JDK anterior se usa un hilo de plataforma
+ * por tarea, que funciona igual pero reserva una pila por hilo; se busca por reflexión para que
+ * el proyecto siga compilando y corriendo en el JDK 17 de los entornos chicos.
+ */
+public final class Hilos {
+
+    private static final MethodHandle VIRTUALES = buscarVirtuales();
+
+    private Hilos() {
+    }
+
+    /** true si este JDK tiene hilos virtuales. */
+    public static boolean hayVirtuales() {
+        return VIRTUALES != null;
+    }
+
+    /**
+     * Un hilo nuevo por tarea, virtual si el JDK lo permite. Los hilos de plataforma son daemon
+     * y llevan el prefijo en el nombre.
+     */
+    public static ExecutorService unHiloPorTarea(String prefijo) {
+        if (VIRTUALES != null) {
+            try {
+                return (ExecutorService) VIRTUALES.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("No se pudo crear el ejecutor de hilos virtuales.", e);
+            }
+        }
+        AtomicLong numero = new AtomicLong();
+        ThreadFactory fabrica = tarea -> {
+            Thread hilo = new Thread(tarea, prefijo + "-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+        return Executors.newCachedThreadPool(fabrica);
+    }
+
+    private static MethodHandle buscarVirtuales() {
+        try {
+            MethodHandle fabrica = MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            // En los JDK 19 y 20 es una vista previa y falla si no está habilitada.
+            ((ExecutorService) fabrica.invoke()).shutdown();
+            return fabrica;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
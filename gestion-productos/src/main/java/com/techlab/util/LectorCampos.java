@@ -0,0 +1,346 @@
+package com.techlab.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Lector de registros de texto "campo;campo;..." (uno por línea) que trabaja directamente
+ * sobre un buffer de bytes reutilizable, llenado desde un FileChannel (o un flujo, como la
+ * entrada estándar).
+ * No crea un String por línea ni por campo numérico: enteros, decimales (con coma o punto)
+ * y fechas se parsean a mano desde los bytes. Solo los campos de texto generan un String.
+ */
+public final class LectorCampos implements Closeable {
+
+    private static final int TAMANIO_BUFFER = 1 << 20; // 1 MB
+    private static final double[] POTENCIAS_10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private final FileChannel canal;   // null si el contenido ya está completo en memoria
+    private final ReadableByteChannel flujo; // en lugar de canal, para entradas sin posición
+    private final boolean canalPropio;  // si close() debe cerrar el canal
+    private long posicionCanal;        // próximo byte a leer del canal
+    private final long finCanal;       // fin (exclusivo) de la región a leer
+
+    private byte[] datos;
+    private int limite;                // bytes válidos en datos
+    private boolean agotado;
+
+    private int siguiente;             // inicio de la próxima línea
+    private int inicioLinea;
+    private int finLinea;              // exclusivo, sin '\r' ni '\n'
+    private int posicion;              // cursor de campo dentro de la línea
+    private long numeroLinea;
+
+    /**
+     * Lee la región [inicio, fin) del canal. numeroLinea arranca en lineasPrevias,
+     * para que un trozo de archivo informe los números de línea globales.
+     */
+    public LectorCampos(FileChannel canal, long inicio, long fin, long lineasPrevias) {
+        this(canal, false, inicio, fin, lineasPrevias);
+    }
+
+    private LectorCampos(FileChannel canal, boolean canalPropio, long inicio, long fin, long lineasPrevias) {
+        this.canal = canal;
+        this.flujo = null;
+        this.canalPropio = canalPropio;
+        this.posicionCanal = inicio;
+        this.finCanal = fin;
+        this.datos = new byte[(int) Math.min(TAMANIO_BUFFER, Math.max(64, fin - inicio))];
+        this.numeroLinea = lineasPrevias;
+    }
+
+    /** Lector sobre un texto ya en memoria (por ejemplo, un registro del journal). */
+    public LectorCampos(String texto) {
+        this.canal = null;
+        this.flujo = null;
+        this.canalPropio = false;
+        this.finCanal = 0;
+        this.datos = texto.getBytes(StandardCharsets.UTF_8);
+        this.limite = datos.length;
+        this.agotado = true;
+    }
+
+    /**
+     * Lector sobre un flujo que se lee a medida que llega (por ejemplo System.in): cada línea
+     * se entrega apenas está completa, sin esperar a llenar el buffer. No cierra el flujo.
+     */
+    public LectorCampos(InputStream entrada) {
+        this.canal = null;
+        this.flujo = Channels.newChannel(entrada);
+        this.canalPropio = false;
+        this.finCanal = Long.MAX_VALUE;
+        this.datos = new byte[TAMANIO_BUFFER];
+    }
+
+    /** Lector sobre el archivo completo; el canal se cierra con {@link #close()}. */
+    public static LectorCampos abrir(Path ruta) throws IOException {
+        FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ);
+        return new LectorCampos(canal, true, 0, canal.size(), 0);
+    }
+
+    // ==========================================================
+    // 🔹 LÍNEAS
+    // ==========================================================
+
+    /** Avanza a la próxima línea. Devuelve false al llegar al final. */
+    public boolean siguienteLinea() {
+        int inicio = siguiente;
+        int buscado = inicio;
+        while (true) {
+            int nl = -1;
+            for (int i = buscado; i < limite; i++) {
+                if (datos[i] == '\n') {
+                    nl = i;
+                    break;
+                }
+            }
+            if (nl >= 0) {
+                siguiente = nl + 1;
+                finLinea = nl;
+                break;
+            }
+            if (agotado) {
+                if (inicio >= limite) return false;
+                siguiente = limite;
+                finLinea = limite;
+                break;
+            }
+            buscado = limite - inicio;
+            rellenar(inicio);
+            inicio = 0;
+        }
+        if (finLinea > inicio && datos[finLinea - 1] == '\r') finLinea--;
+        inicioLinea = inicio;
+        posicion = inicio;
+        numeroLinea++;
+        return true;
+    }
+
+    // Mueve la línea parcial al principio del buffer (agrandándolo si hace falta) y lee más bytes.
+    private void rellenar(int desde) {
+        int pendiente = limite - desde;
+        if (pendiente == datos.length) {
+            byte[] mayor = new byte[datos.length * 2];
+            System.arraycopy(datos, desde, mayor, 0, pendiente);
+            datos = mayor;
+        } else {
+            System.arraycopy(datos, desde, datos, 0, pendiente);
+        }
+        limite = pendiente;
+        siguiente = 0;
+        try {
+            ByteBuffer destino = ByteBuffer.wrap(datos, limite, (int) Math.min(datos.length - limite, finCanal - posicionCanal));
+            if (flujo != null) {
+                // Una sola lectura: trae lo que ya llegó (al menos un byte) o avisa el fin.
+                if (flujo.read(destino) < 0) agotado = true;
+                limite = destino.position();
+                return;
+            }
+            while (destino.hasRemaining()) {
+                int leidos = canal.read(destino, posicionCanal);
+                if (leidos < 0) {
+                    agotado = true; // el archivo terminó antes de la región pedida
+                    break;
+                }
+                posicionCanal += leidos;
+            }
+            limite = destino.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (posicionCanal >= finCanal) agotado = true;
+    }
+
+    /** Número (1 = primera línea) de la línea actual. */
+    public long numeroLinea() {
+        return numeroLinea;
+    }
+
+    /** Texto completo de la línea actual; solo para mensajes de error. */
+    public String lineaActual() {
+        return new String(datos, inicioLinea, finLinea - inicioLinea, StandardCharsets.UTF_8);
+    }
+
+    /** Cantidad de campos de la línea actual (separadores + 1). */
+    public int contarCampos() {
+        int campos = 1;
+        for (int i = inicioLinea; i < finLinea; i++) {
+            if (datos[i] == ';') campos++;
+        }
+        return campos;
+    }
+
+    // ==========================================================
+    // 🔹 CAMPOS
+    // ==========================================================
+
+    /** True si quedan campos por leer en la línea actual. */
+    public boolean hayCampo() {
+        return posicion <= finLinea;
+    }
+
+    /** Compara el campo actual con un texto ASCII sin consumirlo. */
+    public boolean campoEs(String texto) {
+        int fin = finCampo();
+        if (fin - posicion != texto.length()) return false;
+        for (int i = 0; i < texto.length(); i++) {
+            if (datos[posicion + i] != texto.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** True si el campo actual empieza con ese carácter ASCII, sin consumirlo. */
+    public boolean campoEmpiezaCon(char c) {
+        return posicion < finLinea && datos[posicion] == c;
+    }
+
+    public void saltarCampo() {
+        posicion = finCampo() + 1;
+    }
+
+    public String leerTexto() {
+        int fin = finCampo();
+        String texto = new String(datos, posicion, fin - posicion, StandardCharsets.UTF_8);
+        posicion = fin + 1;
+        return texto;
+    }
+
+    public int leerEntero() {
+        int desde = posicion;
+        long valor = leerLargo();
+        if (valor != (int) valor) throw invalido(desde, posicion - 1);
+        return (int) valor;
+    }
+
+    public long leerLargo() {
+        int fin = finCampo();
+        int i = posicion;
+        boolean negativo = false;
+        if (i < fin && (datos[i] == '-' || datos[i] == '+')) {
+            negativo = datos[i] == '-';
+            i++;
+        }
+        if (i == fin) throw invalido(posicion, fin);
+        long valor = 0;
+        for (; i < fin; i++) {
+            int d = datos[i] - '0';
+            if (d < 0 || d > 9) throw invalido(posicion, fin);
+            valor = valor * 10 + d;
+            if (valor < 0) throw invalido(posicion, fin); // desborde
+        }
+        posicion = fin + 1;
+        return negativo ? -valor : valor;
+    }
+
+    /** Decimal con coma o punto como separador (por ejemplo "1500,00" o "0.5"). */
+    public double leerDecimal() {
+        int fin = finCampo();
+        int i = posicion;
+        boolean negativo = false;
+        if (i < fin && (datos[i] == '-' || datos[i] == '+')) {
+            negativo = datos[i] == '-';
+            i++;
+        }
+        long mantisa = 0;
+        int cifras = 0;
+        int significativas = 0;
+        int decimales = -1;
+        for (; i < fin; i++) {
+            byte b = datos[i];
+            if ((b == ',' || b == '.') && decimales < 0) {
+                decimales = 0;
+                continue;
+            }
+            int d = b - '0';
+            if (d < 0 || d > 9) throw invalido(posicion, fin);
+            if (significativas == 18) return decimalLento(fin); // fuera del rango exacto: camino general
+            mantisa = mantisa * 10 + d;
+            cifras++;
+            if (mantisa != 0) significativas++;
+            if (decimales >= 0) decimales++;
+        }
+        if (cifras == 0 || decimales > 18) throw invalido(posicion, fin);
+        posicion = fin + 1;
+        // mantisa < 10^18 y la potencia son exactas en double: la división queda bien redondeada
+        double valor = decimales > 0 ? mantisa / POTENCIAS_10[decimales] : mantisa;
+        return negativo ? -valor : valor;
+    }
+
+    private double decimalLento(int fin) {
+        String texto = new String(datos, posicion, fin - posicion, StandardCharsets.US_ASCII).replace(',', '.');
+        posicion = fin + 1;
+        return Double.parseDouble(texto);
+    }
+
+    /** Fecha en formato ISO yyyy-MM-dd. */
+    public LocalDate leerFecha() {
+        int fin = finCampo();
+        int i = posicion;
+        if (fin - i != 10 || datos[i + 4] != '-' || datos[i + 7] != '-') throw fechaInvalida(fin);
+        int anio = digitos(i, 4, fin);
+        int mes = digitos(i + 5, 2, fin);
+        int dia = digitos(i + 8, 2, fin);
+        try {
+            LocalDate fecha = LocalDate.of(anio, mes, dia);
+            posicion = fin + 1;
+            return fecha;
+        } catch (DateTimeException e) {
+            throw fechaInvalida(fin);
+        }
+    }
+
+    private int digitos(int desde, int cantidad, int fin) {
+        int valor = 0;
+        for (int i = desde; i < desde + cantidad; i++) {
+            int d = datos[i] - '0';
+            if (d < 0 || d > 9) throw fechaInvalida(fin);
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    // Fin (exclusivo) del campo actual.
+    private int finCampo() {
+        if (posicion > finLinea) {
+            throw new IllegalStateException("Faltan campos en la línea " + numeroLinea + ": " + lineaActual());
+        }
+        for (int i = posicion; i < finLinea; i++) {
+            if (datos[i] == ';') return i;
+        }
+        return finLinea;
+    }
+
+    private NumberFormatException invalido(int desde, int hasta) {
+        return new NumberFormatException("For input string: \""
+                + new String(datos, desde, hasta - desde, StandardCharsets.UTF_8) + "\"");
+    }
+
+    private DateTimeParseException fechaInvalida(int fin) {
+        String texto = new String(datos, posicion, fin - posicion, StandardCharsets.UTF_8);
+        return new DateTimeParseException("Text '" + texto + "' could not be parsed", texto, 0);
+    }
+
+    @Override
+    public void close() {
+        if (!canalPropio) return;
+        try {
+            canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
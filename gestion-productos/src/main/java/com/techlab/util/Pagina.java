@@ -0,0 +1,49 @@
+package com.techlab.util;
+
+import java.util.List;
+
+/**
+ * Una página de un listado y el cursor para pedir la siguiente.
+ * El cursor es opaco: quien lo recibe solo lo devuelve tal cual en la llamada siguiente.
+ * Cada listado lo marca con su propio tipo, así un cursor de productos no sirve para pedidos.
+ *
+ * @param elementos Elementos de la página, en el orden del listado.
+ * @param siguiente Cursor de la página siguiente, o null si esta es la última.
+ */
+public record Pagina<T>(List<T> elementos, String siguiente) {
+
+    public Pagina {
+        elementos = List.copyOf(elementos);
+    }
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+
+    /** Arma el cursor que apunta a la posición indicada del listado. */
+    public static String cursor(char tipo, long posicion) {
+        return tipo + Long.toString(posicion, 36);
+    }
+
+    /**
+     * @param cursor Cursor recibido en una página anterior; null = desde el principio.
+     * @return La posición a partir de la cual continuar.
+     */
+    public static long posicion(String cursor, char tipo) {
+        if (cursor == null) return 0;
+        try {
+            if (cursor.length() < 2 || cursor.charAt(0) != tipo) throw new NumberFormatException();
+            long posicion = Long.parseLong(cursor.substring(1), 36);
+            if (posicion < 0) throw new NumberFormatException();
+            return posicion;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("⚠️  Cursor de página inválido: " + cursor);
+        }
+    }
+
+    public static void validarTamanio(int tamanio) {
+        if (tamanio <= 0) {
+            throw new IllegalArgumentException("⚠️  El tamaño de página debe ser mayor que cero.");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.techlab.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Fecha del día con caché. LocalDate.now() resuelve la zona horaria y arma la fecha en cada
+ * llamada; acá solo se lee el reloj en milisegundos y la fecha se recalcula al pasar la
+ * medianoche (o si el reloj retrocede).
+ *
+ * El reloj predeterminado lo usan las comidas al mostrarse; los servicios reciben uno propio
+ * y en pruebas se puede inyectar un {@link Clock} fijo.
+ */
+public final class RelojDias {
+
+    private static volatile RelojDias predeterminado = new RelojDias(Clock.systemDefaultZone());
+
+    private final Clock reloj;
+    private volatile Dia actual;
+
+    /** Día en caché y el intervalo [desde, hasta) en milisegundos en el que sigue valiendo. */
+    private record Dia(LocalDate fecha, long desde, long hasta) {
+    }
+
+    public RelojDias(Clock reloj) {
+        if (reloj == null) {
+            throw new IllegalArgumentException("El reloj no puede ser nulo.");
+        }
+        this.reloj = reloj;
+    }
+
+    public static RelojDias predeterminado() {
+        return predeterminado;
+    }
+
+    public static void setPredeterminado(RelojDias reloj) {
+        if (reloj == null) {
+            throw new IllegalArgumentException("El reloj no puede ser nulo.");
+        }
+        predeterminado = reloj;
+    }
+
+    public LocalDate hoy() {
+        long ahora = reloj.millis();
+        Dia dia = actual;
+        if (dia == null || ahora >= dia.hasta || ahora < dia.desde) {
+            dia = calcular(ahora);
+            actual = dia;
+        }
+        return dia.fecha;
+    }
+
+    // Los límites salen de atStartOfDay: respetan los cambios de horario de la zona.
+    private Dia calcular(long ahora) {
+        LocalDate fecha = LocalDate.ofInstant(Instant.ofEpochMilli(ahora), reloj.getZone());
+        long desde = fecha.atStartOfDay(reloj.getZone()).toInstant().toEpochMilli();
+        long hasta = fecha.plusDays(1).atStartOfDay(reloj.getZone()).toInstant().toEpochMilli();
+        return new Dia(fecha, desde, hasta);
+    }
+}
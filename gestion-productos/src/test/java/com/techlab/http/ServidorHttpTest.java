@@ -0,0 +1,92 @@
+package com.techlab.http;
+
+import com.techlab.productos.Producto;
+import com.techlab.servicios.PedidoService;
+import com.techlab.servicios.PersistenciaService;
+import com.techlab.servicios.ProductoService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * API HTTP: los datos inválidos responden 400 sin tocar el catálogo, y con persistencia un
+ * pedido respondido ya está en el journal.
+ */
+class ServidorHttpTest {
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void unNombreConSeparadorOControlRespondeSolicitudInvalida() throws Exception {
+        ProductoService productos = new ProductoService();
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        try (ServidorHttp servidor = new ServidorHttp(productos, new PedidoService(productos), 0)) {
+            servidor.iniciar();
+            for (String nombre : List.of("Yerba;Mate", "Yerba\\nMate", "Yerba\\u0000", "  ")) {
+                HttpResponse<String> alta = enviar(servidor, "POST", "/productos",
+                        "{\"nombre\":\"" + nombre + "\",\"precio\":10,\"stock\":1}");
+                assertEquals(400, alta.statusCode(), alta.body());
+                HttpResponse<String> cambio = enviar(servidor, "PUT", "/productos/" + yerba.getId(),
+                        "{\"nombre\":\"" + nombre + "\",\"stock\":99}");
+                assertEquals(400, cambio.statusCode(), cambio.body());
+            }
+            assertEquals(400, enviar(servidor, "POST", "/productos", "{\"nombre\":\"Mate\",\"precio\":-1,\"stock\":1}")
+                    .statusCode());
+        }
+        assertEquals(1, productos.listarProductos().size());
+        assertEquals("Yerba", yerba.getNombre());
+        assertEquals(10, yerba.getStock());
+    }
+
+    @Test
+    void conPersistenciaUnPedidoRespondidoYaEstaEnElJournal() throws Exception {
+        Path journal = directorio.resolve("journal");
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        PersistenciaService persistencia = new PersistenciaService(productos, pedidos, journal);
+        ProductoService recuperados = new ProductoService();
+        PedidoService pedidosRecuperados = new PedidoService(recuperados);
+        PersistenciaService recuperacion = new PersistenciaService(recuperados, pedidosRecuperados, journal);
+        try {
+            persistencia.iniciar();
+            try (ServidorHttp servidor = new ServidorHttp(productos, pedidos, persistencia, 0)) {
+                servidor.iniciar();
+                HttpResponse<String> alta = enviar(servidor, "POST", "/productos",
+                        "{\"nombre\":\"Yerba\",\"precio\":2500,\"stock\":10}");
+                assertEquals(201, alta.statusCode(), alta.body());
+                HttpResponse<String> pedido = enviar(servidor, "POST", "/pedidos",
+                        "{\"lineas\":[{\"idProducto\":1,\"cantidad\":3}]}");
+                assertEquals(201, pedido.statusCode(), pedido.body());
+                assertEquals(409, enviar(servidor, "POST", "/pedidos",
+                        "{\"lineas\":[{\"idProducto\":1,\"cantidad\":30}]}").statusCode());
+            }
+            // Sin esperarDurable ni cierre: lo respondido tiene que salir del journal.
+            recuperacion.iniciar();
+            assertEquals(7, recuperados.buscarPorId(1).orElseThrow().getStock());
+            assertEquals(1, pedidosRecuperados.listarPedidos().size());
+        } finally {
+            recuperacion.close();
+            persistencia.close();
+        }
+    }
+
+    private HttpResponse<String> enviar(ServidorHttp servidor, String metodo, String ruta, String cuerpo)
+            throws Exception {
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create("http://localhost:" + servidor.getPuerto() + ruta))
+                .method(metodo, HttpRequest.BodyPublishers.ofString(cuerpo))
+                .header("Content-Type", "application/json")
+                .build();
+        return cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,50 @@
+package com.techlab.pedidos;
+
+import com.techlab.productos.Producto;
+import com.techlab.util.Dinero;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El total del pedido se mantiene al agregar cada línea: es la suma exacta de los subtotales,
+ * no cambia si después cambia el precio del producto, y un desborde no deja la línea a medias.
+ */
+class PedidoTest {
+
+    @Test
+    void elTotalEsLaSumaExactaDeLosSubtotales() {
+        Producto caramelo = new Producto(1, "Caramelo", 0.10, 100);
+        Producto chicle = new Producto(2, "Chicle", 0.20, 100);
+        Pedido pedido = new Pedido(7);
+        assertSame(Dinero.CERO, pedido.calcularTotal());
+
+        pedido.agregarLinea(new LineaPedido(caramelo, 3));
+        pedido.agregarLinea(new LineaPedido(chicle, 1));
+        pedido.agregarLinea(new LineaPedido(caramelo, 1, Dinero.de(0.33), Dinero.de(0.34)));
+        assertEquals(84, pedido.getTotalCentavos());
+        assertEquals(Dinero.deCentavos(84), pedido.calcularTotal());
+        assertEquals(pedido.getLineas().stream().mapToLong(LineaPedido::getSubtotalCentavos).sum(),
+                pedido.getTotalCentavos());
+        assertTrue(pedido.toString().contains("TOTAL: $0.84"), pedido.toString());
+
+        // El precio queda fijado en la línea.
+        caramelo.setPrecio(5);
+        assertEquals(84, pedido.getTotalCentavos());
+        assertEquals(30, pedido.getLineas().get(0).getSubtotalCentavos());
+        assertThrows(UnsupportedOperationException.class, () -> pedido.getLineas().clear());
+    }
+
+    @Test
+    void unDesbordeNoAgregaLaLinea() {
+        Producto caro = new Producto(1, "Caro", 1, 1);
+        assertThrows(ArithmeticException.class,
+                () -> new LineaPedido(caro, 2, Dinero.deCentavos(Long.MAX_VALUE / 2 + 1)));
+
+        Pedido pedido = new Pedido(1);
+        pedido.agregarLinea(new LineaPedido(caro, 1, Dinero.deCentavos(Long.MAX_VALUE)));
+        assertThrows(ArithmeticException.class, () -> pedido.agregarLinea(new LineaPedido(caro, 1)));
+        assertEquals(1, pedido.getLineas().size());
+        assertEquals(Long.MAX_VALUE, pedido.getTotalCentavos());
+    }
+}
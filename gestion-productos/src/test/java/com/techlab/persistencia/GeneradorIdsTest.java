@@ -0,0 +1,56 @@
+package com.techlab.persistencia;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IDs por bloques: después de anticipar, las reservas no escriben la marca, y al reconectar
+ * (como después de una caída) la numeración sigue sin repetir ningún ID entregado.
+ */
+class GeneradorIdsTest {
+
+    private static final int BLOQUE = 100;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void despuesDeAnticiparLasReservasNoEscribenLaMarca() throws Exception {
+        Path marca = directorio.resolve("ids");
+        GeneradorIds ids = new GeneradorIds(BLOQUE, Integer.MAX_VALUE);
+        ids.conectar(marca);
+        long ultimo = 0;
+        for (int vuelta = 0; vuelta < 20; vuelta++) {
+            ids.anticipar(BLOQUE / 2);
+            byte[] antes = Files.readAllBytes(marca);
+            for (int i = 0; i < BLOQUE / 2; i++) {
+                long id = ids.siguiente();
+                assertTrue(id > ultimo);
+                ultimo = id;
+            }
+            assertArrayEquals(antes, Files.readAllBytes(marca), "Se escribió la marca al reservar.");
+        }
+
+        // Sin desconectar (una caída): se saltea lo que quedaba del bloque, no se repite nada.
+        GeneradorIds reiniciado = new GeneradorIds(BLOQUE, Integer.MAX_VALUE);
+        reiniciado.conectar(marca);
+        long siguiente = reiniciado.siguiente();
+        assertTrue(siguiente > ultimo);
+        assertTrue(siguiente <= ultimo + 2 * BLOQUE, "Se salteó más de lo anticipado: " + siguiente);
+    }
+
+    @Test
+    void anticiparNoPasaDelMaximo() throws Exception {
+        GeneradorIds ids = new GeneradorIds(BLOQUE, 10);
+        ids.conectar(directorio.resolve("ids"));
+        ids.anticipar(BLOQUE);
+        assertEquals(1, ids.reservar(10));
+        assertThrows(IllegalStateException.class, ids::siguiente);
+        assertThrows(IllegalArgumentException.class, () -> ids.anticipar(-1));
+    }
+}
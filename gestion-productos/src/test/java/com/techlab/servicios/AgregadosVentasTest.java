@@ -0,0 +1,184 @@
+package com.techlab.servicios;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
+import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.VentasProducto;
+import com.techlab.productos.Producto;
+import com.techlab.util.ArchivoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.techlab.servicios.JournalRecuperacionTest.borrar;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los totales de ventas que se mantienen pedido a pedido coinciden con un recálculo completo:
+ * después de muchos pedidos en paralelo (sueltos y por lote, algunos rechazados) y después de
+ * reiniciar con pedidos archivados. verificar() sí encuentra un total corrido.
+ */
+class AgregadosVentasTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+    private static final int HILOS = 8;
+
+    @BeforeEach
+    @AfterEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void losTotalesCoincidenConUnRecalculoDespuesDePedidosEnParalelo() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        AnaliticaService analitica = new AnaliticaService(pedidos);
+        List<Producto> catalogo = conProductos(productos, 500);
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                Random azar = new Random(h);
+                tareas.add(ejecutor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        if (i % 4 == 0) {
+                            List<List<LineaPedido>> lote = new ArrayList<>();
+                            for (int k = 0; k < 10; k++) lote.add(lineasAlAzar(catalogo, azar));
+                            pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO);
+                        } else {
+                            try {
+                                pedidos.crearPedido(lineasAlAzar(catalogo, azar));
+                            } catch (StockInsuficienteException e) {
+                                // Con poco stock hay rechazos; no cuentan en los totales.
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> t : tareas) t.get();
+        } finally {
+            ejecutor.shutdown();
+        }
+
+        assertEquals(List.of(), analitica.verificar());
+        comparar(pedidos.listarPedidos(), analitica);
+        assertTrue(catalogo.stream().anyMatch(p -> p.getStock() == 0), "No hubo rechazos por stock.");
+
+        // Un total corrido se detecta, y reconstruir() lo corrige.
+        pedidos.ventas().registrar(pedidos.listarPedidos().get(0));
+        assertFalse(analitica.verificar().isEmpty());
+        analitica.reconstruir();
+        assertEquals(List.of(), analitica.verificar());
+    }
+
+    @Test
+    void losTotalesCoincidenConUnRecalculoDespuesDeReiniciar() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        PersistenciaService persistencia = new PersistenciaService(productos, pedidos);
+        ProductoService recuperados = new ProductoService();
+        PedidoService pedidosRecuperados = new PedidoService(recuperados);
+        PersistenciaService recuperacion = new PersistenciaService(recuperados, pedidosRecuperados);
+        try {
+            persistencia.iniciar();
+            persistencia.setConfirmacionDiferida(true);
+            List<Producto> catalogo = conProductos(productos, 1_000_000);
+            Random azar = new Random(17);
+            int total = PedidoService.VENTANA_PEDIDOS + 2 * PedidoService.PEDIDOS_POR_SEGMENTO;
+            for (int hechos = 0; hechos < total; hechos += 100) {
+                List<List<LineaPedido>> lote = new ArrayList<>();
+                for (int i = 0; i < 100; i++) lote.add(lineasAlAzar(catalogo, azar));
+                pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO);
+            }
+            persistencia.esperarDurable();
+            assertTrue(pedidos.archivar() > 0);
+            // El precio cambia después de vender: los totales siguen con el precio histórico.
+            productos.actualizarProducto(catalogo.get(0).getId(), null, 99999.0, null);
+            AnaliticaService analitica = new AnaliticaService(pedidos);
+            assertEquals(List.of(), analitica.verificar());
+            persistencia.close();
+
+            recuperacion.iniciar();
+            AnaliticaService recuperada = new AnaliticaService(pedidosRecuperados);
+            assertTrue(pedidosRecuperados.cantidadArchivados() > 0);
+            assertEquals(List.of(), recuperada.verificar());
+            comparar(pedidosRecuperados.listarPedidos(), recuperada);
+            assertEquals(analitica.ingresosTotales(), recuperada.ingresosTotales());
+            assertEquals(analitica.cantidadPedidos(), recuperada.cantidadPedidos());
+            assertEquals(analitica.masVendidos(10), recuperada.masVendidos(10));
+        } finally {
+            recuperacion.close();
+            persistencia.close();
+        }
+    }
+
+    // ==========================================================
+    // 🔹 AUXILIARES
+    // ==========================================================
+
+    // Productos de los tres tipos; con poco stock, algunos pedidos se rechazan.
+    private static List<Producto> conProductos(ProductoService productos, int stock) {
+        List<Producto> catalogo = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            catalogo.add(productos.agregarProducto("Producto " + i, 100.25 + i, stock));
+            catalogo.add(productos.agregarBebida("Bebida " + i, 80.5 + i, stock, 1.5));
+            catalogo.add(productos.agregarComida("Comida " + i, 300.1 + i, stock, LocalDate.of(2030, 1, 1)));
+        }
+        return catalogo;
+    }
+
+    private static List<LineaPedido> lineasAlAzar(List<Producto> catalogo, Random azar) {
+        List<LineaPedido> lineas = new ArrayList<>();
+        for (int n = 1 + azar.nextInt(3); n > 0; n--) {
+            lineas.add(new LineaPedido(catalogo.get(azar.nextInt(catalogo.size())), 1 + azar.nextInt(3)));
+        }
+        return lineas;
+    }
+
+    // Recalcula por separado, recorriendo los pedidos, lo que la analítica mantiene.
+    private static void comparar(List<Pedido> todos, AnaliticaService analitica) {
+        Map<Integer, long[]> porProducto = new HashMap<>();
+        long ingresos = 0;
+        for (Pedido pedido : todos) {
+            ingresos += pedido.getTotalCentavos();
+            for (LineaPedido l : pedido.getLineas()) {
+                long[] v = porProducto.computeIfAbsent(l.getProducto().getId(), id -> new long[2]);
+                v[0] += l.getCantidad();
+                v[1] += l.getSubtotalCentavos();
+            }
+        }
+        assertEquals(todos.size(), analitica.cantidadPedidos());
+        assertEquals(ingresos, analitica.ingresosTotales().centavos());
+        assertEquals((ingresos + todos.size() / 2) / todos.size(), analitica.ticketPromedio().centavos());
+        porProducto.forEach((id, v) -> {
+            VentasProducto ventas = analitica.ventasDe(id).orElseThrow();
+            assertEquals(v[0], ventas.unidades(), "Unidades del producto " + id);
+            assertEquals(v[1], ventas.ingresos().centavos(), "Ingresos del producto " + id);
+        });
+
+        // Ranking: más unidades primero y, a igual cantidad, el ID menor.
+        List<Integer> esperado = porProducto.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Integer, long[]>>comparingLong(e -> -e.getValue()[0])
+                        .thenComparing(Map.Entry::getKey))
+                .limit(10).map(Map.Entry::getKey).toList();
+        assertEquals(esperado, analitica.masVendidos(10).stream().map(VentasProducto::idProducto).toList());
+    }
+}
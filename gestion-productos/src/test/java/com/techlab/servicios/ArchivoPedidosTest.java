@@ -0,0 +1,237 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
+import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.ResultadoPedido;
+import com.techlab.persistencia.SegmentoPedidos;
+import com.techlab.productos.Producto;
+import com.techlab.util.ArchivoUtil;
+import com.techlab.util.Pagina;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.techlab.servicios.JournalRecuperacionTest.borrar;
+import static com.techlab.servicios.JournalRecuperacionTest.describirPedidos;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archivo histórico de pedidos: los segmentos se releen igual que se escribieron (también los
+ * v1, sin pedidos por producto), un bloque dañado se detecta, y las búsquedas por producto
+ * sobre archivados y recientes dan lo mismo que recorrer todos los pedidos, antes y después
+ * de reiniciar. Surefire achica la ventana y los segmentos (ver pom.xml).
+ */
+class ArchivoPedidosTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+
+    @TempDir
+    Path directorio;
+
+    @BeforeEach
+    @AfterEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void losSegmentosSeReleenComoSeEscribieron() throws IOException {
+        ProductoService productos = new ProductoService();
+        List<Producto> catalogo = conProductos(productos, 30);
+        List<Pedido> pedidos = new ArrayList<>();
+        Random azar = new Random(11);
+        for (int id = 1; id <= 1_500; id++) {
+            // Quedan IDs sin usar, como cuando se pierde un bloque de IDs.
+            if (id % 700 == 0) id += 50;
+            pedidos.add(pedidoAlAzar(id, catalogo, azar));
+        }
+        ArchivoPedidos archivo = new ArchivoPedidos(directorio, id -> productos.buscarPorId(id).orElse(null));
+        for (int desde = 0; desde < pedidos.size(); desde += 600) {
+            archivo.publicar(archivo.escribir(pedidos.subList(desde, Math.min(desde + 600, pedidos.size()))));
+        }
+        comparar(pedidos, catalogo, archivo);
+
+        ArchivoPedidos reabierto = new ArchivoPedidos(directorio, id -> productos.buscarPorId(id).orElse(null));
+        List<SegmentoPedidos.Resumen> resumenes = reabierto.abrir();
+        assertEquals(3, resumenes.size());
+        assertEquals(pedidos.size(), resumenes.stream().mapToInt(SegmentoPedidos.Resumen::pedidos).sum());
+        long ingresos = 0;
+        for (SegmentoPedidos.Resumen r : resumenes) {
+            for (long i : r.ingresosCentavos()) ingresos += i;
+        }
+        assertEquals(pedidos.stream().mapToLong(Pedido::getTotalCentavos).sum(), ingresos);
+        comparar(pedidos, catalogo, reabierto);
+
+        // Un segmento v1 es el mismo archivo sin la lista de pedidos por producto: con la versión
+        // en 1 el resumen se lee hasta las ventas, y la lista se arma leyendo los bloques.
+        for (Path ruta : SegmentoPedidos.listar(directorio)) {
+            try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.WRITE)) {
+                canal.write(ByteBuffer.allocate(2).putShort(0, (short) 1), 4);
+            }
+        }
+        ArchivoPedidos v1 = new ArchivoPedidos(directorio, id -> productos.buscarPorId(id).orElse(null));
+        assertNull(v1.abrir().get(0).inicioPedidos());
+        comparar(pedidos, catalogo, v1);
+    }
+
+    @Test
+    void unBloqueDaniadoSeDetecta() throws IOException {
+        ProductoService productos = new ProductoService();
+        List<Producto> catalogo = conProductos(productos, 5);
+        List<Pedido> pedidos = new ArrayList<>();
+        Random azar = new Random(3);
+        for (int id = 1; id <= 600; id++) pedidos.add(pedidoAlAzar(id, catalogo, azar));
+        SegmentoPedidos segmento = SegmentoPedidos.escribir(directorio, pedidos);
+        Path ruta = SegmentoPedidos.listar(directorio).get(0);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Primer byte del primer bloque, justo después de la cabecera de 64 bytes.
+            ByteBuffer b = ByteBuffer.allocate(1);
+            canal.read(b, 64);
+            canal.write(ByteBuffer.wrap(new byte[]{(byte) ~b.get(0)}), 64);
+        }
+        assertThrows(IllegalStateException.class, () -> segmento.leerBloque(0, id -> productos.buscarPorId(id).orElse(null)));
+        assertEquals(SegmentoPedidos.PEDIDOS_POR_BLOQUE, segmento.leerBloque(1, id -> productos.buscarPorId(id).orElse(null)).size());
+        assertThrows(IllegalStateException.class, () -> segmento.leerPedidosPorProducto(5, 0, 100_000));
+    }
+
+    @Test
+    void lasBusquedasPorProductoDanLoMismoQueRecorrerTodo() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        PersistenciaService persistencia = new PersistenciaService(productos, pedidos);
+        ProductoService recuperados = new ProductoService();
+        PedidoService pedidosRecuperados = new PedidoService(recuperados);
+        PersistenciaService recuperacion = new PersistenciaService(recuperados, pedidosRecuperados);
+        try {
+            persistencia.iniciar();
+            persistencia.setConfirmacionDiferida(true);
+            List<Producto> catalogo = conProductos(productos, 25);
+            Random azar = new Random(5);
+            List<Pedido> creados = new ArrayList<>();
+
+            // Dos tandas con un archivado en medio: el segundo archivado quita de las listas en
+            // memoria pedidos que ya estaban cuando se archivó el primero.
+            for (int tanda = 0; tanda < 2; tanda++) {
+                crear(pedidos, catalogo, azar, PedidoService.VENTANA_PEDIDOS + 2 * PedidoService.PEDIDOS_POR_SEGMENTO, creados);
+                persistencia.esperarDurable();
+                assertTrue(pedidos.archivar() >= PedidoService.PEDIDOS_POR_SEGMENTO);
+                compararPorProducto(creados, catalogo, pedidos);
+            }
+            assertTrue(pedidos.cantidadArchivados() > 0);
+            assertTrue(pedidos.cantidadEnMemoria() < creados.size());
+            persistencia.close();
+
+            recuperacion.iniciar();
+            assertEquals(pedidos.cantidadArchivados(), pedidosRecuperados.cantidadArchivados());
+            assertEquals(describirPedidos(creados), describirPedidos(pedidosRecuperados.listarPedidos()));
+            List<Producto> catalogoRecuperado = new ArrayList<>();
+            for (Producto p : catalogo) catalogoRecuperado.add(recuperados.buscarPorId(p.getId()).orElseThrow());
+            compararPorProducto(creados, catalogoRecuperado, pedidosRecuperados);
+        } finally {
+            recuperacion.close();
+            persistencia.close();
+        }
+    }
+
+    // ==========================================================
+    // 🔹 AUXILIARES
+    // ==========================================================
+
+    private static List<Producto> conProductos(ProductoService productos, int cantidad) {
+        List<Producto> catalogo = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            catalogo.add(productos.agregarProducto("Producto " + i, 100 + i, 1_000_000));
+        }
+        return catalogo;
+    }
+
+    // Productos sesgados (los primeros aparecen mucho más) y a veces repetidos en el pedido.
+    private static List<LineaPedido> lineasAlAzar(List<Producto> catalogo, Random azar) {
+        List<LineaPedido> lineas = new ArrayList<>();
+        for (int n = 1 + azar.nextInt(3); n > 0; n--) {
+            int i = (int) (catalogo.size() * Math.pow(azar.nextDouble(), 3));
+            lineas.add(new LineaPedido(catalogo.get(i), 1 + azar.nextInt(4)));
+        }
+        return lineas;
+    }
+
+    private static Pedido pedidoAlAzar(int id, List<Producto> catalogo, Random azar) {
+        Pedido pedido = new Pedido(id);
+        for (LineaPedido linea : lineasAlAzar(catalogo, azar)) pedido.agregarLinea(linea);
+        return pedido;
+    }
+
+    private static void crear(PedidoService pedidos, List<Producto> catalogo, Random azar, int cantidad,
+                              List<Pedido> creados) {
+        for (int hechos = 0; hechos < cantidad; hechos += 100) {
+            List<List<LineaPedido>> lote = new ArrayList<>();
+            for (int i = 0; i < 100; i++) lote.add(lineasAlAzar(catalogo, azar));
+            for (ResultadoPedido r : pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO)) {
+                creados.add(r.pedido());
+            }
+        }
+    }
+
+    // Pedidos de cada producto recorriendo todos, en orden de ID.
+    private static Map<Integer, List<Pedido>> porProducto(List<Pedido> pedidos) {
+        Map<Integer, List<Pedido>> resultado = new HashMap<>();
+        for (Pedido pedido : pedidos) {
+            pedido.getLineas().stream().map(l -> l.getProducto().getId()).distinct()
+                    .forEach(id -> resultado.computeIfAbsent(id, k -> new ArrayList<>()).add(pedido));
+        }
+        return resultado;
+    }
+
+    private static void comparar(List<Pedido> pedidos, List<Producto> catalogo, ArchivoPedidos archivo) {
+        assertEquals(pedidos.size(), archivo.cantidad());
+        assertEquals(pedidos.get(pedidos.size() - 1).getId(), archivo.ultimoId());
+        assertEquals(describirPedidos(pedidos), describirPedidos(archivo.pagina(0, Integer.MAX_VALUE, Integer.MAX_VALUE, false)));
+        int[] todos = pedidos.stream().mapToInt(Pedido::getId).toArray();
+        assertEquals(describirPedidos(pedidos), describirPedidos(archivo.buscarTodos(todos)));
+        assertTrue(archivo.buscar(700).isEmpty());
+
+        Map<Integer, List<Pedido>> esperado = porProducto(pedidos);
+        for (Producto p : catalogo) {
+            List<Pedido> delProducto = esperado.getOrDefault(p.getId(), List.of());
+            assertEquals(delProducto.size(), archivo.cantidadConProducto(p.getId()));
+            int[] ids = delProducto.stream().mapToInt(Pedido::getId).toArray();
+            assertArrayEquals(ids, archivo.pedidosConProducto(p.getId(), 0, Integer.MAX_VALUE));
+            if (ids.length > 10) {
+                int[] desdeElQuinto = archivo.pedidosConProducto(p.getId(), ids[5], 4);
+                assertArrayEquals(Arrays.copyOfRange(ids, 5, 9), desdeElQuinto);
+            }
+        }
+        assertEquals(0, archivo.cantidadConProducto(999_999));
+    }
+
+    private static void compararPorProducto(List<Pedido> creados, List<Producto> catalogo, PedidoService pedidos) {
+        Map<Integer, List<Pedido>> esperado = porProducto(creados);
+        for (Producto p : catalogo) {
+            List<Pedido> delProducto = esperado.getOrDefault(p.getId(), List.of());
+            assertEquals(delProducto.size(), pedidos.cantidadPedidosConProducto(p.getId()), p.getNombre());
+            List<Pedido> paginado = new ArrayList<>();
+            String cursor = null;
+            do {
+                Pagina<Pedido> pagina = pedidos.buscarPorProducto(p.getId(), cursor, 97);
+                paginado.addAll(pagina.elementos());
+                cursor = pagina.siguiente();
+            } while (cursor != null);
+            assertEquals(describirPedidos(delProducto), describirPedidos(paginado), p.getNombre());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Búsqueda por nombre: el orden de los resultados (menos errores, empieza con el texto, más
+ * palabras exactas, nombre más corto), los errores tolerados según el largo de cada palabra y
+ * el índice al día después de renombrar o borrar, con los dos catálogos.
+ */
+class BusquedaNombresTest {
+
+    @Test
+    void busquedasConCatalogoEnMemoria() {
+        verificar(new CatalogoEnMemoria());
+    }
+
+    @Test
+    void busquedasConProductoStore() {
+        verificar(new ProductoStore());
+    }
+
+    private void verificar(Catalogo catalogo) {
+        ProductoService productos = new ProductoService(catalogo);
+        for (String nombre : List.of("Café con leche", "Leche condensada", "Coca Cola 500", "Cola de mono",
+                "Coca Cola Zero", "Chocolate", "Cola", "Mateo", "Yerba mate", "Mate cocido", "Mata moscas")) {
+            productos.agregarProducto(nombre, 100, 1);
+        }
+
+        // Sin acentos ni mayúsculas, y cada palabra del texto en una palabra distinta del nombre.
+        assertEquals(List.of("Café con leche"), nombres(productos.buscarPorPrefijo("CAFE co", 10)));
+        assertEquals(List.of("Coca Cola 500", "Coca Cola Zero"), nombres(productos.buscarPorPrefijo("coca co", 10)));
+        // "Cola" y "Cola de mono" tienen "cola", pero ninguna otra palabra para "co".
+        assertEquals(List.of("Coca Cola 500", "Coca Cola Zero"), nombres(productos.buscarPorPrefijo("co cola", 10)));
+        assertEquals(List.of(), nombres(productos.buscarPorPrefijo("  ;; ", 10)));
+
+        // Primero los que empiezan con el texto; entre ellos, los nombres más cortos.
+        assertEquals(List.of("Cola", "Cola de mono", "Coca Cola 500", "Coca Cola Zero"),
+                nombres(productos.buscarPorPrefijo("cola", 10)));
+        assertEquals(List.of("Cola", "Cola de mono", "Coca Cola 500", "Coca Cola Zero", "Mate cocido",
+                "Café con leche", "Leche condensada"), nombres(productos.buscarPorPrefijo("co", 10)));
+        assertEquals(List.of("Cola", "Cola de mono", "Coca Cola 500"), nombres(productos.buscarPorPrefijo("co", 3)));
+        assertEquals(List.of(), nombres(productos.buscarPorPrefijo("co", 0)));
+        // Una palabra exacta gana a un nombre más corto.
+        assertEquals(List.of("Mate cocido", "Mateo", "Yerba mate"), nombres(productos.buscarPorPrefijo("mate", 10)));
+
+        // Con errores: los que tienen menos van primero.
+        assertEquals(List.of("Mate cocido", "Mateo", "Yerba mate", "Mata moscas"),
+                nombres(productos.buscarAproximado("mate", 10)));
+        assertEquals(List.of("Café con leche"), nombres(productos.buscarAproximado("cafe cno", 10)));
+        assertEquals(List.of("Leche condensada", "Café con leche"), nombres(productos.buscarAproximado("lecje", 10)));
+
+        // Hasta 2 letras, ningún error; de 3 a 5, uno; desde 6, dos.
+        assertEquals(List.of(), nombres(productos.buscarAproximado("xo", 10)));
+        assertEquals(List.of("Cola", "Cola de mono", "Coca Cola 500", "Coca Cola Zero", "Mate cocido",
+                "Café con leche", "Leche condensada"), nombres(productos.buscarAproximado("co", 10)));
+        assertEquals(List.of(), nombres(productos.buscarAproximado("lxcje", 10)));
+        assertEquals(List.of("Chocolate"), nombres(productos.buscarAproximado("xhocolaye", 10)));
+        assertEquals(List.of("Chocolate"), nombres(productos.buscarAproximado("chcoolate", 10)));
+        assertEquals(List.of(), nombres(productos.buscarAproximado("xhxcolaye", 10)));
+        // Solo la última palabra se compara con el comienzo: las anteriores, con la palabra entera
+        // ("caf" llega a "cafe" con un error, "ca" no admite ninguno).
+        assertEquals(List.of("Café con leche"), nombres(productos.buscarAproximado("leche ca", 10)));
+        assertEquals(List.of(), nombres(productos.buscarAproximado("ca leche", 10)));
+        assertEquals(List.of("Café con leche"), nombres(productos.buscarAproximado("caf leche", 10)));
+
+        // El índice sigue al catálogo.
+        Producto cola = productos.buscarPorPrefijo("cola", 1).get(0);
+        productos.eliminarProducto(cola.getId());
+        Producto mono = productos.buscarPorPrefijo("mono", 1).get(0);
+        productos.actualizarProducto(mono.getId(), "Licor de café", null, null);
+        assertEquals(List.of("Coca Cola 500", "Coca Cola Zero"), nombres(productos.buscarPorPrefijo("cola", 10)));
+        assertEquals(List.of("Café con leche", "Licor de café"), nombres(productos.buscarPorPrefijo("cafe", 10)));
+        assertEquals(List.of(), nombres(productos.buscarAproximado("mono", 10)));
+    }
+
+    private static List<String> nombres(List<Producto> productos) {
+        return productos.stream().map(Producto::getNombre).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.techlab.servicios;
+
+import com.techlab.util.ArchivoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+
+import static com.techlab.servicios.JournalRecuperacionTest.borrar;
+import static com.techlab.servicios.JournalRecuperacionTest.describir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Carga en paralelo de productos.txt: con un archivo de más de 4 MB (el mínimo para repartirlo
+ * en trozos) el catálogo queda igual que con la carga secuencial, y una línea inválida o un ID
+ * repetido se informa con el mismo número de línea, esté en el trozo que esté.
+ */
+class CargaParalelaTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+    private static final Path PRODUCTOS = DATOS.resolve("productos.txt");
+    private static final int LINEAS = 100_000;
+
+    @BeforeEach
+    @AfterEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void laCargaParalelaDaLoMismoQueLaSecuencial() throws IOException {
+        escribir(n -> null);
+        assertTrue(Files.size(PRODUCTOS) > 4L * 1024 * 1024, "El archivo no llega al mínimo de la carga paralela.");
+
+        ProductoService secuencial = new ProductoService();
+        secuencial.cargarDesdeArchivo();
+        ProductoService paralelo = new ProductoService();
+        paralelo.cargarDesdeArchivoParalelo();
+
+        assertEquals(LINEAS, paralelo.listarProductos().size());
+        assertEquals(describir(secuencial.listarProductos()), describir(paralelo.listarProductos()));
+        assertEquals(describir(secuencial.buscarPorPrefijo("yerba 99", 50)), describir(paralelo.buscarPorPrefijo("yerba 99", 50)));
+        assertEquals(describir(secuencial.listarVencidos()), describir(paralelo.listarVencidos()));
+        assertEquals(secuencial.agregarProducto("Nuevo", 1, 1).getId(), paralelo.agregarProducto("Nuevo", 1, 1).getId());
+    }
+
+    @Test
+    void unaLineaInvalidaSeInformaConSuNumero() throws IOException {
+        // Una al principio del archivo y otra en el último trozo.
+        for (int mala : new int[]{3, 87_654}) {
+            escribir(n -> n == mala ? "Producto;x;Roto;1;1" : null);
+            String mensaje = "línea " + mala + ": Producto;x;Roto;1;1";
+            assertMensaje(mensaje, assertThrows(IllegalStateException.class, () -> new ProductoService().cargarDesdeArchivo()));
+            assertMensaje(mensaje, assertThrows(IllegalStateException.class, () -> new ProductoService().cargarDesdeArchivoParalelo()));
+        }
+    }
+
+    @Test
+    void unIdRepetidoEnOtroTrozoSeInformaConSuNumero() throws IOException {
+        escribir(n -> n == 90_000 ? "Producto;10;Repetido;1.00;1" : null);
+        String mensaje = "línea 90000: Producto;10;Repetido;1.00;1";
+        assertMensaje(mensaje, assertThrows(IllegalStateException.class, () -> new ProductoService().cargarDesdeArchivo()));
+        assertMensaje(mensaje, assertThrows(IllegalStateException.class, () -> new ProductoService().cargarDesdeArchivoParalelo()));
+    }
+
+    private static void assertMensaje(String esperado, IllegalStateException e) {
+        assertTrue(e.getMessage().contains(esperado), e.getMessage());
+    }
+
+    // Línea n (desde 1) con el ID n; reemplazo.apply(n) la cambia si no es null.
+    private static void escribir(IntFunction<String> reemplazo) throws IOException {
+        Files.createDirectories(DATOS);
+        LocalDate base = LocalDate.of(2026, 1, 1);
+        try (Writer w = Files.newBufferedWriter(PRODUCTOS, StandardCharsets.UTF_8)) {
+            for (int n = 1; n <= LINEAS; n++) {
+                String linea = reemplazo.apply(n);
+                if (linea == null) {
+                    linea = switch (n % 3) {
+                        case 0 -> "Producto;" + n + ";Yerba " + n + " con palo;" + (n % 5000) + ".25;" + n % 40;
+                        case 1 -> "Bebida;" + n + ";Agua tónica " + n + ";" + (n % 300) + ".5;12;1.5";
+                        default -> "Comida;" + n + ";Ñoquis " + n + ";99.99;3;" + base.plusDays(n % 1000);
+                    };
+                }
+                w.write(linea);
+                w.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.techlab.servicios;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.productos.Producto;
+import com.techlab.util.ArchivoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static com.techlab.servicios.JournalRecuperacionTest.borrar;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guardado periódico con seguimiento de cambios: un intervalo sin cambios no escribe nada,
+ * las lecturas y los pedidos rechazados no cuentan como cambios, y solo se reescriben los
+ * archivos del servicio que cambió. El hilo de guardado llama a guardarCambios() cada
+ * INTERVALO_GUARDADO segundos; acá se llama directamente.
+ */
+class GuardadoPeriodicoTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+    private static final List<String> ARCHIVOS_PRODUCTOS = List.of("productos.txt", "productos.bin");
+    private static final List<String> ARCHIVOS_PEDIDOS = List.of("pedidos.txt", "pedidos.bin");
+    // Fecha de modificación vieja: si sigue así después de guardar, el archivo no se reescribió.
+    private static final FileTime VIEJA = FileTime.from(Instant.parse("2000-01-01T00:00:00Z"));
+
+    @BeforeEach
+    @AfterEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void unIntervaloSinCambiosNoEscribeNada() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        try (PersistenciaService persistencia = new PersistenciaService(productos, pedidos)) {
+            persistencia.iniciar();
+            assertFalse(persistencia.hayCambios());
+            assertTrue(persistencia.guardarCambios());
+            assertNoExisten(ARCHIVOS_PRODUCTOS);
+            assertNoExisten(ARCHIVOS_PEDIDOS);
+
+            // Solo cambió el catálogo: no se escriben los pedidos.
+            Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+            assertTrue(persistencia.hayCambios());
+            assertTrue(persistencia.guardarCambios());
+            assertFalse(persistencia.hayCambios());
+            envejecer(ARCHIVOS_PRODUCTOS);
+            assertNoExisten(ARCHIVOS_PEDIDOS);
+
+            // Lecturas y un pedido rechazado: el intervalo sigue limpio.
+            productos.listarProductos();
+            productos.buscarPorPrefijo("yer", 5);
+            try (Instantanea instantanea = productos.instantanea()) {
+                assertEquals(1, instantanea.listar().size());
+            }
+            assertThrows(StockInsuficienteException.class, () -> pedidos.crearPedido(List.of(new LineaPedido(yerba, 11))));
+            assertFalse(persistencia.hayCambios());
+            assertTrue(persistencia.guardarCambios());
+            assertSinReescribir(ARCHIVOS_PRODUCTOS);
+
+            // Un pedido cambia los pedidos y el stock: se reescriben los dos.
+            pedidos.crearPedido(List.of(new LineaPedido(yerba, 3)));
+            assertTrue(persistencia.hayCambios());
+            assertTrue(persistencia.guardarCambios());
+            assertReescritos(ARCHIVOS_PRODUCTOS);
+            assertReescritos(ARCHIVOS_PEDIDOS);
+            envejecer(ARCHIVOS_PRODUCTOS);
+            envejecer(ARCHIVOS_PEDIDOS);
+
+            // Un cambio de nombre no toca los pedidos.
+            productos.actualizarProducto(yerba.getId(), "Yerba mate", null, null);
+            assertTrue(persistencia.guardarCambios());
+            assertReescritos(ARCHIVOS_PRODUCTOS);
+            assertSinReescribir(ARCHIVOS_PEDIDOS);
+            envejecer(ARCHIVOS_PRODUCTOS);
+
+            // Varios intervalos seguidos sin cambios.
+            for (int i = 0; i < 3; i++) assertTrue(persistencia.guardarCambios());
+            assertSinReescribir(ARCHIVOS_PRODUCTOS);
+            assertSinReescribir(ARCHIVOS_PEDIDOS);
+        }
+    }
+
+    private static void envejecer(List<String> archivos) throws IOException {
+        for (String a : archivos) Files.setLastModifiedTime(DATOS.resolve(a), VIEJA);
+    }
+
+    private static void assertSinReescribir(List<String> archivos) throws IOException {
+        for (String a : archivos) assertEquals(VIEJA, Files.getLastModifiedTime(DATOS.resolve(a)), a);
+    }
+
+    private static void assertReescritos(List<String> archivos) throws IOException {
+        for (String a : archivos) assertNotEquals(VIEJA, Files.getLastModifiedTime(DATOS.resolve(a)), a);
+    }
+
+    private static void assertNoExisten(List<String> archivos) {
+        for (String a : archivos) assertFalse(Files.exists(DATOS.resolve(a)), a);
+    }
+}
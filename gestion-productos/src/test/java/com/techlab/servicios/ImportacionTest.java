@@ -0,0 +1,163 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import com.techlab.productos.ResultadoImportacion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Importación de catálogos de proveedor: las filas con el mismo nombre y precio se suman entre sí
+ * y con el producto existente, la primera fila define el tipo, y las filas inválidas se rechazan
+ * con su número de línea sin frenar al resto.
+ */
+class ImportacionTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void lasFilasSeFusionanEntreSiYConElCatalogo() throws IOException {
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = new ProductoService(catalogo);
+            Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+            Path archivo = escribir("proveedor.txt",
+                    "tipo;nombre;precio;stock;extra",
+                    "Producto;  yerba ;2500,00;5",
+                    "Bebida;Agua;800.5;7;1,5",
+                    "",
+                    "Comida;Queso;4300;2;2030-01-02",
+                    "Producto;Agua;800,50;3",
+                    "Producto;Yerba;2600;1",
+                    "Producto;YERBA;2500;4");
+
+            ResultadoImportacion resultado = productos.importar(archivo);
+
+            assertEquals(3, resultado.insertados());
+            assertEquals(3, resultado.fusionados());
+            assertEquals(0, resultado.rechazados());
+            assertEquals(19, productos.buscarPorId(yerba.getId()).orElseThrow().getStock());
+
+            // IDs consecutivos en el orden de la primera fila de cada producto nuevo.
+            Producto agua = productos.buscarPorNombreYPrecio("Agua", 800.5).orElseThrow();
+            Producto queso = productos.buscarPorNombre("Queso").orElseThrow();
+            Producto otraYerba = productos.buscarPorNombreYPrecio("Yerba", 2600).orElseThrow();
+            assertEquals(List.of(yerba.getId() + 1, yerba.getId() + 2, yerba.getId() + 3),
+                    List.of(agua.getId(), queso.getId(), otraYerba.getId()));
+
+            // La primera fila define el tipo; las siguientes solo suman stock.
+            assertEquals(1.5, assertInstanceOf(Bebida.class, agua).getLitros());
+            assertEquals(10, agua.getStock());
+            assertEquals(LocalDate.of(2030, 1, 2), assertInstanceOf(Comida.class, queso).getFechaVencimiento());
+            assertEquals(1, otraYerba.getStock());
+            try (Instantanea instantanea = productos.instantanea()) {
+                assertEquals(4, instantanea.listar().size());
+            }
+        }
+    }
+
+    @Test
+    void lasFilasInvalidasSeRechazanConSuLinea() throws IOException {
+        ProductoService productos = new ProductoService();
+        Path archivo = escribir("proveedor.txt",
+                "Producto;Yerba;2500;5",
+                "Producto;Sin stock;2500",
+                "Mueble;Silla;100;1",
+                "Producto;Precio;abc;1",
+                "Producto;Negativo;10;-3",
+                "Bebida;Agua;800;7",
+                "Comida;Queso;4300;2;2030-02-30",
+                "Producto;Vacio;0;0");
+
+        ResultadoImportacion resultado = productos.importar(archivo);
+
+        assertEquals(2, resultado.insertados());
+        assertEquals(6, resultado.rechazados());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L),
+                resultado.rechazos().stream().map(ResultadoImportacion.Rechazo::linea).toList());
+        assertTrue(resultado.rechazos().get(1).motivo().contains("Mueble"));
+        assertFalse(resultado.rechazos().get(0).motivo().contains("⚠️"));
+        assertEquals(5, productos.buscarPorNombre("Yerba").orElseThrow().getStock());
+        assertTrue(productos.buscarPorNombre("Agua").isEmpty());
+    }
+
+    @Test
+    void unStockAcumuladoFueraDeRangoRechazaTodoElGrupo() throws IOException {
+        ProductoService productos = new ProductoService();
+        Producto yerba = productos.agregarProducto("Yerba", 2500, Integer.MAX_VALUE - 10);
+        Path archivo = escribir("proveedor.txt",
+                "Producto;Yerba;2500;6",
+                "Producto;Mate;100;" + Integer.MAX_VALUE,
+                "Producto;Yerba;2500;6",
+                "Producto;Mate;100;1",
+                "Producto;Bombilla;50;" + Integer.MAX_VALUE);
+
+        ResultadoImportacion resultado = productos.importar(archivo);
+
+        assertEquals(1, resultado.insertados());
+        assertEquals(0, resultado.fusionados());
+        assertEquals(4, resultado.rechazados());
+        assertEquals(List.of(1L, 2L), resultado.rechazos().stream().map(ResultadoImportacion.Rechazo::linea).toList());
+        assertEquals(Integer.MAX_VALUE - 10, yerba.getStock());
+        assertTrue(productos.buscarPorNombre("Mate").isEmpty());
+        assertEquals(Integer.MAX_VALUE, productos.buscarPorNombre("Bombilla").orElseThrow().getStock());
+    }
+
+    @Test
+    void unArchivoGrandeDaLoMismoQueLeerloEnOrden() throws IOException {
+        // Bastantes líneas para repartirlas en varios trozos y particiones.
+        int filas = 60_000;
+        String[] lineas = new String[filas];
+        Map<String, Integer> esperado = new LinkedHashMap<>();
+        long rechazosEsperados = 0;
+        for (int i = 0; i < filas; i++) {
+            String nombre = "Producto " + (i * 7919 % 1_500);
+            if (i % 997 == 0) {
+                lineas[i] = "Producto;" + nombre + ";xx;1";
+                rechazosEsperados++;
+                continue;
+            }
+            int stock = 1 + i % 5;
+            lineas[i] = "Producto;" + nombre + ";10;" + stock;
+            esperado.merge(nombre, stock, Integer::sum);
+        }
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = new ProductoService(catalogo);
+            ResultadoImportacion resultado = productos.importar(escribir("grande.txt", lineas));
+
+            assertEquals(esperado.size(), resultado.insertados());
+            assertEquals(filas - rechazosEsperados - esperado.size(), resultado.fusionados());
+            assertEquals(rechazosEsperados, resultado.rechazados());
+            for (int i = 0; i < resultado.rechazos().size(); i++) {
+                assertEquals(i * 997L + 1, resultado.rechazos().get(i).linea());
+            }
+            // En orden de alta = en orden de primera aparición en el archivo.
+            List<Producto> listados = productos.listarProductos();
+            assertEquals(List.copyOf(esperado.keySet()), listados.stream().map(Producto::getNombre).toList());
+            for (Producto p : listados) {
+                assertEquals(esperado.get(p.getNombre()), p.getStock(), p.getNombre());
+            }
+        }
+    }
+
+    private Path escribir(String nombre, String... lineas) throws IOException {
+        Path archivo = directorio.resolve(nombre);
+        Files.write(archivo, List.of(lineas), StandardCharsets.UTF_8);
+        return archivo;
+    }
+}
@@ -0,0 +1,160 @@
+package com.techlab.servicios;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.techlab.servicios.JournalRecuperacionTest.describir;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lecturas con instantánea (MVCC): una instantánea ve un único momento del catálogo, un pedido
+ * sobre varios productos entero o nada, y las versiones viejas se sueltan al cerrarla.
+ */
+class InstantaneaTest {
+
+    @Test
+    void losCambiosPosterioresNoSeVenEnUnaInstantaneaAbierta() throws Exception {
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = new ProductoService(catalogo);
+            PedidoService pedidos = new PedidoService(productos);
+            Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+            Producto agua = productos.agregarBebida("Agua", 800, 5, 1.5);
+            Producto queso = productos.agregarComida("Queso", 4300, 20, LocalDate.of(2030, 1, 2));
+            String antes = describir(productos.listarProductos());
+
+            try (Instantanea instantanea = productos.instantanea()) {
+                pedidos.crearPedido(List.of(new LineaPedido(yerba, 3), new LineaPedido(agua, 2)));
+                productos.actualizarProducto(queso.getId(), "Queso azul", 5000.0, 7);
+                productos.eliminarProducto(agua.getId());
+                productos.agregarProducto("Nuevo", 1, 1);
+
+                assertEquals(antes, describir(instantanea.listar()));
+                assertEquals(5, instantanea.buscarPorId(agua.getId()).orElseThrow().getStock());
+                assertEquals(1.5, ((Bebida) instantanea.buscarPorId(agua.getId()).orElseThrow()).getLitros());
+                assertEquals(LocalDate.of(2030, 1, 2),
+                        ((Comida) instantanea.buscarPorId(queso.getId()).orElseThrow()).getFechaVencimiento());
+            }
+            try (Instantanea instantanea = productos.instantanea()) {
+                assertEquals(describir(productos.listarProductos()), describir(instantanea.listar()));
+                assertTrue(instantanea.buscarPorId(agua.getId()).isEmpty());
+                assertEquals("Queso azul", instantanea.buscarPorId(queso.getId()).orElseThrow().getNombre());
+            }
+        }
+    }
+
+    @Test
+    void lasCopiasEntregadasNoCambianElCatalogo() {
+        ProductoService productos = new ProductoService();
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        try (Instantanea instantanea = productos.instantanea()) {
+            instantanea.buscarPorId(yerba.getId()).orElseThrow().setStock(99);
+            instantanea.listar().get(0).setNombre("Otro");
+            assertEquals(10, instantanea.buscarPorId(yerba.getId()).orElseThrow().getStock());
+        }
+        assertEquals("Yerba", yerba.getNombre());
+        assertEquals(10, yerba.getStock());
+    }
+
+    @Test
+    void unaInstantaneaVeCadaPedidoEnteroONada() throws Exception {
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = new ProductoService(catalogo);
+            PedidoService pedidos = new PedidoService(productos);
+            // Cada pedido descuenta lo mismo de los dos productos: en todo momento tienen igual stock.
+            Producto a = productos.agregarProducto("A", 1, 1_000_000);
+            Producto b = productos.agregarProducto("B", 2, 1_000_000);
+            AtomicBoolean terminado = new AtomicBoolean();
+            AtomicInteger lecturas = new AtomicInteger();
+            List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+
+            Thread lector = new Thread(() -> {
+                try {
+                    while (!terminado.get()) {
+                        try (Instantanea instantanea = productos.instantanea()) {
+                            List<Producto> vistos = instantanea.listar();
+                            assertEquals(vistos.get(0).getStock(), vistos.get(1).getStock(), "Pedido visto a medias");
+                            assertEquals(vistos.get(0).getStock(), instantanea.buscarPorId(b.getId()).orElseThrow().getStock());
+                        }
+                        lecturas.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    errores.add(t);
+                }
+            });
+            lector.start();
+            Thread[] escritores = new Thread[3];
+            for (int h = 0; h < escritores.length; h++) {
+                escritores[h] = new Thread(() -> {
+                    ThreadLocalRandom azar = ThreadLocalRandom.current();
+                    try {
+                        for (int n = 0; n < 3_000; n++) {
+                            int cantidad = 1 + azar.nextInt(3);
+                            pedidos.crearPedido(List.of(new LineaPedido(a, cantidad), new LineaPedido(b, cantidad)));
+                        }
+                    } catch (StockInsuficienteException | RuntimeException e) {
+                        errores.add(e);
+                    }
+                });
+                escritores[h].start();
+            }
+            for (Thread escritor : escritores) escritor.join();
+            terminado.set(true);
+            lector.join();
+
+            assertTrue(errores.isEmpty(), () -> "Errores: " + errores);
+            assertTrue(lecturas.get() > 0);
+            assertEquals(a.getStock(), b.getStock());
+        }
+    }
+
+    @Test
+    void lasVersionesViejasSeSueltanAlCerrarLasInstantaneas() {
+        VersionesCatalogo versiones = new VersionesCatalogo();
+        Producto yerba = new Producto(1, "Yerba", 2500, 10);
+        Producto agua = new Bebida(2, "Agua", 800, 5, 1.5);
+        versiones.publicar(yerba);
+        versiones.publicar(agua);
+
+        // Sin instantáneas abiertas solo queda la versión vigente.
+        for (int i = 0; i < 100; i++) {
+            yerba.setStock(i);
+            versiones.publicar(List.of(yerba, agua));
+        }
+        assertEquals(0, versiones.versionesRetenidas());
+
+        Instantanea vieja = versiones.abrir();
+        for (int i = 0; i < 100; i++) {
+            yerba.setStock(1_000 + i);
+            versiones.publicar(yerba);
+        }
+        // La instantánea abierta necesita la versión que vio, y a lo sumo una más por producto.
+        assertTrue(versiones.versionesRetenidas() <= 2, "Versiones retenidas: " + versiones.versionesRetenidas());
+        assertEquals(99, vieja.buscarPorId(1).orElseThrow().getStock());
+        try (Instantanea nueva = versiones.abrir()) {
+            assertEquals(1_099, nueva.buscarPorId(1).orElseThrow().getStock());
+        }
+        vieja.close();
+
+        yerba.setStock(5);
+        versiones.publicar(yerba);
+        assertEquals(0, versiones.versionesRetenidas());
+        try (Instantanea instantanea = versiones.abrir()) {
+            assertEquals(5, instantanea.buscarPorId(1).orElseThrow().getStock());
+        }
+    }
+}
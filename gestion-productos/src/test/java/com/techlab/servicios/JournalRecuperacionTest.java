@@ -0,0 +1,221 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
+import com.techlab.pedidos.Pedido;
+import com.techlab.persistencia.Journal;
+import com.techlab.persistencia.SegmentoPedidos;
+import com.techlab.persistencia.SnapshotBinario;
+import com.techlab.productos.Bebida;
+import com.techlab.productos.Comida;
+import com.techlab.productos.Producto;
+import com.techlab.util.ArchivoUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El journal se anota antes de aplicar cada cambio y se reproduce al arrancar: después de una
+ * caída vuelve todo lo confirmado, y un journal que falla no deja nada aplicado a medias.
+ */
+class JournalRecuperacionTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+
+    @BeforeEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void despuesDeUnaCaidaSeRecuperaTodoLoConfirmado() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        PersistenciaService persistencia = new PersistenciaService(productos, pedidos);
+        ProductoService recuperados = new ProductoService();
+        PedidoService pedidosRecuperados = new PedidoService(recuperados);
+        PersistenciaService recuperacion = new PersistenciaService(recuperados, pedidosRecuperados);
+        try {
+            persistencia.iniciar();
+            Producto yerba = productos.agregarProducto("Yerba 1kg", 2500.5, 100);
+            Producto agua = productos.agregarBebida("Agua", 800, 50, 1.5);
+            Producto queso = productos.agregarComida("Queso", 4300.25, 20, LocalDate.of(2030, 1, 2));
+            Producto borrado = productos.agregarProducto("Descontinuado", 10, 1);
+            productos.agregarProducto("Yerba 1kg", 2500.5, 5);
+            pedidos.crearPedido(List.of(new LineaPedido(yerba, 3), new LineaPedido(agua, 2)));
+            pedidos.crearPedidos(List.of(List.of(new LineaPedido(queso, 1)), List.of(new LineaPedido(yerba, 500))),
+                    ModoLote.MEJOR_ESFUERZO);
+            productos.actualizarProducto(agua.getId(), "Agua mineral", 900.0, null);
+            productos.eliminarProducto(borrado.getId());
+            persistencia.esperarDurable();
+
+            // Sin cerrar: los archivos no se guardaron y todo sale del journal.
+            recuperacion.iniciar();
+            assertEquals(describir(productos.listarProductos()), describir(recuperados.listarProductos()));
+            assertEquals(describirPedidos(pedidos.listarPedidos()), describirPedidos(pedidosRecuperados.listarPedidos()));
+            assertEquals(2, pedidosRecuperados.listarPedidos().size());
+            assertEquals(pedidos.facturacionTotal(), pedidosRecuperados.facturacionTotal());
+
+            // Los IDs no se reutilizan, tampoco el del producto borrado.
+            Producto nuevo = recuperados.agregarProducto("Nuevo", 1, 1);
+            assertTrue(nuevo.getId() > borrado.getId());
+        } finally {
+            recuperacion.close();
+            persistencia.close();
+        }
+    }
+
+    @Test
+    void losRegistrosNoDependenDelLocale() {
+        // Con este Locale, String.format escribe los números con dígitos arábigos orientales.
+        Locale anterior = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("ar-EG"));
+        ProductoService productos = new ProductoService();
+        PersistenciaService persistencia = new PersistenciaService(productos, new PedidoService(productos));
+        ProductoService recuperados = new ProductoService();
+        PersistenciaService recuperacion = new PersistenciaService(recuperados, new PedidoService(recuperados));
+        try {
+            persistencia.iniciar();
+            productos.agregarProducto("Yerba", 2500.5, 12);
+            productos.agregarBebida("Agua", 800.05, 50, 1.5);
+            productos.agregarComida("Queso", 4300.25, 20, LocalDate.of(2030, 1, 2));
+            persistencia.esperarDurable();
+
+            recuperacion.iniciar();
+            assertEquals(describir(productos.listarProductos()), describir(recuperados.listarProductos()));
+        } finally {
+            Locale.setDefault(anterior);
+            recuperacion.close();
+            persistencia.close();
+        }
+    }
+
+    @Test
+    void unJournalQueFallaNoDejaNadaAplicado() {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        Producto agua = productos.agregarBebida("Agua", 800, 5, 1.5);
+        String antes = describir(productos.listarProductos());
+
+        // Sin iniciar: cada anotación falla como después de un error de escritura.
+        Journal cerrado = new Journal(DATOS.resolve("journal-cerrado"));
+        productos.setJournal(cerrado);
+        pedidos.setJournal(cerrado);
+
+        assertThrows(IllegalStateException.class, () -> productos.agregarProducto("Nuevo", 1, 1));
+        assertThrows(IllegalStateException.class, () -> productos.agregarProducto("Yerba", 2500, 5));
+        assertThrows(IllegalStateException.class,
+                () -> productos.actualizarProducto(yerba.getId(), "Mate", 3000.0, 1));
+        assertThrows(IllegalStateException.class, () -> productos.eliminarProducto(agua.getId()));
+        assertThrows(IllegalStateException.class, () -> pedidos.crearPedido(List.of(new LineaPedido(yerba, 2))));
+        assertThrows(IllegalStateException.class, () -> pedidos.crearPedidos(
+                List.of(List.of(new LineaPedido(yerba, 1)), List.of(new LineaPedido(agua, 1))), ModoLote.MEJOR_ESFUERZO));
+
+        assertEquals(antes, describir(productos.listarProductos()));
+        assertTrue(productos.buscarPorNombre("Nuevo").isEmpty());
+        assertTrue(productos.buscarPorNombre("Mate").isEmpty());
+        assertTrue(pedidos.listarPedidos().isEmpty());
+        try (Instantanea instantanea = productos.instantanea()) {
+            assertEquals(10, instantanea.buscarPorId(yerba.getId()).orElseThrow().getStock());
+        }
+    }
+
+    @Test
+    void unNombreConSeparadorOSaltoDeLineaSeRechazaSinTocarElCatalogo() {
+        ProductoService productos = new ProductoService();
+        for (String nombre : List.of("Yerba;Mate", "Yerba\nMate", "Yerba\rMate")) {
+            assertThrows(IllegalArgumentException.class, () -> productos.agregarProducto(nombre, 10, 1));
+        }
+        assertTrue(productos.estaVacio());
+
+        Producto yerba = productos.agregarProducto("Yerba", 10, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> productos.actualizarProducto(yerba.getId(), "Yerba;Mate", 20.0, 5));
+        assertEquals("Yerba", yerba.getNombre());
+        assertEquals(1000, yerba.getPrecioCentavos());
+        assertEquals(1, yerba.getStock());
+    }
+
+    @Test
+    void unPedidoV1ConservaSuSubtotalAunqueNoDividaExacto() throws IOException {
+        ProductoService productos = new ProductoService();
+        Producto alfajor = productos.agregarProducto("Alfajor", 0.33, 10);
+        productos.agregarProducto("Alfajor", 0.50, 10);
+        // v1: idPedido;nombre;cantidad;subtotal. 1.00 por 3 no es un precio unitario en centavos.
+        Files.createDirectories(DATOS);
+        Files.writeString(DATOS.resolve("pedidos.txt"), "1;Alfajor;3;1.00\n2;Alfajor;2;1.00\n");
+
+        PedidoService pedidos = new PedidoService(productos);
+        pedidos.cargarDesdeArchivo();
+        LineaPedido linea = pedidos.buscarPorId(1).orElseThrow().getLineas().get(0);
+        assertEquals(alfajor.getId(), linea.getProducto().getId());
+        assertEquals(33, linea.getPrecioUnitarioCentavos());
+        assertEquals(100, linea.getSubtotalCentavos());
+        assertEquals(100, pedidos.buscarPorId(1).orElseThrow().getTotalCentavos());
+        assertEquals(200, pedidos.facturacionTotal().centavos());
+
+        // El archivo quedó en v2 y el subtotal sigue igual al releerlo y en los formatos binarios.
+        assertTrue(Files.readString(DATOS.resolve("pedidos.txt")).startsWith("#v2"));
+        PedidoService releidos = new PedidoService(productos);
+        releidos.cargarDesdeArchivo();
+        List<Pedido> cargados = pedidos.listarPedidos();
+        assertEquals(describirPedidos(cargados), describirPedidos(releidos.listarPedidos()));
+        assertEquals(200, releidos.facturacionTotal().centavos());
+
+        Path snapshot = DATOS.resolve("pedidos-prueba.bin");
+        SnapshotBinario.escribirPedidos(snapshot, cargados, true);
+        assertEquals(describirPedidos(cargados), describirPedidos(
+                SnapshotBinario.leerPedidos(snapshot, id -> productos.buscarPorId(id).orElse(null))));
+        SegmentoPedidos segmento = SegmentoPedidos.escribir(DATOS.resolve("segmentos-prueba"), cargados);
+        assertEquals(describirPedidos(cargados), describirPedidos(
+                segmento.leerBloque(0, id -> productos.buscarPorId(id).orElse(null))));
+    }
+
+    static String describir(List<Producto> productos) {
+        StringBuilder sb = new StringBuilder();
+        for (Producto p : productos) {
+            // Por tipo y no por clase: las vistas de ProductoStore y las copias se describen igual.
+            sb.append(p instanceof Bebida ? "Bebida" : p instanceof Comida ? "Comida" : "Producto").append('|').append(p.getId()).append('|').append(p.getNombre())
+                    .append('|').append(p.getPrecioCentavos()).append('|').append(p.getStock());
+            if (p instanceof Bebida b) sb.append('|').append(b.getLitros());
+            if (p instanceof Comida c) sb.append('|').append(c.getFechaVencimiento());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String describirPedidos(List<Pedido> pedidos) {
+        StringBuilder sb = new StringBuilder();
+        for (Pedido pedido : pedidos) {
+            sb.append(pedido.getId());
+            for (LineaPedido linea : pedido.getLineas()) {
+                sb.append('|').append(linea.getProducto().getId()).append('x').append(linea.getCantidad())
+                        .append('@').append(linea.getPrecioUnitarioCentavos())
+                        .append('=').append(linea.getSubtotalCentavos());
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static void borrar(Path directorio) throws IOException {
+        if (!Files.exists(directorio)) return;
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path p : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
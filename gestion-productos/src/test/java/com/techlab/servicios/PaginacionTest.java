@@ -0,0 +1,119 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import com.techlab.util.Pagina;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Listados por cursor: recorren todo una sola vez y en orden, y las altas y bajas entre una
+ * página y otra no hacen saltear ni repetir elementos.
+ */
+class PaginacionTest {
+
+    @Test
+    void lasPaginasDeProductosRecorrenTodoEnOrdenDeAlta() {
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = conProductos(catalogo, 1_000);
+            List<Integer> paginado = new ArrayList<>();
+            String cursor = null;
+            do {
+                Pagina<Producto> pagina = productos.listarProductos(cursor, 37);
+                assertTrue(pagina.elementos().size() <= 37);
+                pagina.elementos().forEach(p -> paginado.add(p.getId()));
+                cursor = pagina.siguiente();
+            } while (cursor != null);
+            assertEquals(ids(productos.listarProductos()), paginado);
+            assertEquals(ids(productos.listarProductos()), ids(productos.streamProductos().toList()));
+        }
+    }
+
+    @Test
+    void lasAltasYBajasEntrePaginasNoSalteanNiRepiten() {
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = conProductos(catalogo, 500);
+            List<Producto> originales = productos.listarProductos();
+            Set<Integer> borrados = new HashSet<>();
+            List<Integer> vistos = new ArrayList<>();
+            List<Integer> agregados = new ArrayList<>();
+            String cursor = null;
+            int n = 0;
+            do {
+                Pagina<Producto> pagina = productos.listarProductos(cursor, 20);
+                pagina.elementos().forEach(p -> vistos.add(p.getId()));
+                cursor = pagina.siguiente();
+                // Se borran uno ya visto y uno por venir, y se agrega uno nuevo al final.
+                Producto visto = originales.get(Math.min(n * 20, originales.size() - 1));
+                Producto porVenir = originales.get(Math.min(n * 20 + 45, originales.size() - 1));
+                for (Producto p : List.of(visto, porVenir)) {
+                    if (productos.eliminarProducto(p.getId())) borrados.add(p.getId());
+                }
+                if (n < 10) agregados.add(productos.agregarProducto("Nuevo " + n, 1, 1).getId());
+                n++;
+            } while (cursor != null);
+
+            assertEquals(vistos.size(), new HashSet<>(vistos).size(), "Un producto salió dos veces.");
+            for (Producto p : originales) {
+                // Cada original se vio, salvo que se haya borrado antes de llegar a su página.
+                if (!borrados.contains(p.getId())) assertTrue(vistos.contains(p.getId()), "Falta " + p.getId());
+            }
+            assertTrue(vistos.containsAll(agregados), "Las altas nuevas aparecen al final.");
+            assertEquals(ids(productos.listarProductos()),
+                    vistos.stream().filter(id -> !borrados.contains(id)).toList());
+        }
+    }
+
+    @Test
+    void lasPaginasDePedidosRecorrenTodoEnOrdenDeId() throws Exception {
+        ProductoService productos = conProductos(new CatalogoEnMemoria(), 5);
+        PedidoService pedidos = new PedidoService(productos);
+        List<Producto> catalogo = productos.listarProductos();
+        for (int i = 0; i < 300; i++) {
+            pedidos.crearPedido(List.of(new LineaPedido(catalogo.get(i % catalogo.size()), 1)));
+        }
+        List<Integer> paginado = new ArrayList<>();
+        String cursor = null;
+        do {
+            Pagina<Pedido> pagina = pedidos.listarPedidos(cursor, 50);
+            pagina.elementos().forEach(p -> paginado.add(p.getId()));
+            cursor = pagina.siguiente();
+            if (cursor != null) pedidos.crearPedido(List.of(new LineaPedido(catalogo.get(0), 1)));
+        } while (cursor != null);
+        List<Integer> todos = pedidos.listarPedidos().stream().map(Pedido::getId).toList();
+        assertEquals(todos, paginado);
+    }
+
+    @Test
+    void unCursorAjenoOInvalidoSeRechaza() {
+        ProductoService productos = conProductos(new CatalogoEnMemoria(), 10);
+        PedidoService pedidos = new PedidoService(productos);
+        String cursorProductos = productos.listarProductos(null, 3).siguiente();
+        assertThrows(IllegalArgumentException.class, () -> pedidos.listarPedidos(cursorProductos, 3));
+        assertThrows(IllegalArgumentException.class, () -> productos.listarProductos("p-1", 3));
+        assertThrows(IllegalArgumentException.class, () -> productos.listarProductos("zzz!", 3));
+        assertThrows(IllegalArgumentException.class, () -> productos.listarProductos(null, 0));
+    }
+
+    private static ProductoService conProductos(Catalogo catalogo, int cantidad) {
+        ProductoService productos = new ProductoService(catalogo);
+        for (int i = 0; i < cantidad; i++) {
+            productos.agregarProducto("Producto " + i, 1 + i, 1_000);
+        }
+        return productos;
+    }
+
+    private static List<Integer> ids(List<Producto> productos) {
+        return productos.stream().map(Producto::getId).toList();
+    }
+}
@@ -0,0 +1,175 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
+import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.ResultadoPedido;
+import com.techlab.productos.Producto;
+import com.techlab.util.ArchivoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.techlab.servicios.JournalRecuperacionTest.borrar;
+import static com.techlab.servicios.JournalRecuperacionTest.describir;
+import static com.techlab.servicios.JournalRecuperacionTest.describirPedidos;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pedidos por lote: TODO_O_NADA no crea ninguno si el stock total del lote no alcanza o hay un
+ * pedido inválido; MEJOR_ESFUERZO crea, en orden, los que alcanzan. Los resultados vuelven en
+ * el orden de las solicitudes, y un lote confirmado se recupera entero del journal.
+ */
+class PedidosPorLoteTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+
+    @BeforeEach
+    @AfterEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void cuandoElStockDelLoteNoAlcanzaTodoONadaNoCreaNinguno() {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        Producto agua = productos.agregarProducto("Agua", 800, 10);
+        // Cada pedido alcanza por sí solo; los tres de yerba juntos piden 12.
+        List<List<LineaPedido>> lote = List.of(
+                List.of(new LineaPedido(yerba, 4)),
+                List.of(new LineaPedido(agua, 2)),
+                List.of(new LineaPedido(yerba, 4)),
+                List.of(new LineaPedido(yerba, 4)));
+
+        List<ResultadoPedido> resultados = pedidos.crearPedidos(lote, ModoLote.TODO_O_NADA);
+        assertEquals(4, resultados.size());
+        assertTrue(resultados.stream().noneMatch(ResultadoPedido::esAceptado));
+        for (int k : new int[]{0, 2, 3}) {
+            assertTrue(resultados.get(k).error().startsWith("Stock insuficiente para el producto: Yerba"),
+                    resultados.get(k).error());
+        }
+        assertEquals("Lote rechazado: otro pedido del lote no tiene stock suficiente.", resultados.get(1).error());
+        assertEquals(10, yerba.getStock());
+        assertEquals(10, agua.getStock());
+        assertFalse(pedidos.hayPedidos());
+
+        resultados = pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO);
+        assertTrue(resultados.get(0).esAceptado());
+        assertTrue(resultados.get(1).esAceptado());
+        assertTrue(resultados.get(2).esAceptado());
+        assertEquals("Stock insuficiente para el producto: Yerba. Disponible: 2, Solicitado: 4",
+                resultados.get(3).error());
+        assertEquals(2, yerba.getStock());
+        assertEquals(8, agua.getStock());
+        assertEquals(3, pedidos.listarPedidos().size());
+    }
+
+    @Test
+    void unPedidoInvalidoRechazaElLoteOSoloASiMismo() {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        List<List<LineaPedido>> lote = new ArrayList<>();
+        lote.add(List.of(new LineaPedido(yerba, 1)));
+        lote.add(List.of(new LineaPedido(yerba, 2), new LineaPedido(yerba, 0)));
+        lote.add(List.of(new LineaPedido(null, 1)));
+        lote.add(List.of());
+        lote.add(List.of(new LineaPedido(yerba, 3)));
+
+        List<ResultadoPedido> resultados = pedidos.crearPedidos(lote, ModoLote.TODO_O_NADA);
+        assertEquals("Cantidad inválida para el producto: Yerba", resultados.get(1).error());
+        assertEquals("Línea de pedido contiene un producto nulo.", resultados.get(2).error());
+        assertEquals("El pedido no tiene líneas.", resultados.get(3).error());
+        for (int k : new int[]{0, 4}) {
+            assertEquals("Lote rechazado: otro pedido del lote es inválido.", resultados.get(k).error());
+        }
+        assertEquals(10, yerba.getStock());
+        assertFalse(pedidos.hayPedidos());
+
+        resultados = pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO);
+        assertTrue(resultados.get(0).esAceptado());
+        assertTrue(resultados.get(4).esAceptado());
+        assertEquals("Cantidad inválida para el producto: Yerba", resultados.get(1).error());
+        assertEquals(6, yerba.getStock());
+        assertEquals(2, pedidos.listarPedidos().size());
+    }
+
+    @Test
+    void losResultadosVuelvenEnElOrdenDeLasSolicitudes() {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        List<Producto> catalogo = new ArrayList<>();
+        for (int i = 0; i < 5; i++) catalogo.add(productos.agregarProducto("Producto " + i, 100 + i, 20));
+
+        // Pedidos intercalados que alcanzan y que no (el producto i pide i + 1 unidades cada vez).
+        List<List<LineaPedido>> lote = new ArrayList<>();
+        for (int k = 0; k < 60; k++) {
+            Producto p = catalogo.get(k % 5);
+            lote.add(List.of(new LineaPedido(p, k % 5 + 1), new LineaPedido(catalogo.get((k + 1) % 5), 1)));
+        }
+        List<ResultadoPedido> resultados = pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO);
+        assertEquals(lote.size(), resultados.size());
+        assertTrue(resultados.stream().anyMatch(r -> !r.esAceptado()));
+
+        int ultimoId = 0;
+        List<Pedido> aceptados = new ArrayList<>();
+        for (int k = 0; k < lote.size(); k++) {
+            ResultadoPedido r = resultados.get(k);
+            if (!r.esAceptado()) continue;
+            // Cada resultado es el de su solicitud, y los IDs crecen en el orden del lote.
+            Pedido pedido = r.pedido();
+            assertTrue(pedido.getId() > ultimoId);
+            ultimoId = pedido.getId();
+            assertEquals(lote.get(k).size(), pedido.getLineas().size());
+            for (int j = 0; j < pedido.getLineas().size(); j++) {
+                assertSame(lote.get(k).get(j).getProducto(), pedido.getLineas().get(j).getProducto());
+                assertEquals(lote.get(k).get(j).getCantidad(), pedido.getLineas().get(j).getCantidad());
+            }
+            aceptados.add(pedido);
+        }
+        assertEquals(describirPedidos(aceptados), describirPedidos(pedidos.listarPedidos()));
+        for (Producto p : catalogo) assertTrue(p.getStock() >= 0);
+    }
+
+    @Test
+    void unLoteConfirmadoSeRecuperaDelJournalDespuesDeUnaCaida() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        PersistenciaService persistencia = new PersistenciaService(productos, pedidos);
+        ProductoService recuperados = new ProductoService();
+        PedidoService pedidosRecuperados = new PedidoService(recuperados);
+        PersistenciaService recuperacion = new PersistenciaService(recuperados, pedidosRecuperados);
+        try {
+            persistencia.iniciar();
+            Producto yerba = productos.agregarProducto("Yerba", 2500.5, 10);
+            Producto agua = productos.agregarBebida("Agua", 800, 10, 1.5);
+            List<ResultadoPedido> resultados = pedidos.crearPedidos(List.of(
+                    List.of(new LineaPedido(yerba, 4), new LineaPedido(agua, 1)),
+                    List.of(new LineaPedido(yerba, 7)),
+                    List.of(new LineaPedido(agua, 3), new LineaPedido(yerba, 6))), ModoLote.MEJOR_ESFUERZO);
+            assertEquals(List.of(true, false, true), resultados.stream().map(ResultadoPedido::esAceptado).toList());
+            // El precio cambia después del lote: los pedidos recuperados mantienen el histórico.
+            productos.actualizarProducto(yerba.getId(), null, 3000.0, null);
+            persistencia.esperarDurable();
+
+            // Sin cerrar: los archivos no se guardaron y el lote sale del journal.
+            recuperacion.iniciar();
+            assertEquals(describir(productos.listarProductos()), describir(recuperados.listarProductos()));
+            assertEquals(describirPedidos(pedidos.listarPedidos()), describirPedidos(pedidosRecuperados.listarPedidos()));
+            assertEquals(0, recuperados.buscarPorId(yerba.getId()).orElseThrow().getStock());
+            assertEquals(6, recuperados.buscarPorId(agua.getId()).orElseThrow().getStock());
+            assertEquals(pedidos.facturacionTotal(), pedidosRecuperados.facturacionTotal());
+        } finally {
+            recuperacion.close();
+            persistencia.close();
+        }
+    }
+}
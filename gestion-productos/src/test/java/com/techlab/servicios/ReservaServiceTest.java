@@ -0,0 +1,85 @@
+package com.techlab.servicios;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.Pedido;
+import com.techlab.pedidos.Reserva;
+import com.techlab.productos.Producto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reservas con vencimiento: retienen stock sin descontarlo, se confirman en un pedido, se
+ * cancelan o vencen devolviendo lo retenido, y el servicio no acepta reservas sin iniciar.
+ */
+class ReservaServiceTest {
+
+    @Test
+    void unaReservaRetieneYSeConfirmaOSeCancela() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        try (ReservaService reservas = new ReservaService(productos, pedidos)) {
+            reservas.iniciar();
+            Reserva confirmada = reservas.reservar(List.of(new LineaPedido(yerba, 4)), Duration.ofMinutes(5));
+            Reserva cancelada = reservas.reservar(List.of(new LineaPedido(yerba, 5)), Duration.ofMinutes(5));
+            assertEquals(1, productos.disponible(yerba));
+            assertEquals(10, yerba.getStock());
+            assertThrows(StockInsuficienteException.class,
+                    () -> reservas.reservar(List.of(new LineaPedido(yerba, 2)), Duration.ofMinutes(5)));
+
+            Pedido pedido = reservas.confirmar(confirmada.getId()).orElseThrow();
+            assertEquals(4, pedido.getLineas().get(0).getCantidad());
+            assertEquals(6, yerba.getStock());
+            assertTrue(reservas.confirmar(confirmada.getId()).isEmpty(), "Se confirmó dos veces.");
+
+            assertTrue(reservas.cancelar(cancelada.getId()));
+            assertFalse(reservas.cancelar(cancelada.getId()));
+            assertEquals(6, productos.disponible(yerba));
+            assertEquals(0, reservas.cantidadActivas());
+        }
+    }
+
+    @Test
+    void unaReservaVencidaDevuelveElStock() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        try (ReservaService reservas = new ReservaService(productos, pedidos)) {
+            reservas.iniciar();
+            Reserva reserva = reservas.reservar(List.of(new LineaPedido(yerba, 7)), Duration.ofMillis(50));
+            assertEquals(3, productos.disponible(yerba));
+
+            long limite = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (reservas.cantidadActivas() > 0 && System.nanoTime() < limite) Thread.sleep(20);
+            assertEquals(0, reservas.cantidadActivas(), "La reserva no venció.");
+            assertEquals(10, productos.disponible(yerba));
+            assertTrue(reservas.confirmar(reserva.getId()).isEmpty());
+            assertEquals(10, yerba.getStock());
+        }
+    }
+
+    @Test
+    void sinIniciarOYaCerradoNoSeAceptanReservasYCerrarLiberaLasActivas() throws Exception {
+        ProductoService productos = new ProductoService();
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        ReservaService reservas = new ReservaService(productos, new PedidoService(productos));
+        List<LineaPedido> lineas = List.of(new LineaPedido(yerba, 3));
+        assertThrows(IllegalStateException.class, () -> reservas.reservar(lineas, Duration.ofMinutes(5)));
+
+        reservas.iniciar();
+        assertThrows(IllegalStateException.class, reservas::iniciar);
+        reservas.reservar(lineas, Duration.ofMinutes(5));
+        assertEquals(7, productos.disponible(yerba));
+        reservas.close();
+        assertEquals(10, productos.disponible(yerba));
+        assertThrows(IllegalStateException.class, () -> reservas.reservar(lineas, Duration.ofMinutes(5)));
+
+        // Cerrar uno que nunca se inició no falla.
+        new ReservaService(productos, new PedidoService(productos)).close();
+    }
+}
@@ -0,0 +1,83 @@
+package com.techlab.servicios;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rueda de temporizadores con un reloj simulado: cada temporizador vence una sola vez, en el
+ * primer tick que no es anterior a su hora (también los que bajan varios niveles), y los
+ * cancelados no vencen.
+ */
+class RuedaTemporizadoresTest {
+
+    private static final long TICK = 1_000;
+    private static final long ORIGEN = 5_000_000;
+
+    @Test
+    void cadaTemporizadorVenceEnSuTickAunqueBajeVariosNiveles() {
+        RuedaTemporizadores<Integer> rueda = new RuedaTemporizadores<>(TICK, ORIGEN);
+        Random azar = new Random(7);
+        Map<Integer, Long> tickEsperado = new HashMap<>();
+        List<RuedaTemporizadores.Temporizador<Integer>> temporizadores = new ArrayList<>();
+        int cantidad = 20_000;
+        for (int i = 0; i < cantidad; i++) {
+            // Hasta 64^3 ticks: cubre los niveles 0 a 3 y sus cascadas.
+            long vence = ORIGEN + (long) (azar.nextDouble() * 300_000 * TICK);
+            temporizadores.add(rueda.programar(i, vence));
+            tickEsperado.put(i, (vence - ORIGEN + TICK - 1) / TICK);
+        }
+        for (int i = 0; i < cantidad; i += 3) {
+            assertTrue(rueda.cancelar(temporizadores.get(i)));
+            assertFalse(rueda.cancelar(temporizadores.get(i)), "Se canceló dos veces.");
+            tickEsperado.remove(i);
+        }
+        assertEquals(tickEsperado.size(), rueda.pendientes());
+
+        long ahora = ORIGEN;
+        long tickAnterior = -1;
+        int vencidos = 0;
+        while (rueda.pendientes() > 0) {
+            ahora += (1 + azar.nextInt(500)) * TICK;
+            long tick = (ahora - ORIGEN) / TICK;
+            for (int valor : rueda.avanzar(ahora)) {
+                Long esperado = tickEsperado.remove(valor);
+                assertNotNull(esperado, "Venció un temporizador cancelado o dos veces: " + valor);
+                assertTrue(esperado > tickAnterior && esperado <= tick,
+                        "El " + valor + " vence en el tick " + esperado + " y salió entre " + tickAnterior + " y " + tick);
+                vencidos++;
+            }
+            tickAnterior = tick;
+        }
+        assertTrue(tickEsperado.isEmpty());
+        assertEquals(cantidad - (cantidad + 2) / 3, vencidos);
+    }
+
+    @Test
+    void losVencidosSalenEnOrdenYLoYaVencidoEnElProximoTick() {
+        RuedaTemporizadores<String> rueda = new RuedaTemporizadores<>(TICK, ORIGEN);
+        rueda.programar("tercero", ORIGEN + 70 * TICK);
+        rueda.programar("primero", ORIGEN + 3 * TICK);
+        rueda.programar("segundo", ORIGEN + 65 * TICK);
+        assertEquals(List.of(), rueda.avanzar(ORIGEN + 2 * TICK));
+        assertEquals(List.of("primero", "segundo", "tercero"), rueda.avanzar(ORIGEN + 100 * TICK));
+
+        // Programado en el pasado: vence en el próximo tick, no se pierde.
+        RuedaTemporizadores.Temporizador<String> tarde = rueda.programar("tarde", ORIGEN);
+        assertEquals(List.of(), rueda.avanzar(ORIGEN + 100 * TICK));
+        assertEquals(List.of("tarde"), rueda.avanzar(ORIGEN + 101 * TICK));
+        assertFalse(rueda.cancelar(tarde), "Un temporizador vencido ya no está pendiente.");
+        assertEquals(0, rueda.pendientes());
+    }
+
+    @Test
+    void unTickNoPositivoSeRechaza() {
+        assertThrows(IllegalArgumentException.class, () -> new RuedaTemporizadores<>(0, ORIGEN));
+    }
+}
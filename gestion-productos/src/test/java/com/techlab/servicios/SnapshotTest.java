@@ -0,0 +1,121 @@
+package com.techlab.servicios;
+
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import com.techlab.util.ArchivoUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static com.techlab.servicios.JournalRecuperacionTest.borrar;
+import static com.techlab.servicios.JournalRecuperacionTest.describir;
+import static com.techlab.servicios.JournalRecuperacionTest.describirPedidos;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Snapshot binario: productos y pedidos se releen igual que se escribieron, con y sin
+ * compresión y con los dos catálogos; los índices y la numeración siguen desde lo cargado, y
+ * un snapshot dañado no se carga.
+ */
+class SnapshotTest {
+
+    private static final Path DATOS = Paths.get(ArchivoUtil.DIRECTORIO_DATOS);
+    // Bastantes productos para que el cuerpo comprimido ocupe más de un bloque de 1 MB.
+    private static final int PRODUCTOS = 30_000;
+
+    @BeforeEach
+    @AfterEach
+    void limpiarDatos() throws IOException {
+        borrar(DATOS);
+    }
+
+    @Test
+    void idaYVueltaConCatalogoEnMemoria() {
+        verificar(CatalogoEnMemoria::new);
+    }
+
+    @Test
+    void idaYVueltaConProductoStore() {
+        verificar(ProductoStore::new);
+    }
+
+    private void verificar(Supplier<Catalogo> catalogo) {
+        ProductoService productos = new ProductoService(catalogo.get());
+        PedidoService pedidos = new PedidoService(productos);
+        List<Producto> vendibles = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto p = switch (i % 3) {
+                case 0 -> productos.agregarProducto("Café molido Nº" + i, 1234.56 + i, i);
+                case 1 -> productos.agregarBebida("Agua sin gas " + i, 0.01 * i, 100, 0.5 + i % 4);
+                default -> productos.agregarComida("Ñoquis " + i, 99.99, 7, LocalDate.of(2026, 1, 1).plusDays(i % 900));
+            };
+            if (i % 100 == 0) vendibles.add(p);
+        }
+        productos.eliminarProducto(vendibles.get(1).getId());
+        vendibles.remove(1);
+        Random azar = new Random(9);
+        List<List<LineaPedido>> lote = new ArrayList<>();
+        for (int k = 0; k < 500; k++) {
+            lote.add(List.of(new LineaPedido(vendibles.get(azar.nextInt(vendibles.size())), 1),
+                    new LineaPedido(vendibles.get(azar.nextInt(vendibles.size())), 1)));
+        }
+        pedidos.crearPedidos(lote, ModoLote.MEJOR_ESFUERZO);
+        // Precio cambiado después de vender: los pedidos conservan el histórico.
+        productos.actualizarProducto(vendibles.get(0).getId(), null, 1.0, null);
+        assertTrue(pedidos.hayPedidos());
+
+        for (boolean comprimir : new boolean[]{false, true}) {
+            assertTrue(productos.guardarSnapshot(comprimir));
+            assertTrue(pedidos.guardarSnapshot(comprimir));
+
+            ProductoService recuperados = new ProductoService(catalogo.get());
+            PedidoService pedidosRecuperados = new PedidoService(recuperados);
+            recuperados.cargarSnapshot();
+            pedidosRecuperados.cargarSnapshot();
+            assertEquals(describir(productos.listarProductos()), describir(recuperados.listarProductos()));
+            assertEquals(describirPedidos(pedidos.listarPedidos()), describirPedidos(pedidosRecuperados.listarPedidos()));
+            assertEquals(pedidos.facturacionTotal(), pedidosRecuperados.facturacionTotal());
+
+            // Los índices se arman con la carga y la numeración sigue desde el ID mayor.
+            assertEquals(describir(productos.buscarPorPrefijo("noquis 2", 20)),
+                    describir(recuperados.buscarPorPrefijo("noquis 2", 20)));
+            assertEquals(describir(productos.listarVencidos()), describir(recuperados.listarVencidos()));
+            assertTrue(recuperados.agregarProducto("Nuevo", 1, 1).getId() > PRODUCTOS);
+        }
+    }
+
+    @Test
+    void unSnapshotDaniadoNoSeCarga() throws IOException {
+        ProductoService productos = new ProductoService();
+        for (int i = 0; i < 100; i++) productos.agregarProducto("Producto " + i, 10 + i, i);
+        assertTrue(productos.guardarSnapshot(false));
+        try (FileChannel canal = FileChannel.open(DATOS.resolve("productos.bin"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Un byte del cuerpo, después de la cabecera de 32 bytes.
+            ByteBuffer b = ByteBuffer.allocate(1);
+            canal.read(b, 100);
+            canal.write(ByteBuffer.wrap(new byte[]{(byte) ~b.get(0)}), 100);
+        }
+        ProductoService recuperados = new ProductoService();
+        Producto previo = recuperados.agregarProducto("Previo", 1, 1);
+        assertThrows(IllegalStateException.class, recuperados::cargarSnapshot);
+        // La carga falla antes de vaciar el catálogo.
+        assertEquals(List.of(previo.getId()), recuperados.listarProductos().stream().map(Producto::getId).toList());
+    }
+}
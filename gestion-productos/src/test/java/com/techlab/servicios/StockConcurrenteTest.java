@@ -0,0 +1,203 @@
+package com.techlab.servicios;
+
+import com.techlab.excepciones.StockInsuficienteException;
+import com.techlab.pedidos.LineaPedido;
+import com.techlab.pedidos.ModoLote;
+import com.techlab.pedidos.Pedido;
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pedidos, lotes, altas repetidas y reservas en paralelo sobre pocos productos con poco stock:
+ * el stock nunca queda negativo, nada se pierde y los bloqueos por franja no se trancan
+ * (las líneas llegan desordenadas y con productos repetidos).
+ */
+class StockConcurrenteTest {
+
+    private static final int HILOS = 8;
+    private static final int OPERACIONES = 2_000;
+    private static final int PRODUCTOS = 12;
+    private static final int STOCK_INICIAL = 400;
+
+    @Test
+    void elStockNuncaQuedaNegativoConCatalogoEnMemoria() throws Exception {
+        verificar(new CatalogoEnMemoria());
+    }
+
+    @Test
+    void elStockNuncaQuedaNegativoConProductoStore() throws Exception {
+        verificar(new ProductoStore());
+    }
+
+    @Test
+    void lasAltasIgualesEnParaleloCreanUnSoloProducto() throws Exception {
+        int nombres = 20;
+        int vueltas = 50;
+        for (Catalogo catalogo : List.of(new CatalogoEnMemoria(), new ProductoStore())) {
+            ProductoService productos = new ProductoService(catalogo);
+            List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+            Thread[] hilos = new Thread[HILOS];
+            for (int h = 0; h < HILOS; h++) {
+                hilos[h] = new Thread(() -> {
+                    try {
+                        for (int n = 0; n < vueltas * nombres; n++) {
+                            // Mismo nombre con otras mayúsculas y espacios: es el mismo producto.
+                            String nombre = n % 2 == 0 ? "Nuevo " + n % nombres : "  NUEVO " + n % nombres + " ";
+                            productos.agregarProducto(nombre, 10 + n % nombres, 1);
+                        }
+                    } catch (Throwable t) {
+                        errores.add(t);
+                    }
+                });
+                hilos[h].start();
+            }
+            for (Thread hilo : hilos) hilo.join();
+
+            assertTrue(errores.isEmpty(), () -> "Errores en los hilos: " + errores);
+            List<Producto> listados = productos.listarProductos();
+            assertEquals(nombres, listados.size(), "Se dieron de alta productos repetidos.");
+            for (Producto p : listados) {
+                assertEquals(HILOS * vueltas, p.getStock(), p.getNombre());
+            }
+        }
+    }
+
+    @Test
+    void unaCantidadNoPositivaSeRechazaSinTocarElStock() throws Exception {
+        ProductoService productos = new ProductoService();
+        PedidoService pedidos = new PedidoService(productos);
+        Producto yerba = productos.agregarProducto("Yerba", 2500, 10);
+        Producto agua = productos.agregarProducto("Agua", 800, 10);
+        List<List<LineaPedido>> invalidos = List.of(
+                List.of(new LineaPedido(yerba, 0)),
+                List.of(new LineaPedido(yerba, -3)),
+                // Una línea negativa no se compensa con otra del mismo producto.
+                List.of(new LineaPedido(yerba, 5), new LineaPedido(yerba, -3)),
+                List.of(new LineaPedido(agua, 2), new LineaPedido(yerba, -1)));
+        for (List<LineaPedido> lineas : invalidos) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> pedidos.crearPedido(lineas));
+            assertTrue(e.getMessage().contains("Cantidad inválida"), e.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class, () -> productos.reservar(Map.of(yerba, -2)));
+
+        assertEquals(10, yerba.getStock());
+        assertEquals(10, agua.getStock());
+        assertEquals(0, productos.reservado(yerba.getId()));
+        assertFalse(pedidos.hayPedidos());
+        assertEquals(0, pedidos.facturacionTotal().centavos());
+    }
+
+    private void verificar(Catalogo catalogo) throws Exception {
+        ProductoService productos = new ProductoService(catalogo);
+        PedidoService pedidos = new PedidoService(productos);
+        List<Producto> catalogoInicial = new ArrayList<>();
+        for (int i = 0; i < PRODUCTOS; i++) {
+            catalogoInicial.add(productos.agregarProducto("Producto " + i, 10 + i, STOCK_INICIAL));
+        }
+        AtomicLongArray agregado = new AtomicLongArray(PRODUCTOS);
+        AtomicInteger rechazos = new AtomicInteger();
+        AtomicInteger minimoVisto = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicBoolean terminado = new AtomicBoolean();
+        List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+
+        // Lee el stock sin bloqueos mientras tanto, como lo hacen los listados.
+        Thread observador = new Thread(() -> {
+            while (!terminado.get()) {
+                for (Producto p : catalogoInicial) {
+                    minimoVisto.accumulateAndGet(p.getStock(), Math::min);
+                    minimoVisto.accumulateAndGet(productos.disponible(p), Math::min);
+                }
+            }
+        });
+        observador.start();
+
+        Thread[] hilos = new Thread[HILOS];
+        for (int h = 0; h < HILOS; h++) {
+            hilos[h] = new Thread(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                try {
+                    for (int n = 0; n < OPERACIONES; n++) {
+                        int operacion = azar.nextInt(10);
+                        if (operacion < 6) {
+                            try {
+                                pedidos.crearPedido(lineasAlAzar(catalogoInicial, azar));
+                            } catch (StockInsuficienteException e) {
+                                rechazos.incrementAndGet();
+                            }
+                        } else if (operacion < 8) {
+                            List<List<LineaPedido>> lote = new ArrayList<>();
+                            for (int k = 0; k < 4; k++) lote.add(lineasAlAzar(catalogoInicial, azar));
+                            pedidos.crearPedidos(lote, azar.nextBoolean() ? ModoLote.TODO_O_NADA : ModoLote.MEJOR_ESFUERZO);
+                        } else if (operacion < 9) {
+                            int i = azar.nextInt(PRODUCTOS);
+                            Producto p = catalogoInicial.get(i);
+                            // Mismo nombre y precio: suma stock al existente.
+                            assertEquals(p.getId(), productos.agregarProducto(p.getNombre(), p.getPrecio(), 3).getId());
+                            agregado.addAndGet(i, 3);
+                        } else {
+                            Map<Producto, Integer> cantidades = PedidoService.agruparPorProducto(lineasAlAzar(catalogoInicial, azar));
+                            try {
+                                productos.reservar(cantidades);
+                                productos.liberar(cantidades);
+                            } catch (StockInsuficienteException e) {
+                                rechazos.incrementAndGet();
+                            }
+                        }
+                    }
+                } catch (Throwable t) {
+                    errores.add(t);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join(60_000);
+            assertFalse(hilo.isAlive(), "Un hilo no terminó: posible bloqueo mutuo entre franjas.");
+        }
+        terminado.set(true);
+        observador.join();
+
+        assertTrue(errores.isEmpty(), () -> "Errores en los hilos: " + errores);
+        assertTrue(minimoVisto.get() >= 0, "Se observó stock negativo: " + minimoVisto.get());
+        assertTrue(rechazos.get() > 0, "La prueba debe agotar el stock de algún producto.");
+
+        // Stock final = inicial + lo sumado - lo vendido en los pedidos registrados.
+        long[] vendido = new long[PRODUCTOS];
+        for (Pedido pedido : pedidos.listarPedidos()) {
+            for (LineaPedido linea : pedido.getLineas()) {
+                vendido[catalogoInicial.indexOf(productos.buscarPorId(linea.getProducto().getId()).orElseThrow())]
+                        += linea.getCantidad();
+            }
+        }
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto p = productos.buscarPorId(catalogoInicial.get(i).getId()).orElseThrow();
+            assertTrue(p.getStock() >= 0, "Stock negativo en " + p.getNombre());
+            assertEquals(STOCK_INICIAL + agregado.get(i) - vendido[i], p.getStock(), "Stock de " + p.getNombre());
+            assertEquals(0, productos.reservado(p.getId()), "Reserva sin liberar en " + p.getNombre());
+        }
+    }
+
+    // De una a tres líneas en cualquier orden, a veces con el mismo producto dos veces.
+    private static List<LineaPedido> lineasAlAzar(List<Producto> catalogo, ThreadLocalRandom azar) {
+        List<LineaPedido> lineas = new ArrayList<>();
+        int cantidad = 1 + azar.nextInt(3);
+        for (int i = 0; i < cantidad; i++) {
+            lineas.add(new LineaPedido(catalogo.get(azar.nextInt(catalogo.size())), 1 + azar.nextInt(5)));
+        }
+        return lineas;
+    }
+}
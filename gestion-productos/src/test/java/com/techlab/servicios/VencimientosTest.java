@@ -0,0 +1,95 @@
+package com.techlab.servicios;
+
+import com.techlab.productos.Catalogo;
+import com.techlab.productos.CatalogoEnMemoria;
+import com.techlab.productos.Producto;
+import com.techlab.productos.ProductoStore;
+import com.techlab.util.RelojDias;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Vencidos y por vencer, con los dos catálogos: el orden es por fecha y después por ID, solo
+ * entran las comidas, las bajas salen del índice y al pasar la medianoche las listas cambian
+ * sin tocar el catálogo.
+ */
+class VencimientosTest {
+
+    private static final LocalDate HOY = LocalDate.of(2026, 10, 18);
+
+    @Test
+    void vencidosYPorVencerConCatalogoEnMemoria() {
+        verificar(new CatalogoEnMemoria());
+    }
+
+    @Test
+    void vencidosYPorVencerConProductoStore() {
+        verificar(new ProductoStore());
+    }
+
+    private void verificar(Catalogo catalogo) {
+        AtomicLong ahora = new AtomicLong(HOY.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+        ProductoService productos = new ProductoService(catalogo, new RelojDias(ajustable(ahora)));
+        productos.agregarComida("Leche", 900, 5, HOY.plusDays(1));
+        productos.agregarComida("Yogur", 700, 5, HOY.minusDays(3));
+        productos.agregarComida("Queso", 4300, 5, HOY);
+        productos.agregarComida("Pan", 500, 5, HOY.minusDays(1));
+        productos.agregarComida("Manteca", 1200, 5, HOY.plusDays(7));
+        productos.agregarComida("Dulce", 1500, 5, HOY.plusDays(30));
+        Producto crema = productos.agregarComida("Crema", 1100, 5, HOY.plusDays(1));
+        productos.agregarProducto("Yerba", 2500, 5);
+        productos.agregarBebida("Agua", 800, 5, 1.5);
+
+        assertEquals(List.of("Yogur", "Pan"), nombres(productos.listarVencidos()));
+        assertEquals(List.of("Queso"), nombres(productos.listarPorVencer(0)));
+        // Misma fecha: por ID, en el orden de alta.
+        assertEquals(List.of("Queso", "Leche", "Crema"), nombres(productos.listarPorVencer(1)));
+        assertEquals(List.of("Queso", "Leche", "Crema", "Manteca"), nombres(productos.listarPorVencer(7)));
+        assertThrows(IllegalArgumentException.class, () -> productos.listarPorVencer(-1));
+
+        // Los cambios de stock no sacan la comida del índice; una baja sí.
+        productos.actualizarProducto(crema.getId(), null, null, 0);
+        assertEquals(List.of("Queso", "Leche", "Crema"), nombres(productos.listarPorVencer(1)));
+        productos.eliminarProducto(crema.getId());
+        assertEquals(List.of("Queso", "Leche"), nombres(productos.listarPorVencer(1)));
+
+        // Pasada la medianoche, lo que vencía hoy ya está vencido.
+        ahora.addAndGet(24 * 3_600_000L);
+        assertEquals(List.of("Yogur", "Pan", "Queso"), nombres(productos.listarVencidos()));
+        assertEquals(List.of("Leche"), nombres(productos.listarPorVencer(0)));
+        assertEquals(List.of("Leche", "Manteca"), nombres(productos.listarPorVencer(6)));
+    }
+
+    private static List<String> nombres(List<Producto> productos) {
+        return productos.stream().map(Producto::getNombre).toList();
+    }
+
+    // Reloj en UTC que da la hora que tenga el AtomicLong, para pasar de día desde la prueba.
+    private static Clock ajustable(AtomicLong ahora) {
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zona) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(ahora.get());
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package com.techlab.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dinero en centavos: la conversión desde double redondea al centavo, las cuentas que se pasan
+ * de un long lanzan ArithmeticException y anexar escribe el signo y los dos decimales siempre.
+ */
+class DineroTest {
+
+    @Test
+    void deDoubleRedondeaAlCentavo() {
+        // 0.1 + 0.2 es 0.30000000000000004 en double.
+        assertEquals(30, Dinero.de(0.1 + 0.2).centavos());
+        assertEquals(Dinero.de(0.3), Dinero.de(0.1 + 0.2));
+        assertEquals(13, Dinero.de(0.125).centavos());
+        assertEquals(12, Dinero.de(0.1249).centavos());
+        assertEquals(-30, Dinero.de(-0.1 - 0.2).centavos());
+        assertEquals(250050, Dinero.centavosDe(2500.5));
+        assertSame(Dinero.CERO, Dinero.de(0.001));
+        assertEquals(9_000_000_000_000_000L, Dinero.centavosDe(9e13));
+    }
+
+    @Test
+    void unImporteFueraDeRangoSeRechaza() {
+        for (double importe : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 9.1e13, -9.1e13}) {
+            assertThrows(IllegalArgumentException.class, () -> Dinero.de(importe), String.valueOf(importe));
+        }
+    }
+
+    @Test
+    void unDesbordeLanzaArithmeticException() {
+        Dinero maximo = Dinero.deCentavos(Long.MAX_VALUE);
+        Dinero minimo = Dinero.deCentavos(Long.MIN_VALUE);
+        assertThrows(ArithmeticException.class, () -> maximo.sumar(Dinero.deCentavos(1)));
+        assertThrows(ArithmeticException.class, () -> minimo.sumar(Dinero.deCentavos(-1)));
+        assertThrows(ArithmeticException.class, () -> maximo.multiplicar(2));
+        assertThrows(ArithmeticException.class, () -> minimo.multiplicar(-1));
+        assertEquals(Long.MAX_VALUE, Dinero.deCentavos(Long.MAX_VALUE - 1).sumar(Dinero.deCentavos(1)).centavos());
+        assertEquals(-Long.MAX_VALUE, maximo.multiplicar(-1).centavos());
+    }
+
+    @Test
+    void anexarEscribeSignoYDosDecimales() {
+        assertEquals("0.00", texto(0));
+        assertEquals("0.05", texto(5));
+        assertEquals("0.50", texto(50));
+        assertEquals("1234.56", texto(123456));
+        // Menos de una unidad: el signo no sale de la parte entera.
+        assertEquals("-0.05", texto(-5));
+        assertEquals("-0.50", texto(-50));
+        assertEquals("-1.50", texto(-150));
+        assertEquals("-1234.56", texto(-123456));
+        assertEquals("92233720368547758.07", texto(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", texto(Long.MIN_VALUE));
+
+        // Anexa al final, sin tocar lo que ya había.
+        assertEquals("Total: $-0.01", Dinero.anexar(new StringBuilder("Total: $"), -1).toString());
+        assertEquals("-0.50", Dinero.deCentavos(-50).toString());
+    }
+
+    private static String texto(long centavos) {
+        return Dinero.anexar(new StringBuilder(), centavos).toString();
+    }
+}
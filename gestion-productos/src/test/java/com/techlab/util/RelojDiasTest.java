@@ -0,0 +1,101 @@
+package com.techlab.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El día en caché cambia justo a la medianoche de la zona del reloj, también en los días de
+ * 23 y 25 horas, y se recalcula si el reloj retrocede.
+ */
+class RelojDiasTest {
+
+    @Test
+    void elDiaCambiaALaMedianoche() {
+        ZoneId zona = ZoneId.of("America/Argentina/Buenos_Aires");
+        AtomicLong ahora = new AtomicLong(milis("2026-10-18T23:59:59.999", zona));
+        RelojDias dias = new RelojDias(ajustable(ahora, zona));
+
+        assertEquals(LocalDate.of(2026, 10, 18), dias.hoy());
+        ahora.incrementAndGet();
+        assertEquals(LocalDate.of(2026, 10, 19), dias.hoy());
+        ahora.addAndGet(24 * 3_600_000L - 1);
+        assertEquals(LocalDate.of(2026, 10, 19), dias.hoy());
+        ahora.incrementAndGet();
+        assertEquals(LocalDate.of(2026, 10, 20), dias.hoy());
+    }
+
+    @Test
+    void siElRelojRetrocedeSeRecalcula() {
+        ZoneId zona = ZoneId.of("America/Argentina/Buenos_Aires");
+        AtomicLong ahora = new AtomicLong(milis("2026-10-19T00:00:00", zona));
+        RelojDias dias = new RelojDias(ajustable(ahora, zona));
+
+        assertEquals(LocalDate.of(2026, 10, 19), dias.hoy());
+        ahora.decrementAndGet();
+        assertEquals(LocalDate.of(2026, 10, 18), dias.hoy());
+        ahora.addAndGet(-400 * 24 * 3_600_000L);
+        assertEquals(LocalDate.of(2025, 9, 13), dias.hoy());
+        ahora.set(milis("2026-10-19T12:00:00", zona));
+        assertEquals(LocalDate.of(2026, 10, 19), dias.hoy());
+    }
+
+    @Test
+    void losDiasDe23Y25HorasRespetanLaZona() {
+        // En São Paulo, el 4/11/2018 empezó a la 01:00 (el horario de verano saltó la medianoche).
+        ZoneId saoPaulo = ZoneId.of("America/Sao_Paulo");
+        AtomicLong ahora = new AtomicLong(milis("2018-11-03T23:59:59.999", saoPaulo));
+        RelojDias dias = new RelojDias(ajustable(ahora, saoPaulo));
+        assertEquals(LocalDate.of(2018, 11, 3), dias.hoy());
+        ahora.incrementAndGet();
+        assertEquals(LocalDate.of(2018, 11, 4), dias.hoy());
+        assertEquals(milis("2018-11-04T01:00:00", saoPaulo), ahora.get());
+
+        // En Madrid, el 25/10/2026 dura 25 horas: a las 23:30 sigue siendo el mismo día.
+        ZoneId madrid = ZoneId.of("Europe/Madrid");
+        ahora.set(milis("2026-10-25T00:00:00", madrid));
+        RelojDias diasMadrid = new RelojDias(ajustable(ahora, madrid));
+        assertEquals(LocalDate.of(2026, 10, 25), diasMadrid.hoy());
+        ahora.addAndGet(24 * 3_600_000L);
+        assertEquals(LocalDate.of(2026, 10, 25), diasMadrid.hoy());
+        ahora.addAndGet(3_600_000L);
+        assertEquals(LocalDate.of(2026, 10, 26), diasMadrid.hoy());
+    }
+
+    @Test
+    void unRelojNuloSeRechaza() {
+        assertThrows(IllegalArgumentException.class, () -> new RelojDias(null));
+        assertThrows(IllegalArgumentException.class, () -> RelojDias.setPredeterminado(null));
+    }
+
+    private static long milis(String fechaHora, ZoneId zona) {
+        return LocalDateTime.parse(fechaHora).atZone(zona).toInstant().toEpochMilli();
+    }
+
+    // Reloj que da la hora que tenga el AtomicLong, para moverlo desde la prueba.
+    static Clock ajustable(AtomicLong ahora, ZoneId zona) {
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zona;
+            }
+
+            @Override
+            public Clock withZone(ZoneId otra) {
+                return ajustable(ahora, otra);
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(ahora.get());
+            }
+        };
+    }
+}